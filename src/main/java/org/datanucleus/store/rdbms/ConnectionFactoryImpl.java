@@ -17,6 +17,7 @@ Contributors:
 **********************************************************************/
 package org.datanucleus.store.rdbms;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -24,6 +25,8 @@ import java.sql.Savepoint;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
@@ -49,8 +52,10 @@ import org.datanucleus.store.connection.ManagedConnection;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
 import org.datanucleus.store.rdbms.connectionpool.BoneCPConnectionPoolFactory;
 import org.datanucleus.store.rdbms.connectionpool.C3P0ConnectionPoolFactory;
+import org.datanucleus.store.rdbms.connectionpool.ConcurrentBagConnectionPoolFactory;
 import org.datanucleus.store.rdbms.connectionpool.ConnectionPool;
 import org.datanucleus.store.rdbms.connectionpool.ConnectionPoolFactory;
+import org.datanucleus.store.rdbms.connectionpool.ConnectionPoolStatistics;
 import org.datanucleus.store.rdbms.connectionpool.DBCP2BuiltinConnectionPoolFactory;
 import org.datanucleus.store.rdbms.connectionpool.DBCP2ConnectionPoolFactory;
 import org.datanucleus.store.rdbms.connectionpool.DefaultConnectionPoolFactory;
@@ -78,6 +83,12 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
      */
     ConnectionPool pool = null;
 
+    /** Statistics for the locally-managed pool (if any). */
+    ConnectionPoolStatistics poolStatistics = null;
+
+    /** Name under which the pool statistics are registered with JMX (if they are). */
+    ObjectName poolStatisticsName = null;
+
     /**
      * Constructor.
      * @param storeMgr Store Manager
@@ -108,6 +119,18 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
             }
             pool.close();
         }
+        if (poolStatisticsName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(poolStatisticsName);
+            }
+            catch (Exception e)
+            {
+                NucleusLogger.CONNECTION.debug("Exception unregistering connection pool statistics " + poolStatisticsName, e);
+            }
+            poolStatisticsName = null;
+        }
         super.close();
     }
 
@@ -215,6 +238,10 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
                 {
                     connPoolFactory = new DBCP2BuiltinConnectionPoolFactory();
                 }
+                else if (poolingType.equalsIgnoreCase("concurrent-bag"))
+                {
+                    connPoolFactory = new ConcurrentBagConnectionPoolFactory();
+                }
                 else if (poolingType.equalsIgnoreCase("HikariCP"))
                 {
                     connPoolFactory = new HikariCPConnectionPoolFactory();
@@ -262,6 +289,19 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
                 {
                     NucleusLogger.CONNECTION.debug(Localiser.msg("047008", resourceName, poolingType));
                 }
+
+                // Statistics for the pool, using any that the pool records itself
+                poolStatistics = pool.getStatistics();
+                if (poolStatistics == null)
+                {
+                    poolStatistics = new ConnectionPoolStatistics(poolingType);
+                    poolStatistics.setConnectionPool(pool);
+                }
+                ((RDBMSStoreManager)storeMgr).registerConnectionPoolStatistics(resourceName, poolStatistics);
+                if (storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_REGISTER_MBEAN))
+                {
+                    registerPoolStatisticsMBean(resourceName);
+                }
             }
             catch (ClassNotFoundException cnfe)
             {
@@ -281,6 +321,61 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
         return dataSource;
     }
 
+    /**
+     * Method to register the statistics of the pool with the platform MBeanServer.
+     * @param resourceName Resource name of this factory
+     */
+    private void registerPoolStatisticsMBean(String resourceName)
+    {
+        try
+        {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            poolStatisticsName = new ObjectName("org.datanucleus:type=ConnectionPool,name=" + resourceName + "-" + System.identityHashCode(this));
+            mbeanServer.registerMBean(poolStatistics, poolStatisticsName);
+        }
+        catch (Exception e)
+        {
+            NucleusLogger.CONNECTION.warn("Unable to register connection pool statistics with JMX : " + e.getMessage());
+            poolStatisticsName = null;
+        }
+    }
+
+    /**
+     * Accessor for the statistics of the connection pool created by this factory.
+     * @return The statistics, or null if no pool was created (e.g DataSource provided by the user)
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics()
+    {
+        return poolStatistics;
+    }
+
+    /**
+     * Method to obtain a connection from the DataSource, recording the time taken when the pool was created by us.
+     * @return The connection
+     * @throws SQLException Thrown if the DataSource fails to provide a connection
+     */
+    protected Connection getConnectionFromDataSource() throws SQLException
+    {
+        ConnectionPoolStatistics stats = poolStatistics;
+        if (stats == null)
+        {
+            return dataSource.getConnection();
+        }
+
+        long startTime = System.nanoTime();
+        try
+        {
+            Connection cnx = dataSource.getConnection();
+            stats.recordBorrow(System.nanoTime() - startTime);
+            return cnx;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            stats.recordBorrowFailure(e);
+            throw e;
+        }
+    }
+
     /**
      * Method to create a new ManagedConnection.
      * @param ec the object that is bound the connection during its lifecycle (if for a PM/EM operation)
@@ -415,7 +510,7 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
                     if (dba != null)
                     {
                         // Create Connection following DatastoreAdapter capabilities
-                        cnx = dataSource.getConnection();
+                        cnx = getConnectionFromDataSource();
                         boolean succeeded = false;
                         try
                         {
@@ -498,7 +593,7 @@ public class ConnectionFactoryImpl extends AbstractConnectionFactory
                     else
                     {
                         // Create Connection from DataSource since no DatastoreAdapter created yet
-                        cnx = dataSource.getConnection();
+                        cnx = getConnectionFromDataSource();
                         if (cnx == null)
                         {
                             String msg = Localiser.msg("009010", dataSource);
@@ -17,26 +17,45 @@ Contributors:
 **********************************************************************/
 package org.datanucleus.store.rdbms;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.exceptions.NucleusOptimisticException;
-import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.state.ObjectProvider;
+import org.datanucleus.store.rdbms.key.ForeignKey;
 import org.datanucleus.store.rdbms.table.ClassTable;
+import org.datanucleus.store.rdbms.table.Column;
+import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.flush.FlushNonReferential;
 import org.datanucleus.flush.FlushOrdered;
 import org.datanucleus.flush.OperationQueue;
+import org.datanucleus.util.NucleusLogger;
 
 /**
  * Flush process extending the core "ordered flush" to catch particular situations present
  * in a referential datastore and attempt to optimise them.
+ * The objects to flush are grouped by their table, and the tables ordered using the foreign-keys between them so that
+ * referenced (parent) tables come before referencing (child) tables. The objects are then flushed table-by-table, with INSERTs
+ * and then UPDATEs in forward order, and DELETEs last in reverse order, so that consecutive statements are for the same table
+ * and can be batched, and an object can be reparented before its old parent is deleted.
+ * Objects whose tables are part of a foreign-key cycle are left to the "ordered flush". Tables referencing a cycle are still ordered,
+ * with their DELETEs performed before the "ordered flush".
+ * When a table has both new and deleted objects (so an insert could reuse a key being deleted) all objects are left to the "ordered flush".
  */
 public class FlushReferential extends FlushOrdered
 {
+    /** Cache of the tables referenced by foreign-keys of a table (and its super tables). */
+    private Map<DatastoreClass, Set<DatastoreClass>> refTablesByTable = new ConcurrentHashMap<>();
+
     /* (non-Javadoc)
      * @see org.datanucleus.FlushOrdered#execute(org.datanucleus.ExecutionContext, java.util.List, java.util.List, org.datanucleus.flush.OperationQueue)
      */
@@ -46,53 +65,167 @@ public class FlushReferential extends FlushOrdered
     {
         List<NucleusOptimisticException> flushExcps = null;
 
-        // Phase 1 : Find all objects that have no relations or external FKs and process first
-        Set<ObjectProvider> unrelatedOPs = null;
-        if (primaryOPs != null)
+        // Phase 1 : Group the objects by their table, and flush in order of the foreign-keys between the tables
+        Map<DatastoreClass, List<ObjectProvider>> opsByTable = new LinkedHashMap<>();
+        groupObjectsByTable(ec, primaryOPs, opsByTable);
+        groupObjectsByTable(ec, secondaryOPs, opsByTable);
+        List<FlushStep<DatastoreClass>> stepsAfter = new ArrayList<>();
+        if (!opsByTable.isEmpty() && !hasTableWithNewAndDeletedObjects(opsByTable))
         {
-            Iterator<ObjectProvider> opIter = primaryOPs.iterator();
-            while (opIter.hasNext())
+            // Objects of tables that are part of a cycle of foreign-keys are left to the ordered flush
+            List<FlushStep<DatastoreClass>> stepsBefore = new ArrayList<>();
+            int numOrderedTables = getFlushSteps(opsByTable.keySet(), getDependenciesByTable(ec.getClassLoaderResolver(), opsByTable.keySet()),
+                stepsBefore, stepsAfter);
+            if (numOrderedTables > 0)
             {
-                ObjectProvider op = opIter.next();
-                if (!op.isEmbedded() && isClassSuitableForBatching(ec, op.getClassMetaData()))
+                Set<ObjectProvider> orderedOPs = new HashSet<>();
+                for (FlushStep<DatastoreClass> step : stepsBefore)
                 {
-                    if (unrelatedOPs == null)
-                    {
-                        unrelatedOPs = new HashSet<>();
-                    }
-                    unrelatedOPs.add(op);
-                    opIter.remove();
+                    orderedOPs.addAll(opsByTable.get(step.table));
+                }
+                for (FlushStep<DatastoreClass> step : stepsAfter)
+                {
+                    orderedOPs.addAll(opsByTable.get(step.table));
+                }
+                if (primaryOPs != null)
+                {
+                    primaryOPs.removeAll(orderedOPs);
+                }
+                if (secondaryOPs != null)
+                {
+                    secondaryOPs.removeAll(orderedOPs);
+                }
+
+                for (FlushStep<DatastoreClass> step : stepsBefore)
+                {
+                    flushExcps = flushStep(ec, opsByTable.get(step.table), step.type, flushExcps);
                 }
             }
+            if (numOrderedTables < opsByTable.size() && NucleusLogger.PERSISTENCE.isDebugEnabled())
+            {
+                NucleusLogger.PERSISTENCE.debug("Flush of objects of " + (opsByTable.size() - numOrderedTables) +
+                    " table(s) will be ordered by object since they are part of a cycle of foreign-keys");
+            }
+        }
+
+        // Phase 2 : Fallback to FlushOrdered handling for remaining objects
+        List<NucleusOptimisticException> excps = super.execute(ec, primaryOPs, secondaryOPs, opQueue);
+
+        // Phase 3 : DELETEs of the ordered tables that don't reference a cycle, since they may be referenced by objects deleted in phase 2
+        for (FlushStep<DatastoreClass> step : stepsAfter)
+        {
+            flushExcps = flushStep(ec, opsByTable.get(step.table), step.type, flushExcps);
+        }
+
+        // Return any exceptions
+        if (excps != null)
+        {
+            if (flushExcps == null)
+            {
+                flushExcps = excps;
+            }
+            else
+            {
+                flushExcps.addAll(excps);
+            }
+        }
+        return flushExcps;
+    }
+
+    enum FlushType
+    {
+        DELETE,
+        INSERT,
+        UPDATE
+    }
+
+    /**
+     * Step of the flush, for the objects of a table of one type of flush.
+     * @param <T> Type of the table
+     */
+    static class FlushStep<T>
+    {
+        final T table;
+        final FlushType type;
+
+        FlushStep(T table, FlushType type)
+        {
+            this.table = table;
+            this.type = type;
+        }
+
+        @Override
+        public String toString()
+        {
+            return type + " " + table;
+        }
+    }
+
+    private List<NucleusOptimisticException> flushStep(ExecutionContext ec, List<ObjectProvider> ops, FlushType type, List<NucleusOptimisticException> flushExcps)
+    {
+        if (type == FlushType.DELETE)
+        {
+            return flushDeletedObjects(ec, ops, flushExcps);
         }
-        if (secondaryOPs != null)
+        return flushObjects(ops, type, flushExcps);
+    }
+
+    /**
+     * Convenience method to return whether any table has both new and deleted objects. Inserting before deleting could then
+     * fail if a new object reuses a key of a deleted object.
+     * @param opsByTable ObjectProviders keyed by their table
+     * @return Whether a table has both new and deleted objects
+     */
+    private static boolean hasTableWithNewAndDeletedObjects(Map<DatastoreClass, List<ObjectProvider>> opsByTable)
+    {
+        for (List<ObjectProvider> ops : opsByTable.values())
         {
-            Iterator<ObjectProvider> opIter = secondaryOPs.iterator();
-            while (opIter.hasNext())
+            boolean hasNew = false;
+            boolean hasDeleted = false;
+            for (ObjectProvider op : ops)
             {
-                ObjectProvider op = opIter.next();
-                if (!op.isEmbedded() && isClassSuitableForBatching(ec, op.getClassMetaData()))
+                if (op.getLifecycleState().isDeleted())
                 {
-                    if (unrelatedOPs == null)
-                    {
-                        unrelatedOPs = new HashSet<>();
-                    }
-                    unrelatedOPs.add(op);
-                    opIter.remove();
+                    hasDeleted = true;
                 }
+                else if (op.getLifecycleState().isNew())
+                {
+                    hasNew = true;
+                }
+            }
+            if (hasNew && hasDeleted)
+            {
+                return true;
             }
         }
-        if (unrelatedOPs != null)
+        return false;
+    }
+
+    /**
+     * Method to flush the deleted objects from those supplied (all for the same table).
+     * Where there are several, they are flushed as a group so the deletes can be performed together (see
+     * RDBMSPersistenceHandler.deleteObjects).
+     * @param ec ExecutionContext
+     * @param ops ObjectProviders of the objects of a table
+     * @param flushExcps Any optimistic exceptions so far
+     * @return The optimistic exceptions, including any from these objects
+     */
+    private List<NucleusOptimisticException> flushDeletedObjects(ExecutionContext ec, List<ObjectProvider> ops, List<NucleusOptimisticException> flushExcps)
+    {
+        Set<ObjectProvider> deletedOPs = new HashSet<>();
+        for (ObjectProvider op : ops)
         {
-            // Process DELETEs, then INSERTs, then UPDATEs
-            FlushNonReferential groupedFlush = new FlushNonReferential();
-            flushExcps = groupedFlush.flushDeleteInsertUpdateGrouped(unrelatedOPs, ec);
+            if (op.getLifecycleState().isDeleted())
+            {
+                deletedOPs.add(op);
+            }
+        }
+        if (deletedOPs.size() <= 1)
+        {
+            return flushObjects(ops, FlushType.DELETE, flushExcps);
         }
 
-        // Phase 2 : Fallback to FlushOrdered handling for remaining objects
-        List<NucleusOptimisticException> excps = super.execute(ec, primaryOPs, secondaryOPs, opQueue);
-
-        // Return any exceptions
+        List<NucleusOptimisticException> excps = new FlushNonReferential().flushDeleteInsertUpdateGrouped(deletedOPs, ec);
         if (excps != null)
         {
             if (flushExcps == null)
@@ -107,42 +240,242 @@ public class FlushReferential extends FlushOrdered
         return flushExcps;
     }
 
-    private boolean isClassSuitableForBatching(ExecutionContext ec, AbstractClassMetaData cmd)
+    /**
+     * Method to flush the objects of the specified type (delete, insert, update) from those supplied.
+     * @param ops ObjectProviders of the objects of a table
+     * @param type The type of flush to perform
+     * @param flushExcps Any optimistic exceptions so far
+     * @return The optimistic exceptions, including any from these objects
+     */
+    private List<NucleusOptimisticException> flushObjects(List<ObjectProvider> ops, FlushType type, List<NucleusOptimisticException> flushExcps)
+    {
+        for (ObjectProvider op : ops)
+        {
+            boolean deleted = op.getLifecycleState().isDeleted();
+            boolean isNew = op.getLifecycleState().isNew();
+            if ((type == FlushType.DELETE && deleted) || (type == FlushType.INSERT && !deleted && isNew) || (type == FlushType.UPDATE && !deleted && !isNew))
+            {
+                try
+                {
+                    op.flush();
+                }
+                catch (NucleusOptimisticException oe)
+                {
+                    if (flushExcps == null)
+                    {
+                        flushExcps = new ArrayList<>();
+                    }
+                    flushExcps.add(oe);
+                }
+            }
+        }
+        return flushExcps;
+    }
+
+    /**
+     * Method to group the (non-embedded) objects from the supplied list by their table.
+     * Objects whose table (or a super table) has external foreign-keys are not grouped, leaving them to the ordered flush.
+     * @param ec ExecutionContext
+     * @param ops ObjectProviders to flush
+     * @param opsByTable Map of the ObjectProviders keyed by their table, to add to
+     */
+    private void groupObjectsByTable(ExecutionContext ec, List<ObjectProvider> ops, Map<DatastoreClass, List<ObjectProvider>> opsByTable)
     {
-        if (cmd.hasRelations(ec.getClassLoaderResolver()))
+        if (ops == null)
         {
-            return false;
+            return;
         }
 
         RDBMSStoreManager storeMgr = (RDBMSStoreManager) ec.getStoreManager();
-        ClassTable table = (ClassTable)storeMgr.getDatastoreClass(cmd.getFullClassName(), ec.getClassLoaderResolver());
-        while (true)
+        for (ObjectProvider op : ops)
         {
-            if (!isTableSuitableForBatching(table))
+            if (!op.isEmbedded())
             {
-                return false;
+                DatastoreClass table = storeMgr.getDatastoreClass(op.getClassMetaData().getFullClassName(), ec.getClassLoaderResolver());
+                if (table instanceof ClassTable && isTableSuitableForGrouping((ClassTable)table))
+                {
+                    List<ObjectProvider> tableOPs = opsByTable.get(table);
+                    if (tableOPs == null)
+                    {
+                        tableOPs = new ArrayList<>();
+                        opsByTable.put(table, tableOPs);
+                    }
+                    tableOPs.add(op);
+                }
             }
+        }
+    }
 
-            table = (ClassTable) table.getSuperDatastoreClass();
-            if (table == null)
+    /**
+     * Method to return the tables (from those supplied) that each of the supplied tables references with foreign-keys.
+     * @param clr ClassLoader resolver
+     * @param tables The tables
+     * @return The referenced tables, keyed by the referencing table
+     */
+    private Map<DatastoreClass, Set<DatastoreClass>> getDependenciesByTable(ClassLoaderResolver clr, Set<DatastoreClass> tables)
+    {
+        // Find the tables that each table depends on, allowing for referencing a super table of the other class
+        Map<DatastoreClass, Set<DatastoreClass>> dependenciesByTable = new HashMap<>();
+        for (DatastoreClass table : tables)
+        {
+            Set<DatastoreClass> refTables = getReferencedTables(clr, table);
+            Set<DatastoreClass> dependencies = new HashSet<>();
+            for (DatastoreClass otherTable : tables)
             {
-                // No more tables for this class
-                break;
+                DatastoreClass otherTbl = otherTable;
+                while (otherTbl != null)
+                {
+                    if (refTables.contains(otherTbl))
+                    {
+                        dependencies.add(otherTable);
+                        break;
+                    }
+                    otherTbl = otherTbl.getSuperDatastoreClass();
+                }
             }
+            dependenciesByTable.put(table, dependencies);
         }
-        return true;
+        return dependenciesByTable;
+    }
+
+    /**
+     * Method to work out the steps to flush the objects of the supplied tables, using the foreign-keys between them.
+     * Tables that are part of a cycle of foreign-keys (including a table referencing itself) are omitted, being left to the ordered flush.
+     * The other tables are ordered so that referenced tables come before the tables referencing them, ignoring references to tables
+     * in a cycle (a related object that isn't yet inserted is flushed when the referencing object is).
+     * The steps before the ordered flush are the INSERTs then the UPDATEs in this order, followed by the DELETEs (in reverse order) of
+     * the tables that reference a cycle (directly or indirectly), since those have to be deleted before the rows that they reference.
+     * The steps after the ordered flush are the DELETEs (in reverse order) of the other tables, since these could be referenced by rows
+     * deleted in the ordered flush.
+     * @param tables The tables
+     * @param dependenciesByTable The tables referenced by each table
+     * @param stepsBefore Steps to perform before the ordered flush, to add to
+     * @param stepsAfter Steps to perform after the ordered flush, to add to
+     * @param <T> Type of the table
+     * @return The number of tables that are ordered
+     */
+    static <T> int getFlushSteps(Collection<T> tables, Map<T, Set<T>> dependenciesByTable, List<FlushStep<T>> stepsBefore, List<FlushStep<T>> stepsAfter)
+    {
+        // Find the tables that each table depends on (directly or indirectly)
+        Map<T, Set<T>> allDependenciesByTable = new HashMap<>();
+        for (T table : tables)
+        {
+            Set<T> allDependencies = new HashSet<>();
+            List<T> toProcess = new ArrayList<>(dependenciesByTable.get(table));
+            while (!toProcess.isEmpty())
+            {
+                T dependency = toProcess.remove(toProcess.size() - 1);
+                if (allDependencies.add(dependency))
+                {
+                    toProcess.addAll(dependenciesByTable.get(dependency));
+                }
+            }
+            allDependenciesByTable.put(table, allDependencies);
+        }
+
+        // Tables that depend on themselves are in a cycle
+        Set<T> cyclicTables = new HashSet<>();
+        for (T table : tables)
+        {
+            if (allDependenciesByTable.get(table).contains(table))
+            {
+                cyclicTables.add(table);
+            }
+        }
+
+        // Repeatedly take the tables whose dependencies (other than cyclic tables) are all ordered, keeping the original order where possible
+        List<T> orderedTables = new ArrayList<>(tables.size());
+        boolean progress = true;
+        while (progress)
+        {
+            progress = false;
+            for (T table : tables)
+            {
+                if (!cyclicTables.contains(table) && !orderedTables.contains(table))
+                {
+                    Set<T> dependencies = new HashSet<>(dependenciesByTable.get(table));
+                    dependencies.removeAll(cyclicTables);
+                    if (orderedTables.containsAll(dependencies))
+                    {
+                        orderedTables.add(table);
+                        progress = true;
+                    }
+                }
+            }
+        }
+
+        for (T table : orderedTables)
+        {
+            stepsBefore.add(new FlushStep<>(table, FlushType.INSERT));
+        }
+        for (T table : orderedTables)
+        {
+            stepsBefore.add(new FlushStep<>(table, FlushType.UPDATE));
+        }
+        for (int i=orderedTables.size()-1;i>=0;i--)
+        {
+            T table = orderedTables.get(i);
+            Set<T> allDependencies = new HashSet<>(allDependenciesByTable.get(table));
+            allDependencies.retainAll(cyclicTables);
+            if (allDependencies.isEmpty())
+            {
+                stepsAfter.add(new FlushStep<>(table, FlushType.DELETE));
+            }
+            else
+            {
+                stepsBefore.add(new FlushStep<>(table, FlushType.DELETE));
+            }
+        }
+        return orderedTables.size();
     }
 
-    private boolean isTableSuitableForBatching(ClassTable table)
+    /**
+     * Accessor for the tables referenced by the foreign-keys of the specified table and its super tables.
+     * The foreign-key from the id of a (sub)table to the id of its super table is not included since that doesn't relate
+     * different objects.
+     * @param clr ClassLoader resolver
+     * @param table The table
+     * @return The referenced tables
+     */
+    private Set<DatastoreClass> getReferencedTables(ClassLoaderResolver clr, DatastoreClass table)
     {
-        if (table.hasExternalFkMappings())
+        Set<DatastoreClass> refTables = refTablesByTable.get(table);
+        if (refTables == null)
         {
-            return false;
+            refTables = new HashSet<>();
+            DatastoreClass tbl = table;
+            while (tbl != null)
+            {
+                if (tbl instanceof ClassTable)
+                {
+                    List<Column> pkCols = ((ClassTable)tbl).getPrimaryKey().getColumns();
+                    for (ForeignKey fk : ((ClassTable)tbl).getExpectedForeignKeys(clr))
+                    {
+                        if (fk.getRefTable() == tbl.getSuperDatastoreClass() && fk.getColumns().size() == pkCols.size() && pkCols.containsAll(fk.getColumns()))
+                        {
+                            // FK from id to super table id
+                            continue;
+                        }
+                        refTables.add(fk.getRefTable());
+                    }
+                }
+                tbl = tbl.getSuperDatastoreClass();
+            }
+            refTablesByTable.put(table, refTables);
         }
-        else if (table.isObjectIdDatastoreAttributed())
+        return refTables;
+    }
+
+    private boolean isTableSuitableForGrouping(ClassTable table)
+    {
+        while (table != null)
         {
-            return false;
+            if (table.hasExternalFkMappings())
+            {
+                return false;
+            }
+            table = (ClassTable) table.getSuperDatastoreClass();
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies, with logarithmic (power of 2) buckets of microseconds.
+ * Bucket 0 holds values below 1 microsec, bucket i holds values in [2^(i-1), 2^i) microsecs, and the last bucket
+ * holds everything above. Recording is lock-free, and percentiles are approximated by the upper bound of the bucket
+ * they fall in, so are accurate to within a factor of 2.
+ */
+public class LatencyHistogram
+{
+    /** Number of buckets. The last bucket covers everything from 2^(NUM_BUCKETS-2) microsecs (about 73 hours) upwards. */
+    public static final int NUM_BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Method to record a latency.
+     * @param nanos The latency (nanosecs)
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(getBucketForMicros(nanos / 1000));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long currentMax = maxNanos.get();
+        while (nanos > currentMax && !maxNanos.compareAndSet(currentMax, nanos))
+        {
+            currentMax = maxNanos.get();
+        }
+    }
+
+    private static int getBucketForMicros(long micros)
+    {
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < NUM_BUCKETS ? bucket : NUM_BUCKETS - 1;
+    }
+
+    /**
+     * Accessor for the upper bound (exclusive) of a bucket.
+     * @param bucket The bucket number
+     * @return The upper bound (microsecs), or Long.MAX_VALUE for the last bucket
+     */
+    public static long getBucketUpperBoundMicros(int bucket)
+    {
+        return bucket >= NUM_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket);
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getTotalNanos()
+    {
+        return totalNanos.get();
+    }
+
+    /**
+     * Accessor for the mean latency.
+     * @return The mean (millisecs)
+     */
+    public double getMeanMillis()
+    {
+        long num = count.get();
+        return num == 0 ? 0.0 : (totalNanos.get() / (double) num) / 1000000.0;
+    }
+
+    /**
+     * Accessor for the max latency recorded.
+     * @return The max (millisecs)
+     */
+    public double getMaxMillis()
+    {
+        return maxNanos.get() / 1000000.0;
+    }
+
+    /**
+     * Accessor for an (approximate) percentile of the recorded latencies.
+     * @param percentile The percentile (0.0 - 100.0)
+     * @return The latency (millisecs) that this percentile of values fall below
+     */
+    public double getPercentileMillis(double percentile)
+    {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts)
+        {
+            total += bucketCount;
+        }
+        if (total == 0)
+        {
+            return 0.0;
+        }
+
+        long threshold = (long) Math.ceil(total * (percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            cumulative += counts[i];
+            if (cumulative >= threshold && counts[i] > 0)
+            {
+                if (i == NUM_BUCKETS - 1)
+                {
+                    return getMaxMillis();
+                }
+                return Math.min(getBucketUpperBoundMicros(i) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Accessor for a snapshot of the counts in each bucket.
+     * @return The bucket counts
+     */
+    public long[] getBucketCounts()
+    {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Method to clear all recorded values.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+        {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + getCount() + " mean=" + getMeanMillis() + "ms p50=" + getPercentileMillis(50) + "ms p99=" + getPercentileMillis(99) + "ms max=" + getMaxMillis() + "ms";
+    }
+}
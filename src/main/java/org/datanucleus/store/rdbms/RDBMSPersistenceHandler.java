@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +33,7 @@ import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
 import org.datanucleus.exceptions.NucleusObjectNotFoundException;
 import org.datanucleus.exceptions.NucleusUserException;
+import org.datanucleus.identity.IdentityUtils;
 import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.metadata.AbstractMemberMetaData;
 import org.datanucleus.metadata.InheritanceStrategy;
@@ -441,6 +443,99 @@ public class RDBMSPersistenceHandler extends AbstractPersistenceHandler
 
     // ------------------------------ Delete ----------------------------------
 
+    /**
+     * Deletes a series of persistent objects from the database.
+     * Objects of the same class are deleted together, one table at a time, so that each table can use a single statement
+     * for several objects (see DeleteRequest). Where there are version checks to make, each object is deleted in turn.
+     * @param ops The ObjectProviders of the objects to be deleted.
+     * @throws NucleusDataStoreException when an error occurs in the datastore communication
+     */
+    @Override
+    public void deleteObjects(ObjectProvider... ops)
+    {
+        if (ops.length == 1)
+        {
+            deleteObject(ops[0]);
+            return;
+        }
+
+        // Group the objects by their class
+        Map<String, List<ObjectProvider>> opsByClassName = new LinkedHashMap<>();
+        for (ObjectProvider op : ops)
+        {
+            // Check if read-only so update not permitted
+            assertReadOnlyForUpdateOfObject(op);
+
+            String className = op.getClassMetaData().getFullClassName();
+            List<ObjectProvider> classOPs = opsByClassName.get(className);
+            if (classOPs == null)
+            {
+                classOPs = new ArrayList<>();
+                opsByClassName.put(className, classOPs);
+            }
+            classOPs.add(op);
+        }
+
+        ExecutionContext ec = ops[0].getExecutionContext();
+        ClassLoaderResolver clr = ec.getClassLoaderResolver();
+        for (Map.Entry<String, List<ObjectProvider>> entry : opsByClassName.entrySet())
+        {
+            List<ObjectProvider> classOPs = entry.getValue();
+            if (ec.getStatistics() != null)
+            {
+                for (int i=0;i<classOPs.size();i++)
+                {
+                    ec.getStatistics().incrementDeleteCount();
+                }
+            }
+
+            DatastoreClass dc = getDatastoreClass(entry.getKey(), clr);
+            deleteObjectsFromTable(dc, classOPs, clr);
+
+            for (ObjectProvider op : classOPs)
+            {
+                // The id could be reused by an object of a different class, so remove any cached class for it
+                ((RDBMSStoreManager)storeMgr).evictClassNameForObjectID(op.getInternalObjectId(), op.getClassMetaData(), op.getExecutionContext());
+            }
+        }
+    }
+
+    /**
+     * Convenience method to handle the delete of several objects (of the same class) from the various tables that they are persisted into.
+     * Processes the tables in the same order as for a single object, so secondary tables, then this table, then the superclass table(s).
+     * @param table The table to process
+     * @param ops ObjectProviders for the objects being deleted
+     * @param clr ClassLoader resolver
+     */
+    private void deleteObjectsFromTable(DatastoreClass table, List<ObjectProvider> ops, ClassLoaderResolver clr)
+    {
+        if (table instanceof ClassView)
+        {
+            throw new NucleusUserException("Cannot perform DeleteRequest on RDBMS view " + table);
+        }
+
+        // Delete any secondary tables
+        Collection<SecondaryDatastoreClass> secondaryTables = table.getSecondaryDatastoreClasses();
+        if (secondaryTables != null)
+        {
+            for (SecondaryDatastoreClass secTable : secondaryTables)
+            {
+                // Process the secondary table
+                deleteObjectsFromTable(secTable, ops, clr);
+            }
+        }
+
+        // Do the actual delete of this table
+        ((DeleteRequest)getDeleteRequest(table, ops.get(0).getClassMetaData(), clr)).execute(ops);
+
+        DatastoreClass supertable = table.getSuperDatastoreClass();
+        if (supertable != null)
+        {
+            // Process the superclass table last
+            deleteObjectsFromTable(supertable, ops, clr);
+        }
+    }
+
     /**
      * Deletes a persistent object from the database.
      * The delete can take place in several steps, one delete per table that it is stored in.
@@ -464,6 +559,9 @@ public class RDBMSPersistenceHandler extends AbstractPersistenceHandler
         ClassLoaderResolver clr = op.getExecutionContext().getClassLoaderResolver();
         DatastoreClass dc = getDatastoreClass(op.getClassMetaData().getFullClassName(), clr);
         deleteObjectFromTable(dc, op, clr);
+
+        // The id could be reused by an object of a different class, so remove any cached class for it
+        ((RDBMSStoreManager)storeMgr).evictClassNameForObjectID(op.getInternalObjectId(), op.getClassMetaData(), op.getExecutionContext());
     }
 
     /**
@@ -618,6 +716,39 @@ public class RDBMSPersistenceHandler extends AbstractPersistenceHandler
         return null;
     }
 
+    /**
+     * Method to return the persistable objects with the specified ids. Like {@link #findObject(ExecutionContext, Object)}
+     * this leaves the instantiation of the objects to us, but first finds the class names of the ids in bulk (one query per
+     * inheritance root rather than one per id) and so populates the class name cache used when each id is then found.
+     * Ids of classes being read with locking are left, since their class names aren't cached (the lookup has to lock the row).
+     * @param ec execution context
+     * @param ids the ids of the objects in question.
+     * @return The objects, all null, indicating that the implementation leaves the instantiation work to us
+     */
+    @Override
+    public Object[] findObjects(ExecutionContext ec, Object[] ids)
+    {
+        RDBMSStoreManager rdbmsMgr = (RDBMSStoreManager)storeMgr;
+        Boolean serializeRead = ec.getTransaction().getSerializeRead();
+        if (ids != null && ids.length > 1 && rdbmsMgr.isClassNameForObjectIDCacheEnabled() && (serializeRead == null || !serializeRead))
+        {
+            List<Object> lookupIds = new ArrayList<>(ids.length);
+            for (Object id : ids)
+            {
+                String targetClassName = IdentityUtils.getTargetClassNameForIdentity(id);
+                if (targetClassName == null || !ec.getSerializeReadForClass(targetClassName))
+                {
+                    lookupIds.add(id);
+                }
+            }
+            if (lookupIds.size() > 1)
+            {
+                rdbmsMgr.getClassNamesForObjectIDs(lookupIds, ec.getClassLoaderResolver(), ec);
+            }
+        }
+        return new Object[ids != null ? ids.length : 0];
+    }
+
     // ------------------------------ Convenience ----------------------------------
 
     /**
@@ -49,11 +49,29 @@ public class RDBMSPropertyNames
     public static final String PROPERTY_RDBMS_QUERY_FETCH_DIRECTION = "datanucleus.rdbms.query.fetchDirection";
     public static final String PROPERTY_RDBMS_QUERY_RESULT_SET_TYPE = "datanucleus.rdbms.query.resultSetType";
     public static final String PROPERTY_RDBMS_QUERY_RESULT_SET_CONCURRENCY = "datanucleus.rdbms.query.resultSetConcurrency";
+    public static final String PROPERTY_RDBMS_QUERY_EMPTY_TABLE_CHECK_INTERVAL = "datanucleus.rdbms.query.emptyTableCheckInterval";
+    public static final String PROPERTY_RDBMS_QUERY_COLLECTION_PARAMETER_BUCKETING = "datanucleus.rdbms.query.collectionParameterBucketing";
+    public static final String PROPERTY_RDBMS_QUERY_STREAM_RESULTS = "datanucleus.rdbms.query.streamResults";
+    public static final String PROPERTY_RDBMS_QUERY_STREAM_MAX_FETCH_SIZE = "datanucleus.rdbms.query.streamMaxFetchSize";
+    public static final String PROPERTY_RDBMS_QUERY_BULK_EVICTION_LIMIT = "datanucleus.rdbms.query.bulkEvictionLimit";
     public static final String PROPERTY_RDBMS_FETCH_UNLOADED_AUTO = "datanucleus.rdbms.fetchUnloadedAutomatically";
 
     public static final String PROPERTY_RDBMS_SQL_TABLE_NAMING_STRATEGY = "datanucleus.rdbms.sqlTableNamingStrategy";
     public static final String PROPERTY_RDBMS_STATEMENT_LOGGING = "datanucleus.rdbms.statementLogging";
     public static final String PROPERTY_RDBMS_STATEMENT_BATCH_LIMIT = "datanucleus.rdbms.statementBatchLimit";
+    public static final String PROPERTY_RDBMS_BATCH_VERSION_CHECKS = "datanucleus.rdbms.batchVersionChecks";
+    public static final String PROPERTY_RDBMS_FLUSH_REFERENTIAL = "datanucleus.rdbms.flushReferential";
+    public static final String PROPERTY_RDBMS_BULK_DELETE_DEPENDENT_ELEMENTS = "datanucleus.rdbms.bulkDeleteDependentElements";
+    public static final String PROPERTY_RDBMS_CACHE_ITERATOR_STATEMENTS = "datanucleus.rdbms.cacheIteratorStatements";
+    public static final String PROPERTY_RDBMS_LAZY_LOAD_BATCH_SIZE = "datanucleus.rdbms.lazyLoadBatchSize";
+    public static final String PROPERTY_RDBMS_LOB_LAZY_LOAD = "datanucleus.rdbms.lob.lazyLoad";
+    public static final String PROPERTY_RDBMS_LOB_LAZY_LOAD_THRESHOLD = "datanucleus.rdbms.lob.lazyLoadThreshold";
+    public static final String PROPERTY_RDBMS_SERIALISER = "datanucleus.rdbms.serialiser";
+    public static final String PROPERTY_RDBMS_SERIALISER_COMPRESSION_THRESHOLD = "datanucleus.rdbms.serialiser.compressionThreshold";
+    public static final String PROPERTY_RDBMS_STATEMENT_STATISTICS = "datanucleus.rdbms.statementStatistics";
+    public static final String PROPERTY_RDBMS_STATEMENT_STATISTICS_MAX_STATEMENTS = "datanucleus.rdbms.statementStatistics.maxStatements";
+    public static final String PROPERTY_RDBMS_STATEMENT_STATISTICS_SLOW_THRESHOLD = "datanucleus.rdbms.statementStatistics.slowThresholdMillis";
+    public static final String PROPERTY_RDBMS_CLASS_NAME_FOR_ID_CACHE_SIZE = "datanucleus.rdbms.classNameForIdCacheSize";
 
     // TODO Likely these should move to core plugin
     public static final String PROPERTY_CONNECTION_POOL_MAX_CONNECTIONS = "datanucleus.connectionPool.maxConnections";
@@ -71,6 +89,9 @@ public class RDBMSPropertyNames
     public static final String PROPERTY_CONNECTION_POOL_DRIVER_PROPS = "datanucleus.connectionPool.driverProps";
     public static final String PROPERTY_CONNECTION_POOL_LEAK_DETECTION_THRESHOLD = "datanucleus.connectionPool.leakThreshold";
     public static final String PROPERTY_CONNECTION_POOL_MAX_LIFETIME = "datanucleus.connectionPool.maxLifetime";
+    public static final String PROPERTY_CONNECTION_POOL_REGISTER_MBEAN = "datanucleus.connectionPool.registerMBean";
+    public static final String PROPERTY_CONNECTION_POOL_TEST_WHILE_IDLE = "datanucleus.connectionPool.testWhileIdle";
+    public static final String PROPERTY_CONNECTION_POOL_VALIDATION_SKIP_WINDOW_MILLIS = "datanucleus.connectionPool.validationSkipWindowMillis";
 
     // TODO These are HikariCP specific, so maybe ought to be named as such
     public static final String PROPERTY_CONNECTION_POOL_AUTO_COMMIT = "datanucleus.connectionPool.autoCommit";
@@ -84,6 +105,7 @@ public class RDBMSPropertyNames
 
     // Oracle specific
     public static final String PROPERTY_RDBMS_ORACLE_NLS_SORT_ORDER = "datanucleus.rdbms.oracle.nlsSortOrder";
+    public static final String PROPERTY_RDBMS_ORACLE_LOB_DIRECT_BINDING = "datanucleus.rdbms.oracle.lobDirectBinding";
 
     // Informix specific
     public static final String PROPERTY_RDBMS_INFORMIX_USE_SERIAL_FOR_IDENTITY = "datanucleus.rdbms.informix.useSerialForIdentity";
@@ -20,13 +20,18 @@ package org.datanucleus.store.rdbms;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.exceptions.NucleusDataStoreException;
+import org.datanucleus.identity.IdentityUtils;
 import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.metadata.DiscriminatorMetaData;
 import org.datanucleus.metadata.InheritanceMetaData;
@@ -39,21 +44,30 @@ import org.datanucleus.store.rdbms.query.RDBMSQueryUtils;
 import org.datanucleus.store.rdbms.sql.DiscriminatorStatementGenerator;
 import org.datanucleus.store.rdbms.sql.SQLStatement;
 import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
+import org.datanucleus.store.rdbms.sql.SQLStatementParameter;
 import org.datanucleus.store.rdbms.sql.SQLTable;
+import org.datanucleus.store.rdbms.sql.SQLText;
 import org.datanucleus.store.rdbms.sql.SelectStatement;
 import org.datanucleus.store.rdbms.sql.SelectStatementGenerator;
 import org.datanucleus.store.rdbms.sql.UnionStatementGenerator;
+import org.datanucleus.store.rdbms.sql.expression.BooleanExpression;
+import org.datanucleus.store.rdbms.sql.expression.InExpression;
 import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
 import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
 import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.schema.table.SurrogateColumnType;
+import org.datanucleus.util.ClassUtils;
 import org.datanucleus.util.NucleusLogger;
+import org.datanucleus.util.TypeConversionHelper;
 
 /**
  * Provides a series of utilities assisting in the datastore management process for RDBMS datastores.
  */
 public class RDBMSStoreHelper
 {
+    /** Name of the parameter for the identity in the statements to find the class name for an identity. */
+    private static final String ID_PARAMETER_NAME = "ID";
+
     private RDBMSStoreHelper(){}
     /**
      * Utility that does a discriminator candidate query for the specified candidate and subclasses
@@ -72,74 +86,52 @@ public class RDBMSStoreHelper
             return null;
         }
 
-        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
-        ClassLoaderResolver clr = ec.getClassLoaderResolver();
-        DatastoreClass primaryTable = storeMgr.getDatastoreClass(cmd.getFullClassName(), clr);
-
-        // Form the query to find which one of these classes has the instance with this id
-        DiscriminatorStatementGenerator stmtGen = new DiscriminatorStatementGenerator(storeMgr, clr, clr.classForName(cmd.getFullClassName()), true, null, null);
-        stmtGen.setOption(SelectStatementGenerator.OPTION_RESTRICT_DISCRIM);
-        SelectStatement sqlStmt = stmtGen.getStatement(ec);
-
-        // Select the discriminator
-        JavaTypeMapping discrimMapping = primaryTable.getSurrogateMapping(SurrogateColumnType.DISCRIMINATOR, true);
-        SQLTable discrimSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), discrimMapping);
-        sqlStmt.select(discrimSqlTbl, discrimMapping, null);
-
-        // Restrict to this id
-        JavaTypeMapping idMapping = primaryTable.getIdMapping();
-        JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-        SQLExpression sqlFldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
-        SQLExpression sqlFldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, id, "ID");
-        sqlStmt.whereAnd(sqlFldExpr.eq(sqlFldVal), true);
-
-        // Perform the query
-        try
+        boolean lock = ec.getSerializeReadForClass(cmd.getFullClassName());
+        StringBuilder stmtKeyStr = new StringBuilder("DISCRIMINATOR:").append(cmd.getFullClassName());
+        appendTenantToStatementKey(stmtKeyStr, ec, cmd);
+        if (lock)
         {
-            ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
-            SQLController sqlControl = storeMgr.getSQLController();
-            if (ec.getSerializeReadForClass(cmd.getFullClassName()))
+            stmtKeyStr.append(":LOCK");
+        }
+        String stmtKey = stmtKeyStr.toString();
+        ClassNameForIdStatement idStmt = storeMgr.getClassNameForIdStatements().get(stmtKey);
+        if (idStmt == null)
+        {
+            SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+            ClassLoaderResolver clr = ec.getClassLoaderResolver();
+            DatastoreClass primaryTable = storeMgr.getDatastoreClass(cmd.getFullClassName(), clr);
+
+            // Form the query to find which one of these classes has the instance with this id
+            DiscriminatorStatementGenerator stmtGen = new DiscriminatorStatementGenerator(storeMgr, clr, clr.classForName(cmd.getFullClassName()), true, null, null);
+            stmtGen.setOption(SelectStatementGenerator.OPTION_RESTRICT_DISCRIM);
+            SelectStatement sqlStmt = stmtGen.getStatement(ec);
+
+            // Select the discriminator
+            JavaTypeMapping discrimMapping = primaryTable.getSurrogateMapping(SurrogateColumnType.DISCRIMINATOR, true);
+            SQLTable discrimSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), discrimMapping);
+            sqlStmt.select(discrimSqlTbl, discrimMapping, null);
+
+            // Restrict to this id
+            restrictToIdParameter(sqlStmt, exprFactory);
+            if (lock)
             {
                 sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
             }
 
-            try
-            {
-                PreparedStatement ps = SQLStatementHelper.getPreparedStatementForSQLStatement(sqlStmt, ec, mconn, null, null);
-                String statement = sqlStmt.getSQLText().toSQL();
-                try
-                {
-                    ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, statement, ps);
-                    try
-                    {
-                        while (rs.next())
-                        {
-                            DiscriminatorMetaData dismd = discrimMapping.getTable().getDiscriminatorMetaData();
-                            return RDBMSQueryUtils.getClassNameFromDiscriminatorResultSetRow(discrimMapping, dismd, rs, ec);
-                        }
-                    }
-                    finally
-                    {
-                        rs.close();
-                    }
-                }
-                finally
-                {
-                    sqlControl.closeStatement(mconn, ps);
-                }
-            }
-            finally
-            {
-                mconn.release();
-            }
+            idStmt = new ClassNameForIdStatement(sqlStmt, discrimMapping);
+            storeMgr.getClassNameForIdStatements().put(stmtKey, idStmt);
+        }
+
+        // Perform the query
+        try
+        {
+            return getClassNameForId(storeMgr, ec, id, idStmt);
         }
         catch (SQLException sqe)
         {
             NucleusLogger.DATASTORE.error("Exception thrown on querying of discriminator for id", sqe);
             throw new NucleusDataStoreException(sqe.toString(), sqe);
         }
-
-        return null;
     }
 
     /**
@@ -159,17 +151,120 @@ public class RDBMSStoreHelper
             return null;
         }
 
+        StringBuilder stmtKeyStr = new StringBuilder("UNION");
+        for (AbstractClassMetaData rootCmd : rootCmds)
+        {
+            stmtKeyStr.append(':').append(rootCmd.getFullClassName());
+            appendTenantToStatementKey(stmtKeyStr, ec, rootCmd);
+        }
+        String stmtKey = stmtKeyStr.toString();
+        ClassNameForIdStatement idStmt = storeMgr.getClassNameForIdStatements().get(stmtKey);
+        if (idStmt == null)
+        {
+            idStmt = generateClassNameForIdUnionStatement(storeMgr, ec, rootCmds, false);
+            if (idStmt == null)
+            {
+                return null;
+            }
+            storeMgr.getClassNameForIdStatements().put(stmtKey, idStmt);
+        }
+        if (idStmt.lockClassName != null && ec.getSerializeReadForClass(idStmt.lockClassName))
+        {
+            String lockStmtKey = stmtKey + ":LOCK";
+            ClassNameForIdStatement lockIdStmt = storeMgr.getClassNameForIdStatements().get(lockStmtKey);
+            if (lockIdStmt == null)
+            {
+                lockIdStmt = generateClassNameForIdUnionStatement(storeMgr, ec, rootCmds, true);
+                storeMgr.getClassNameForIdStatements().put(lockStmtKey, lockIdStmt);
+            }
+            idStmt = lockIdStmt;
+        }
+
+        // Perform the query
+        try
+        {
+            return getClassNameForId(storeMgr, ec, id, idStmt);
+        }
+        catch (SQLException sqe)
+        {
+            NucleusLogger.DATASTORE.error("Exception with UNION statement", sqe);
+            throw new NucleusDataStoreException(sqe.toString());
+        }
+    }
+
+    /**
+     * Convenience method to append the tenant (if any) to the key of a cached statement to find the class for an id,
+     * since any multitenancy restriction is included in the statement as a literal.
+     * @param stmtKey The statement key
+     * @param ec execution context
+     * @param cmd Metadata for the root candidate class
+     */
+    private static void appendTenantToStatementKey(StringBuilder stmtKey, ExecutionContext ec, AbstractClassMetaData cmd)
+    {
+        String tenantId = ec.getNucleusContext().getMultiTenancyId(ec, cmd);
+        if (tenantId != null)
+        {
+            stmtKey.append("[TENANT=").append(tenantId).append(']');
+        }
+    }
+
+    /**
+     * Method to generate the statement UNIONing the specified candidate(s) and subclasses, to find the class for an id.
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param rootCmds Metadata for the classes at the root
+     * @param lock Whether to lock the selected row(s)
+     * @return The statement, or null if no candidate has a table
+     */
+    private static ClassNameForIdStatement generateClassNameForIdUnionStatement(RDBMSStoreManager storeMgr, ExecutionContext ec, List<AbstractClassMetaData> rootCmds,
+            boolean lock)
+    {
         SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+
+        SelectStatement sqlStmtMain = null;
+        for (SelectStatement sqlStmt : getClassNameForIdUnionStatements(storeMgr, ec, rootCmds))
+        {
+            // WHERE (object id) = ?
+            restrictToIdParameter(sqlStmt, exprFactory);
+
+            if (sqlStmtMain == null)
+            {
+                sqlStmtMain = sqlStmt;
+            }
+            else
+            {
+                sqlStmtMain.union(sqlStmt);
+            }
+        }
+
+        if (sqlStmtMain == null)
+        {
+            return null;
+        }
+
+        if (lock)
+        {
+            sqlStmtMain.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        }
+        return new ClassNameForIdStatement(sqlStmtMain, sqlStmtMain.getCandidateClassName());
+    }
+
+    /**
+     * Method to generate the statements to be UNIONed for the specified candidate(s) and subclasses, selecting the type of the object.
+     * The candidate class of the first statement is used to decide on the locking of the statement.
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param rootCmds Metadata for the classes at the root
+     * @return The statements (without any restriction on the id), empty if no candidate has a table
+     */
+    private static List<SelectStatement> getClassNameForIdUnionStatements(RDBMSStoreManager storeMgr, ExecutionContext ec, List<AbstractClassMetaData> rootCmds)
+    {
         ClassLoaderResolver clr = ec.getClassLoaderResolver();
+        List<SelectStatement> sqlStmts = new ArrayList<>();
 
         // Form a query UNIONing all possible root candidates (and their subclasses)
-        Iterator<AbstractClassMetaData> rootCmdIter = rootCmds.iterator();
-
-        AbstractClassMetaData sampleCmd = null; // Metadata for sample class in the tree so we can check if needs locking
-        SelectStatement sqlStmtMain = null;
-        while (rootCmdIter.hasNext())
+        for (AbstractClassMetaData rootCmd : rootCmds)
         {
-            AbstractClassMetaData rootCmd = rootCmdIter.next();
             DatastoreClass rootTbl = storeMgr.getDatastoreClass(rootCmd.getFullClassName(), clr);
             InheritanceMetaData rootInhmd = rootCmd.getBaseAbstractClassMetaData().getInheritanceMetaData();
             if (rootInhmd.getStrategy() == InheritanceStrategy.COMPLETE_TABLE)
@@ -179,31 +274,7 @@ public class RDBMSStoreHelper
                 {
                     UnionStatementGenerator stmtGen = new UnionStatementGenerator(storeMgr, clr, clr.classForName(rootCmd.getFullClassName()), false, null, null);
                     stmtGen.setOption(SelectStatementGenerator.OPTION_SELECT_DN_TYPE);
-                    if (sqlStmtMain == null)
-                    {
-                        sampleCmd = rootCmd;
-                        sqlStmtMain = stmtGen.getStatement(ec);
-
-                        // WHERE (object id) = ?
-                        JavaTypeMapping idMapping = sqlStmtMain.getPrimaryTable().getTable().getIdMapping();
-                        JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                        SQLExpression fieldExpr = exprFactory.newExpression(sqlStmtMain, sqlStmtMain.getPrimaryTable(), idMapping);
-                        SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmtMain, idParamMapping, id, "ID");
-                        sqlStmtMain.whereAnd(fieldExpr.eq(fieldVal), true);
-                    }
-                    else
-                    {
-                        SelectStatement sqlStmt = stmtGen.getStatement(ec);
-
-                        // WHERE (object id) = ?
-                        JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
-                        JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                        SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
-                        SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, id, "ID");
-                        sqlStmt.whereAnd(fieldExpr.eq(fieldVal), true);
-
-                        sqlStmtMain.union(sqlStmt);
-                    }
+                    sqlStmts.add(stmtGen.getStatement(ec));
                 }
                 Collection<String> rootSubclassNames = storeMgr.getSubClassesForClass(rootCmd.getFullClassName(), true, clr);
                 for (String rootSubclassName : rootSubclassNames)
@@ -212,34 +283,9 @@ public class RDBMSStoreHelper
                     DatastoreClass rootSubclassTbl = storeMgr.getDatastoreClass(rootSubclassCmd.getFullClassName(), clr);
                     if (rootSubclassTbl != null)
                     {
-
                         UnionStatementGenerator stmtGen = new UnionStatementGenerator(storeMgr, clr, clr.classForName(rootSubclassCmd.getFullClassName()), false, null, null);
                         stmtGen.setOption(SelectStatementGenerator.OPTION_SELECT_DN_TYPE);
-                        if (sqlStmtMain == null)
-                        {
-                            sampleCmd = rootSubclassCmd;
-                            sqlStmtMain = stmtGen.getStatement(ec);
-
-                            // WHERE (object id) = ?
-                            JavaTypeMapping idMapping = sqlStmtMain.getPrimaryTable().getTable().getIdMapping();
-                            JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                            SQLExpression fieldExpr = exprFactory.newExpression(sqlStmtMain, sqlStmtMain.getPrimaryTable(), idMapping);
-                            SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmtMain, idParamMapping, id, "ID");
-                            sqlStmtMain.whereAnd(fieldExpr.eq(fieldVal), true);
-                        }
-                        else
-                        {
-                            SelectStatement sqlStmt = stmtGen.getStatement(ec);
-
-                            // WHERE (object id) = ?
-                            JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
-                            JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                            SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
-                            SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, id, "ID");
-                            sqlStmt.whereAnd(fieldExpr.eq(fieldVal), true);
-
-                            sqlStmtMain.union(sqlStmt);
-                        }
+                        sqlStmts.add(stmtGen.getStatement(ec));
                     }
                 }
 
@@ -260,31 +306,7 @@ public class RDBMSStoreHelper
                     {
                         UnionStatementGenerator stmtGen = new UnionStatementGenerator(storeMgr, clr, clr.classForName(subcmds[i].getFullClassName()), true, null, null);
                         stmtGen.setOption(SelectStatementGenerator.OPTION_SELECT_DN_TYPE);
-                        if (sqlStmtMain == null)
-                        {
-                            sampleCmd = subcmds[i];
-                            sqlStmtMain = stmtGen.getStatement(ec);
-
-                            // WHERE (object id) = ?
-                            JavaTypeMapping idMapping = sqlStmtMain.getPrimaryTable().getTable().getIdMapping();
-                            JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                            SQLExpression fieldExpr = exprFactory.newExpression(sqlStmtMain, sqlStmtMain.getPrimaryTable(), idMapping);
-                            SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmtMain, idParamMapping, id, "ID");
-                            sqlStmtMain.whereAnd(fieldExpr.eq(fieldVal), true);
-                        }
-                        else
-                        {
-                            SelectStatement sqlStmt = stmtGen.getStatement(ec);
-
-                            // WHERE (object id) = ?
-                            JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
-                            JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                            SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
-                            SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, id, "ID");
-                            sqlStmt.whereAnd(fieldExpr.eq(fieldVal), true);
-
-                            sqlStmtMain.union(sqlStmt);
-                        }
+                        sqlStmts.add(stmtGen.getStatement(ec));
                     }
                 }
             }
@@ -292,88 +314,447 @@ public class RDBMSStoreHelper
             {
                 UnionStatementGenerator stmtGen = new UnionStatementGenerator(storeMgr, clr, clr.classForName(rootCmd.getFullClassName()), true, null, null);
                 stmtGen.setOption(SelectStatementGenerator.OPTION_SELECT_DN_TYPE);
+                sqlStmts.add(stmtGen.getStatement(ec));
+            }
+        }
+        return sqlStmts;
+    }
+
+    /**
+     * Utility that does a discriminator candidate query for the specified candidate and subclasses
+     * and returns the class names of the instances that have the specified identities (if any).
+     * The identities are processed in chunks, so that each statement has no more parameters than the datastore allows.
+     * Doesn't support an identity that has a relation as part of it (compound identity).
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param ids The ids
+     * @param cmd Metadata for the root candidate class
+     * @return Map of the class name keyed by the id, for the ids that were found
+     */
+    public static Map<Object, String> getClassNamesForIdsUsingDiscriminator(RDBMSStoreManager storeMgr, ExecutionContext ec, Collection ids, AbstractClassMetaData cmd)
+    {
+        Map<Object, String> classNameById = new HashMap<>();
+        if (cmd == null || ids == null || ids.isEmpty())
+        {
+            return classNameById;
+        }
+
+        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+        ClassLoaderResolver clr = ec.getClassLoaderResolver();
+        DatastoreClass primaryTable = storeMgr.getDatastoreClass(cmd.getFullClassName(), clr);
+        JavaTypeMapping discrimMapping = primaryTable.getSurrogateMapping(SurrogateColumnType.DISCRIMINATOR, true);
+        boolean lock = ec.getSerializeReadForClass(cmd.getFullClassName());
+
+        List<Object> idList = new ArrayList<>(ids);
+        int chunkSize = -1;
+        int chunkStart = 0;
+        while (chunkStart < idList.size())
+        {
+            DiscriminatorStatementGenerator stmtGen = new DiscriminatorStatementGenerator(storeMgr, clr, clr.classForName(cmd.getFullClassName()), true, null, null);
+            stmtGen.setOption(SelectStatementGenerator.OPTION_RESTRICT_DISCRIM);
+            SelectStatement sqlStmt = stmtGen.getStatement(ec);
+            if (chunkSize < 0)
+            {
+                chunkSize = getIdChunkSize(storeMgr, sqlStmt, 1 + sqlStmt.getNumberOfUnions());
+            }
+            List<Object> idChunk = idList.subList(chunkStart, Math.min(chunkStart + chunkSize, idList.size()));
+            chunkStart += idChunk.size();
+
+            // Select the discriminator and the id
+            SQLTable discrimSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), discrimMapping);
+            sqlStmt.select(discrimSqlTbl, discrimMapping, null);
+            int[] idCols = sqlStmt.select(exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), primaryTable.getIdMapping()), null);
+
+            // Restrict to these ids
+            restrictToIdParameters(sqlStmt, exprFactory, idChunk.size());
+            if (lock)
+            {
+                sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            }
+
+            // Perform the query
+            try
+            {
+                getClassNamesForIds(storeMgr, ec, cmd, idChunk, new ClassNameForIdStatement(sqlStmt, discrimMapping), primaryTable.getIdMapping(), idCols,
+                    classNameById);
+            }
+            catch (SQLException sqe)
+            {
+                NucleusLogger.DATASTORE.error("Exception thrown on querying of discriminator for ids", sqe);
+                throw new NucleusDataStoreException(sqe.toString(), sqe);
+            }
+        }
+        return classNameById;
+    }
+
+    /**
+     * Utility that does a union candidate query for the specified candidate(s) and subclasses
+     * and returns the class names of the instances that have the specified identities (if any).
+     * The identities are processed in chunks, so that each statement has no more parameters than the datastore allows.
+     * Doesn't support an identity that has a relation as part of it (compound identity).
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param ids The ids
+     * @param rootCmds Metadata for the classes at the root
+     * @return Map of the class name keyed by the id, for the ids that were found
+     */
+    public static Map<Object, String> getClassNamesForIdsUsingUnion(RDBMSStoreManager storeMgr, ExecutionContext ec, Collection ids, List<AbstractClassMetaData> rootCmds)
+    {
+        Map<Object, String> classNameById = new HashMap<>();
+        if (rootCmds == null || rootCmds.isEmpty() || ids == null || ids.isEmpty())
+        {
+            return classNameById;
+        }
+
+        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+        List<Object> idList = new ArrayList<>(ids);
+        int chunkSize = -1;
+        int chunkStart = 0;
+        while (chunkStart < idList.size())
+        {
+            List<SelectStatement> sqlStmts = getClassNameForIdUnionStatements(storeMgr, ec, rootCmds);
+            if (sqlStmts.isEmpty())
+            {
+                break;
+            }
+            if (chunkSize < 0)
+            {
+                int numStmts = 0;
+                for (SelectStatement sqlStmt : sqlStmts)
+                {
+                    numStmts += 1 + sqlStmt.getNumberOfUnions();
+                }
+                chunkSize = getIdChunkSize(storeMgr, sqlStmts.get(0), numStmts);
+            }
+            List<Object> idChunk = idList.subList(chunkStart, Math.min(chunkStart + chunkSize, idList.size()));
+            chunkStart += idChunk.size();
+
+            SelectStatement sqlStmtMain = null;
+            int[] idCols = null;
+            for (SelectStatement sqlStmt : sqlStmts)
+            {
+                // Select the id, and restrict to these ids : WHERE (object id) IN (?, ?, ...)
+                int[] cols = sqlStmt.select(exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), sqlStmt.getPrimaryTable().getTable().getIdMapping()), null);
+                restrictToIdParameters(sqlStmt, exprFactory, idChunk.size());
+
                 if (sqlStmtMain == null)
                 {
-                    sampleCmd = rootCmd;
-                    sqlStmtMain = stmtGen.getStatement(ec);
-
-                    // WHERE (object id) = ?
-                    JavaTypeMapping idMapping = sqlStmtMain.getPrimaryTable().getTable().getIdMapping();
-                    JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                    SQLExpression fieldExpr = exprFactory.newExpression(sqlStmtMain, sqlStmtMain.getPrimaryTable(), idMapping);
-                    SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmtMain, idParamMapping, id, "ID");
-                    sqlStmtMain.whereAnd(fieldExpr.eq(fieldVal), true);
+                    sqlStmtMain = sqlStmt;
+                    idCols = cols;
                 }
                 else
                 {
-                    SelectStatement sqlStmt = stmtGen.getStatement(ec);
-
-                    // WHERE (object id) = ?
-                    JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
-                    JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
-                    SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
-                    SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, id, "ID");
-                    sqlStmt.whereAnd(fieldExpr.eq(fieldVal), true);
-
                     sqlStmtMain.union(sqlStmt);
                 }
             }
+            String lockClassName = sqlStmtMain.getCandidateClassName();
+            if (lockClassName != null && ec.getSerializeReadForClass(lockClassName))
+            {
+                sqlStmtMain.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            }
+
+            // Perform the query
+            try
+            {
+                getClassNamesForIds(storeMgr, ec, rootCmds.get(0), idChunk, new ClassNameForIdStatement(sqlStmtMain, (String)null),
+                    sqlStmtMain.getPrimaryTable().getTable().getIdMapping(), idCols, classNameById);
+            }
+            catch (SQLException sqe)
+            {
+                NucleusLogger.DATASTORE.error("Exception with UNION statement", sqe);
+                throw new NucleusDataStoreException(sqe.toString());
+            }
         }
+        return classNameById;
+    }
 
-        // Perform the query
-        if (sqlStmtMain != null)
+    /**
+     * Convenience method to restrict the supplied statement to the object id of its primary table, using parameter "ID".
+     * @param sqlStmt The statement
+     * @param exprFactory Expression factory
+     */
+    private static void restrictToIdParameter(SelectStatement sqlStmt, SQLExpressionFactory exprFactory)
+    {
+        JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
+        JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
+        SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
+        SQLExpression fieldVal = exprFactory.newLiteralParameter(sqlStmt, idParamMapping, null, ID_PARAMETER_NAME);
+        sqlStmt.whereAnd(fieldExpr.eq(fieldVal), true);
+    }
+
+    /**
+     * Convenience method to restrict the supplied statement to a number of object ids of its primary table,
+     * using parameters "ID0", "ID1", etc.
+     * @param sqlStmt The statement
+     * @param exprFactory Expression factory
+     * @param numIds Number of ids
+     */
+    private static void restrictToIdParameters(SelectStatement sqlStmt, SQLExpressionFactory exprFactory, int numIds)
+    {
+        JavaTypeMapping idMapping = sqlStmt.getPrimaryTable().getTable().getIdMapping();
+        JavaTypeMapping idParamMapping = new PersistableIdMapping((PersistableMapping) idMapping);
+        SQLExpression fieldExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), idMapping);
+        if (idMapping.getNumberOfColumnMappings() == 1)
+        {
+            List<SQLExpression> fieldVals = new ArrayList<>(numIds);
+            for (int i=0;i<numIds;i++)
+            {
+                fieldVals.add(exprFactory.newLiteralParameter(sqlStmt, idParamMapping, null, ID_PARAMETER_NAME + i));
+            }
+            sqlStmt.whereAnd(new InExpression(fieldExpr, fieldVals), true);
+        }
+        else
         {
+            // Multiple id columns so use (COL1 = ? AND COL2 = ?) OR (COL1 = ? AND COL2 = ?) ...
+            BooleanExpression idsExpr = null;
+            for (int i=0;i<numIds;i++)
+            {
+                BooleanExpression idExpr = fieldExpr.eq(exprFactory.newLiteralParameter(sqlStmt, idParamMapping, null, ID_PARAMETER_NAME + i));
+                idsExpr = (idsExpr == null) ? idExpr : idsExpr.ior(idExpr);
+            }
+            sqlStmt.whereAnd((BooleanExpression) idsExpr.encloseInParentheses(), true);
+        }
+    }
+
+    /**
+     * Convenience method to return the number of ids to restrict a statement to, so that the number of parameters is within the
+     * limit of the datastore.
+     * @param storeMgr RDBMS StoreManager
+     * @param sqlStmt A statement selecting the candidate
+     * @param numStmts Number of statements (including UNIONs) that will each be restricted to the ids
+     * @return Number of ids per statement
+     */
+    private static int getIdChunkSize(RDBMSStoreManager storeMgr, SelectStatement sqlStmt, int numStmts)
+    {
+        int numIdCols = sqlStmt.getPrimaryTable().getTable().getIdMapping().getNumberOfColumnMappings();
+        return Math.max(1, storeMgr.getDatastoreAdapter().getMaxParametersPerStatement() / (numIdCols * numStmts));
+    }
+
+    /**
+     * Method to execute the supplied statement for the specified id, returning the class name of the object with this id.
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param id The id
+     * @param idStmt The statement
+     * @return Name of the class with this identity (or null if none found)
+     * @throws SQLException Thrown if an error occurs executing the statement
+     */
+    private static String getClassNameForId(RDBMSStoreManager storeMgr, ExecutionContext ec, Object id, ClassNameForIdStatement idStmt)
+    throws SQLException
+    {
+        ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+        SQLController sqlControl = storeMgr.getSQLController();
+        try
+        {
+            PreparedStatement ps = sqlControl.getStatementForQuery(mconn, idStmt.sql);
             try
             {
-                ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
-                SQLController sqlControl = storeMgr.getSQLController();
-                if (sampleCmd != null && ec.getSerializeReadForClass(sampleCmd.getFullClassName()))
+                SQLStatementHelper.applyParametersToStatement(ps, ec, idStmt.parameters, null, Collections.singletonMap(ID_PARAMETER_NAME, id));
+                ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, idStmt.sql, ps);
+                try
+                {
+                    while (rs.next())
+                    {
+                        if (idStmt.discrimMapping != null)
+                        {
+                            DiscriminatorMetaData dismd = idStmt.discrimMapping.getTable().getDiscriminatorMetaData();
+                            return RDBMSQueryUtils.getClassNameFromDiscriminatorResultSetRow(idStmt.discrimMapping, dismd, rs, ec);
+                        }
+
+                        try
+                        {
+                            return rs.getString(UnionStatementGenerator.DN_TYPE_COLUMN).trim();
+                        }
+                        catch (SQLException sqle)
+                        {
+                        }
+                    }
+                }
+                finally
                 {
-                    sqlStmtMain.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+                    rs.close();
                 }
+            }
+            finally
+            {
+                sqlControl.closeStatement(mconn, ps);
+            }
+        }
+        finally
+        {
+            mconn.release();
+        }
+        return null;
+    }
 
+    /**
+     * Method to execute the supplied statement for the specified ids (as parameters "ID0", "ID1", etc), adding the class name
+     * of the object with each id found to the supplied map.
+     * @param storeMgr RDBMS StoreManager
+     * @param ec execution context
+     * @param cmd Metadata for a class with this type of identity
+     * @param ids The ids
+     * @param idStmt The statement
+     * @param idMapping Mapping for the id selected in the statement
+     * @param idCols Positions of the id column(s) in the result set
+     * @param classNameById Map of the class name keyed by the id, to add to
+     * @throws SQLException Thrown if an error occurs executing the statement
+     */
+    private static void getClassNamesForIds(RDBMSStoreManager storeMgr, ExecutionContext ec, AbstractClassMetaData cmd, List<Object> ids,
+            ClassNameForIdStatement idStmt, JavaTypeMapping idMapping, int[] idCols, Map<Object, String> classNameById)
+    throws SQLException
+    {
+        // Key the ids by their column value(s) so we can find the id for each row
+        Map<String, Object> paramValues = new HashMap<>();
+        Map<List<Object>, Object> idByValues = new HashMap<>();
+        for (int i=0;i<ids.size();i++)
+        {
+            Object id = ids.get(i);
+            paramValues.put(ID_PARAMETER_NAME + i, id);
+            idByValues.put(getIdColumnValues(id, cmd), id);
+        }
+        List<Object> sampleValues = idByValues.keySet().iterator().next();
+        JavaTypeMapping[] idMemberMappings = ((PersistableMapping) idMapping).getJavaTypeMapping();
+
+        ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+        SQLController sqlControl = storeMgr.getSQLController();
+        try
+        {
+            PreparedStatement ps = sqlControl.getStatementForQuery(mconn, idStmt.sql);
+            try
+            {
+                SQLStatementHelper.applyParametersToStatement(ps, ec, idStmt.parameters, null, paramValues);
+                ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, idStmt.sql, ps);
                 try
                 {
-                    PreparedStatement ps = SQLStatementHelper.getPreparedStatementForSQLStatement(sqlStmtMain, ec, mconn, null, null);
-                    String statement = sqlStmtMain.getSQLText().toSQL();
-                    try
+                    while (rs.next())
                     {
-                        ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, statement, ps);
-                        try
+                        String className = null;
+                        if (idStmt.discrimMapping != null)
                         {
-                            while (rs.next())
+                            DiscriminatorMetaData dismd = idStmt.discrimMapping.getTable().getDiscriminatorMetaData();
+                            className = RDBMSQueryUtils.getClassNameFromDiscriminatorResultSetRow(idStmt.discrimMapping, dismd, rs, ec);
+                        }
+                        else
+                        {
+                            className = rs.getString(UnionStatementGenerator.DN_TYPE_COLUMN);
+                            className = (className != null) ? className.trim() : null;
+                        }
+                        if (className == null)
+                        {
+                            continue;
+                        }
+
+                        // Find which id this row is for
+                        List<Object> rowValues = new ArrayList<>(idMemberMappings.length);
+                        int colPos = 0;
+                        for (JavaTypeMapping idMemberMapping : idMemberMappings)
+                        {
+                            int numCols = idMemberMapping.getNumberOfColumnMappings();
+                            Object value = idMemberMapping.getObject(ec, rs, Arrays.copyOfRange(idCols, colPos, colPos + numCols));
+                            colPos += numCols;
+                            if (IdentityUtils.isDatastoreIdentity(value))
                             {
-                                try
-                                {
-                                    return rs.getString(UnionStatementGenerator.DN_TYPE_COLUMN).trim();
-                                }
-                                catch (SQLException sqle)
+                                // If mapping is DatastoreIdMapping then returns an id rather than the column value
+                                value = IdentityUtils.getTargetKeyForDatastoreIdentity(value);
+                            }
+                            rowValues.add(value);
+                        }
+
+                        Object id = idByValues.get(rowValues);
+                        if (id == null)
+                        {
+                            // Allow for the datastore returning a different type to that in the id
+                            for (int i=0;i<rowValues.size();i++)
+                            {
+                                Object rowValue = rowValues.get(i);
+                                Object sampleValue = sampleValues.get(i);
+                                if (rowValue != null && sampleValue != null && rowValue.getClass() != sampleValue.getClass())
                                 {
+                                    rowValues.set(i, TypeConversionHelper.convertTo(rowValue, sampleValue.getClass()));
                                 }
                             }
+                            id = idByValues.get(rowValues);
                         }
-                        finally
+                        if (id != null)
                         {
-                            rs.close();
+                            classNameById.put(id, className);
                         }
                     }
-                    finally
-                    {
-                        sqlControl.closeStatement(mconn, ps);
-                    }
                 }
                 finally
                 {
-                    mconn.release();
+                    rs.close();
                 }
             }
-            catch (SQLException sqe)
+            finally
             {
-                NucleusLogger.DATASTORE.error("Exception with UNION statement", sqe);
-                throw new NucleusDataStoreException(sqe.toString());
+                sqlControl.closeStatement(mconn, ps);
             }
         }
+        finally
+        {
+            mconn.release();
+        }
+    }
 
-        return null;
+    /**
+     * Convenience method to return the value(s) of the id column(s) for the specified identity.
+     * @param id The identity
+     * @param cmd Metadata for a class with this type of identity
+     * @return The value(s), in the order of the columns
+     */
+    private static List<Object> getIdColumnValues(Object id, AbstractClassMetaData cmd)
+    {
+        if (IdentityUtils.isDatastoreIdentity(id))
+        {
+            return Collections.singletonList(IdentityUtils.getTargetKeyForDatastoreIdentity(id));
+        }
+        else if (IdentityUtils.isSingleFieldIdentity(id))
+        {
+            return Collections.singletonList(IdentityUtils.getTargetKeyForSingleFieldIdentity(id));
+        }
+
+        String[] pkMemberNames = cmd.getPrimaryKeyMemberNames();
+        List<Object> values = new ArrayList<>(pkMemberNames.length);
+        for (String pkMemberName : pkMemberNames)
+        {
+            values.add(ClassUtils.getValueForIdentityField(id, pkMemberName));
+        }
+        return values;
+    }
+
+    /**
+     * Generated statement to find the class name for an identity, with the id as parameter "ID".
+     * Only depends on the root class(es) and the known subclasses, so is cached by the StoreManager until the schema changes.
+     */
+    static class ClassNameForIdStatement
+    {
+        final String sql;
+        final List<SQLStatementParameter> parameters;
+
+        /** Discriminator mapping when selecting the discriminator, otherwise the statement selects the UNION type column. */
+        final JavaTypeMapping discrimMapping;
+
+        /** Name of a class in the UNION used to decide if the locking variant of the statement is needed. */
+        final String lockClassName;
+
+        ClassNameForIdStatement(SelectStatement sqlStmt, JavaTypeMapping discrimMapping)
+        {
+            SQLText sqlText = sqlStmt.getSQLText();
+            this.sql = sqlText.toSQL();
+            this.parameters = sqlText.getParametersForStatement();
+            this.discrimMapping = discrimMapping;
+            this.lockClassName = null;
+        }
+
+        ClassNameForIdStatement(SelectStatement sqlStmt, String lockClassName)
+        {
+            SQLText sqlText = sqlStmt.getSQLText();
+            this.sql = sqlText.toSQL();
+            this.parameters = sqlText.getParametersForStatement();
+            this.discrimMapping = null;
+            this.lockClassName = lockClassName;
+        }
     }
-}
\ No newline at end of file
+}
@@ -42,6 +42,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Writer;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Modifier;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -51,6 +52,7 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -72,6 +74,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.management.ObjectName;
+
 import org.datanucleus.ClassConstants;
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
@@ -115,6 +119,7 @@ import org.datanucleus.store.query.Query;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapterFactory;
 import org.datanucleus.store.rdbms.autostart.SchemaAutoStarter;
+import org.datanucleus.store.rdbms.connectionpool.ConnectionPoolStatistics;
 import org.datanucleus.store.rdbms.exceptions.NoTableManagedException;
 import org.datanucleus.store.rdbms.exceptions.UnsupportedDataTypeException;
 import org.datanucleus.store.rdbms.identifier.DN2IdentifierFactory;
@@ -131,6 +136,7 @@ import org.datanucleus.store.rdbms.mapping.java.CollectionMapping;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.rdbms.mapping.java.MapMapping;
 import org.datanucleus.store.rdbms.mapping.java.PersistableMapping;
+import org.datanucleus.store.rdbms.mapping.serialiser.Serialiser;
 import org.datanucleus.store.rdbms.query.JDOQLQuery;
 import org.datanucleus.store.rdbms.query.JPQLQuery;
 import org.datanucleus.store.rdbms.query.SQLQuery;
@@ -142,6 +148,7 @@ import org.datanucleus.store.rdbms.schema.RDBMSSchemaInfo;
 import org.datanucleus.store.rdbms.schema.RDBMSTableInfo;
 import org.datanucleus.store.rdbms.schema.RDBMSTypesInfo;
 import org.datanucleus.store.rdbms.schema.SQLTypeInfo;
+import org.datanucleus.store.rdbms.scostore.ElementContainerStore;
 import org.datanucleus.store.rdbms.scostore.FKArrayStore;
 import org.datanucleus.store.rdbms.scostore.FKListStore;
 import org.datanucleus.store.rdbms.scostore.FKMapStore;
@@ -264,6 +271,30 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
 
     private Map<String, Store> backingStoreByMemberName = new ConcurrentHashMap<>();
 
+    /** Statistics of any DataNucleus-created connection pools, keyed by the connection factory resource name ("tx", "nontx"). */
+    private Map<String, ConnectionPoolStatistics> connectionPoolStatistics = new ConcurrentHashMap<>();
+
+    /** Statistics of the SQL statements executed, when enabled. */
+    private SQLStatementStatistics sqlStatementStatistics = null;
+
+    /** Name under which the SQL statement statistics are registered with JMX. */
+    private ObjectName sqlStatementStatisticsName = null;
+
+    /** Cached statements to find the class name for an identity (see RDBMSStoreHelper), keyed by the root class name(s). Cleared when the schema changes. */
+    private Map<String, RDBMSStoreHelper.ClassNameForIdStatement> classNameForIdStatements = new ConcurrentHashMap<>();
+
+    /** Cache of the class name for identities where a datastore query was needed to find it. Null when disabled. */
+    private Map<Object, String> classNameByObjectId = null;
+
+    /** Max number of entries in the class name cache. */
+    private int classNameByObjectIdMaxSize = 0;
+
+    /** Statistics of which tables have rows, used to omit UNION branches of empty tables in queries. Null when disabled. */
+    private TableRowStatistics tableRowStatistics = null;
+
+    /** Instances of custom serialisers for serialised members, keyed by the class name of the serialiser. */
+    private Map<String, Serialiser> serialiserByClassName = new ConcurrentHashMap<>();
+
     /**
      * Constructs a new RDBMSManager. 
      * On successful return the new RDBMSManager will have successfully connected to the database with the given
@@ -280,7 +311,7 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
         super("rdbms", clr, ctx, props);
 
         persistenceHandler = new RDBMSPersistenceHandler(this);
-        flushProcess = new FlushOrdered(); // TODO Change this to FlushReferential when we have it complete
+        flushProcess = getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_FLUSH_REFERENTIAL) ? new FlushReferential() : new FlushOrdered();
         schemaHandler = new RDBMSSchemaHandler(this);
 
         // Retrieve the Database Adapter for this datastore
@@ -354,6 +385,26 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
                     getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_STATEMENT_BATCH_LIMIT),
                     getIntProperty(PropertyNames.PROPERTY_DATASTORE_READ_TIMEOUT),
                     getStringProperty(RDBMSPropertyNames.PROPERTY_RDBMS_STATEMENT_LOGGING));
+                int slowThreshold = getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_STATEMENT_STATISTICS_SLOW_THRESHOLD);
+                if (getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_STATEMENT_STATISTICS) || slowThreshold > 0)
+                {
+                    sqlStatementStatistics = new SQLStatementStatistics(
+                        getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_STATEMENT_STATISTICS_MAX_STATEMENTS), slowThreshold);
+                    sqlController.setStatementListener(sqlStatementStatistics);
+                    registerSQLStatementStatisticsMBean();
+                }
+
+                classNameByObjectIdMaxSize = getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_CLASS_NAME_FOR_ID_CACHE_SIZE);
+                if (classNameByObjectIdMaxSize > 0)
+                {
+                    classNameByObjectId = new ConcurrentHashMap<>();
+                }
+
+                int emptyTableCheckInterval = getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_EMPTY_TABLE_CHECK_INTERVAL);
+                if (emptyTableCheckInterval > 0)
+                {
+                    tableRowStatistics = new TableRowStatistics(this, emptyTableCheckInterval * 1000L);
+                }
 
                 // TODO These ought to be stored with the StoreManager, not the NucleusContext
                 // Initialise any properties controlling the adapter
@@ -1371,6 +1422,18 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
      */
     public synchronized void close()
     {
+        if (sqlStatementStatisticsName != null)
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(sqlStatementStatisticsName);
+            }
+            catch (Exception e)
+            {
+                NucleusLogger.DATASTORE.debug("Exception unregistering SQL statement statistics from JMX", e);
+            }
+            sqlStatementStatisticsName = null;
+        }
         dba = null;
         super.close();
         classAdder = null;
@@ -1431,6 +1494,179 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
         return sqlController;
     }
 
+    /**
+     * Method to register the statistics of a connection pool created by one of our connection factories.
+     * @param resourceName Resource name of the connection factory
+     * @param stats The pool statistics
+     */
+    public void registerConnectionPoolStatistics(String resourceName, ConnectionPoolStatistics stats)
+    {
+        connectionPoolStatistics.put(resourceName, stats);
+    }
+
+    /**
+     * Accessor for the statistics of which tables have rows, used to omit UNION branches of empty tables in queries.
+     * @return The statistics, or null if not enabled
+     */
+    public TableRowStatistics getTableRowStatistics()
+    {
+        return tableRowStatistics;
+    }
+
+    /**
+     * Accessor for the custom serialiser with the specified class name, for use with serialised members.
+     * The serialiser is instantiated using the class loader of this store manager on first use, and then reused.
+     * @param className Class name of the serialiser
+     * @return The serialiser
+     */
+    public Serialiser getSerialiser(String className)
+    {
+        Serialiser serialiser = serialiserByClassName.get(className);
+        if (serialiser == null)
+        {
+            Class serialiserCls = getNucleusContext().getClassLoaderResolver(null).classForName(className);
+            serialiser = (Serialiser) ClassUtils.newInstance(serialiserCls, null, null);
+            Serialiser existing = serialiserByClassName.putIfAbsent(className, serialiser);
+            if (existing != null)
+            {
+                serialiser = existing;
+            }
+        }
+        return serialiser;
+    }
+
+    /**
+     * Accessor for the cached statements used to find the class name for an identity.
+     * @return The statements, keyed by the root class name(s)
+     */
+    Map<String, RDBMSStoreHelper.ClassNameForIdStatement> getClassNameForIdStatements()
+    {
+        return classNameForIdStatements;
+    }
+
+    /**
+     * Convenience method to return the key for the cache of class name for an identity, or null if not to use the cache.
+     * Targeted identities are keyed by the root class of the inheritance tree and their key, since the identity for
+     * the same object can be targeted at different classes in the tree. When using multitenancy the tenant is part of the
+     * key, since the same identity can be of a different class for each tenant.
+     * @param id The identity
+     * @param cmd Metadata for a class in the inheritance tree of the identity
+     * @param ec ExecutionContext
+     * @param lookup Whether the key is for a lookup (so no key is returned when needing to lock the object)
+     * @return The key
+     */
+    private Object getClassNameCacheKey(Object id, AbstractClassMetaData cmd, ExecutionContext ec, boolean lookup)
+    {
+        if (classNameByObjectId == null || (lookup && ec.getSerializeReadForClass(cmd.getFullClassName())))
+        {
+            return null;
+        }
+
+        AbstractClassMetaData rootCmd = cmd.getBaseAbstractClassMetaData();
+        String tenantId = ec.getNucleusContext().getMultiTenancyId(ec, rootCmd);
+        if (IdentityUtils.isDatastoreIdentity(id))
+        {
+            return Arrays.asList(rootCmd.getFullClassName(), IdentityUtils.getTargetKeyForDatastoreIdentity(id), tenantId);
+        }
+        else if (IdentityUtils.isSingleFieldIdentity(id))
+        {
+            return Arrays.asList(rootCmd.getFullClassName(), IdentityUtils.getTargetKeyForSingleFieldIdentity(id), tenantId);
+        }
+        return tenantId != null ? Arrays.asList(id, tenantId) : id;
+    }
+
+    private void cacheClassNameForObjectID(Object cacheKey, String className)
+    {
+        if (cacheKey == null || className == null)
+        {
+            return;
+        }
+
+        if (classNameByObjectId.size() >= classNameByObjectIdMaxSize)
+        {
+            // Full, so remove arbitrary entries to make space. Cheaper than maintaining access order for all lookups
+            Iterator<Object> keyIter = classNameByObjectId.keySet().iterator();
+            while (keyIter.hasNext() && classNameByObjectId.size() >= classNameByObjectIdMaxSize)
+            {
+                keyIter.next();
+                keyIter.remove();
+            }
+        }
+        classNameByObjectId.put(cacheKey, className);
+    }
+
+    /**
+     * Method to remove any cached class name for the specified identity, for example when the object is deleted.
+     * @param id The identity
+     * @param cmd Metadata for the class of the object
+     * @param ec ExecutionContext
+     */
+    public void evictClassNameForObjectID(Object id, AbstractClassMetaData cmd, ExecutionContext ec)
+    {
+        Object cacheKey = getClassNameCacheKey(id, cmd, ec, false);
+        if (cacheKey != null)
+        {
+            classNameByObjectId.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Accessor for whether class names found for identities using a datastore query are cached.
+     * @return Whether the class name cache is enabled
+     */
+    boolean isClassNameForObjectIDCacheEnabled()
+    {
+        return classNameByObjectId != null;
+    }
+
+    /**
+     * Method to clear the cache of class name for identities, for example after a bulk delete.
+     */
+    public void clearClassNameForObjectIDCache()
+    {
+        if (classNameByObjectId != null)
+        {
+            classNameByObjectId.clear();
+        }
+    }
+
+    /**
+     * Accessor for the statistics of the SQL statements executed by this store manager.
+     * Only available when enabled using the persistence property "datanucleus.rdbms.statementStatistics".
+     * @return The statistics, or null if not enabled
+     */
+    public SQLStatementStatistics getSQLStatementStatistics()
+    {
+        return sqlStatementStatistics;
+    }
+
+    /**
+     * Method to register the SQL statement statistics with the platform MBeanServer.
+     */
+    private void registerSQLStatementStatisticsMBean()
+    {
+        try
+        {
+            sqlStatementStatisticsName = new ObjectName("org.datanucleus:type=SQLStatements,name=" + getStoreManagerKey() + "-" + System.identityHashCode(this));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(sqlStatementStatistics, sqlStatementStatisticsName);
+        }
+        catch (Exception e)
+        {
+            NucleusLogger.DATASTORE.warn("Unable to register SQL statement statistics with JMX : " + e.getMessage());
+            sqlStatementStatisticsName = null;
+        }
+    }
+
+    /**
+     * Accessor for the statistics of the connection pool used by the specified connection factory.
+     * @param resourceName Resource name of the connection factory ("tx", "nontx")
+     * @return The statistics, or null if no pool was created by DataNucleus for that connection factory
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics(String resourceName)
+    {
+        return connectionPoolStatistics.get(resourceName);
+    }
+
     /**
      * Accessor for the SQL expression factory to use when generating SQL statements.
      * @return SQL expression factory
@@ -1539,6 +1775,12 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
         }
 
         ((RDBMSPersistenceHandler)persistenceHandler).removeAllRequests();
+        classNameForIdStatements.clear();
+        clearClassNameForObjectIDCache();
+        if (tableRowStatistics != null)
+        {
+            tableRowStatistics.clear();
+        }
     }
 
     /**
@@ -1675,6 +1917,15 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
             }
 
             new ClassAdder(classNames, null).execute(clr);
+
+            // Element iterator statements may now need to include the tables of the added classes
+            for (Store store : backingStoreByMemberName.values())
+            {
+                if (store instanceof ElementContainerStore)
+                {
+                    ((ElementContainerStore)store).clearIteratorSQLCache();
+                }
+            }
         }
         finally
         {
@@ -1863,59 +2114,18 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
             // Perform a check on the exact object inheritance level with this key (uses SQL query)
             if (rootCmds.size() == 1)
             {
-                Collection<String> subclasses = getSubClassesForClass(rootCmd.getFullClassName(), true, clr);
-                if (!rootCmd.isImplementationOfPersistentDefinition())
+                String concreteClassName = getClassNameForRootWithoutDatastoreCheck(rootCmd, clr);
+                if (concreteClassName != null)
                 {
-                    // Not persistent interface implementation so check if any subclasses
-                    if (subclasses == null || subclasses.isEmpty())
-                    {
-                        // No subclasses, so we assume that this is root class only
-                        // NB there could be other supertypes sharing this table, but the id is set to this class name
-                        // so we assume it can't be a supertype
-                        return rootCmd.getFullClassName();
-                        // This commented out code simply restricts if other classes are using the table
-                        /*DatastoreClass primaryTable = getDatastoreClass(rootCmd.getFullClassName(), clr);
-                        String[] managedClassesInTable = primaryTable.getManagedClasses();
-                        if (managedClassesInTable.length == 1 && managedClassesInTable[0].equals(rootCmd.getFullClassName()))
-                        {
-                            if (NucleusLogger.PERSISTENCE.isDebugEnabled())
-                            {
-                                NucleusLogger.PERSISTENCE.debug("Sole candidate for id is " +
-                                    rootCmd.getFullClassName() + " and has no subclasses, so returning without checking datastore");
-                            }
-                            return rootCmd.getFullClassName();
-                        }*/
-                    }
+                    return concreteClassName;
                 }
 
-                // Check how many concrete classes we have in this tree, in case only one
-                int numConcrete = 0;
-                String concreteClassName = null;
-                Class rootCls = clr.classForName(rootCmd.getFullClassName());
-                if (!Modifier.isAbstract(rootCls.getModifiers()))
+                // Check if we have already found the class of this id
+                Object cacheKey = getClassNameCacheKey(id, rootCmd, ec, true);
+                String idClassName = (cacheKey != null) ? classNameByObjectId.get(cacheKey) : null;
+                if (idClassName != null)
                 {
-                    concreteClassName = rootCmd.getFullClassName();
-                    numConcrete++;
-                }
-                if (subclasses != null)
-                {
-                    for (String subclassName : subclasses)
-                    {
-                        Class subcls = clr.classForName(subclassName);
-                        if (!Modifier.isAbstract(subcls.getModifiers()))
-                        {
-                            if (concreteClassName == null)
-                            {
-                                concreteClassName = subclassName;
-                            }
-                            numConcrete++;
-                        }
-                    }
-                }
-                if (numConcrete == 1)
-                {
-                    // Single possible concrete class, so return it
-                    return concreteClassName;
+                    return idClassName;
                 }
 
                 // Simple candidate query of this class and subclasses
@@ -1927,16 +2137,27 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
                         NucleusLogger.PERSISTENCE.debug("Performing query using discriminator on " +
                             rootCmd.getFullClassName() + " and its subclasses to find the class of " + id);
                     }
-                    return RDBMSStoreHelper.getClassNameForIdUsingDiscriminator(this, ec, id, rootCmd);
+                    idClassName = RDBMSStoreHelper.getClassNameForIdUsingDiscriminator(this, ec, id, rootCmd);
                 }
-
-                // Query using UNION
-                if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+                else
                 {
-                    NucleusLogger.PERSISTENCE.debug("Performing query using UNION on " +
-                            rootCmd.getFullClassName() + " and its subclasses to find the class of " + id);
+                    // Query using UNION
+                    if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+                    {
+                        NucleusLogger.PERSISTENCE.debug("Performing query using UNION on " +
+                                rootCmd.getFullClassName() + " and its subclasses to find the class of " + id);
+                    }
+                    idClassName = RDBMSStoreHelper.getClassNameForIdUsingUnion(this, ec, id, rootCmds);
                 }
-                return RDBMSStoreHelper.getClassNameForIdUsingUnion(this, ec, id, rootCmds);
+                cacheClassNameForObjectID(cacheKey, idClassName);
+                return idClassName;
+            }
+
+            Object cacheKey = getClassNameCacheKey(id, rootCmd, ec, true);
+            String idClassName = (cacheKey != null) ? classNameByObjectId.get(cacheKey) : null;
+            if (idClassName != null)
+            {
+                return idClassName;
             }
 
             // Multiple possible roots so use UNION statement
@@ -1955,7 +2176,9 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
                 }
                 NucleusLogger.PERSISTENCE.debug("Performing query using UNION on " + str.toString() + " and their subclasses to find the class of " + id);
             }
-            return RDBMSStoreHelper.getClassNameForIdUsingUnion(this, ec, id, rootCmds);
+            idClassName = RDBMSStoreHelper.getClassNameForIdUsingUnion(this, ec, id, rootCmds);
+            cacheClassNameForObjectID(cacheKey, idClassName);
+            return idClassName;
         }
 
         // Check not possible so just return the first root
@@ -1977,6 +2200,170 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
         return rootCmd.getFullClassName();
     }
 
+    /**
+     * Method to return the class names for a series of object identities, as a bulk counterpart to
+     * {@link #getClassNameForObjectID(Object, ClassLoaderResolver, ExecutionContext)}.
+     * Datastore and single-field identities of an inheritance tree that needs checking in the datastore are resolved together,
+     * using one discriminator or UNION statement (per chunk of identities) for each root class. Any other identity is
+     * resolved individually. The class names found are added to the class name cache, which is how
+     * {@link RDBMSPersistenceHandler#findObjects(ExecutionContext, Object[])} avoids a query per identity.
+     * @param ids The identities
+     * @param clr ClassLoader resolver
+     * @param ec ExecutionContext
+     * @return Map of the class name keyed by the identity, for the identities whose class could be determined
+     */
+    public Map<Object, String> getClassNamesForObjectIDs(Collection ids, ClassLoaderResolver clr, ExecutionContext ec)
+    {
+        Map<Object, String> classNameById = new HashMap<>();
+        Map<AbstractClassMetaData, List<Object>> idsByRootCmd = new HashMap<>();
+        for (Object id : ids)
+        {
+            if (ec != null && !(id instanceof SCOID) && (IdentityUtils.isDatastoreIdentity(id) || IdentityUtils.isSingleFieldIdentity(id)))
+            {
+                AbstractClassMetaData rootCmd = getMetaDataManager().getMetaDataForClass(IdentityUtils.getTargetClassNameForIdentity(id), clr);
+                boolean validId = (rootCmd != null) && (IdentityUtils.isDatastoreIdentity(id) ? rootCmd.getIdentityType() == IdentityType.DATASTORE :
+                    (rootCmd.getIdentityType() == IdentityType.APPLICATION && rootCmd.getObjectidClass().equals(id.getClass().getName())));
+                if (validId && getClassNameForRootWithoutDatastoreCheck(rootCmd, clr) == null)
+                {
+                    Object cacheKey = getClassNameCacheKey(id, rootCmd, ec, true);
+                    String idClassName = (cacheKey != null) ? classNameByObjectId.get(cacheKey) : null;
+                    if (idClassName != null)
+                    {
+                        classNameById.put(id, idClassName);
+                    }
+                    else
+                    {
+                        List<Object> rootIds = idsByRootCmd.get(rootCmd);
+                        if (rootIds == null)
+                        {
+                            rootIds = new ArrayList<>();
+                            idsByRootCmd.put(rootCmd, rootIds);
+                        }
+                        rootIds.add(id);
+                    }
+                    continue;
+                }
+            }
+
+            String idClassName = getClassNameForObjectID(id, clr, ec);
+            if (idClassName != null)
+            {
+                classNameById.put(id, idClassName);
+            }
+        }
+
+        for (Map.Entry<AbstractClassMetaData, List<Object>> entry : idsByRootCmd.entrySet())
+        {
+            AbstractClassMetaData rootCmd = entry.getKey();
+            List<Object> rootIds = entry.getValue();
+            if (rootIds.size() == 1)
+            {
+                Object id = rootIds.get(0);
+                String idClassName = getClassNameForObjectID(id, clr, ec);
+                if (idClassName != null)
+                {
+                    classNameById.put(id, idClassName);
+                }
+                continue;
+            }
+
+            Map<Object, String> rootClassNameById = null;
+            if (rootCmd.hasDiscriminatorStrategy())
+            {
+                // Query using discriminator
+                if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+                {
+                    NucleusLogger.PERSISTENCE.debug("Performing query using discriminator on " +
+                        rootCmd.getFullClassName() + " and its subclasses to find the class of " + rootIds.size() + " ids");
+                }
+                rootClassNameById = RDBMSStoreHelper.getClassNamesForIdsUsingDiscriminator(this, ec, rootIds, rootCmd);
+            }
+            else
+            {
+                // Query using UNION
+                if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+                {
+                    NucleusLogger.PERSISTENCE.debug("Performing query using UNION on " +
+                        rootCmd.getFullClassName() + " and its subclasses to find the class of " + rootIds.size() + " ids");
+                }
+                rootClassNameById = RDBMSStoreHelper.getClassNamesForIdsUsingUnion(this, ec, rootIds, Collections.singletonList(rootCmd));
+            }
+            for (Map.Entry<Object, String> idEntry : rootClassNameById.entrySet())
+            {
+                cacheClassNameForObjectID(getClassNameCacheKey(idEntry.getKey(), rootCmd, ec, true), idEntry.getValue());
+            }
+            classNameById.putAll(rootClassNameById);
+        }
+
+        return classNameById;
+    }
+
+    /**
+     * Convenience method to return the class name for an identity of the specified root class when it can be decided
+     * without checking the datastore, because there are no subclasses, or only one concrete class in the inheritance tree.
+     * @param rootCmd Metadata for the root class
+     * @param clr ClassLoader resolver
+     * @return The class name, or null if the datastore has to be checked
+     */
+    private String getClassNameForRootWithoutDatastoreCheck(AbstractClassMetaData rootCmd, ClassLoaderResolver clr)
+    {
+        Collection<String> subclasses = getSubClassesForClass(rootCmd.getFullClassName(), true, clr);
+        if (!rootCmd.isImplementationOfPersistentDefinition())
+        {
+            // Not persistent interface implementation so check if any subclasses
+            if (subclasses == null || subclasses.isEmpty())
+            {
+                // No subclasses, so we assume that this is root class only
+                // NB there could be other supertypes sharing this table, but the id is set to this class name
+                // so we assume it can't be a supertype
+                return rootCmd.getFullClassName();
+                // This commented out code simply restricts if other classes are using the table
+                /*DatastoreClass primaryTable = getDatastoreClass(rootCmd.getFullClassName(), clr);
+                String[] managedClassesInTable = primaryTable.getManagedClasses();
+                if (managedClassesInTable.length == 1 && managedClassesInTable[0].equals(rootCmd.getFullClassName()))
+                {
+                    if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+                    {
+                        NucleusLogger.PERSISTENCE.debug("Sole candidate for id is " +
+                            rootCmd.getFullClassName() + " and has no subclasses, so returning without checking datastore");
+                    }
+                    return rootCmd.getFullClassName();
+                }*/
+            }
+        }
+
+        // Check how many concrete classes we have in this tree, in case only one
+        int numConcrete = 0;
+        String concreteClassName = null;
+        Class rootCls = clr.classForName(rootCmd.getFullClassName());
+        if (!Modifier.isAbstract(rootCls.getModifiers()))
+        {
+            concreteClassName = rootCmd.getFullClassName();
+            numConcrete++;
+        }
+        if (subclasses != null)
+        {
+            for (String subclassName : subclasses)
+            {
+                Class subcls = clr.classForName(subclassName);
+                if (!Modifier.isAbstract(subcls.getModifiers()))
+                {
+                    if (concreteClassName == null)
+                    {
+                        concreteClassName = subclassName;
+                    }
+                    numConcrete++;
+                }
+            }
+        }
+        if (numConcrete == 1)
+        {
+            // Single possible concrete class, so return it
+            return concreteClassName;
+        }
+        return null;
+    }
+
     /**
      * Method to return the value from the results for the mapping at the specified position.
      * @param rs The results
@@ -3321,6 +3708,7 @@ public class RDBMSStoreManager extends AbstractStoreManager implements BackedSCO
             List<Table> viewsToValidate = new ArrayList();
 
             tablesRecentlyInitialized.clear();
+            classNameForIdStatements.clear(); // New subclasses may need adding to these statements
             int numTablesInitializedInit = 0;
             int numStoreDataInit = 0;
             RDBMSStoreData[] rdbmsStoreData = storeDataMgr.getManagedStoreData().toArray(new RDBMSStoreData[storeDataMgr.size()]);
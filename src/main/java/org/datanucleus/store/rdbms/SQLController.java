@@ -22,6 +22,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -99,6 +101,26 @@ public class SQLController
     protected boolean jdbcStatements = false;
     protected boolean paramValuesInBrackets = true;
 
+    /** Whether the JDBC driver reports the update count of each statement of a batch (false once it has been seen not to). */
+    protected volatile boolean batchUpdateCountsReported = true;
+
+    /** Optional listener notified of the execution (timing, batch size, rows) of each statement. */
+    protected volatile SQLStatementListener statementListener = null;
+
+    /**
+     * Check on the number of rows updated by a statement, made when the statement is executed. When the statement
+     * is batched this will be when the batch is processed, which can be when a later statement is requested.
+     */
+    public interface UpdateCountCheck
+    {
+        /**
+         * Method to check the number of rows updated by the statement.
+         * @param updateCount Number of rows updated, or Statement.SUCCESS_NO_INFO if the driver didn't report it for a batch,
+         * or Statement.EXECUTE_FAILED if the statement failed or has no update count
+         */
+        void checkUpdateCount(int updateCount);
+    }
+
     /**
      * State of a connection.
      * Maintains an update statement in "wait" state. Stores the statement, the text,
@@ -121,6 +143,9 @@ public class SQLController
         /** Whether to close the statement on processing */
         boolean closeStatementOnProcess = false;
 
+        /** Checks to make on the update counts of the batched statements, in batch order (null entry when no check). */
+        List<UpdateCountCheck> updateCountChecks = null;
+
         public String toString()
         {
             return "StmtState : stmt=" + StringUtils.toJVMIDString(stmt) + " sql=" + stmtText + " batch=" + batchSize + " closeOnProcess=" + closeStatementOnProcess;
@@ -162,6 +187,20 @@ public class SQLController
         }
     }
 
+    /**
+     * Mutator for the listener to be notified of the execution of each statement, for example to collect metrics.
+     * @param listener The listener, or null to remove any listener
+     */
+    public void setStatementListener(SQLStatementListener listener)
+    {
+        this.statementListener = listener;
+    }
+
+    public SQLStatementListener getStatementListener()
+    {
+        return statementListener;
+    }
+
     /**
      * Convenience method to create a new PreparedStatement for an update.
      * @param conn The Connection to use for the statement
@@ -380,6 +419,25 @@ public class SQLController
      */
     public int[] executeStatementUpdate(ExecutionContext ec, ManagedConnection conn, String stmt, PreparedStatement ps, boolean processNow)
     throws SQLException
+    {
+        return executeStatementUpdate(ec, conn, stmt, ps, processNow, null);
+    }
+
+    /**
+     * Method to execute a PreparedStatement update, checking the number of rows updated when it is executed.
+     * If the statement is batched the check is made when the batch is processed, using the update count for this statement.
+     * @param ec ExecutionContext
+     * @param conn The connection (required since the one on PreparedStatement is not always the same so we cant use it)
+     * @param stmt The statement text
+     * @param ps The Prepared Statement
+     * @param processNow Whether to process this statement now (only applies if is batched)
+     * @param check Check to make on the number of rows updated (or null)
+     * @return The numer of rows affected (as per PreparedStatement.executeUpdate), or null if left in the batch
+     * @throws SQLException Thrown if an error occurs
+     */
+    public int[] executeStatementUpdate(ExecutionContext ec, ManagedConnection conn, String stmt, PreparedStatement ps, boolean processNow,
+            UpdateCountCheck check)
+    throws SQLException
     {
         ConnectionStatementState state = getConnectionStatementState(conn);
         if (state != null)
@@ -393,6 +451,18 @@ public class SQLController
                 }
                 state.processable = true;
                 state.stmt.addBatch();
+                if (check != null)
+                {
+                    if (state.updateCountChecks == null)
+                    {
+                        state.updateCountChecks = new ArrayList<>();
+                    }
+                    while (state.updateCountChecks.size() < state.batchSize - 1)
+                    {
+                        state.updateCountChecks.add(null);
+                    }
+                    state.updateCountChecks.add(check);
+                }
 
                 if (processNow)
                 {
@@ -424,7 +494,13 @@ public class SQLController
             }
         }
 
+        SQLStatementListener listener = statementListener;
+        long startNanos = listener != null ? System.nanoTime() : 0;
         int ind = ps.executeUpdate();
+        if (listener != null)
+        {
+            listener.statementExecuted(stmt, SQLStatementListener.ExecutionType.UPDATE, System.nanoTime() - startNanos, 1, ind);
+        }
         if (ec != null && ec.getStatistics() != null)
         {
             // Add to statistics
@@ -437,6 +513,11 @@ public class SQLController
             NucleusLogger.DATASTORE_PERSIST.debug(Localiser.msg("045001", "" + (System.currentTimeMillis() - startTime), "" + ind, StringUtils.toJVMIDString(ps)));
         }
 
+        if (check != null)
+        {
+            check.checkUpdateCount(ind);
+        }
+
         return new int[] {ind};
     }
 
@@ -478,7 +559,13 @@ public class SQLController
             }
         }
 
+        SQLStatementListener listener = statementListener;
+        long startNanos = listener != null ? System.nanoTime() : 0;
         boolean flag = ps.execute();
+        if (listener != null)
+        {
+            listener.statementExecuted(stmt, SQLStatementListener.ExecutionType.EXECUTE, System.nanoTime() - startNanos, 1, flag ? -1 : ps.getUpdateCount());
+        }
         if (ec != null && ec.getStatistics() != null)
         {
             // Add to statistics
@@ -542,7 +629,13 @@ public class SQLController
             }
         }
 
+        SQLStatementListener listener = statementListener;
+        long startNanos = listener != null ? System.nanoTime() : 0;
         ResultSet rs = ps.executeQuery();
+        if (listener != null)
+        {
+            listener.statementExecuted(stmt, SQLStatementListener.ExecutionType.QUERY, System.nanoTime() - startNanos, 1, -1);
+        }
         if (ec != null && ec.getStatistics() != null)
         {
             // Add to statistics
@@ -664,7 +757,13 @@ public class SQLController
             }
         }
 
+        SQLStatementListener listener = statementListener;
+        long startNanos = listener != null ? System.nanoTime() : 0;
         int[] ind = state.stmt.executeBatch();
+        if (listener != null)
+        {
+            listener.statementExecuted(state.stmtText, SQLStatementListener.ExecutionType.BATCH, System.nanoTime() - startNanos, state.batchSize, getRowsAffected(ind));
+        }
         state.stmt.clearBatch();
 
         if (NucleusLogger.DATASTORE.isDebugEnabled())
@@ -681,9 +780,99 @@ public class SQLController
             state.stmt.close();
         }
 
+        if (state.updateCountChecks != null && ind != null)
+        {
+            if (batchUpdateCountsReported)
+            {
+                for (int count : ind)
+                {
+                    if (count == Statement.SUCCESS_NO_INFO)
+                    {
+                        batchUpdateCountsReported = false;
+                        NucleusLogger.DATASTORE_PERSIST.warn("The JDBC driver didn't report the update counts of a batch, so statements with checks " +
+                            "on their update count (e.g optimistic version checks) will no longer be batched");
+                        break;
+                    }
+                }
+            }
+            checkUpdateCounts(state.updateCountChecks, ind);
+        }
+
         return ind;
     }
 
+    /**
+     * Accessor for whether statements with a check on their update count can be batched, which needs the JDBC driver to report
+     * the update count of each statement of a batch.
+     * @return Whether the update counts of a batch are reported (as far as is known)
+     */
+    public boolean isBatchUpdateCountReported()
+    {
+        return batchUpdateCountsReported;
+    }
+
+    /**
+     * Convenience method to make the checks on the update counts of the statements of a batch.
+     * All checks are made, and the first failure (if any) is then thrown. A statement without an update count
+     * (the driver returned fewer counts than statements) is checked with Statement.EXECUTE_FAILED.
+     * @param checks The checks, in batch order
+     * @param updateCounts The update counts returned by executeBatch
+     */
+    static void checkUpdateCounts(List<UpdateCountCheck> checks, int[] updateCounts)
+    {
+        RuntimeException failure = null;
+        for (int i=0;i<checks.size();i++)
+        {
+            UpdateCountCheck check = checks.get(i);
+            if (check != null)
+            {
+                try
+                {
+                    check.checkUpdateCount(i < updateCounts.length ? updateCounts[i] : Statement.EXECUTE_FAILED);
+                }
+                catch (RuntimeException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e;
+                    }
+                    else
+                    {
+                        NucleusLogger.DATASTORE_PERSIST.warn(e.getMessage());
+                    }
+                }
+            }
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Convenience method to return the total number of rows affected by a batch.
+     * @param updateCounts The update counts returned by executeBatch
+     * @return The number of rows, or -1 if the driver didn't report the count for any statement
+     */
+    private static long getRowsAffected(int[] updateCounts)
+    {
+        if (updateCounts == null)
+        {
+            return -1;
+        }
+        long rows = 0;
+        for (int count : updateCounts)
+        {
+            if (count < 0)
+            {
+                // Statement.SUCCESS_NO_INFO or EXECUTE_FAILED
+                return -1;
+            }
+            rows += count;
+        }
+        return rows;
+    }
+
     /**
      * Convenience method to remove the state for this connection.
      * This is typically called when a Connection is closed.
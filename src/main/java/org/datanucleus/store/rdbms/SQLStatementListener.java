@@ -0,0 +1,49 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+/**
+ * Listener for the execution of SQL statements by the SQLController, allowing metrics to be collected.
+ * Called on the executing thread after each statement (or batch) has been executed, so implementations must be
+ * thread-safe and should be quick.
+ */
+public interface SQLStatementListener
+{
+    /** Type of execution of the statement. */
+    public enum ExecutionType
+    {
+        /** Query, using PreparedStatement.executeQuery. */
+        QUERY,
+        /** Single update, using PreparedStatement.executeUpdate. */
+        UPDATE,
+        /** Batch of updates, using PreparedStatement.executeBatch. */
+        BATCH,
+        /** Other statement, using PreparedStatement.execute. */
+        EXECUTE
+    }
+
+    /**
+     * Method called after a statement has been executed.
+     * @param stmtText Text of the statement (with parameter placeholders, not values)
+     * @param type Type of execution
+     * @param elapsedNanos Time taken to execute the statement (nanosecs)
+     * @param batchSize Number of statements sent (1 unless a batch)
+     * @param rowsAffected Number of rows affected, or -1 if not known (e.g query, or driver not reporting it)
+     */
+    void statementExecuted(String stmtText, ExecutionType type, long elapsedNanos, int batchSize, long rowsAffected);
+}
@@ -0,0 +1,386 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.datanucleus.util.Localiser;
+import org.datanucleus.util.NucleusLogger;
+
+/**
+ * Statistics of the SQL statements executed via the SQLController, keyed by the statement text.
+ * For each distinct statement records a latency histogram, the number of executions, the number of statements sent
+ * (which differs from executions when batching), and the rows affected. Statements taking longer than the slow
+ * threshold (when set) are logged at WARN level.
+ * <p>
+ * To bound the memory used, only the first <i>maxStatements</i> distinct statements are tracked individually, and any
+ * further statements are accumulated under a single entry with text {@link #OTHER_STATEMENTS}.
+ * </p>
+ */
+public class SQLStatementStatistics implements SQLStatementListener, SQLStatementStatisticsMXBean
+{
+    /** Key under which statements are accumulated once the max number of distinct statements is reached. */
+    public static final String OTHER_STATEMENTS = "<other statements>";
+
+    private final int maxStatements;
+
+    private volatile long slowThresholdMillis;
+
+    private final Map<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+
+    private final AtomicLong slowExecutions = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param maxStatements Max number of distinct statements to track individually
+     * @param slowThresholdMillis Threshold (millisecs) above which an execution is logged as slow, or 0 for no logging
+     */
+    public SQLStatementStatistics(int maxStatements, long slowThresholdMillis)
+    {
+        this.maxStatements = maxStatements;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.SQLStatementListener#statementExecuted(java.lang.String, org.datanucleus.store.rdbms.SQLStatementListener.ExecutionType, long, int, long)
+     */
+    @Override
+    public void statementExecuted(String stmtText, ExecutionType type, long elapsedNanos, int batchSize, long rowsAffected)
+    {
+        StatementStatistics stats = statements.get(stmtText);
+        if (stats == null)
+        {
+            String key = statements.size() < maxStatements ? stmtText : OTHER_STATEMENTS;
+            stats = statements.computeIfAbsent(key, k -> new StatementStatistics(k, type));
+        }
+        stats.record(elapsedNanos, type, batchSize, rowsAffected);
+
+        long threshold = slowThresholdMillis;
+        if (threshold > 0 && elapsedNanos >= threshold * 1000000L)
+        {
+            slowExecutions.incrementAndGet();
+            NucleusLogger.DATASTORE_NATIVE.warn(Localiser.msg("045003", elapsedNanos / 1000000L, threshold, batchSize, stmtText));
+        }
+    }
+
+    /**
+     * Accessor for the statistics of a statement.
+     * @param stmtText Text of the statement
+     * @return The statistics, or null if this statement has not been executed (or is not tracked individually)
+     */
+    public StatementStatistics getStatementStatistics(String stmtText)
+    {
+        return statements.get(stmtText);
+    }
+
+    /**
+     * Accessor for a snapshot of the statistics of all statements, ordered by decreasing total execution time.
+     * @return The statement snapshots
+     */
+    public List<StatementSnapshot> getSnapshot()
+    {
+        List<StatementSnapshot> snapshots = new ArrayList<>(statements.size());
+        for (StatementStatistics stats : statements.values())
+        {
+            snapshots.add(stats.snapshot());
+        }
+        Collections.sort(snapshots, Comparator.comparingLong(StatementSnapshot::getTotalNanos).reversed());
+        return snapshots;
+    }
+
+    public int getNumberOfStatements()
+    {
+        return statements.size();
+    }
+
+    public long getTotalExecutions()
+    {
+        long total = 0;
+        for (StatementStatistics stats : statements.values())
+        {
+            total += stats.latency.getCount();
+        }
+        return total;
+    }
+
+    public long getTotalExecutionTimeMillis()
+    {
+        long total = 0;
+        for (StatementStatistics stats : statements.values())
+        {
+            total += stats.latency.getTotalNanos();
+        }
+        return total / 1000000L;
+    }
+
+    public long getSlowExecutions()
+    {
+        return slowExecutions.get();
+    }
+
+    public long getSlowThresholdMillis()
+    {
+        return slowThresholdMillis;
+    }
+
+    public void setSlowThresholdMillis(long millis)
+    {
+        this.slowThresholdMillis = millis;
+    }
+
+    public String[] getTopStatementsByTotalTime(int max)
+    {
+        return describe(getSnapshot(), max);
+    }
+
+    public String[] getTopStatementsByP99(int max)
+    {
+        List<StatementSnapshot> snapshots = getSnapshot();
+        Collections.sort(snapshots, Comparator.comparingDouble(StatementSnapshot::getP99Millis).reversed());
+        return describe(snapshots, max);
+    }
+
+    private static String[] describe(List<StatementSnapshot> snapshots, int max)
+    {
+        int num = Math.min(Math.max(max, 0), snapshots.size());
+        String[] descriptions = new String[num];
+        for (int i = 0; i < num; i++)
+        {
+            descriptions[i] = snapshots.get(i).toString();
+        }
+        return descriptions;
+    }
+
+    public void reset()
+    {
+        statements.clear();
+        slowExecutions.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SQLStatementStatistics statements=" + getNumberOfStatements() + " executions=" + getTotalExecutions() +
+            " time=" + getTotalExecutionTimeMillis() + "ms slow=" + getSlowExecutions();
+    }
+
+    /**
+     * Statistics for a single statement.
+     */
+    public static class StatementStatistics
+    {
+        final String stmtText;
+
+        /** Type of execution when first executed. */
+        final ExecutionType type;
+
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        /** Number of statements sent to the datastore (sum of batch sizes). */
+        final AtomicLong statementsSent = new AtomicLong();
+
+        /** Number of executions that were batches. */
+        final AtomicLong batches = new AtomicLong();
+
+        /** Number of statements sent in executions that were batches (sum of their batch sizes). */
+        final AtomicLong batchedStatements = new AtomicLong();
+
+        /** Number of rows affected, where known. */
+        final AtomicLong rowsAffected = new AtomicLong();
+
+        StatementStatistics(String stmtText, ExecutionType type)
+        {
+            this.stmtText = stmtText;
+            this.type = type;
+        }
+
+        void record(long nanos, ExecutionType execType, int batchSize, long rows)
+        {
+            latency.record(nanos);
+            statementsSent.addAndGet(batchSize);
+            if (execType == ExecutionType.BATCH)
+            {
+                batches.incrementAndGet();
+                batchedStatements.addAndGet(batchSize);
+            }
+            if (rows > 0)
+            {
+                rowsAffected.addAndGet(rows);
+            }
+        }
+
+        public String getStatementText()
+        {
+            return stmtText;
+        }
+
+        public ExecutionType getExecutionType()
+        {
+            return type;
+        }
+
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+
+        StatementSnapshot snapshot()
+        {
+            return new StatementSnapshot(stmtText, type, latency.getCount(), latency.getTotalNanos(), latency.getMeanMillis(),
+                latency.getPercentileMillis(50), latency.getPercentileMillis(99), latency.getMaxMillis(),
+                statementsSent.get(), batches.get(), batchedStatements.get(), rowsAffected.get());
+        }
+    }
+
+    /**
+     * Immutable snapshot of the statistics of a single statement.
+     */
+    public static class StatementSnapshot
+    {
+        final String stmtText;
+        final ExecutionType type;
+        final long executions;
+        final long totalNanos;
+        final double meanMillis;
+        final double p50Millis;
+        final double p99Millis;
+        final double maxMillis;
+        final long statementsSent;
+        final long batches;
+        final long batchedStatements;
+        final long rowsAffected;
+
+        StatementSnapshot(String stmtText, ExecutionType type, long executions, long totalNanos, double meanMillis, double p50Millis, double p99Millis,
+                double maxMillis, long statementsSent, long batches, long batchedStatements, long rowsAffected)
+        {
+            this.stmtText = stmtText;
+            this.type = type;
+            this.executions = executions;
+            this.totalNanos = totalNanos;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+            this.statementsSent = statementsSent;
+            this.batches = batches;
+            this.batchedStatements = batchedStatements;
+            this.rowsAffected = rowsAffected;
+        }
+
+        public String getStatementText()
+        {
+            return stmtText;
+        }
+
+        public ExecutionType getExecutionType()
+        {
+            return type;
+        }
+
+        public long getExecutions()
+        {
+            return executions;
+        }
+
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        public double getMeanMillis()
+        {
+            return meanMillis;
+        }
+
+        public double getP50Millis()
+        {
+            return p50Millis;
+        }
+
+        public double getP99Millis()
+        {
+            return p99Millis;
+        }
+
+        public double getMaxMillis()
+        {
+            return maxMillis;
+        }
+
+        public long getStatementsSent()
+        {
+            return statementsSent;
+        }
+
+        public long getBatches()
+        {
+            return batches;
+        }
+
+        /**
+         * Accessor for the number of statements sent in executions that were batches.
+         * @return Number of batched statements
+         */
+        public long getBatchedStatements()
+        {
+            return batchedStatements;
+        }
+
+        /**
+         * Accessor for the mean number of statements per batch. Executions that weren't batches are not included.
+         * @return Mean batch size, or 0 if no batches were executed
+         */
+        public double getMeanBatchSize()
+        {
+            return batches == 0 ? 0.0 : (double) batchedStatements / batches;
+        }
+
+        public long getRowsAffected()
+        {
+            return rowsAffected;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder str = new StringBuilder();
+            str.append(type).append(" executions=").append(executions)
+                .append(" total=").append(totalNanos / 1000000L).append("ms")
+                .append(" mean=").append(meanMillis).append("ms")
+                .append(" p50=").append(p50Millis).append("ms")
+                .append(" p99=").append(p99Millis).append("ms")
+                .append(" max=").append(maxMillis).append("ms");
+            if (batches > 0)
+            {
+                str.append(" batches=").append(batches).append(" meanBatchSize=").append(getMeanBatchSize());
+            }
+            if (rowsAffected > 0)
+            {
+                str.append(" rows=").append(rowsAffected);
+            }
+            str.append(" : ").append(stmtText);
+            return str.toString();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+/**
+ * MXBean interface for the statistics of SQL statements executed by a store manager.
+ */
+public interface SQLStatementStatisticsMXBean
+{
+    int getNumberOfStatements();
+
+    long getTotalExecutions();
+
+    long getTotalExecutionTimeMillis();
+
+    long getSlowExecutions();
+
+    long getSlowThresholdMillis();
+
+    void setSlowThresholdMillis(long millis);
+
+    /**
+     * Accessor for a description of the statements with the highest total execution time.
+     * @param max Max number of statements to return
+     * @return Descriptions of the statements (text, executions, mean/p50/p99/max latency, rows, batches)
+     */
+    String[] getTopStatementsByTotalTime(int max);
+
+    /**
+     * Accessor for a description of the statements with the highest 99th percentile execution time.
+     * @param max Max number of statements to return
+     * @return Descriptions of the statements (text, executions, mean/p50/p99/max latency, rows, batches)
+     */
+    String[] getTopStatementsByP99(int max);
+
+    void reset();
+}
@@ -0,0 +1,158 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.datanucleus.ExecutionContext;
+import org.datanucleus.store.connection.ManagedConnection;
+import org.datanucleus.store.rdbms.table.Table;
+import org.datanucleus.util.NucleusLogger;
+
+/**
+ * Statistics of whether tables have any rows, so that queries using UNIONs can omit the branches for tables with no rows.
+ * The state of a table is found using "SELECT 1 FROM {table}" retrieving at most one row, and is found again once older
+ * than the refresh interval. A table is marked as having rows whenever this StoreManager inserts into it, so only rows
+ * inserted by other processes can be missed, and then only until the next refresh.
+ */
+public class TableRowStatistics
+{
+    private final RDBMSStoreManager storeMgr;
+
+    /** Interval (millisecs) after which the state of a table is found again. */
+    private final long refreshInterval;
+
+    private final Map<Table, TableState> stateByTable = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param storeMgr RDBMS StoreManager
+     * @param refreshInterval Interval (millisecs) after which the state of a table is found again
+     */
+    public TableRowStatistics(RDBMSStoreManager storeMgr, long refreshInterval)
+    {
+        this.storeMgr = storeMgr;
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Accessor for whether the specified table is known to have no rows.
+     * @param table The table
+     * @param ec ExecutionContext to use for any check of the datastore
+     * @return Whether the table has no rows
+     */
+    public boolean isEmpty(Table table, ExecutionContext ec)
+    {
+        TableState state = stateByTable.get(table);
+        long now = System.currentTimeMillis();
+        if (state != null && now - state.checkTime <= refreshInterval)
+        {
+            return state.empty;
+        }
+
+        TableState newState = new TableState(checkEmpty(table, ec), now);
+        boolean stored = (state == null) ? stateByTable.putIfAbsent(table, newState) == null : stateByTable.replace(table, state, newState);
+        if (!stored)
+        {
+            // Updated (e.g by an insert) while we were checking, so use that
+            return stateByTable.get(table).empty;
+        }
+        return newState.empty;
+    }
+
+    /**
+     * Method to mark the specified table as having rows, for example after inserting into it.
+     * @param table The table
+     */
+    public void markNotEmpty(Table table)
+    {
+        TableState state = stateByTable.get(table);
+        if (state == null || state.empty)
+        {
+            stateByTable.put(table, new TableState(false, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Method to clear all statistics, so that the state of each table is found again when next needed.
+     */
+    public void clear()
+    {
+        stateByTable.clear();
+    }
+
+    private boolean checkEmpty(Table table, ExecutionContext ec)
+    {
+        String stmt = "SELECT 1 FROM " + table.toString();
+        ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+        SQLController sqlControl = storeMgr.getSQLController();
+        try
+        {
+            try
+            {
+                PreparedStatement ps = sqlControl.getStatementForQuery(mconn, stmt);
+                try
+                {
+                    ps.setMaxRows(1);
+                    ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, stmt, ps);
+                    try
+                    {
+                        return !rs.next();
+                    }
+                    finally
+                    {
+                        rs.close();
+                    }
+                }
+                finally
+                {
+                    sqlControl.closeStatement(mconn, ps);
+                }
+            }
+            finally
+            {
+                mconn.release();
+            }
+        }
+        catch (SQLException sqle)
+        {
+            // Assume that the table has rows, so it is never omitted wrongly
+            NucleusLogger.DATASTORE.warn("Exception checking whether table " + table + " has any rows : " + sqle.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether a table had rows at a point in time.
+     */
+    private static class TableState
+    {
+        final boolean empty;
+        final long checkTime;
+
+        TableState(boolean empty, long checkTime)
+        {
+            this.empty = empty;
+            this.checkTime = checkTime;
+        }
+    }
+}
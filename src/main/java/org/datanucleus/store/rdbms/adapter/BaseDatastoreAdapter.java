@@ -504,6 +504,7 @@ public class BaseDatastoreAdapter implements DatastoreAdapter
         supportedOptions.add(RESULTSET_TYPE_FORWARD_ONLY);
         supportedOptions.add(RESULTSET_TYPE_SCROLL_SENSITIVE);
         supportedOptions.add(RESULTSET_TYPE_SCROLL_INSENSITIVE);
+        supportedOptions.add(STREAMING_FETCH_SIZE_INCREASE);
 
         supportedOptions.add(RIGHT_OUTER_JOIN);
         supportedOptions.add(SOME_ANY_ALL_SUBQUERY_EXPRESSIONS);
@@ -856,6 +857,17 @@ public class BaseDatastoreAdapter implements DatastoreAdapter
         return true;
     }
 
+    /**
+     * Accessor for the fetch size to set on a query statement so that the JDBC driver streams the results.
+     * Defaults to the requested fetch size, otherwise a small fetch size so that the first rows are returned quickly.
+     * @param size The fetch size requested for the query (0 if not specified)
+     * @return The fetch size to use when streaming
+     */
+    public int getStreamingFetchSize(int size)
+    {
+        return (size > 0) ? size : 10;
+    }
+
     /* (non-Javadoc)
      * @see org.datanucleus.store.DatastoreAdapter#getVendorID()
      */
@@ -972,6 +984,16 @@ public class BaseDatastoreAdapter implements DatastoreAdapter
         return 9999;
     }
 
+    /**
+     * Accessor for the maximum number of parameters to use in a single statement.
+     * @return Max number of parameters in a statement
+     */
+    public int getMaxParametersPerStatement()
+    {
+        // Oracle allows at most 1000 values in an IN list, and SQLServer 2100 parameters in a statement
+        return 1000;
+    }
+
     /**
      * Iterator for the reserved words constructed from the method
      * DataBaseMetaData.getSQLKeywords + standard SQL reserved words
@@ -397,6 +397,12 @@ public interface DatastoreAdapter
 
     public static final String HOLD_CURSORS_OVER_COMMIT = "HoldCursorsOverCommit";
 
+    /** Whether the JDBC driver only streams query results using a cursor when the connection is not in auto-commit mode. */
+    public static final String STREAMING_REQUIRES_NON_AUTOCOMMIT = "StreamingRequiresNonAutoCommit";
+
+    /** Whether the fetch size of a ResultSet being streamed can be increased while it is read. */
+    public static final String STREAMING_FETCH_SIZE_INCREASE = "StreamingFetchSizeIncrease";
+
     public static final String OPERATOR_BITWISE_AND = "BitwiseAndOperator";
     public static final String OPERATOR_BITWISE_OR = "BitwiseOrOperator";
     public static final String OPERATOR_BITWISE_XOR = "BitwiseXOrOperator";
@@ -567,6 +573,13 @@ public interface DatastoreAdapter
      */
     int getMaxIndexes();
 
+    /**
+     * Accessor for the maximum number of parameters to use in a single statement, and so also the maximum number
+     * of values in an IN list. Statements acting on an arbitrary number of values should be split into chunks of this size.
+     * @return Max number of parameters in a statement
+     */
+    int getMaxParametersPerStatement();
+
     /**
      * Whether the datastore will support setting the query fetch size to the supplied value.
      * @param size The value to set to
@@ -574,6 +587,14 @@ public interface DatastoreAdapter
      */
     boolean supportsQueryFetchSize(int size);
 
+    /**
+     * Accessor for the fetch size to set on a query statement so that the JDBC driver streams the results using a
+     * server-side cursor rather than loading them all into memory at execution.
+     * @param size The fetch size requested for the query (0 if not specified)
+     * @return The fetch size to use when streaming
+     */
+    int getStreamingFetchSize(int size);
+
     /**
      * Method to return this object as a string.
      * @return String version of this object.
@@ -25,6 +25,7 @@ import java.math.BigInteger;
 import java.sql.DatabaseMetaData;
 import java.sql.JDBCType;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Properties;
 import java.util.regex.Pattern;
@@ -47,6 +48,7 @@ import org.datanucleus.store.rdbms.table.Column;
 import org.datanucleus.store.rdbms.table.Table;
 import org.datanucleus.store.rdbms.table.TableImpl;
 import org.datanucleus.store.schema.StoreSchemaHandler;
+import org.datanucleus.util.NucleusLogger;
 import org.datanucleus.util.StringUtils;
 
 /**
@@ -77,6 +79,12 @@ public class MySQLAdapter extends BaseDatastoreAdapter
         "USER_RESOURCES,VARBINARY,VARCHARACTER,WARNINGS,XOR,YEAR_MONTH," +
         "ZEROFILL";
 
+    /** Whether the connection URL enables the use of a server-side cursor for statements with a fetch size. */
+    private boolean useCursorFetch = false;
+
+    /** Whether a warning has been logged that streaming of results isn't available. */
+    private volatile boolean streamingWarned = false;
+
     /**
      * Constructor.
      * Overridden so we can add on our own list of NON SQL92 reserved words
@@ -145,6 +153,44 @@ public class MySQLAdapter extends BaseDatastoreAdapter
 //        supportedOptions.add(NATIVE_ENUM_TYPE); // There is no point to supporting this since "CHECK IN(...)" is ANSI standard and does the same
 
         supportedOptions.remove(VALUE_GENERATION_UUID_STRING); // MySQL charsets don't seem to allow this
+
+        // Connector/J fetches each block of a cursor using the fetch size of the statement, so the fetch size cannot be increased
+        supportedOptions.remove(STREAMING_FETCH_SIZE_INCREASE);
+
+        try
+        {
+            String url = metadata.getURL();
+            useCursorFetch = url != null && url.toLowerCase().contains("usecursorfetch=true");
+        }
+        catch (SQLException sqle)
+        {
+            // Assume not using a cursor
+        }
+    }
+
+    /**
+     * Accessor for the fetch size to set on a query statement so that the JDBC driver streams the results.
+     * Results are only streamed using a server-side cursor, which Connector/J uses when "useCursorFetch=true" is set on the connection URL
+     * and the fetch size is positive. Row-by-row streaming (fetch size of Integer.MIN_VALUE) is not used, since no other statement
+     * (bulk-fetch of a container, lazy load of a member) could then be issued on the connection while the results are being read.
+     * @param size The fetch size requested for the query (0 if not specified)
+     * @return The fetch size to use when streaming
+     */
+    @Override
+    public int getStreamingFetchSize(int size)
+    {
+        if (useCursorFetch)
+        {
+            return super.getStreamingFetchSize(size);
+        }
+
+        if (!streamingWarned)
+        {
+            streamingWarned = true;
+            NucleusLogger.DATASTORE.warn("Query results requested to be streamed, but MySQL only streams results using a cursor, which needs " +
+                "useCursorFetch=true on the connection URL, so the results are not streamed");
+        }
+        return size;
     }
 
     /**
@@ -121,6 +121,9 @@ public class PostgreSQLAdapter extends BaseDatastoreAdapter
 
         supportedOptions.add(NATIVE_ENUM_TYPE);
 
+        // PostgreSQL JDBC only uses a cursor for a positive fetch size when not in auto-commit mode
+        supportedOptions.add(STREAMING_REQUIRES_NON_AUTOCOMMIT);
+
         supportedOptions.remove(VALUE_GENERATION_UUID_STRING); // PostgreSQL charsets don't seem to allow this
     }
 
@@ -305,6 +305,13 @@ public class SQLiteAdapter extends BaseDatastoreAdapter
         }
     }
 
+    @Override
+    public int getMaxParametersPerStatement()
+    {
+        // SQLITE_MAX_VARIABLE_NUMBER defaults to 999
+        return 999;
+    }
+
     @Override
     public String getAutoIncrementStmt(Table table, String columnName)
     {
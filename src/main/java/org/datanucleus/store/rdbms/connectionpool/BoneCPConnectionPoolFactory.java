@@ -128,5 +128,9 @@ public class BoneCPConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            return dataSource.getTotalLeased();
+        }
     }
 }
\ No newline at end of file
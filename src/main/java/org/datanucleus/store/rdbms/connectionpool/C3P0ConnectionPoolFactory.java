@@ -127,5 +127,38 @@ public class C3P0ConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            try
+            {
+                return dataSource.getNumBusyConnectionsDefaultUser();
+            }
+            catch (SQLException sqle)
+            {
+                return -1;
+            }
+        }
+        public int getNumIdle()
+        {
+            try
+            {
+                return dataSource.getNumIdleConnectionsDefaultUser();
+            }
+            catch (SQLException sqle)
+            {
+                return -1;
+            }
+        }
+        public int getNumPending()
+        {
+            try
+            {
+                return dataSource.getNumThreadsAwaitingCheckoutDefaultUser();
+            }
+            catch (SQLException sqle)
+            {
+                return -1;
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.datanucleus.store.StoreManager;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
+import org.datanucleus.store.rdbms.datasource.dbcp2.ConnectionFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.DriverManagerConnectionFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnection;
+import org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnectionFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.PoolingDataSource;
+import org.datanucleus.util.StringUtils;
+
+/**
+ * Plugin for the creation of a built-in connection pool using a lock-free concurrent bag for the idle connections.
+ * Connections are created and wrapped exactly as with the built-in DBCP2 pool (using the repackaged DBCP2 classes), but
+ * borrow/return do not go through a pool-wide lock, so this is better suited to large numbers of concurrent threads.
+ * Selected using a pooling type of "concurrent-bag".
+ */
+public class ConcurrentBagConnectionPoolFactory extends AbstractConnectionPoolFactory
+{
+    /** Default interval between runs of the pool housekeeper (millisecs), used when nothing else specified. */
+    private static final long DEFAULT_HOUSEKEEPING_PERIOD = 30000;
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.ConnectionPoolFactory#createConnectionPool(org.datanucleus.store.StoreManager)
+     */
+    public ConnectionPool createConnectionPool(StoreManager storeMgr)
+    {
+        // Load the database driver
+        String dbDriver = storeMgr.getConnectionDriverName();
+        if (!StringUtils.isWhitespace(dbDriver))
+        {
+            loadDriver(dbDriver, storeMgr.getNucleusContext().getClassLoaderResolver(null));
+        }
+
+        String dbURL = storeMgr.getConnectionURL();
+        PoolingDataSource<PoolableConnection> ds = null;
+        ConcurrentBagObjectPool<PoolableConnection> connectionPool;
+        ConnectionPoolStatistics statistics;
+        try
+        {
+            // Create a factory to be used by the pool to create the connections
+            Properties dbProps = getPropertiesForDriver(storeMgr);
+            ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(dbURL, dbProps);
+
+            // Wrap the connections and statements with pooled variants
+            statistics = new ConnectionPoolStatistics("concurrent-bag");
+            PoolableConnectionFactory poolableCF = new InstrumentedPoolableConnectionFactory(connectionFactory, statistics);
+
+            String testSQL = null;
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_SQL))
+            {
+                testSQL = storeMgr.getStringProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_SQL);
+                poolableCF.setValidationQuery(testSQL);
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_STATEMENTS))
+            {
+                // Cache PreparedStatements per connection, in an LRU cache of this size
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_STATEMENTS);
+                if (value > 0)
+                {
+                    poolableCF.setPoolStatements(true);
+                    poolableCF.setMaxOpenPrepatedStatements(value);
+                }
+            }
+
+            // Create the actual pool of connections, and apply any properties
+            connectionPool = new ConcurrentBagObjectPool<>(poolableCF);
+            poolableCF.setPool(connectionPool);
+            if (testSQL != null)
+            {
+                connectionPool.setTestOnBorrow(true);
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MIN_IDLE))
+            {
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MIN_IDLE);
+                if (value > 0)
+                {
+                    connectionPool.setMinIdle(value);
+                }
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_ACTIVE))
+            {
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_ACTIVE);
+                if (value > 0)
+                {
+                    connectionPool.setMaxTotal(value);
+                }
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_WAIT))
+            {
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_WAIT);
+                if (value > 0)
+                {
+                    connectionPool.setMaxWaitMillis(value);
+                }
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MIN_EVICTABLE_IDLE_TIME_MILLIS))
+            {
+                // how long may a connection sit idle in the pool before it may be evicted
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MIN_EVICTABLE_IDLE_TIME_MILLIS);
+                if (value > 0)
+                {
+                    connectionPool.setMinEvictableIdleTimeMillis(value);
+                }
+            }
+            if (storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_WHILE_IDLE))
+            {
+                // validate idle connections in the background (on each housekeeper run), rather than only on the borrowing thread
+                connectionPool.setTestWhileIdle(true);
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_VALIDATION_SKIP_WINDOW_MILLIS))
+            {
+                // don't validate on borrow a connection that was returned within this time
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_VALIDATION_SKIP_WINDOW_MILLIS);
+                if (value > 0)
+                {
+                    connectionPool.setValidationSkipWindowMillis(value);
+                }
+            }
+
+            // Start the housekeeper (eviction/validation of idle connections, and topping up to minIdle) in the background
+            long housekeepingPeriod = DEFAULT_HOUSEKEEPING_PERIOD;
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TIME_BETWEEN_EVICTOR_RUNS_MILLIS))
+            {
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TIME_BETWEEN_EVICTOR_RUNS_MILLIS);
+                if (value > 0)
+                {
+                    housekeepingPeriod = value;
+                }
+            }
+            connectionPool.startHousekeeper(housekeepingPeriod);
+
+            // Create the datasource
+            ds = new PoolingDataSource<>(connectionPool);
+        }
+        catch (Exception e)
+        {
+            throw new DatastorePoolException("ConcurrentBag", dbDriver, dbURL, e);
+        }
+
+        ConcurrentBagConnectionPool pool = new ConcurrentBagConnectionPool(ds, connectionPool, statistics);
+        statistics.setConnectionPool(pool);
+        return pool;
+    }
+
+    public class ConcurrentBagConnectionPool implements ConnectionPool
+    {
+        final PoolingDataSource<PoolableConnection> dataSource;
+        final ConcurrentBagObjectPool<PoolableConnection> pool;
+        final ConnectionPoolStatistics statistics;
+        public ConcurrentBagConnectionPool(PoolingDataSource<PoolableConnection> ds, ConcurrentBagObjectPool<PoolableConnection> pool,
+                ConnectionPoolStatistics stats)
+        {
+            this.dataSource = ds;
+            this.pool = pool;
+            this.statistics = stats;
+        }
+        public void close()
+        {
+            pool.close();
+        }
+        public DataSource getDataSource()
+        {
+            return dataSource;
+        }
+        public int getNumActive()
+        {
+            return pool.getNumActive();
+        }
+        public int getNumIdle()
+        {
+            return pool.getNumIdle();
+        }
+        public int getNumPending()
+        {
+            return pool.getNumWaiters();
+        }
+        public ConnectionPoolStatistics getStatistics()
+        {
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,1042 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObjectFactory;
+import org.datanucleus.util.NucleusLogger;
+
+/**
+ * ObjectPool implementation using a lock-free "concurrent bag" for the idle objects.
+ * Each object in the pool is held in a BagEntry with a state that is only ever changed by CAS, so a borrow
+ * never has to take a pool-wide lock. A borrowing thread tries (in order)
+ * <ol>
+ * <li>the objects that it last returned itself (held in a thread-local list), which gives thread affinity</li>
+ * <li>a scan of all objects of the pool</li>
+ * <li>creation of a new object if the pool is below maxTotal</li>
+ * <li>waiting for an object to be handed off directly by a returning thread</li>
+ * </ol>
+ * When there is a housekeeper and a minIdle, the new object is created by the housekeeper and handed off to the borrower,
+ * so the borrowing thread doesn't perform the creation (e.g the connection handshake) itself and can take an object returned
+ * by another thread in the meantime. Otherwise the new object is created on the borrowing thread.
+ * Eviction of idle objects, validation of idle objects (when testWhileIdle), and topping up to minIdle are performed
+ * by a background housekeeper thread. A borrow that finds no idle object in the pool also triggers an (asynchronous)
+ * top up to minIdle, so that the pool grows ahead of demand rather than on the borrowing threads.
+ * Validation on borrow can be skipped for objects that were returned within the last validationSkipWindowMillis.
+ * This is intended to be used with the (repackaged) DBCP2 PoolableConnectionFactory, so that connections are
+ * created, activated, validated, passivated and destroyed exactly as with the DBCP2 GenericObjectPool.
+ * @param <T> Type of the pooled objects
+ */
+public class ConcurrentBagObjectPool<T> implements ObjectPool<T>
+{
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+    static final int STATE_RESERVED = -2;
+
+    /** Max number of entries remembered per thread for thread-affine borrowing. */
+    private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+    /** Interval at which a waiting borrower checks on the creation of an object requested from the housekeeper. */
+    private static final long CREATE_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** Factory responsible for the lifecycle of the pooled objects. */
+    private final PooledObjectFactory<T> factory;
+
+    /** All entries in this pool, whatever their state. */
+    private final CopyOnWriteArrayList<BagEntry<T>> sharedList = new CopyOnWriteArrayList<>();
+
+    /** Lookup of entry by (identity of) the pooled object, used when an object is returned/invalidated. */
+    private final Map<IdentityKey, BagEntry<T>> entriesByObject = new ConcurrentHashMap<>();
+
+    /** Entries last returned by the current thread. */
+    private final ThreadLocal<List<WeakReference<BagEntry<T>>>> threadList = new ThreadLocal<List<WeakReference<BagEntry<T>>>>()
+    {
+        @Override
+        protected List<WeakReference<BagEntry<T>>> initialValue()
+        {
+            return new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES);
+        }
+    };
+
+    /** Queue used to hand a returned entry directly to a waiting borrower. */
+    private final SynchronousQueue<BagEntry<T>> handoffQueue = new SynchronousQueue<>(true);
+
+    /** Number of threads currently waiting for an entry to be handed off to them. */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /** Number of objects in the pool, including those currently being created. */
+    private final AtomicInteger totalCount = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    private volatile int maxTotal = 8;
+
+    private volatile int minIdle = 0;
+
+    /** Max time to wait for an object when borrowing (millisecs). Negative means wait indefinitely. */
+    private volatile long maxWaitMillis = -1;
+
+    private volatile boolean testOnBorrow = false;
+
+    private volatile boolean testOnReturn = false;
+
+    private volatile boolean testWhileIdle = false;
+
+    /** Period after an object was returned in which it is not validated on borrow (millisecs). */
+    private volatile long validationSkipWindowMillis = -1;
+
+    private volatile long minEvictableIdleTimeMillis = 1000L * 60L * 30L;
+
+    /** Whether an asynchronous top up to minIdle has been requested and not yet run. */
+    private final AtomicBoolean fillPending = new AtomicBoolean(false);
+
+    /** Background thread performing eviction and topping up of idle objects. */
+    private ScheduledExecutorService housekeeper = null;
+
+    /**
+     * Constructor for a pool using the supplied factory.
+     * @param factory Factory for the pooled objects
+     */
+    public ConcurrentBagObjectPool(PooledObjectFactory<T> factory)
+    {
+        if (factory == null)
+        {
+            throw new IllegalArgumentException("factory may not be null");
+        }
+        this.factory = factory;
+    }
+
+    public PooledObjectFactory<T> getFactory()
+    {
+        return factory;
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    /**
+     * Mutator for the max number of objects in the pool (idle or active).
+     * @param maxTotal The max number, or negative for no limit
+     */
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMinIdle()
+    {
+        return minIdle;
+    }
+
+    /**
+     * Mutator for the number of idle objects that the housekeeper will try to maintain.
+     * @param minIdle Min number of idle objects
+     */
+    public void setMinIdle(int minIdle)
+    {
+        this.minIdle = minIdle;
+    }
+
+    public long getMaxWaitMillis()
+    {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis)
+    {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public boolean getTestOnBorrow()
+    {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow)
+    {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean getTestOnReturn()
+    {
+        return testOnReturn;
+    }
+
+    public void setTestOnReturn(boolean testOnReturn)
+    {
+        this.testOnReturn = testOnReturn;
+    }
+
+    public boolean getTestWhileIdle()
+    {
+        return testWhileIdle;
+    }
+
+    /**
+     * Mutator for whether idle objects are validated by the background housekeeper.
+     * @param testWhileIdle Whether to validate idle objects
+     */
+    public void setTestWhileIdle(boolean testWhileIdle)
+    {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public long getValidationSkipWindowMillis()
+    {
+        return validationSkipWindowMillis;
+    }
+
+    /**
+     * Mutator for the period after an object was returned during which it is not validated on borrow.
+     * @param millis The window (millisecs), or 0 or less to validate on every borrow (when testOnBorrow)
+     */
+    public void setValidationSkipWindowMillis(long millis)
+    {
+        this.validationSkipWindowMillis = millis;
+    }
+
+    public long getMinEvictableIdleTimeMillis()
+    {
+        return minEvictableIdleTimeMillis;
+    }
+
+    public void setMinEvictableIdleTimeMillis(long millis)
+    {
+        this.minEvictableIdleTimeMillis = millis;
+    }
+
+    /**
+     * Method to start the background housekeeper, running at the specified interval.
+     * Each run evicts idle objects older than minEvictableIdleTimeMillis (while keeping minIdle) and then tops the pool up to minIdle.
+     * @param periodMillis Interval between runs (millisecs)
+     */
+    public synchronized void startHousekeeper(long periodMillis)
+    {
+        if (housekeeper != null || periodMillis <= 0)
+        {
+            return;
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "DataNucleus-ConnectionPool-Housekeeper");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        housekeeper.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                housekeep();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#borrowObject()
+     */
+    @Override
+    public T borrowObject() throws Exception
+    {
+        assertOpen();
+
+        long timeoutNanos = maxWaitMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        long startNanos = System.nanoTime();
+        while (true)
+        {
+            long remainingNanos = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : timeoutNanos - (System.nanoTime() - startNanos);
+            if (remainingNanos <= 0)
+            {
+                throw new NoSuchElementException("Timeout waiting for idle object");
+            }
+
+            boolean[] created = new boolean[] {false};
+            BagEntry<T> entry = acquire(remainingNanos, created);
+            if (entry == null)
+            {
+                throw new NoSuchElementException("Timeout waiting for idle object");
+            }
+            if (entry.created)
+            {
+                // Created by the housekeeper for a borrower, so treat a failure as for an object created on this thread
+                entry.created = false;
+                created[0] = true;
+            }
+
+            PooledObject<T> p = entry.pooled;
+            boolean recentlyUsed = validationSkipWindowMillis > 0 &&
+                System.currentTimeMillis() - p.getLastReturnTime() < validationSkipWindowMillis;
+            p.allocate();
+            try
+            {
+                factory.activateObject(p);
+            }
+            catch (Exception e)
+            {
+                destroy(entry);
+                if (created[0])
+                {
+                    NoSuchElementException nsee = new NoSuchElementException("Unable to activate object");
+                    nsee.initCause(e);
+                    throw nsee;
+                }
+                continue;
+            }
+
+            if (testOnBorrow && !recentlyUsed)
+            {
+                boolean valid = false;
+                Throwable validationThrowable = null;
+                try
+                {
+                    valid = factory.validateObject(p);
+                }
+                catch (Throwable thr)
+                {
+                    validationThrowable = thr;
+                }
+                if (!valid)
+                {
+                    destroy(entry);
+                    if (created[0])
+                    {
+                        NoSuchElementException nsee = new NoSuchElementException("Unable to validate object");
+                        nsee.initCause(validationThrowable);
+                        throw nsee;
+                    }
+                    continue;
+                }
+            }
+
+            return p.getObject();
+        }
+    }
+
+    /**
+     * Method to acquire an entry from the bag, marking it as in use.
+     * @param timeoutNanos Max time to wait for an entry to become available
+     * @param created Array of length 1, whose element is set to true when the entry was newly created
+     * @return The entry, or null if timed out
+     * @throws Exception Thrown if an error occurs creating a new object
+     */
+    private BagEntry<T> acquire(long timeoutNanos, boolean[] created) throws Exception
+    {
+        // Try the entries last used by this thread, most recent first
+        List<WeakReference<BagEntry<T>>> localList = threadList.get();
+        for (int i = localList.size() - 1; i >= 0; i--)
+        {
+            BagEntry<T> entry = localList.remove(i).get();
+            if (entry != null && entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE))
+            {
+                return entry;
+            }
+        }
+
+        BagEntry<T> entry = acquireFromSharedList();
+        if (entry != null)
+        {
+            if (minIdle > 0)
+            {
+                // Demand is growing beyond this thread's own connections, so make sure we keep minIdle in reserve
+                requestFill();
+            }
+            return entry;
+        }
+        requestFill();
+
+        Future<?> pendingCreate = (minIdle > 0) ? requestCreate() : null;
+        if (pendingCreate == null)
+        {
+            // No housekeeper to create an object in the background, so create it on this thread
+            entry = create(STATE_IN_USE);
+            if (entry != null)
+            {
+                created[0] = true;
+                return entry;
+            }
+        }
+
+        // Only register as waiting now, so returning threads don't try to hand off to us while we are creating an object
+        waiters.incrementAndGet();
+        try
+        {
+            // Scan again, in case an object was returned before we registered as waiting (so wasn't handed off)
+            entry = acquireFromSharedList();
+            if (entry != null)
+            {
+                return entry;
+            }
+
+            long remainingNanos = timeoutNanos;
+            while (remainingNanos > 0)
+            {
+                long startNanos = System.nanoTime();
+                long pollNanos = (pendingCreate != null) ? Math.min(remainingNanos, CREATE_CHECK_INTERVAL_NANOS) : remainingNanos;
+                entry = handoffQueue.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (entry != null && entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE))
+                {
+                    return entry;
+                }
+                if (entry == null && pendingCreate == null)
+                {
+                    return null;
+                }
+                if (pendingCreate != null && pendingCreate.isDone())
+                {
+                    // Throws any failure of the creation, otherwise the object was taken by another borrower
+                    checkCreate(pendingCreate);
+                    entry = acquireFromSharedList();
+                    if (entry != null)
+                    {
+                        return entry;
+                    }
+                    pendingCreate = isBelowMaxTotal() ? requestCreate() : null;
+                }
+                if (timeoutNanos != Long.MAX_VALUE)
+                {
+                    remainingNanos -= System.nanoTime() - startNanos;
+                }
+            }
+            return null;
+        }
+        finally
+        {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Method to acquire the first available entry of the pool, marking it as in use.
+     * @return The entry, or null if none is available
+     */
+    private BagEntry<T> acquireFromSharedList()
+    {
+        for (BagEntry<T> entry : sharedList)
+        {
+            if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE))
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to create a new entry, providing the pool is below its max size.
+     * @param initialState The state of the new entry
+     * @return The new entry, or null if the pool is at capacity
+     * @throws Exception Thrown if the factory fails to create the object
+     */
+    private BagEntry<T> create(int initialState) throws Exception
+    {
+        while (true)
+        {
+            int current = totalCount.get();
+            int max = maxTotal;
+            if (max >= 0 && current >= max)
+            {
+                return null;
+            }
+            if (totalCount.compareAndSet(current, current + 1))
+            {
+                break;
+            }
+        }
+
+        PooledObject<T> p;
+        try
+        {
+            p = factory.makeObject();
+        }
+        catch (Exception e)
+        {
+            totalCount.decrementAndGet();
+            throw e;
+        }
+
+        BagEntry<T> entry = new BagEntry<>(p, initialState);
+        entriesByObject.put(new IdentityKey(p.getObject()), entry);
+        sharedList.add(entry);
+        return entry;
+    }
+
+    /**
+     * Accessor for whether the pool has space for another object.
+     * @return Whether the number of objects is below maxTotal
+     */
+    private boolean isBelowMaxTotal()
+    {
+        int max = maxTotal;
+        return max < 0 || totalCount.get() < max;
+    }
+
+    /**
+     * Method to request the housekeeper to create an object, which is handed off to a waiting borrower (or left idle).
+     * @return The pending creation, or null if there is no housekeeper to create it
+     */
+    private Future<?> requestCreate()
+    {
+        ScheduledExecutorService hk = housekeeper;
+        if (closed || hk == null)
+        {
+            return null;
+        }
+        try
+        {
+            return hk.submit(new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    assertOpen();
+                    BagEntry<T> entry = create(STATE_RESERVED);
+                    if (entry != null)
+                    {
+                        entry.created = true;
+                        requite(entry, false);
+                    }
+                    return null;
+                }
+            });
+        }
+        catch (RejectedExecutionException ree)
+        {
+            // Pool being closed
+            return null;
+        }
+    }
+
+    /**
+     * Method to check the result of a completed creation requested from the housekeeper, throwing any failure.
+     * @param pendingCreate The completed creation
+     * @throws Exception Thrown if the creation of the object failed
+     */
+    private void checkCreate(Future<?> pendingCreate) throws Exception
+    {
+        try
+        {
+            pendingCreate.get();
+        }
+        catch (CancellationException ce)
+        {
+            // Housekeeper shut down by close()
+            assertOpen();
+        }
+        catch (ExecutionException ee)
+        {
+            if (ee.getCause() instanceof Exception)
+            {
+                throw (Exception) ee.getCause();
+            }
+            throw ee;
+        }
+    }
+
+    /**
+     * Method to request an asynchronous top up of the idle objects to minIdle, using the housekeeper thread.
+     * Does nothing if a top up is already pending, or there is no minIdle.
+     */
+    private void requestFill()
+    {
+        ScheduledExecutorService hk = housekeeper;
+        if (closed || minIdle <= 0 || hk == null || !fillPending.compareAndSet(false, true))
+        {
+            return;
+        }
+        try
+        {
+            hk.execute(new Runnable()
+            {
+                public void run()
+                {
+                    fillPending.set(false);
+                    fillToMinIdle();
+                }
+            });
+        }
+        catch (RejectedExecutionException ree)
+        {
+            // Pool being closed
+            fillPending.set(false);
+        }
+    }
+
+    /**
+     * Method to put an entry back into the bag as available, handing it directly to a waiting borrower where there is one.
+     * @param entry The entry
+     */
+    private void requite(BagEntry<T> entry)
+    {
+        requite(entry, true);
+    }
+
+    /**
+     * Method to put an entry back into the bag as available, handing it directly to a waiting borrower where there is one.
+     * @param entry The entry
+     * @param remember Whether to remember the entry for the current thread, for its next borrow
+     */
+    private void requite(BagEntry<T> entry, boolean remember)
+    {
+        entry.setState(STATE_NOT_IN_USE);
+
+        for (int i = 0; waiters.get() > 0; i++)
+        {
+            if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry))
+            {
+                return;
+            }
+            else if ((i & 0xff) == 0xff)
+            {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+
+        if (!remember)
+        {
+            return;
+        }
+        List<WeakReference<BagEntry<T>>> localList = threadList.get();
+        if (localList.size() < MAX_THREAD_LOCAL_ENTRIES)
+        {
+            localList.add(new WeakReference<>(entry));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#returnObject(java.lang.Object)
+     */
+    @Override
+    public void returnObject(T obj) throws Exception
+    {
+        BagEntry<T> entry = entriesByObject.get(new IdentityKey(obj));
+        if (entry == null || entry.getState() != STATE_IN_USE)
+        {
+            throw new IllegalStateException("Object has already been returned to this pool or is invalid");
+        }
+
+        PooledObject<T> p = entry.pooled;
+        if (testOnReturn && !factory.validateObject(p))
+        {
+            destroy(entry);
+            return;
+        }
+
+        try
+        {
+            factory.passivateObject(p);
+        }
+        catch (Exception e)
+        {
+            destroy(entry);
+            return;
+        }
+        p.deallocate();
+
+        if (closed)
+        {
+            destroy(entry);
+            return;
+        }
+        requite(entry);
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#invalidateObject(java.lang.Object)
+     */
+    @Override
+    public void invalidateObject(T obj) throws Exception
+    {
+        BagEntry<T> entry = entriesByObject.get(new IdentityKey(obj));
+        if (entry == null)
+        {
+            throw new IllegalStateException("Invalidated object not currently part of this pool");
+        }
+        destroy(entry);
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#addObject()
+     */
+    @Override
+    public void addObject() throws Exception
+    {
+        assertOpen();
+        BagEntry<T> entry = create(STATE_RESERVED);
+        if (entry != null)
+        {
+            requite(entry, false);
+        }
+    }
+
+    /**
+     * Method to remove an entry from the pool and destroy its object.
+     * If there are threads waiting for an object then a replacement is created in the background.
+     * @param entry The entry
+     */
+    private void destroy(BagEntry<T> entry)
+    {
+        entry.setState(STATE_REMOVED);
+        if (!sharedList.remove(entry))
+        {
+            return;
+        }
+        entriesByObject.remove(new IdentityKey(entry.pooled.getObject()));
+        totalCount.decrementAndGet();
+
+        PooledObject<T> p = entry.pooled;
+        p.invalidate();
+        try
+        {
+            factory.destroyObject(p);
+        }
+        catch (Exception e)
+        {
+            NucleusLogger.CONNECTION.debug("Exception destroying pooled object", e);
+        }
+
+        ScheduledExecutorService hk = housekeeper;
+        if (!closed && waiters.get() > 0 && hk != null)
+        {
+            try
+            {
+                hk.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        addForWaiters();
+                    }
+                });
+            }
+            catch (RejectedExecutionException ree)
+            {
+                // Pool being closed
+            }
+        }
+    }
+
+    /**
+     * Method to create an object for a thread that is waiting, where one was destroyed and left space in the pool.
+     */
+    private void addForWaiters()
+    {
+        if (closed || waiters.get() == 0)
+        {
+            return;
+        }
+        try
+        {
+            addObject();
+        }
+        catch (Exception e)
+        {
+            NucleusLogger.CONNECTION.debug("Exception creating pooled object for waiting borrower", e);
+        }
+    }
+
+    /**
+     * Housekeeping task, run in the background. Evicts idle objects that have exceeded the min evictable idle time
+     * (without dropping below minIdle), validates the remaining idle objects (when testWhileIdle), and then creates
+     * objects until there are minIdle idle objects.
+     */
+    protected void housekeep()
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        long minEvictable = minEvictableIdleTimeMillis;
+        if (minEvictable > 0)
+        {
+            int removable = getNumIdle() - minIdle;
+            for (BagEntry<T> entry : sharedList)
+            {
+                if (removable <= 0)
+                {
+                    break;
+                }
+                if (entry.getState() == STATE_NOT_IN_USE && entry.pooled.getIdleTimeMillis() > minEvictable &&
+                    entry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED))
+                {
+                    destroy(entry);
+                    removable--;
+                }
+            }
+        }
+
+        if (testWhileIdle)
+        {
+            validateIdle();
+        }
+
+        fillToMinIdle();
+    }
+
+    /**
+     * Method to validate all idle objects not used within the validation skip window, destroying any that are invalid.
+     * Each object is reserved while being validated, so is not available for borrowing during that time.
+     * As with GenericObjectPool eviction, the object is activated before validation and passivated again afterwards,
+     * and is destroyed if any of these steps fails.
+     */
+    private void validateIdle()
+    {
+        long window = validationSkipWindowMillis;
+        for (BagEntry<T> entry : sharedList)
+        {
+            if (closed)
+            {
+                return;
+            }
+            if (window > 0 && System.currentTimeMillis() - entry.pooled.getLastReturnTime() < window)
+            {
+                continue;
+            }
+            if (!entry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED))
+            {
+                continue;
+            }
+
+            boolean valid = false;
+            try
+            {
+                factory.activateObject(entry.pooled);
+                valid = factory.validateObject(entry.pooled);
+                if (valid)
+                {
+                    factory.passivateObject(entry.pooled);
+                }
+            }
+            catch (Throwable thr)
+            {
+                NucleusLogger.CONNECTION.debug("Exception validating idle pooled object", thr);
+                valid = false;
+            }
+            if (valid)
+            {
+                requite(entry, false);
+            }
+            else
+            {
+                destroy(entry);
+            }
+        }
+    }
+
+    /**
+     * Method to create objects until there are minIdle idle objects (or the pool is at its max size).
+     */
+    private void fillToMinIdle()
+    {
+        try
+        {
+            while (!closed && getNumIdle() < minIdle)
+            {
+                BagEntry<T> entry = create(STATE_RESERVED);
+                if (entry == null)
+                {
+                    break;
+                }
+                requite(entry, false);
+            }
+        }
+        catch (Exception e)
+        {
+            NucleusLogger.CONNECTION.debug("Exception creating pooled object to maintain minIdle", e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#getNumIdle()
+     */
+    @Override
+    public int getNumIdle()
+    {
+        return getNumWithState(STATE_NOT_IN_USE);
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#getNumActive()
+     */
+    @Override
+    public int getNumActive()
+    {
+        return getNumWithState(STATE_IN_USE);
+    }
+
+    /**
+     * Accessor for the number of threads currently waiting to borrow an object.
+     * @return Number of waiting threads
+     */
+    public int getNumWaiters()
+    {
+        return waiters.get();
+    }
+
+    private int getNumWithState(int state)
+    {
+        int count = 0;
+        for (BagEntry<T> entry : sharedList)
+        {
+            if (entry.getState() == state)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#clear()
+     */
+    @Override
+    public void clear()
+    {
+        for (BagEntry<T> entry : sharedList)
+        {
+            if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED))
+            {
+                destroy(entry);
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool#close()
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            if (housekeeper != null)
+            {
+                housekeeper.shutdownNow();
+                housekeeper = null;
+            }
+        }
+
+        // Destroy idle objects. Active objects are destroyed as they are returned
+        clear();
+    }
+
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    private void assertOpen() throws IllegalStateException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Pool not open");
+        }
+    }
+
+    /**
+     * Entry in the bag, wrapping the pooled object with its (CAS-managed) state.
+     */
+    static class BagEntry<T>
+    {
+        final PooledObject<T> pooled;
+        final AtomicInteger state;
+
+        /** Whether the object was created for a borrower, and not yet borrowed. */
+        volatile boolean created = false;
+
+        BagEntry(PooledObject<T> pooled, int initialState)
+        {
+            this.pooled = pooled;
+            this.state = new AtomicInteger(initialState);
+        }
+
+        int getState()
+        {
+            return state.get();
+        }
+
+        void setState(int newState)
+        {
+            state.set(newState);
+        }
+
+        boolean compareAndSet(int expect, int update)
+        {
+            return state.compareAndSet(expect, update);
+        }
+    }
+
+    /**
+     * Key providing identity equality for a pooled object (since the pooled objects may override equals/hashCode).
+     */
+    static class IdentityKey
+    {
+        final Object obj;
+
+        IdentityKey(Object obj)
+        {
+            this.obj = obj;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(obj);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof IdentityKey && ((IdentityKey)other).obj == obj;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import javax.sql.DataSource;
 
 /**
  * Wrapper for a connection pool.
+ * Implementations should also provide whichever of the metrics (active/idle/pending connections, statistics) the
+ * underlying pool supports; the defaults report them as unavailable.
  */
 public interface ConnectionPool
 {
@@ -34,4 +36,41 @@ public interface ConnectionPool
      * @return The DataSource
      */
     DataSource getDataSource();
+
+    /**
+     * Accessor for the number of connections currently borrowed from the pool.
+     * @return Number of active connections, or -1 if not available for this pool
+     */
+    default int getNumActive()
+    {
+        return -1;
+    }
+
+    /**
+     * Accessor for the number of connections currently idle in the pool.
+     * @return Number of idle connections, or -1 if not available for this pool
+     */
+    default int getNumIdle()
+    {
+        return -1;
+    }
+
+    /**
+     * Accessor for the number of threads currently waiting to obtain a connection from the pool.
+     * @return Number of waiting threads, or -1 if not available for this pool
+     */
+    default int getNumPending()
+    {
+        return -1;
+    }
+
+    /**
+     * Accessor for any statistics that the pool records itself (e.g creation/validation latencies).
+     * If this returns null then the caller will create statistics that only record what can be seen from outside the pool.
+     * @return The statistics for this pool, or null
+     */
+    default ConnectionPoolStatistics getStatistics()
+    {
+        return null;
+    }
 }
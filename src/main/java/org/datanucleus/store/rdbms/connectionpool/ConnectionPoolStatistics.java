@@ -0,0 +1,251 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.datanucleus.store.rdbms.LatencyHistogram;
+
+/**
+ * Statistics for a ConnectionPool, giving a uniform view of pool health whatever the pool implementation.
+ * The gauges (active/idle/pending) are taken from the ConnectionPool itself. The borrow wait is recorded by the
+ * ConnectionFactory around each request for a connection, so is available for all pools, whereas creation and
+ * validation latencies are only recorded by pools that can be instrumented (the built-in pools).
+ */
+public class ConnectionPoolStatistics implements ConnectionPoolStatisticsMXBean
+{
+    private final String poolingType;
+
+    private volatile ConnectionPool pool;
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+
+    private final LatencyHistogram creation = new LatencyHistogram();
+
+    private final LatencyHistogram validation = new LatencyHistogram();
+
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+
+    private final AtomicLong borrowFailures = new AtomicLong();
+
+    private final AtomicLong validationFailures = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param poolingType Name of the type of pool
+     */
+    public ConnectionPoolStatistics(String poolingType)
+    {
+        this.poolingType = poolingType;
+    }
+
+    /**
+     * Mutator for the pool that provides the active/idle/pending gauges.
+     * @param pool The connection pool
+     */
+    public void setConnectionPool(ConnectionPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Method to record the time taken to obtain a connection from the pool.
+     * @param nanos Time taken (nanosecs)
+     */
+    public void recordBorrow(long nanos)
+    {
+        borrowWait.record(nanos);
+    }
+
+    /**
+     * Method to record a failure to obtain a connection from the pool.
+     * Failures caused by a timeout waiting for a connection are counted separately.
+     * @param cause The exception thrown by the pool
+     */
+    public void recordBorrowFailure(Throwable cause)
+    {
+        Throwable thr = cause;
+        while (thr != null)
+        {
+            if (thr instanceof SQLTimeoutException || thr instanceof SQLTransientConnectionException || thr instanceof NoSuchElementException)
+            {
+                borrowTimeouts.incrementAndGet();
+                return;
+            }
+            thr = thr.getCause();
+        }
+        borrowFailures.incrementAndGet();
+    }
+
+    /**
+     * Method to record the time taken to create a new (physical) connection.
+     * @param nanos Time taken (nanosecs)
+     */
+    public void recordCreation(long nanos)
+    {
+        creation.record(nanos);
+    }
+
+    /**
+     * Method to record the time taken to validate a connection.
+     * @param nanos Time taken (nanosecs)
+     * @param valid Whether the connection was valid
+     */
+    public void recordValidation(long nanos, boolean valid)
+    {
+        validation.record(nanos);
+        if (!valid)
+        {
+            validationFailures.incrementAndGet();
+        }
+    }
+
+    public String getPoolingType()
+    {
+        return poolingType;
+    }
+
+    public int getNumActive()
+    {
+        ConnectionPool cp = pool;
+        return cp != null ? cp.getNumActive() : -1;
+    }
+
+    public int getNumIdle()
+    {
+        ConnectionPool cp = pool;
+        return cp != null ? cp.getNumIdle() : -1;
+    }
+
+    public int getNumPending()
+    {
+        ConnectionPool cp = pool;
+        return cp != null ? cp.getNumPending() : -1;
+    }
+
+    public long getBorrowCount()
+    {
+        return borrowWait.getCount();
+    }
+
+    public long getBorrowTimeoutCount()
+    {
+        return borrowTimeouts.get();
+    }
+
+    public long getBorrowFailureCount()
+    {
+        return borrowFailures.get();
+    }
+
+    public double getBorrowWaitMeanMillis()
+    {
+        return borrowWait.getMeanMillis();
+    }
+
+    public double getBorrowWaitP50Millis()
+    {
+        return borrowWait.getPercentileMillis(50);
+    }
+
+    public double getBorrowWaitP99Millis()
+    {
+        return borrowWait.getPercentileMillis(99);
+    }
+
+    public double getBorrowWaitMaxMillis()
+    {
+        return borrowWait.getMaxMillis();
+    }
+
+    public long[] getBorrowWaitHistogram()
+    {
+        return borrowWait.getBucketCounts();
+    }
+
+    public LatencyHistogram getBorrowWait()
+    {
+        return borrowWait;
+    }
+
+    public long getCreationCount()
+    {
+        return creation.getCount();
+    }
+
+    public double getCreationMeanMillis()
+    {
+        return creation.getMeanMillis();
+    }
+
+    public double getCreationMaxMillis()
+    {
+        return creation.getMaxMillis();
+    }
+
+    public LatencyHistogram getCreation()
+    {
+        return creation;
+    }
+
+    public long getValidationCount()
+    {
+        return validation.getCount();
+    }
+
+    public long getValidationFailureCount()
+    {
+        return validationFailures.get();
+    }
+
+    public double getValidationMeanMillis()
+    {
+        return validation.getMeanMillis();
+    }
+
+    public double getValidationMaxMillis()
+    {
+        return validation.getMaxMillis();
+    }
+
+    public LatencyHistogram getValidation()
+    {
+        return validation;
+    }
+
+    public void reset()
+    {
+        borrowWait.reset();
+        creation.reset();
+        validation.reset();
+        borrowTimeouts.set(0);
+        borrowFailures.set(0);
+        validationFailures.set(0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ConnectionPoolStatistics[" + poolingType + "] active=" + getNumActive() + " idle=" + getNumIdle() + " pending=" + getNumPending() +
+            " borrowWait=(" + borrowWait + ") timeouts=" + getBorrowTimeoutCount() + " failures=" + getBorrowFailureCount() +
+            " creation=(" + creation + ") validation=(" + validation + ") validationFailures=" + getValidationFailureCount();
+    }
+}
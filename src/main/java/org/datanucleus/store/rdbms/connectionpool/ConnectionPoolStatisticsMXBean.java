@@ -0,0 +1,65 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+/**
+ * Interface defining the attributes of connection pool statistics exposed via JMX.
+ * Any gauge that the underlying pool cannot provide is returned as -1.
+ */
+public interface ConnectionPoolStatisticsMXBean
+{
+    String getPoolingType();
+
+    int getNumActive();
+
+    int getNumIdle();
+
+    int getNumPending();
+
+    long getBorrowCount();
+
+    long getBorrowTimeoutCount();
+
+    long getBorrowFailureCount();
+
+    double getBorrowWaitMeanMillis();
+
+    double getBorrowWaitP50Millis();
+
+    double getBorrowWaitP99Millis();
+
+    double getBorrowWaitMaxMillis();
+
+    long[] getBorrowWaitHistogram();
+
+    long getCreationCount();
+
+    double getCreationMeanMillis();
+
+    double getCreationMaxMillis();
+
+    long getValidationCount();
+
+    long getValidationFailureCount();
+
+    double getValidationMeanMillis();
+
+    double getValidationMaxMillis();
+
+    void reset();
+}
@@ -39,6 +39,9 @@ import org.datanucleus.util.StringUtils;
  */
 public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFactory
 {
+    /** Interval between evictor runs (millisecs) when validating idle connections and no interval specified. */
+    private static final long DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS = 30000;
+
     /* (non-Javadoc)
      * @see org.datanucleus.store.rdbms.datasource.ConnectionPoolFactory#createConnectionPool(org.datanucleus.store.StoreManager)
      */
@@ -54,6 +57,7 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
         String dbURL = storeMgr.getConnectionURL();
         PoolingDataSource ds = null;
         GenericObjectPool<PoolableConnection> connectionPool;
+        ConnectionPoolStatistics statistics;
         try
         {
             // Create a factory to be used by the pool to create the connections
@@ -61,8 +65,8 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
             ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(dbURL, dbProps);
 
             // Wrap the connections and statements with pooled variants
-            PoolableConnectionFactory poolableCF = null;
-            poolableCF = new PoolableConnectionFactory(connectionFactory, null);
+            statistics = new ConnectionPoolStatistics("dbcp2-builtin");
+            PoolableConnectionFactory poolableCF = new InstrumentedPoolableConnectionFactory(connectionFactory, statistics);
 
             String testSQL = null;
             if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_SQL))
@@ -70,6 +74,16 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
                 testSQL = storeMgr.getStringProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_SQL);
                 poolableCF.setValidationQuery(testSQL);
             }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_STATEMENTS))
+            {
+                // Cache PreparedStatements per connection, in an LRU cache of this size
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_MAX_STATEMENTS);
+                if (value > 0)
+                {
+                    poolableCF.setPoolStatements(true);
+                    poolableCF.setMaxOpenPrepatedStatements(value);
+                }
+            }
 
             // Create the actual pool of connections, and apply any properties
             connectionPool = new GenericObjectPool(poolableCF);
@@ -133,6 +147,24 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
                     connectionPool.setMinEvictableIdleTimeMillis(value);
                 }
             }
+            if (storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_TEST_WHILE_IDLE))
+            {
+                // validate idle connections in the background (on each evictor run), rather than only on the borrowing thread
+                connectionPool.setTestWhileIdle(true);
+                if (connectionPool.getTimeBetweenEvictionRunsMillis() <= 0)
+                {
+                    connectionPool.setTimeBetweenEvictionRunsMillis(DEFAULT_TIME_BETWEEN_EVICTION_RUNS_MILLIS);
+                }
+            }
+            if (storeMgr.hasProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_VALIDATION_SKIP_WINDOW_MILLIS))
+            {
+                // don't validate on borrow a connection that was returned within this time
+                int value = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_CONNECTION_POOL_VALIDATION_SKIP_WINDOW_MILLIS);
+                if (value > 0)
+                {
+                    connectionPool.setValidationSkipWindowMillis(value);
+                }
+            }
 
             // Create the datasource
             ds = new org.datanucleus.store.rdbms.datasource.dbcp2.PoolingDataSource(connectionPool);
@@ -142,17 +174,21 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
             throw new DatastorePoolException("DBCP2", dbDriver, dbURL, e);
         }
 
-        return new DBCPConnectionPool(ds, connectionPool);
+        DBCPConnectionPool pool = new DBCPConnectionPool(ds, connectionPool, statistics);
+        statistics.setConnectionPool(pool);
+        return pool;
     }
 
     public class DBCPConnectionPool implements ConnectionPool
     {
         final PoolingDataSource dataSource;
         final ObjectPool pool;
-        public DBCPConnectionPool(PoolingDataSource ds, ObjectPool pool)
+        final ConnectionPoolStatistics statistics;
+        public DBCPConnectionPool(PoolingDataSource ds, ObjectPool pool, ConnectionPoolStatistics stats)
         {
             this.dataSource = ds;
             this.pool = pool;
+            this.statistics = stats;
         }
         public void close()
         {
@@ -168,5 +204,21 @@ public class DBCP2BuiltinConnectionPoolFactory extends AbstractConnectionPoolFac
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            return pool.getNumActive();
+        }
+        public int getNumIdle()
+        {
+            return pool.getNumIdle();
+        }
+        public int getNumPending()
+        {
+            return pool instanceof GenericObjectPool ? ((GenericObjectPool)pool).getNumWaiters() : -1;
+        }
+        public ConnectionPoolStatistics getStatistics()
+        {
+            return statistics;
+        }
     }
 }
\ No newline at end of file
@@ -171,5 +171,17 @@ public class DBCP2ConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            return pool.getNumActive();
+        }
+        public int getNumIdle()
+        {
+            return pool.getNumIdle();
+        }
+        public int getNumPending()
+        {
+            return pool instanceof org.apache.commons.pool2.impl.GenericObjectPool ? ((org.apache.commons.pool2.impl.GenericObjectPool)pool).getNumWaiters() : -1;
+        }
     }
 }
\ No newline at end of file
@@ -194,5 +194,20 @@ public class HikariCPConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            com.zaxxer.hikari.HikariPoolMXBean poolBean = dataSource.getHikariPoolMXBean();
+            return poolBean != null ? poolBean.getActiveConnections() : -1;
+        }
+        public int getNumIdle()
+        {
+            com.zaxxer.hikari.HikariPoolMXBean poolBean = dataSource.getHikariPoolMXBean();
+            return poolBean != null ? poolBean.getIdleConnections() : -1;
+        }
+        public int getNumPending()
+        {
+            com.zaxxer.hikari.HikariPoolMXBean poolBean = dataSource.getHikariPoolMXBean();
+            return poolBean != null ? poolBean.getThreadsAwaitingConnection() : -1;
+        }
     }
 }
\ No newline at end of file
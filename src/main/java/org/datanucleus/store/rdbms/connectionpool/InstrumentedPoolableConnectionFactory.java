@@ -0,0 +1,71 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+import org.datanucleus.store.rdbms.datasource.dbcp2.ConnectionFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnection;
+import org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnectionFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
+
+/**
+ * PoolableConnectionFactory for the built-in pools that records creation and validation latencies in the ConnectionPoolStatistics.
+ */
+public class InstrumentedPoolableConnectionFactory extends PoolableConnectionFactory
+{
+    private final ConnectionPoolStatistics statistics;
+
+    /**
+     * Constructor.
+     * @param connFactory Factory for the physical connections
+     * @param statistics Statistics to record into
+     */
+    public InstrumentedPoolableConnectionFactory(ConnectionFactory connFactory, ConnectionPoolStatistics statistics)
+    {
+        super(connFactory, null);
+        this.statistics = statistics;
+    }
+
+    public ConnectionPoolStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnectionFactory#makeObject()
+     */
+    @Override
+    public PooledObject<PoolableConnection> makeObject() throws Exception
+    {
+        long startTime = System.nanoTime();
+        PooledObject<PoolableConnection> p = super.makeObject();
+        statistics.recordCreation(System.nanoTime() - startTime);
+        return p;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.datasource.dbcp2.PoolableConnectionFactory#validateObject(org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject)
+     */
+    @Override
+    public boolean validateObject(PooledObject<PoolableConnection> p)
+    {
+        long startTime = System.nanoTime();
+        boolean valid = super.validateObject(p);
+        statistics.recordValidation(System.nanoTime() - startTime, valid);
+        return valid;
+    }
+}
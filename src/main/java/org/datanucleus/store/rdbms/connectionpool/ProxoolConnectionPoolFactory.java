@@ -128,5 +128,27 @@ public class ProxoolConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            try
+            {
+                return org.logicalcobwebs.proxool.ProxoolFacade.getSnapshot(dataSource.getAlias()).getActiveConnectionCount();
+            }
+            catch (org.logicalcobwebs.proxool.ProxoolException e)
+            {
+                return -1;
+            }
+        }
+        public int getNumIdle()
+        {
+            try
+            {
+                return org.logicalcobwebs.proxool.ProxoolFacade.getSnapshot(dataSource.getAlias()).getAvailableConnectionCount();
+            }
+            catch (org.logicalcobwebs.proxool.ProxoolException e)
+            {
+                return -1;
+            }
+        }
     }
 }
\ No newline at end of file
@@ -234,5 +234,17 @@ public class TomcatConnectionPoolFactory extends AbstractConnectionPoolFactory
         {
             return dataSource;
         }
+        public int getNumActive()
+        {
+            return dataSource.getActive();
+        }
+        public int getNumIdle()
+        {
+            return dataSource.getIdle();
+        }
+        public int getNumPending()
+        {
+            return dataSource.getWaitCount();
+        }
     }
 }
\ No newline at end of file
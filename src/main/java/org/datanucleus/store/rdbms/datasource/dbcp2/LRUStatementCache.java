@@ -0,0 +1,269 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.datasource.dbcp2;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.KeyedObjectPool;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.KeyedPooledObjectFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
+import org.datanucleus.util.NucleusLogger;
+
+/**
+ * Lightweight per-connection cache of prepared statements, used by {@link PoolingConnection} in place of a
+ * GenericKeyedObjectPool. Holds at most one idle statement per {@link PStmtKey} (SQL, catalog, result set
+ * type/concurrency, autoGeneratedKeys, statement type), with the least recently used idle statement closed
+ * when the cache is full. If a statement for a key is requested while the cached one is in use, a new statement
+ * is prepared and, when returned, is closed rather than cached.
+ * <p>
+ * There is no locking since a connection is only used by one thread at a time while it is borrowed from its pool.
+ * Each connection has its own cache, so there is also no contention between connections.
+ */
+public class LRUStatementCache implements KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> {
+
+    private final KeyedPooledObjectFactory<PStmtKey, DelegatingPreparedStatement> factory;
+
+    /** Max number of idle statements to retain. */
+    private final int maxIdle;
+
+    /** Idle statements, in access order (eldest first). */
+    private final LinkedHashMap<PStmtKey, PooledObject<DelegatingPreparedStatement>> idle;
+
+    /** Statements currently borrowed (either obtained from the cache or newly prepared). */
+    private final Map<DelegatingPreparedStatement, PooledObject<DelegatingPreparedStatement>> active = new IdentityHashMap<>();
+
+    /** Key of each borrowed statement. */
+    private final Map<DelegatingPreparedStatement, PStmtKey> activeKeys = new IdentityHashMap<>();
+
+    private boolean closed = false;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    /**
+     * Constructor.
+     * @param factory Factory for creating/activating/passivating/destroying the statements
+     * @param maxIdle Max number of idle statements to keep cached (negative for no limit, 0 to not cache)
+     */
+    public LRUStatementCache(KeyedPooledObjectFactory<PStmtKey, DelegatingPreparedStatement> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public DelegatingPreparedStatement borrowObject(PStmtKey key) throws Exception {
+        if (closed) {
+            throw new IllegalStateException("Statement cache is closed");
+        }
+
+        PooledObject<DelegatingPreparedStatement> p = idle.remove(key);
+        if (p != null) {
+            try {
+                factory.activateObject(key, p);
+                hits++;
+            } catch (Exception e) {
+                destroy(key, p);
+                p = null;
+            }
+        }
+        if (p == null) {
+            misses++;
+            p = factory.makeObject(key);
+            factory.activateObject(key, p);
+        }
+        p.allocate();
+        active.put(p.getObject(), p);
+        activeKeys.put(p.getObject(), key);
+        return p.getObject();
+    }
+
+    @Override
+    public void returnObject(PStmtKey key, DelegatingPreparedStatement stmt) throws Exception {
+        PooledObject<DelegatingPreparedStatement> p = active.remove(stmt);
+        activeKeys.remove(stmt);
+        if (p == null) {
+            throw new IllegalStateException("Returned statement not currently part of this cache");
+        }
+
+        try {
+            factory.passivateObject(key, p);
+        } catch (Exception e) {
+            destroy(key, p);
+            return;
+        }
+        p.deallocate();
+
+        if (closed || maxIdle == 0 || idle.containsKey(key)) {
+            // Only one idle statement per key is retained
+            destroy(key, p);
+            return;
+        }
+
+        addIdle(key, p);
+    }
+
+    /**
+     * Adds a statement to the idle statements, closing the least recently used idle statement if the cache is full.
+     * @param key Key of the statement
+     * @param p The statement
+     */
+    private void addIdle(PStmtKey key, PooledObject<DelegatingPreparedStatement> p) {
+        if (maxIdle > 0 && idle.size() >= maxIdle) {
+            Iterator<Map.Entry<PStmtKey, PooledObject<DelegatingPreparedStatement>>> iter = idle.entrySet().iterator();
+            Map.Entry<PStmtKey, PooledObject<DelegatingPreparedStatement>> eldest = iter.next();
+            iter.remove();
+            evictions++;
+            destroy(eldest.getKey(), eldest.getValue());
+        }
+        idle.put(key, p);
+    }
+
+    @Override
+    public void invalidateObject(PStmtKey key, DelegatingPreparedStatement stmt) throws Exception {
+        PooledObject<DelegatingPreparedStatement> p = active.remove(stmt);
+        activeKeys.remove(stmt);
+        if (p != null) {
+            destroy(key, p);
+        }
+    }
+
+    /**
+     * Prepares a statement for the key and adds it to the idle statements, as with GenericKeyedObjectPool.
+     * Since only one idle statement is retained per key, this does nothing when one is already idle for the key
+     * (or the cache doesn't retain statements). The least recently used idle statement is closed if the cache is full.
+     * @param key The key of the statement to prepare
+     * @throws Exception if the statement could not be prepared
+     */
+    @Override
+    public void addObject(PStmtKey key) throws Exception {
+        if (closed) {
+            throw new IllegalStateException("Statement cache is closed");
+        }
+        if (maxIdle == 0 || idle.containsKey(key)) {
+            return;
+        }
+
+        PooledObject<DelegatingPreparedStatement> p = factory.makeObject(key);
+        try {
+            factory.passivateObject(key, p);
+        } catch (Exception e) {
+            destroy(key, p);
+            throw e;
+        }
+        addIdle(key, p);
+    }
+
+    @Override
+    public int getNumIdle(PStmtKey key) {
+        return idle.containsKey(key) ? 1 : 0;
+    }
+
+    @Override
+    public int getNumActive(PStmtKey key) {
+        int count = 0;
+        for (PStmtKey activeKey : activeKeys.values()) {
+            if (key.equals(activeKey)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int getNumIdle() {
+        return idle.size();
+    }
+
+    @Override
+    public int getNumActive() {
+        return active.size();
+    }
+
+    @Override
+    public void clear() {
+        List<Map.Entry<PStmtKey, PooledObject<DelegatingPreparedStatement>>> entries = new ArrayList<>(idle.entrySet());
+        idle.clear();
+        for (Map.Entry<PStmtKey, PooledObject<DelegatingPreparedStatement>> entry : entries) {
+            destroy(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear(PStmtKey key) {
+        PooledObject<DelegatingPreparedStatement> p = idle.remove(key);
+        if (p != null) {
+            destroy(key, p);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        clear();
+    }
+
+    private void destroy(PStmtKey key, PooledObject<DelegatingPreparedStatement> p) {
+        try {
+            factory.destroyObject(key, p);
+        } catch (Exception e) {
+            NucleusLogger.CONNECTION.debug("Exception closing cached statement", e);
+        }
+    }
+
+    /**
+     * Accessor for the number of times a statement was served from this cache.
+     * @return Number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Accessor for the number of times a statement had to be prepared since none was idle in this cache.
+     * @return Number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Accessor for the number of idle statements closed to make room in this cache.
+     * @return Number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Accessor for the proportion of requests served from this cache.
+     * @return The hit rate (0.0 to 1.0)
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
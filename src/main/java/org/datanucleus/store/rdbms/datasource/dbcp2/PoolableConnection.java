@@ -253,6 +253,35 @@ public class PoolableConnection extends DelegatingConnection<Connection>
         return toString();
     }
 
+    @Override
+    public long getStatementCacheHits() {
+        LRUStatementCache cache = getStatementCache();
+        return cache != null ? cache.getHits() : 0;
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        LRUStatementCache cache = getStatementCache();
+        return cache != null ? cache.getMisses() : 0;
+    }
+
+    @Override
+    public long getStatementCacheEvictions() {
+        LRUStatementCache cache = getStatementCache();
+        return cache != null ? cache.getEvictions() : 0;
+    }
+
+    @Override
+    public double getStatementCacheHitRate() {
+        LRUStatementCache cache = getStatementCache();
+        return cache != null ? cache.getHitRate() : 0.0;
+    }
+
+    private LRUStatementCache getStatementCache() {
+        Connection delegate = getDelegateInternal();
+        return delegate instanceof PoolingConnection ? ((PoolingConnection) delegate).getStatementCache() : null;
+    }
+
     /**
      * Validates the connection, using the following algorithm:
      * <ol>
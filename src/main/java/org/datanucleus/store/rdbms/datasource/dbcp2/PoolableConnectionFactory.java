@@ -29,7 +29,6 @@ import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.KeyedObjectPool;
 import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.ObjectPool;
 import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
 import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObjectFactory;
-import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.impl.GenericKeyedObjectPool;
 import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.datanucleus.util.NucleusLogger;
 import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.impl.DefaultPooledObject;
@@ -272,23 +271,10 @@ public class PoolableConnectionFactory
 
         if(poolStatements) {
             conn = new PoolingConnection(conn);
-            GenericKeyedObjectPoolConfig config = new GenericKeyedObjectPoolConfig();
-            config.setMaxTotalPerKey(-1);
-            config.setBlockWhenExhausted(false);
-            config.setMaxWaitMillis(0);
-            config.setMaxIdlePerKey(1);
-            config.setMaxTotal(maxOpenPreparedStatements);
-            if (dataSourceJmxName != null) {
-                StringBuilder base = new StringBuilder(dataSourceJmxName.toString());
-                base.append(Constants.JMX_CONNECTION_BASE_EXT);
-                base.append(Long.toString(connIndex));
-                config.setJmxNameBase(base.toString());
-                config.setJmxNamePrefix(Constants.JMX_STATEMENT_POOL_PREFIX);
-            } else {
-                config.setJmxEnabled(false);
-            }
+            // Lightweight per-connection LRU cache rather than a GenericKeyedObjectPool, since the connection is only used
+            // by one thread at a time and so needs no locking/eviction machinery
             KeyedObjectPool<PStmtKey,DelegatingPreparedStatement> stmtPool =
-                    new GenericKeyedObjectPool<>((PoolingConnection)conn, config);
+                    new LRUStatementCache((PoolingConnection)conn, maxOpenPreparedStatements);
             ((PoolingConnection)conn).setStatementPool(stmtPool);
             ((PoolingConnection) conn).setCacheState(_cacheState);
         }
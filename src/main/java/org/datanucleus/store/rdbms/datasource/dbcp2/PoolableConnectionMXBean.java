@@ -52,6 +52,12 @@ public interface PoolableConnectionMXBean {
     int getTransactionIsolation() throws SQLException;
     void setTransactionIsolation(int level) throws SQLException;
 
+    // Prepared statement cache statistics (zero when statements are not pooled)
+    long getStatementCacheHits();
+    long getStatementCacheMisses();
+    long getStatementCacheEvictions();
+    double getStatementCacheHitRate();
+
     // Methods
     void clearCachedState();
     void clearWarnings() throws SQLException;
@@ -65,6 +65,15 @@ public class PoolingConnection extends DelegatingConnection<Connection>
         _pstmtPool = pool;
     }
 
+    /**
+     * Returns the statement cache of this connection, when it is a {@link LRUStatementCache}.
+     * @return the statement cache, or null
+     */
+    public LRUStatementCache getStatementCache() {
+        KeyedObjectPool<PStmtKey,DelegatingPreparedStatement> pool = _pstmtPool;
+        return pool instanceof LRUStatementCache ? (LRUStatementCache) pool : null;
+    }
+
 
     /**
      * Close and free all {@link PreparedStatement}s or
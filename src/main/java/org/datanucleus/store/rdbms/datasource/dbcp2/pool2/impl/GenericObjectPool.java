@@ -223,6 +223,34 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return minIdle;
     }
 
+    /**
+     * Returns the period (in milliseconds) after an object was last returned
+     * during which it is not validated when borrowed, even if
+     * {@link #getTestOnBorrow() testOnBorrow} is set. Objects in the idle pool
+     * for longer than this are validated as normal.
+     *
+     * @return the validation skip window, or a value &lt;= 0 if every borrow
+     *         is validated
+     * @see #setValidationSkipWindowMillis(long)
+     */
+    public long getValidationSkipWindowMillis() {
+        return validationSkipWindowMillis;
+    }
+
+    /**
+     * Sets the period (in milliseconds) after an object was last returned
+     * during which it is not validated when borrowed. This avoids running the
+     * validation on the borrowing thread for objects that were in use very
+     * recently, leaving objects idle for longer to be validated at borrow time
+     * or by the evictor (when {@link #getTestWhileIdle() testWhileIdle}).
+     *
+     * @param validationSkipWindowMillis the window, or a value &lt;= 0 to
+     *        validate every borrow
+     */
+    public void setValidationSkipWindowMillis(long validationSkipWindowMillis) {
+        this.validationSkipWindowMillis = validationSkipWindowMillis;
+    }
+
     /**
      * Whether or not abandoned object removal is configured for this pool.
      *
@@ -484,7 +512,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
                         throw nsee;
                     }
                 }
-                if (p != null && (getTestOnBorrow() || create && getTestOnCreate())) {
+                if (p != null && (getTestOnBorrow() && !isInValidationSkipWindow(p) || create && getTestOnCreate())) {
                     boolean validate = false;
                     Throwable validationThrowable = null;
                     try {
@@ -517,6 +545,19 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return p.getObject();
     }
 
+    /**
+     * Whether the object was returned to the pool recently enough that it
+     * need not be validated on borrow.
+     *
+     * @param p the object being borrowed
+     * @return true if validation on borrow can be skipped
+     */
+    private boolean isInValidationSkipWindow(PooledObject<T> p) {
+        long window = validationSkipWindowMillis;
+        return window > 0 &&
+                System.currentTimeMillis() - p.getLastReturnTime() < window;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -1112,6 +1153,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
 
     private volatile int maxIdle = GenericObjectPoolConfig.DEFAULT_MAX_IDLE;
     private volatile int minIdle = GenericObjectPoolConfig.DEFAULT_MIN_IDLE;
+    private volatile long validationSkipWindowMillis = -1;
     private final PooledObjectFactory<T> factory;
 
 
@@ -34,6 +34,7 @@ import org.datanucleus.ClassNameConstants;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.rdbms.mapping.java.TypeConverterMapping;
+import org.datanucleus.store.rdbms.mapping.serialiser.SerialisationHelper;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.table.Column;
 import org.datanucleus.store.types.converters.TypeConverter;
@@ -44,7 +45,7 @@ import org.datanucleus.util.TypeConversionHelper;
  * Mapping of a large binary (e.g BLOB, LONGVARBINARY) column.
  * A large binary column can be treated in two ways in terms of storage and retrieval.
  * <ul>
- * <li>Serialise the field into the large binary using ObjectOutputStream, and deserialise it back using ObjectInputStream - i.e Java serialisation</li>
+ * <li>Serialise the field into the large binary using the Serialiser for the member (Java serialisation by default)</li>
  * <li>Store the field using a byte[] stream, and retrieve it in the same way.</li>
  * </ul>
  */
@@ -101,131 +102,7 @@ public abstract class AbstractLargeBinaryColumnMapping extends AbstractColumnMap
         {
             try
             {
-                // Use Java serialisation, else byte-streaming, and if not determined then Java serialisation
-                if (getJavaTypeMapping().isSerialised())
-                {
-                    // Serialised field so just perform basic Java serialisation for retrieval
-                    if (!(value instanceof Serializable))
-                    {
-                        throw new NucleusDataStoreException(Localiser.msg("055005", value.getClass().getName()));
-                    }
-                    BlobImpl b = new BlobImpl(value);
-                    ps.setBytes(param, b.getBytes(0, (int) b.length()));
-                }
-                else if (value instanceof boolean[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromBooleanArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof char[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromCharArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof double[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromDoubleArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof float[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromFloatArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof int[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromIntArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof long[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromLongArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof short[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromShortArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Boolean[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromBooleanObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Byte[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromByteObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Character[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromCharObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Double[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromDoubleObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Float[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromFloatObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Integer[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromIntObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Long[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromLongObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof Short[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromShortObjectArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof BigDecimal[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromBigDecimalArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof BigInteger[])
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromBigIntegerArray(value);
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof byte[])
-                {
-                    ps.setBytes(param, (byte[]) value);
-                }
-                else if (value instanceof java.util.BitSet)
-                {
-                    byte[] data = TypeConversionHelper.getByteArrayFromBooleanArray(TypeConversionHelper.getBooleanArrayFromBitSet((java.util.BitSet) value));
-                    ps.setBytes(param, data);
-                }
-                else if (value instanceof java.awt.image.BufferedImage)
-                {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
-                    ImageIO.write((java.awt.image.BufferedImage) value, "jpg", baos);
-                    byte[] buffer = baos.toByteArray();
-                    baos.close();
-                    ByteArrayInputStream bais = new ByteArrayInputStream(buffer);
-                    ps.setBytes(param, buffer);
-                    bais.close();
-                }
-                else
-                {
-                    // Fall back to just perform Java serialisation for storage
-                    if (!(value instanceof Serializable))
-                    {
-                        throw new NucleusDataStoreException(Localiser.msg("055005", value.getClass().getName()));
-                    }
-                    BlobImpl b = new BlobImpl(value);
-                    ps.setBytes(param, b.getBytes(0, (int) b.length()));
-                }
+                ps.setBytes(param, getBytesForObject(getJavaTypeMapping(), value));
             }
             catch (Exception e)
             {
@@ -234,6 +111,121 @@ public abstract class AbstractLargeBinaryColumnMapping extends AbstractColumnMap
         }
     }
 
+    /**
+     * Convenience method to convert the value of a member into the bytes to store in a large binary column.
+     * Uses the serialiser of the member for serialised members (and as the fallback), else the byte form of the array/BitSet etc.
+     * @param mapping The mapping for the member
+     * @param value The value (not null)
+     * @return The bytes
+     * @throws IOException if an error occurs converting the value
+     */
+    static byte[] getBytesForObject(JavaTypeMapping mapping, Object value) throws IOException
+    {
+        // Use Java serialisation, else byte-streaming, and if not determined then Java serialisation
+        if (mapping.isSerialised())
+        {
+            // Serialised field so just perform basic Java serialisation for retrieval
+            if (!(value instanceof Serializable))
+            {
+                throw new NucleusDataStoreException(Localiser.msg("055005", value.getClass().getName()));
+            }
+            return SerialisationHelper.serialise(mapping, value);
+        }
+        else if (value instanceof boolean[])
+        {
+            return TypeConversionHelper.getByteArrayFromBooleanArray(value);
+        }
+        else if (value instanceof char[])
+        {
+            return TypeConversionHelper.getByteArrayFromCharArray(value);
+        }
+        else if (value instanceof double[])
+        {
+            return TypeConversionHelper.getByteArrayFromDoubleArray(value);
+        }
+        else if (value instanceof float[])
+        {
+            return TypeConversionHelper.getByteArrayFromFloatArray(value);
+        }
+        else if (value instanceof int[])
+        {
+            return TypeConversionHelper.getByteArrayFromIntArray(value);
+        }
+        else if (value instanceof long[])
+        {
+            return TypeConversionHelper.getByteArrayFromLongArray(value);
+        }
+        else if (value instanceof short[])
+        {
+            return TypeConversionHelper.getByteArrayFromShortArray(value);
+        }
+        else if (value instanceof Boolean[])
+        {
+            return TypeConversionHelper.getByteArrayFromBooleanObjectArray(value);
+        }
+        else if (value instanceof Byte[])
+        {
+            return TypeConversionHelper.getByteArrayFromByteObjectArray(value);
+        }
+        else if (value instanceof Character[])
+        {
+            return TypeConversionHelper.getByteArrayFromCharObjectArray(value);
+        }
+        else if (value instanceof Double[])
+        {
+            return TypeConversionHelper.getByteArrayFromDoubleObjectArray(value);
+        }
+        else if (value instanceof Float[])
+        {
+            return TypeConversionHelper.getByteArrayFromFloatObjectArray(value);
+        }
+        else if (value instanceof Integer[])
+        {
+            return TypeConversionHelper.getByteArrayFromIntObjectArray(value);
+        }
+        else if (value instanceof Long[])
+        {
+            return TypeConversionHelper.getByteArrayFromLongObjectArray(value);
+        }
+        else if (value instanceof Short[])
+        {
+            return TypeConversionHelper.getByteArrayFromShortObjectArray(value);
+        }
+        else if (value instanceof BigDecimal[])
+        {
+            return TypeConversionHelper.getByteArrayFromBigDecimalArray(value);
+        }
+        else if (value instanceof BigInteger[])
+        {
+            return TypeConversionHelper.getByteArrayFromBigIntegerArray(value);
+        }
+        else if (value instanceof byte[])
+        {
+            return (byte[]) value;
+        }
+        else if (value instanceof java.util.BitSet)
+        {
+            return TypeConversionHelper.getByteArrayFromBooleanArray(TypeConversionHelper.getBooleanArrayFromBitSet((java.util.BitSet) value));
+        }
+        else if (value instanceof java.awt.image.BufferedImage)
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+            ImageIO.write((java.awt.image.BufferedImage) value, "jpg", baos);
+            byte[] buffer = baos.toByteArray();
+            baos.close();
+            return buffer;
+        }
+        else
+        {
+            // Fall back to just perform Java serialisation for storage
+            if (!(value instanceof Serializable))
+            {
+                throw new NucleusDataStoreException(Localiser.msg("055005", value.getClass().getName()));
+            }
+            return SerialisationHelper.serialise(mapping, value);
+        }
+    }
+
     protected Object getObjectForBytes(byte[] bytes, int param)
     {
         String typeName = getJavaTypeMapping().getType();
@@ -249,16 +241,7 @@ public abstract class AbstractLargeBinaryColumnMapping extends AbstractColumnMap
         if (getJavaTypeMapping().isSerialised())
         {
             // Serialised field so just perform basic Java deserialisation for retrieval
-            try
-            {
-                BlobImpl blob = new BlobImpl(bytes);
-                return blob.getObject();
-            }
-            catch (SQLException sqle)
-            {
-                // Impossible (JDK 1.6 use of free())
-                return null;
-            }
+            return deserialise(bytes, param);
         }
         else if (typeName.equals(ClassNameConstants.BOOLEAN_ARRAY))
         {
@@ -350,16 +333,25 @@ public abstract class AbstractLargeBinaryColumnMapping extends AbstractColumnMap
         else
         {
             // Fallback to just perform basic Java deserialisation for retrieval
-            try
-            {
-                BlobImpl blob = new BlobImpl(bytes);
-                return blob.getObject();
-            }
-            catch (SQLException sqle)
-            {
-                // Impossible (JDK 1.6 use of free())
-                return null;
-            }
+            return deserialise(bytes, param);
+        }
+    }
+
+    /**
+     * Convenience method to deserialise a serialised value, using the serialiser for this member.
+     * @param bytes The bytes
+     * @param param The parameter position (for error messages)
+     * @return The deserialised object
+     */
+    protected Object deserialise(byte[] bytes, int param)
+    {
+        try
+        {
+            return SerialisationHelper.deserialise(getJavaTypeMapping(), bytes);
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("055002", "Object", "" + param, column, e.getMessage()), e);
         }
     }
 
@@ -21,7 +21,6 @@ package org.datanucleus.store.rdbms.mapping.column;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.StreamCorruptedException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -30,6 +29,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import oracle.jdbc.driver.OracleResultSet;
 
@@ -38,29 +39,17 @@ import org.datanucleus.ExecutionContext;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusObjectNotFoundException;
 import org.datanucleus.exceptions.NucleusUserException;
-import org.datanucleus.metadata.AbstractClassMetaData;
-import org.datanucleus.metadata.AbstractMemberMetaData;
-import org.datanucleus.metadata.IdentityType;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.connection.ManagedConnection;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
-import org.datanucleus.store.rdbms.query.StatementClassMapping;
-import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.mapping.serialiser.SerialisationHelper;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
 import org.datanucleus.store.rdbms.adapter.OracleAdapter;
-import org.datanucleus.store.rdbms.fieldmanager.ParameterSetter;
-import org.datanucleus.store.rdbms.sql.SQLStatement;
-import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
-import org.datanucleus.store.rdbms.sql.SQLTable;
-import org.datanucleus.store.rdbms.sql.SelectStatement;
-import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
-import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
 import org.datanucleus.store.rdbms.table.Column;
-import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.rdbms.table.Table;
-import org.datanucleus.store.schema.table.SurrogateColumnType;
 import org.datanucleus.util.Localiser;
 import org.datanucleus.util.NucleusLogger;
 import org.datanucleus.util.TypeConversionHelper;
@@ -68,9 +57,16 @@ import org.datanucleus.util.TypeConversionHelper;
 /**
  * Mapping for an Oracle BLOB column.
  * Extends the standard JDBC handler so that we can insert an empty BLOB, and then update it (Oracle non-standard behaviour).
+ * When "datanucleus.rdbms.oracle.lobDirectBinding" is enabled the value is instead streamed directly in the INSERT/UPDATE statement.
  */
 public class OracleBlobColumnMapping extends AbstractColumnMapping
 {
+    /** Whether the value is bound directly in the INSERT/UPDATE statement, rather than inserting EMPTY_BLOB() and updating it. */
+    private final boolean directBinding;
+
+    /** Cache of the statements to retrieve (and lock) this BLOB column, keyed by class name. */
+    final Map<String, OracleLobHelper.LockStatement> lockStatements = new ConcurrentHashMap<>();
+
     /**
      * Constructor.
      * @param mapping The Java mapping
@@ -81,6 +77,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
     {
         super(storeMgr, mapping);
         column = col;
+        directBinding = OracleLobHelper.useDirectBinding(storeMgr);
         initialize();
     }
 
@@ -92,6 +89,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
     protected OracleBlobColumnMapping(RDBMSStoreManager storeMgr, JavaTypeMapping mapping)
     {
         super(storeMgr, mapping);
+        directBinding = OracleLobHelper.useDirectBinding(storeMgr);
     }
 
     /**
@@ -107,7 +105,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
      */
     public String getInsertionInputParameter()
     {
-        return "EMPTY_BLOB()";
+        return directBinding ? "?" : "EMPTY_BLOB()";
     }
 
     /**
@@ -116,8 +114,64 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
      */
     public boolean insertValuesOnInsert()
     {
-        // We will just insert "EMPTY_BLOB()" above so don't put value in
-        return false;
+        // Unless binding directly we will just insert "EMPTY_BLOB()" above so don't put value in
+        return directBinding;
+    }
+
+    /**
+     * Method to set the value of the BLOB when binding directly, streaming the bytes to the driver.
+     * The bytes are generated in the same way as when updating the BLOB after the INSERT.
+     * @param ps PreparedStatement
+     * @param param Parameter position
+     * @param value The value
+     */
+    public void setObject(PreparedStatement ps, int param, Object value)
+    {
+        if (!directBinding)
+        {
+            super.setObject(ps, param, value);
+            return;
+        }
+
+        try
+        {
+            if (value == null)
+            {
+                ps.setNull(param, getJDBCType());
+            }
+            else
+            {
+                byte[] bytes;
+                if (value instanceof String)
+                {
+                    String strValue = (String)value;
+                    if (strValue.length() == 0 && !storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_PERSIST_EMPTY_STRING_AS_NULL))
+                    {
+                        strValue = getDatastoreAdapter().getSurrogateForEmptyStrings();
+                    }
+                    bytes = strValue.getBytes();
+                }
+                else
+                {
+                    bytes = AbstractLargeBinaryColumnMapping.getBytesForObject(getJavaTypeMapping(), value);
+                }
+                ps.setBinaryStream(param, new ByteArrayInputStream(bytes), bytes.length);
+            }
+        }
+        catch (Exception e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("055001", "Object", "" + value, column, e.getMessage()), e);
+        }
+    }
+
+    public void setString(PreparedStatement ps, int param, String value)
+    {
+        if (!directBinding)
+        {
+            super.setString(ps, param, value);
+            return;
+        }
+        setObject(ps, param, value);
     }
 
     /**
@@ -145,8 +199,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
                 {
                     if (getJavaTypeMapping().isSerialised())
                     {
-                        BlobImpl b = new BlobImpl(bytes);
-                        obj = b.getObject();
+                        obj = SerialisationHelper.deserialise(getJavaTypeMapping(), bytes);
                     }
                     else if (getJavaTypeMapping().getType().equals(ClassNameConstants.BOOLEAN_ARRAY))
                     {
@@ -230,7 +283,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
                     }
                     else
                     {
-                        obj = new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+                        obj = SerialisationHelper.deserialise(getJavaTypeMapping(), bytes);
                     }
                 }
                 catch (StreamCorruptedException e)
@@ -279,7 +332,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
      */
     public String getUpdateInputParameter()
     {
-        return "EMPTY_BLOB()";
+        return directBinding ? "?" : "EMPTY_BLOB()";
     }
 
     /**
@@ -298,7 +351,8 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
      * <pre>
      * SELECT {blobColumn} FROM TABLE WHERE ID=? FOR UPDATE
      * </pre>
-     * and then updates the Blob value returned.
+     * and then updates the Blob value returned. The SQL of this statement is cached for the column.
+     * Not required when the BLOB value is bound directly (see {@link #insertValuesOnInsert()}).
      * @param op ObjectProvider of the object
      * @param table Table storing the BLOB column
      * @param mapping Datastore mapping for the BLOB column
@@ -311,62 +365,9 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
     {
         ExecutionContext ec = op.getExecutionContext();
         RDBMSStoreManager storeMgr = table.getStoreManager();
-        DatastoreClass classTable = (DatastoreClass)table; // Don't support join tables yet
-        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
-
-        // Generate "SELECT {blobColumn} FROM TABLE WHERE ID=? FOR UPDATE" statement
-        SelectStatement sqlStmt = new SelectStatement(storeMgr, table, null, null);
-        sqlStmt.setClassLoaderResolver(ec.getClassLoaderResolver());
-        sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
-        SQLTable blobSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), mapping.getJavaTypeMapping());
-        sqlStmt.select(blobSqlTbl, mapping.getColumn(), null);
-        StatementClassMapping mappingDefinition = new StatementClassMapping();
-        AbstractClassMetaData cmd = op.getClassMetaData();
-        int inputParamNum = 1;
-        if (cmd.getIdentityType() == IdentityType.DATASTORE)
-        {
-            // Datastore identity value for input
-            JavaTypeMapping datastoreIdMapping = classTable.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false);
-            SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), datastoreIdMapping);
-            SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, datastoreIdMapping, null, "ID");
-            sqlStmt.whereAnd(expr.eq(val), true);
-
-            StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
-            if (datastoreIdx == null)
-            {
-                datastoreIdx = new StatementMappingIndex(datastoreIdMapping);
-                mappingDefinition.addMappingForMember(SurrogateColumnType.DATASTORE_ID.getFieldNumber(), datastoreIdx);
-            }
-            datastoreIdx.addParameterOccurrence(new int[] {inputParamNum});
-        }
-        else if (cmd.getIdentityType() == IdentityType.APPLICATION)
-        {
-            // Application identity value(s) for input
-            int[] pkNums = cmd.getPKMemberPositions();
-            for (int i=0;i<pkNums.length;i++)
-            {
-                AbstractMemberMetaData mmd = cmd.getMetaDataForManagedMemberAtAbsolutePosition(pkNums[i]);
-                JavaTypeMapping pkMapping = classTable.getMemberMapping(mmd);
-                SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), pkMapping);
-                SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, pkMapping, null, "PK" + i);
-                sqlStmt.whereAnd(expr.eq(val), true);
-
-                StatementMappingIndex pkIdx = mappingDefinition.getMappingForMemberPosition(pkNums[i]);
-                if (pkIdx == null)
-                {
-                    pkIdx = new StatementMappingIndex(pkMapping);
-                    mappingDefinition.addMappingForMember(pkNums[i], pkIdx);
-                }
-                int[] inputParams = new int[pkMapping.getNumberOfColumnMappings()];
-                for (int j=0;j<pkMapping.getNumberOfColumnMappings();j++)
-                {
-                    inputParams[j] = inputParamNum++;
-                }
-                pkIdx.addParameterOccurrence(inputParams);
-            }
-        }
-
-        String textStmt = sqlStmt.getSQLText().toSQL();
+        OracleLobHelper.LockStatement lockStmt = OracleLobHelper.getLockStatement(op, table, mapping,
+            (mapping instanceof OracleBlobColumnMapping) ? ((OracleBlobColumnMapping)mapping).lockStatements : null);
+        String textStmt = lockStmt.textStmt;
 
         if (op.isEmbedded())
         {
@@ -391,19 +392,7 @@ public class OracleBlobColumnMapping extends AbstractColumnMapping
                 try
                 {
                     // Provide the primary key field(s) to the JDBC statement
-                    if (cmd.getIdentityType() == IdentityType.DATASTORE)
-                    {
-                        StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
-                        for (int i=0;i<datastoreIdx.getNumberOfParameterOccurrences();i++)
-                        {
-                            classTable.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false).setObject(ec, ps,
-                                datastoreIdx.getParameterPositionsForOccurrence(i), op.getInternalObjectId());
-                        }
-                    }
-                    else if (cmd.getIdentityType() == IdentityType.APPLICATION)
-                    {
-                        op.provideFields(cmd.getPKMemberPositions(), new ParameterSetter(op, ps, mappingDefinition));
-                    }
+                    lockStmt.setIdentityParameters(op, table, ps);
 
                     ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, textStmt, ps);
 
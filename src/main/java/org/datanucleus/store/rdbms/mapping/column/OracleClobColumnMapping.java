@@ -22,49 +22,47 @@ package org.datanucleus.store.rdbms.mapping.column;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusObjectNotFoundException;
-import org.datanucleus.metadata.AbstractClassMetaData;
-import org.datanucleus.metadata.AbstractMemberMetaData;
-import org.datanucleus.metadata.IdentityType;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.connection.ManagedConnection;
 import org.datanucleus.store.rdbms.exceptions.ColumnDefinitionException;
-import org.datanucleus.store.rdbms.fieldmanager.ParameterSetter;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
-import org.datanucleus.store.rdbms.query.StatementClassMapping;
-import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
 import org.datanucleus.store.rdbms.adapter.OracleAdapter;
-import org.datanucleus.store.rdbms.sql.SQLStatement;
-import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
-import org.datanucleus.store.rdbms.sql.SQLTable;
-import org.datanucleus.store.rdbms.sql.SelectStatement;
-import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
-import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
 import org.datanucleus.store.rdbms.table.Column;
-import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.rdbms.table.Table;
-import org.datanucleus.store.schema.table.SurrogateColumnType;
 import org.datanucleus.util.Localiser;
 
 /**
  * Mapping for an Oracle CLOB column.
  * Extends the standard JDBC handler so that we can insert an empty CLOB, and then update it (Oracle non-standard behaviour).
+ * When "datanucleus.rdbms.oracle.lobDirectBinding" is enabled the value is instead streamed directly in the INSERT/UPDATE statement.
  */
 public class OracleClobColumnMapping extends ClobColumnMapping
 {
+    /** Whether the value is bound directly in the INSERT/UPDATE statement, rather than inserting EMPTY_CLOB() and updating it. */
+    private final boolean directBinding;
+
+    /** Cache of the statements to retrieve (and lock) this CLOB column, keyed by class name. */
+    final Map<String, OracleLobHelper.LockStatement> lockStatements = new ConcurrentHashMap<>();
+
     public OracleClobColumnMapping(JavaTypeMapping mapping, RDBMSStoreManager storeMgr, Column col)
     {
 		super(mapping, storeMgr, col);
 		column = col;
+		directBinding = OracleLobHelper.useDirectBinding(storeMgr);
 		initialize();
 	}
 
@@ -79,7 +77,7 @@ public class OracleClobColumnMapping extends ClobColumnMapping
 
     public String getInsertionInputParameter()
     {
-        return "EMPTY_CLOB()";
+        return directBinding ? "?" : "EMPTY_CLOB()";
     }
     
     public boolean includeInFetchStatement()
@@ -89,7 +87,7 @@ public class OracleClobColumnMapping extends ClobColumnMapping
 
     public String getUpdateInputParameter()
     {
-        return "EMPTY_CLOB()";
+        return directBinding ? "?" : "EMPTY_CLOB()";
     }
 
     /**
@@ -98,8 +96,54 @@ public class OracleClobColumnMapping extends ClobColumnMapping
      */
     public boolean insertValuesOnInsert()
     {
-        // We will just insert "EMPTY_CLOB()" above so dont put value in
-        return false;
+        // Unless binding directly we will just insert "EMPTY_CLOB()" above so dont put value in
+        return directBinding;
+    }
+
+    /**
+     * Method to set the value of the CLOB when binding directly, streaming the characters to the driver.
+     * @param ps PreparedStatement
+     * @param param Parameter position
+     * @param value The value
+     */
+    public void setString(PreparedStatement ps, int param, String value)
+    {
+        if (!directBinding)
+        {
+            super.setString(ps, param, value);
+            return;
+        }
+
+        try
+        {
+            if (value == null || (value.length() == 0 && storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_PERSIST_EMPTY_STRING_AS_NULL)))
+            {
+                ps.setNull(param, getJDBCType());
+            }
+            else
+            {
+                if (value.length() == 0)
+                {
+                    // Oracle treats an empty string as null so use the surrogate
+                    value = getDatastoreAdapter().getSurrogateForEmptyStrings();
+                }
+                ps.setCharacterStream(param, new StringReader(value), value.length());
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("055001", "String", "" + value, column, e.getMessage()), e);
+        }
+    }
+
+    public void setObject(PreparedStatement ps, int param, Object value)
+    {
+        if (!directBinding)
+        {
+            super.setObject(ps, param, value);
+            return;
+        }
+        setString(ps, param, (String)value);
     }
 
     public String getString(ResultSet rs, int param)
@@ -180,7 +224,8 @@ public class OracleClobColumnMapping extends ClobColumnMapping
      * <pre>
      * SELECT {clobColumn} FROM TABLE WHERE ID=? FOR UPDATE
      * </pre>
-     * and then updates the Clob value returned.
+     * and then updates the Clob value returned. The SQL of this statement is cached for the column.
+     * Not required when the CLOB value is bound directly (see {@link #insertValuesOnInsert()}).
      * @param op ObjectProvider of the object
      * @param table Table storing the CLOB column
      * @param mapping Datastore mapping for the CLOB column
@@ -193,62 +238,9 @@ public class OracleClobColumnMapping extends ClobColumnMapping
     {
         ExecutionContext ec = op.getExecutionContext();
         RDBMSStoreManager storeMgr = table.getStoreManager();
-        DatastoreClass classTable = (DatastoreClass)table; // Don't support join tables yet
-        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
-
-        // Generate "SELECT {clobColumn} FROM TABLE WHERE ID=? FOR UPDATE" statement
-        SelectStatement sqlStmt = new SelectStatement(storeMgr, table, null, null);
-        sqlStmt.setClassLoaderResolver(ec.getClassLoaderResolver());
-        sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
-        SQLTable blobSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), mapping.getJavaTypeMapping());
-        sqlStmt.select(blobSqlTbl, mapping.getColumn(), null);
-        StatementClassMapping mappingDefinition = new StatementClassMapping();
-        AbstractClassMetaData cmd = op.getClassMetaData();
-        int inputParamNum = 1;
-        if (cmd.getIdentityType() == IdentityType.DATASTORE)
-        {
-            // Datastore identity value for input
-            JavaTypeMapping datastoreIdMapping = classTable.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false);
-            SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), datastoreIdMapping);
-            SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, datastoreIdMapping, null, "ID");
-            sqlStmt.whereAnd(expr.eq(val), true);
-
-            StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
-            if (datastoreIdx == null)
-            {
-                datastoreIdx = new StatementMappingIndex(datastoreIdMapping);
-                mappingDefinition.addMappingForMember(SurrogateColumnType.DATASTORE_ID.getFieldNumber(), datastoreIdx);
-            }
-            datastoreIdx.addParameterOccurrence(new int[] {inputParamNum});
-        }
-        else if (cmd.getIdentityType() == IdentityType.APPLICATION)
-        {
-            // Application identity value(s) for input
-            int[] pkNums = cmd.getPKMemberPositions();
-            for (int i=0;i<pkNums.length;i++)
-            {
-                AbstractMemberMetaData mmd = cmd.getMetaDataForManagedMemberAtAbsolutePosition(pkNums[i]);
-                JavaTypeMapping pkMapping = classTable.getMemberMapping(mmd);
-                SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), pkMapping);
-                SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, pkMapping, null, "PK" + i);
-                sqlStmt.whereAnd(expr.eq(val), true);
-
-                StatementMappingIndex pkIdx = mappingDefinition.getMappingForMemberPosition(pkNums[i]);
-                if (pkIdx == null)
-                {
-                    pkIdx = new StatementMappingIndex(pkMapping);
-                    mappingDefinition.addMappingForMember(pkNums[i], pkIdx);
-                }
-                int[] inputParams = new int[pkMapping.getNumberOfColumnMappings()];
-                for (int j=0;j<pkMapping.getNumberOfColumnMappings();j++)
-                {
-                    inputParams[j] = inputParamNum++;
-                }
-                pkIdx.addParameterOccurrence(inputParams);
-            }
-        }
-
-        String textStmt = sqlStmt.getSQLText().toSQL();
+        OracleLobHelper.LockStatement lockStmt = OracleLobHelper.getLockStatement(op, table, mapping,
+            (mapping instanceof OracleClobColumnMapping) ? ((OracleClobColumnMapping)mapping).lockStatements : null);
+        String textStmt = lockStmt.textStmt;
 
         if (op.isEmbedded())
         {
@@ -274,19 +266,7 @@ public class OracleClobColumnMapping extends ClobColumnMapping
                 try
                 {
                     // Provide the primary key field(s) to the JDBC statement
-                    if (cmd.getIdentityType() == IdentityType.DATASTORE)
-                    {
-                        StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
-                        for (int i=0;i<datastoreIdx.getNumberOfParameterOccurrences();i++)
-                        {
-                            classTable.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false).setObject(ec, ps,
-                                datastoreIdx.getParameterPositionsForOccurrence(i), op.getInternalObjectId());
-                        }
-                    }
-                    else if (cmd.getIdentityType() == IdentityType.APPLICATION)
-                    {
-                        op.provideFields(cmd.getPKMemberPositions(), new ParameterSetter(op, ps, mappingDefinition));
-                    }
+                    lockStmt.setIdentityParameters(op, table, ps);
 
                     ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, textStmt, ps);
                     try
@@ -0,0 +1,202 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.column;
+
+import java.sql.PreparedStatement;
+import java.util.Map;
+
+import org.datanucleus.ExecutionContext;
+import org.datanucleus.metadata.AbstractClassMetaData;
+import org.datanucleus.metadata.AbstractMemberMetaData;
+import org.datanucleus.metadata.IdentityType;
+import org.datanucleus.state.ObjectProvider;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
+import org.datanucleus.store.rdbms.RDBMSStoreManager;
+import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
+import org.datanucleus.store.rdbms.adapter.OracleAdapter;
+import org.datanucleus.store.rdbms.fieldmanager.ParameterSetter;
+import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
+import org.datanucleus.store.rdbms.query.StatementClassMapping;
+import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.sql.SQLStatement;
+import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
+import org.datanucleus.store.rdbms.sql.SQLTable;
+import org.datanucleus.store.rdbms.sql.SelectStatement;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
+import org.datanucleus.store.rdbms.table.DatastoreClass;
+import org.datanucleus.store.rdbms.table.Table;
+import org.datanucleus.store.schema.table.SurrogateColumnType;
+
+/**
+ * Helper methods shared by the Oracle BLOB and CLOB column mappings.
+ * Oracle LOBs are written either by binding the value directly in the INSERT/UPDATE statement (when
+ * "datanucleus.rdbms.oracle.lobDirectBinding" is set and the JDBC driver supports it), or by inserting an empty LOB
+ * and then writing the value via the LOB locator retrieved with
+ * <pre>
+ * SELECT {lobColumn} FROM TABLE WHERE ID=? FOR UPDATE
+ * </pre>
+ * The SQL of this locking statement only depends on the table, column and class, so is generated once and cached.
+ */
+final class OracleLobHelper
+{
+    private OracleLobHelper()
+    {
+    }
+
+    /**
+     * Convenience method to return whether LOB values should be bound directly in the INSERT/UPDATE statement.
+     * Requires the user to enable it, and a JDBC driver that supports streaming of LOB values (Oracle JDBC 10+).
+     * @param storeMgr Store Manager
+     * @return Whether to bind LOB values directly
+     */
+    static boolean useDirectBinding(RDBMSStoreManager storeMgr)
+    {
+        if (!storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_ORACLE_LOB_DIRECT_BINDING))
+        {
+            return false;
+        }
+
+        DatastoreAdapter dba = storeMgr.getDatastoreAdapter();
+        return !(OracleAdapter.OJDBC_DRIVER_NAME.equalsIgnoreCase(dba.getDatastoreDriverName()) && dba.getDriverMajorVersion() < 10);
+    }
+
+    /**
+     * Accessor for the statement to retrieve (and lock) the LOB column for the object being managed, generating it if not
+     * present in the cache.
+     * @param op ObjectProvider of the object
+     * @param table Table storing the LOB column
+     * @param mapping Mapping for the LOB column
+     * @param cache Cache of statements for this column, keyed by class name (optional)
+     * @return The statement
+     */
+    static LockStatement getLockStatement(ObjectProvider op, Table table, ColumnMapping mapping, Map<String, LockStatement> cache)
+    {
+        AbstractClassMetaData cmd = op.getClassMetaData();
+        LockStatement lockStmt = cache != null ? cache.get(cmd.getFullClassName()) : null;
+        if (lockStmt == null)
+        {
+            lockStmt = generateLockStatement(op.getExecutionContext(), cmd, table, mapping);
+            if (cache != null)
+            {
+                cache.put(cmd.getFullClassName(), lockStmt);
+            }
+        }
+        return lockStmt;
+    }
+
+    private static LockStatement generateLockStatement(ExecutionContext ec, AbstractClassMetaData cmd, Table table, ColumnMapping mapping)
+    {
+        RDBMSStoreManager storeMgr = table.getStoreManager();
+        DatastoreClass classTable = (DatastoreClass)table; // Don't support join tables yet
+        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+
+        // Generate "SELECT {lobColumn} FROM TABLE WHERE ID=? FOR UPDATE" statement
+        SelectStatement sqlStmt = new SelectStatement(storeMgr, table, null, null);
+        sqlStmt.setClassLoaderResolver(ec.getClassLoaderResolver());
+        sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        SQLTable lobSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), mapping.getJavaTypeMapping());
+        sqlStmt.select(lobSqlTbl, mapping.getColumn(), null);
+        StatementClassMapping mappingDefinition = new StatementClassMapping();
+        int inputParamNum = 1;
+        if (cmd.getIdentityType() == IdentityType.DATASTORE)
+        {
+            // Datastore identity value for input
+            JavaTypeMapping datastoreIdMapping = classTable.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false);
+            SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), datastoreIdMapping);
+            SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, datastoreIdMapping, null, "ID");
+            sqlStmt.whereAnd(expr.eq(val), true);
+
+            StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
+            if (datastoreIdx == null)
+            {
+                datastoreIdx = new StatementMappingIndex(datastoreIdMapping);
+                mappingDefinition.addMappingForMember(SurrogateColumnType.DATASTORE_ID.getFieldNumber(), datastoreIdx);
+            }
+            datastoreIdx.addParameterOccurrence(new int[] {inputParamNum});
+        }
+        else if (cmd.getIdentityType() == IdentityType.APPLICATION)
+        {
+            // Application identity value(s) for input
+            int[] pkNums = cmd.getPKMemberPositions();
+            for (int i=0;i<pkNums.length;i++)
+            {
+                AbstractMemberMetaData mmd = cmd.getMetaDataForManagedMemberAtAbsolutePosition(pkNums[i]);
+                JavaTypeMapping pkMapping = classTable.getMemberMapping(mmd);
+                SQLExpression expr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), pkMapping);
+                SQLExpression val = exprFactory.newLiteralParameter(sqlStmt, pkMapping, null, "PK" + i);
+                sqlStmt.whereAnd(expr.eq(val), true);
+
+                StatementMappingIndex pkIdx = mappingDefinition.getMappingForMemberPosition(pkNums[i]);
+                if (pkIdx == null)
+                {
+                    pkIdx = new StatementMappingIndex(pkMapping);
+                    mappingDefinition.addMappingForMember(pkNums[i], pkIdx);
+                }
+                int[] inputParams = new int[pkMapping.getNumberOfColumnMappings()];
+                for (int j=0;j<pkMapping.getNumberOfColumnMappings();j++)
+                {
+                    inputParams[j] = inputParamNum++;
+                }
+                pkIdx.addParameterOccurrence(inputParams);
+            }
+        }
+
+        return new LockStatement(sqlStmt.getSQLText().toSQL(), cmd, mappingDefinition);
+    }
+
+    /**
+     * Generated statement to retrieve (and lock) a LOB column of a row, together with the positions of its identity parameters.
+     */
+    static class LockStatement
+    {
+        final String textStmt;
+        final AbstractClassMetaData cmd;
+        final StatementClassMapping mappingDefinition;
+
+        LockStatement(String textStmt, AbstractClassMetaData cmd, StatementClassMapping mappingDefinition)
+        {
+            this.textStmt = textStmt;
+            this.cmd = cmd;
+            this.mappingDefinition = mappingDefinition;
+        }
+
+        /**
+         * Method to set the identity parameter(s) of this statement for the supplied object.
+         * @param op ObjectProvider of the object owning the row
+         * @param table Table storing the LOB column
+         * @param ps The PreparedStatement
+         */
+        void setIdentityParameters(ObjectProvider op, Table table, PreparedStatement ps)
+        {
+            if (cmd.getIdentityType() == IdentityType.DATASTORE)
+            {
+                StatementMappingIndex datastoreIdx = mappingDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
+                for (int i=0;i<datastoreIdx.getNumberOfParameterOccurrences();i++)
+                {
+                    ((DatastoreClass)table).getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false).setObject(op.getExecutionContext(), ps,
+                        datastoreIdx.getParameterPositionsForOccurrence(i), op.getInternalObjectId());
+                }
+            }
+            else if (cmd.getIdentityType() == IdentityType.APPLICATION)
+            {
+                op.provideFields(cmd.getPKMemberPositions(), new ParameterSetter(op, ps, mappingDefinition));
+            }
+        }
+    }
+}
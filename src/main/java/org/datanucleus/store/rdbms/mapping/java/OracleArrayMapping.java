@@ -70,6 +70,12 @@ public class OracleArrayMapping extends ArrayMapping
                 }
             }
 
+            if (getColumnMapping(0).insertValuesOnInsert())
+            {
+                // Value was bound directly in the INSERT/UPDATE statement
+                return;
+            }
+
             // Generate the contents for the BLOB
             byte[] bytes = new byte[0];
             try
@@ -48,6 +48,12 @@ public class OracleBitSetMapping extends BitSetMapping implements MappingCallbac
             return;
         }
 
+        if (getColumnMapping(0).insertValuesOnInsert())
+        {
+            // Value was bound directly in the INSERT/UPDATE statement
+            return;
+        }
+
         // Generate the contents for the BLOB
         byte[] bytes = new byte[0];
         try
@@ -64,6 +64,12 @@ public class OracleCollectionMapping extends CollectionMapping
                 }
             }
 
+            if (getColumnMapping(0).insertValuesOnInsert())
+            {
+                // Value was bound directly in the INSERT/UPDATE statement
+                return;
+            }
+
             // Generate the contents for the BLOB
             byte[] bytes = new byte[0];
             if (value != null)
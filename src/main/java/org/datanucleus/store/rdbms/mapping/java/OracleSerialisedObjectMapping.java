@@ -18,13 +18,12 @@ Contributors:
  **********************************************************************/
 package org.datanucleus.store.rdbms.mapping.java;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.rdbms.mapping.MappingCallbacks;
 import org.datanucleus.store.rdbms.mapping.column.OracleBlobColumnMapping;
+import org.datanucleus.store.rdbms.mapping.serialiser.SerialisationHelper;
 
 /**
  * Mapping for Object and Serializable types.
@@ -45,6 +44,12 @@ public class OracleSerialisedObjectMapping extends SerialisedMapping implements
      */
     public void insertPostProcessing(ObjectProvider op)
     {
+        if (getColumnMapping(0).insertValuesOnInsert())
+        {
+            // Value was bound directly in the INSERT/UPDATE statement
+            return;
+        }
+
         // Generate the contents for the BLOB
         byte[] bytes = new byte[0];
         Object value = op.provideField(mmd.getAbsoluteFieldNumber());
@@ -52,10 +57,7 @@ public class OracleSerialisedObjectMapping extends SerialisedMapping implements
         {
             try
             {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(value);
-                bytes = baos.toByteArray();
+                bytes = SerialisationHelper.serialise(this, value);
             }
             catch (IOException e1)
             {
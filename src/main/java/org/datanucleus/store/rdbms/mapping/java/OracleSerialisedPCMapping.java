@@ -18,14 +18,13 @@ Contributors:
 **********************************************************************/
 package org.datanucleus.store.rdbms.mapping.java;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.rdbms.mapping.MappingCallbacks;
 import org.datanucleus.store.rdbms.mapping.column.OracleBlobColumnMapping;
+import org.datanucleus.store.rdbms.mapping.serialiser.SerialisationHelper;
 
 /**
  * Mapping for a serialised persistable object for Oracle.
@@ -39,6 +38,12 @@ public class OracleSerialisedPCMapping extends SerialisedPCMapping implements Ma
      */
     public void insertPostProcessing(ObjectProvider op)
     {
+        if (getColumnMapping(0).insertValuesOnInsert())
+        {
+            // Value was bound directly in the INSERT/UPDATE statement
+            return;
+        }
+
         Object value = op.provideField(mmd.getAbsoluteFieldNumber());
         ObjectProvider sm = null;
         if (value != null)
@@ -63,10 +68,7 @@ public class OracleSerialisedPCMapping extends SerialisedPCMapping implements Ma
         {
             try
             {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(value);
-                bytes = baos.toByteArray();
+                bytes = SerialisationHelper.serialise(this, value);
             }
             catch (IOException e1)
             {
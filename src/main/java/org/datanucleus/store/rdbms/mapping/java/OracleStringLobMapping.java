@@ -43,6 +43,12 @@ public class OracleStringLobMapping extends StringMapping implements MappingCall
      */
     public void insertPostProcessing(ObjectProvider op)
     {
+        if (getColumnMapping(0).insertValuesOnInsert())
+        {
+            // Value was bound directly in the INSERT/UPDATE statement
+            return;
+        }
+
         // Generate the contents for the BLOB/CLOB
         String value = (String)op.provideField(mmd.getAbsoluteFieldNumber());
         op.isLoaded(mmd.getAbsoluteFieldNumber());
@@ -0,0 +1,389 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.serialiser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Serialiser using a compact tagged binary format for the common JDK value types (wrappers, String, byte[],
+ * BigDecimal, BigInteger, Date, UUID) and the common JDK containers of them (ArrayList, HashSet, LinkedHashSet,
+ * HashMap, LinkedHashMap, read back in insertion order). This avoids the class descriptors and the reflection of
+ * Java serialisation for these types.
+ * Any other object (including subclasses of the above types) is written using Java serialisation, embedded in the output.
+ * Since the compact format doesn't record object identity, a value where a container is reachable more than once
+ * (a shared or cyclic reference) is written entirely using Java serialisation, so that its references are preserved.
+ * When reading, sizes and lengths are checked against the remaining bytes so that corrupted data cannot cause huge allocations.
+ */
+public class CompactSerialiser implements Serialiser
+{
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_SHORT = 6;
+    private static final byte TAG_BYTE = 7;
+    private static final byte TAG_TRUE = 8;
+    private static final byte TAG_FALSE = 9;
+    private static final byte TAG_CHARACTER = 10;
+    private static final byte TAG_BYTE_ARRAY = 11;
+    private static final byte TAG_BIGDECIMAL = 12;
+    private static final byte TAG_BIGINTEGER = 13;
+    private static final byte TAG_DATE = 14;
+    private static final byte TAG_UUID = 15;
+    private static final byte TAG_ARRAYLIST = 16;
+    private static final byte TAG_HASHSET = 17;
+    private static final byte TAG_LINKEDHASHSET = 18;
+    private static final byte TAG_HASHMAP = 19;
+    private static final byte TAG_LINKEDHASHMAP = 20;
+    private static final byte TAG_JAVA = 127;
+
+    private final JavaSerialiser javaSerialiser = new JavaSerialiser();
+
+    /**
+     * Exception thrown internally when a container is reached more than once while writing a value.
+     */
+    private static class RepeatedReferenceException extends IOException
+    {
+        private static final long serialVersionUID = -2958213498106632941L;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.mapping.serialiser.Serialiser#serialise(java.lang.Object)
+     */
+    @Override
+    public byte[] serialise(Object value) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(baos);
+        try
+        {
+            write(out, value, new IdentityHashMap<Object, Object>());
+        }
+        catch (RepeatedReferenceException rre)
+        {
+            // Shared or cyclic reference to a container, so use Java serialisation for the whole value to retain its references
+            baos.reset();
+            out.writeByte(TAG_JAVA);
+            writeBytes(out, javaSerialiser.serialise(value));
+        }
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.mapping.serialiser.Serialiser#deserialise(byte[], int, int)
+     */
+    @Override
+    public Object deserialise(byte[] bytes, int offset, int length) throws IOException, ClassNotFoundException
+    {
+        return read(new DataInputStream(new ByteArrayInputStream(bytes, offset, length)));
+    }
+
+    private void write(DataOutputStream out, Object value, Map<Object, Object> containers) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+
+        // Only exact classes are written compactly, so that the same type is always returned on read
+        Class<?> cls = value.getClass();
+        if (cls == String.class)
+        {
+            out.writeByte(TAG_STRING);
+            writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        else if (cls == Integer.class)
+        {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (cls == Long.class)
+        {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (cls == Double.class)
+        {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (cls == Float.class)
+        {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        }
+        else if (cls == Short.class)
+        {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        }
+        else if (cls == Byte.class)
+        {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        }
+        else if (cls == Boolean.class)
+        {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        }
+        else if (cls == Character.class)
+        {
+            out.writeByte(TAG_CHARACTER);
+            out.writeChar((Character) value);
+        }
+        else if (cls == byte[].class)
+        {
+            out.writeByte(TAG_BYTE_ARRAY);
+            writeBytes(out, (byte[]) value);
+        }
+        else if (cls == BigDecimal.class)
+        {
+            BigDecimal bd = (BigDecimal) value;
+            out.writeByte(TAG_BIGDECIMAL);
+            out.writeInt(bd.scale());
+            writeBytes(out, bd.unscaledValue().toByteArray());
+        }
+        else if (cls == BigInteger.class)
+        {
+            out.writeByte(TAG_BIGINTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        }
+        else if (cls == Date.class)
+        {
+            out.writeByte(TAG_DATE);
+            out.writeLong(((Date) value).getTime());
+        }
+        else if (cls == UUID.class)
+        {
+            UUID uuid = (UUID) value;
+            out.writeByte(TAG_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+        else if (cls == ArrayList.class)
+        {
+            out.writeByte(TAG_ARRAYLIST);
+            writeCollection(out, (Collection<?>) value, containers);
+        }
+        else if (cls == HashSet.class)
+        {
+            out.writeByte(TAG_HASHSET);
+            writeCollection(out, (Collection<?>) value, containers);
+        }
+        else if (cls == LinkedHashSet.class)
+        {
+            out.writeByte(TAG_LINKEDHASHSET);
+            writeCollection(out, (Collection<?>) value, containers);
+        }
+        else if (cls == HashMap.class)
+        {
+            out.writeByte(TAG_HASHMAP);
+            writeMap(out, (Map<?, ?>) value, containers);
+        }
+        else if (cls == LinkedHashMap.class)
+        {
+            out.writeByte(TAG_LINKEDHASHMAP);
+            writeMap(out, (Map<?, ?>) value, containers);
+        }
+        else
+        {
+            out.writeByte(TAG_JAVA);
+            writeBytes(out, javaSerialiser.serialise(value));
+        }
+    }
+
+    private void writeCollection(DataOutputStream out, Collection<?> coll, Map<Object, Object> containers) throws IOException
+    {
+        if (containers.put(coll, coll) != null)
+        {
+            throw new RepeatedReferenceException();
+        }
+        out.writeInt(coll.size());
+        for (Object element : coll)
+        {
+            write(out, element, containers);
+        }
+    }
+
+    private void writeMap(DataOutputStream out, Map<?, ?> map, Map<Object, Object> containers) throws IOException
+    {
+        if (containers.put(map, map) != null)
+        {
+            throw new RepeatedReferenceException();
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet())
+        {
+            write(out, entry.getKey(), containers);
+            write(out, entry.getValue(), containers);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException
+    {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private Object read(DataInputStream in) throws IOException, ClassNotFoundException
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case TAG_NULL :
+                return null;
+            case TAG_STRING :
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TAG_INTEGER :
+                return in.readInt();
+            case TAG_LONG :
+                return in.readLong();
+            case TAG_DOUBLE :
+                return in.readDouble();
+            case TAG_FLOAT :
+                return in.readFloat();
+            case TAG_SHORT :
+                return in.readShort();
+            case TAG_BYTE :
+                return in.readByte();
+            case TAG_TRUE :
+                return Boolean.TRUE;
+            case TAG_FALSE :
+                return Boolean.FALSE;
+            case TAG_CHARACTER :
+                return in.readChar();
+            case TAG_BYTE_ARRAY :
+                return readBytes(in);
+            case TAG_BIGDECIMAL :
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case TAG_BIGINTEGER :
+                return new BigInteger(readBytes(in));
+            case TAG_DATE :
+                return new Date(in.readLong());
+            case TAG_UUID :
+                long msb = in.readLong();
+                return new UUID(msb, in.readLong());
+            case TAG_ARRAYLIST :
+            {
+                int size = readSize(in, 1);
+                return readCollection(in, new ArrayList<>(size), size);
+            }
+            case TAG_HASHSET :
+            {
+                int size = readSize(in, 1);
+                return readCollection(in, new HashSet<>(mapCapacity(size)), size);
+            }
+            case TAG_LINKEDHASHSET :
+            {
+                int size = readSize(in, 1);
+                return readCollection(in, new LinkedHashSet<>(mapCapacity(size)), size);
+            }
+            case TAG_HASHMAP :
+            {
+                int size = readSize(in, 2);
+                return readMap(in, new HashMap<>(mapCapacity(size)), size);
+            }
+            case TAG_LINKEDHASHMAP :
+            {
+                int size = readSize(in, 2);
+                return readMap(in, new LinkedHashMap<>(mapCapacity(size)), size);
+            }
+            case TAG_JAVA :
+                byte[] bytes = readBytes(in);
+                return javaSerialiser.deserialise(bytes, 0, bytes.length);
+            default :
+                throw new StreamCorruptedException("Invalid type tag " + tag + " in serialised value");
+        }
+    }
+
+    private Collection<Object> readCollection(DataInputStream in, Collection<Object> coll, int size) throws IOException, ClassNotFoundException
+    {
+        for (int i = 0; i < size; i++)
+        {
+            coll.add(read(in));
+        }
+        return coll;
+    }
+
+    private Map<Object, Object> readMap(DataInputStream in, Map<Object, Object> map, int size) throws IOException, ClassNotFoundException
+    {
+        for (int i = 0; i < size; i++)
+        {
+            Object key = read(in);
+            map.put(key, read(in));
+        }
+        return map;
+    }
+
+    /**
+     * Method to read the size of a container, checking that the remaining bytes could hold that many entries.
+     * @param in The input
+     * @param minBytesPerEntry Minimum number of bytes that each entry occupies
+     * @return The size
+     * @throws IOException if the size is invalid
+     */
+    private static int readSize(DataInputStream in, int minBytesPerEntry) throws IOException
+    {
+        int size = in.readInt();
+        if (size < 0 || (long) size * minBytesPerEntry > in.available())
+        {
+            throw new StreamCorruptedException("Invalid size " + size + " in serialised value");
+        }
+        return size;
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0 || length > in.available())
+        {
+            throw new StreamCorruptedException("Invalid length " + length + " in serialised value");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int mapCapacity(int size)
+    {
+        return Math.max((int) (size / 0.75f) + 1, 16);
+    }
+}
@@ -0,0 +1,64 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.serialiser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Serialiser using standard Java serialisation (ObjectOutputStream/ObjectInputStream).
+ * This is the default, and is the format used by all earlier versions.
+ */
+public class JavaSerialiser implements Serialiser
+{
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.mapping.serialiser.Serialiser#serialise(java.lang.Object)
+     */
+    @Override
+    public byte[] serialise(Object value) throws IOException
+    {
+        if (!(value instanceof Serializable))
+        {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos))
+        {
+            oos.writeObject(value);
+        }
+        return baos.toByteArray();
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.mapping.serialiser.Serialiser#deserialise(byte[], int, int)
+     */
+    @Override
+    public Object deserialise(byte[] bytes, int offset, int length) throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length)))
+        {
+            return ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.serialiser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.datanucleus.exceptions.NucleusUserException;
+import org.datanucleus.metadata.AbstractMemberMetaData;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
+import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
+import org.datanucleus.util.StringUtils;
+
+/**
+ * Helper for the serialisation of field/property values into the bytes stored in a column, using the Serialiser
+ * defined for the member (metadata extension "serialiser") or for the store (persistence property "datanucleus.rdbms.serialiser").
+ * <p>
+ * Values serialised with the "java" serialiser and no compression are stored as a plain Java serialisation stream, exactly as
+ * in earlier versions. Anything else is stored with a small header
+ * <pre>
+ * [MAGIC_1][MAGIC_2][FORMAT_VERSION][serialiser id][compression id] {uncompressed length (int), if compressed} payload
+ * </pre>
+ * When reading, a Java serialisation stream header (0xACED) is detected so existing data remains readable whatever the
+ * serialiser now in use.
+ * </p>
+ */
+public final class SerialisationHelper
+{
+    /** Metadata extension for the serialiser of a member ("java", "compact", or class name of a Serialiser). */
+    public static final String EXTENSION_SERIALISER = "serialiser";
+
+    /** Metadata extension for the compression threshold (bytes) of a member. */
+    public static final String EXTENSION_COMPRESSION_THRESHOLD = "serialiser-compression-threshold";
+
+    public static final String SERIALISER_JAVA = "java";
+    public static final String SERIALISER_COMPACT = "compact";
+
+    private static final byte MAGIC_1 = (byte) 0xD5;
+    private static final byte MAGIC_2 = (byte) 0x4E;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = 5;
+
+    private static final byte SERIALISER_ID_JAVA = 0;
+    private static final byte SERIALISER_ID_COMPACT = 1;
+    private static final byte SERIALISER_ID_CUSTOM = 2;
+
+    private static final byte COMPRESSION_NONE = 0;
+    private static final byte COMPRESSION_DEFLATE = 1;
+
+    private static final JavaSerialiser JAVA_SERIALISER = new JavaSerialiser();
+    private static final CompactSerialiser COMPACT_SERIALISER = new CompactSerialiser();
+
+    /** Max ratio of uncompressed to compressed length that DEFLATE can achieve. */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private SerialisationHelper()
+    {
+    }
+
+    /**
+     * Accessor for the serialiser to use for the specified mapping.
+     * @param mapping The java type mapping
+     * @return The serialiser
+     */
+    public static Serialiser getSerialiser(JavaTypeMapping mapping)
+    {
+        String name = null;
+        AbstractMemberMetaData mmd = mapping.getMemberMetaData();
+        if (mmd != null && mmd.hasExtension(EXTENSION_SERIALISER))
+        {
+            name = mmd.getValueForExtension(EXTENSION_SERIALISER);
+        }
+        else
+        {
+            name = mapping.getStoreManager().getStringProperty(RDBMSPropertyNames.PROPERTY_RDBMS_SERIALISER);
+        }
+
+        if (StringUtils.isWhitespace(name) || SERIALISER_JAVA.equalsIgnoreCase(name))
+        {
+            return JAVA_SERIALISER;
+        }
+        else if (SERIALISER_COMPACT.equalsIgnoreCase(name))
+        {
+            return COMPACT_SERIALISER;
+        }
+
+        return mapping.getStoreManager().getSerialiser(name.trim());
+    }
+
+    /**
+     * Accessor for the size (bytes) above which serialised values of the specified mapping are compressed.
+     * @param mapping The java type mapping
+     * @return The threshold, or negative if values are never to be compressed
+     */
+    public static int getCompressionThreshold(JavaTypeMapping mapping)
+    {
+        AbstractMemberMetaData mmd = mapping.getMemberMetaData();
+        if (mmd != null && mmd.hasExtension(EXTENSION_COMPRESSION_THRESHOLD))
+        {
+            try
+            {
+                return Integer.parseInt(mmd.getValueForExtension(EXTENSION_COMPRESSION_THRESHOLD).trim());
+            }
+            catch (NumberFormatException nfe)
+            {
+                throw new NucleusUserException("Invalid value for extension " + EXTENSION_COMPRESSION_THRESHOLD + " for " + mmd.getFullFieldName());
+            }
+        }
+        return mapping.getStoreManager().getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_SERIALISER_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * Method to serialise the value of the specified mapping to the bytes to be stored.
+     * @param mapping The java type mapping
+     * @param value The value (not null)
+     * @return The bytes
+     * @throws IOException if an error occurs serialising the value
+     */
+    public static byte[] serialise(JavaTypeMapping mapping, Object value) throws IOException
+    {
+        return serialise(getSerialiser(mapping), getCompressionThreshold(mapping), value);
+    }
+
+    /**
+     * Method to serialise a value to the bytes to be stored.
+     * @param serialiser The serialiser to use
+     * @param compressionThreshold Size (bytes) above which the serialised value is compressed, or negative to not compress
+     * @param value The value (not null)
+     * @return The bytes
+     * @throws IOException if an error occurs serialising the value
+     */
+    public static byte[] serialise(Serialiser serialiser, int compressionThreshold, Object value) throws IOException
+    {
+        byte[] payload = serialiser.serialise(value);
+
+        byte compression = COMPRESSION_NONE;
+        int uncompressedLength = payload.length;
+        if (compressionThreshold >= 0 && payload.length > compressionThreshold)
+        {
+            byte[] compressed = deflate(payload);
+            if (compressed.length + 4 < payload.length)
+            {
+                // Only worth using if it actually saves space
+                payload = compressed;
+                compression = COMPRESSION_DEFLATE;
+            }
+        }
+
+        byte serialiserId = SERIALISER_ID_CUSTOM;
+        if (serialiser.getClass() == JavaSerialiser.class)
+        {
+            serialiserId = SERIALISER_ID_JAVA;
+        }
+        else if (serialiser.getClass() == CompactSerialiser.class)
+        {
+            serialiserId = SERIALISER_ID_COMPACT;
+        }
+
+        if (serialiserId == SERIALISER_ID_JAVA && compression == COMPRESSION_NONE)
+        {
+            // Plain Java serialisation stream, as in earlier versions
+            return payload;
+        }
+
+        int headerLength = HEADER_LENGTH + (compression != COMPRESSION_NONE ? 4 : 0);
+        byte[] bytes = new byte[headerLength + payload.length];
+        bytes[0] = MAGIC_1;
+        bytes[1] = MAGIC_2;
+        bytes[2] = FORMAT_VERSION;
+        bytes[3] = serialiserId;
+        bytes[4] = compression;
+        if (compression != COMPRESSION_NONE)
+        {
+            bytes[5] = (byte) (uncompressedLength >>> 24);
+            bytes[6] = (byte) (uncompressedLength >>> 16);
+            bytes[7] = (byte) (uncompressedLength >>> 8);
+            bytes[8] = (byte) uncompressedLength;
+        }
+        System.arraycopy(payload, 0, bytes, headerLength, payload.length);
+        return bytes;
+    }
+
+    /**
+     * Method to deserialise the value of the specified mapping from the stored bytes.
+     * @param mapping The java type mapping
+     * @param bytes The stored bytes
+     * @return The value
+     * @throws IOException if an error occurs deserialising the value
+     * @throws ClassNotFoundException if a class of the serialised value cannot be found
+     */
+    public static Object deserialise(JavaTypeMapping mapping, byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        if (bytes.length >= 2 && bytes[0] == MAGIC_1 && bytes[1] == MAGIC_2)
+        {
+            return deserialiseWithHeader(mapping, bytes);
+        }
+        else if (bytes.length >= 2 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED)
+        {
+            // Java serialisation stream
+            return JAVA_SERIALISER.deserialise(bytes, 0, bytes.length);
+        }
+
+        // Raw output of the serialiser for this member
+        return getSerialiser(mapping).deserialise(bytes, 0, bytes.length);
+    }
+
+    private static Object deserialiseWithHeader(JavaTypeMapping mapping, byte[] bytes) throws IOException, ClassNotFoundException
+    {
+        if (bytes.length < HEADER_LENGTH || bytes[2] != FORMAT_VERSION)
+        {
+            throw new StreamCorruptedException("Serialised value has unsupported header");
+        }
+
+        Serialiser serialiser;
+        switch (bytes[3])
+        {
+            case SERIALISER_ID_JAVA :
+                serialiser = JAVA_SERIALISER;
+                break;
+            case SERIALISER_ID_COMPACT :
+                serialiser = COMPACT_SERIALISER;
+                break;
+            case SERIALISER_ID_CUSTOM :
+                serialiser = getSerialiser(mapping);
+                break;
+            default :
+                throw new StreamCorruptedException("Serialised value has unknown serialiser " + bytes[3]);
+        }
+
+        if (bytes[4] == COMPRESSION_NONE)
+        {
+            return serialiser.deserialise(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        }
+        else if (bytes[4] == COMPRESSION_DEFLATE)
+        {
+            if (bytes.length < HEADER_LENGTH + 4)
+            {
+                throw new StreamCorruptedException("Serialised value is truncated");
+            }
+            int uncompressedLength = ((bytes[5] & 0xFF) << 24) | ((bytes[6] & 0xFF) << 16) | ((bytes[7] & 0xFF) << 8) | (bytes[8] & 0xFF);
+            byte[] payload = inflate(bytes, HEADER_LENGTH + 4, bytes.length - HEADER_LENGTH - 4, uncompressedLength);
+            return serialiser.deserialise(payload, 0, payload.length);
+        }
+        throw new StreamCorruptedException("Serialised value has unknown compression " + bytes[4]);
+    }
+
+    private static byte[] deflate(byte[] input)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try
+        {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished())
+            {
+                int num = deflater.deflate(buffer);
+                baos.write(buffer, 0, num);
+            }
+            return baos.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset, int length, int uncompressedLength) throws IOException
+    {
+        if (uncompressedLength < 0 || uncompressedLength > (long) length * MAX_DEFLATE_RATIO + 64)
+        {
+            // Not a length that the compressed bytes could expand to, so don't allocate it
+            throw new StreamCorruptedException("Serialised value has invalid length " + uncompressedLength);
+        }
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(input, offset, length);
+            byte[] output = new byte[uncompressedLength];
+            int pos = 0;
+            while (pos < uncompressedLength)
+            {
+                int num = inflater.inflate(output, pos, uncompressedLength - pos);
+                if (num == 0 && (inflater.finished() || inflater.needsInput()))
+                {
+                    break;
+                }
+                pos += num;
+            }
+            if (pos != uncompressedLength)
+            {
+                throw new StreamCorruptedException("Serialised value is truncated");
+            }
+            return output;
+        }
+        catch (DataFormatException dfe)
+        {
+            throw new IOException("Serialised value is corrupted", dfe);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.serialiser;
+
+import java.io.IOException;
+
+/**
+ * Serialiser for the value of a serialised field/property, converting it to/from the bytes stored in the datastore.
+ * Implementations must be thread-safe, and must have a public default constructor when specified by class name.
+ */
+public interface Serialiser
+{
+    /**
+     * Method to serialise the supplied value.
+     * @param value The value (not null)
+     * @return The bytes
+     * @throws IOException if an error occurs serialising the value
+     */
+    byte[] serialise(Object value) throws IOException;
+
+    /**
+     * Method to deserialise a value from the supplied bytes.
+     * @param bytes The bytes
+     * @param offset Offset in the bytes where the serialised value starts
+     * @param length Length of the serialised value
+     * @return The value
+     * @throws IOException if an error occurs deserialising the value
+     * @throws ClassNotFoundException if a class of the serialised value cannot be found
+     */
+    Object deserialise(byte[] bytes, int offset, int length) throws IOException, ClassNotFoundException;
+}
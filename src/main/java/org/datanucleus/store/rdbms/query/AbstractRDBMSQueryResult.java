@@ -65,6 +65,12 @@ public abstract class AbstractRDBMSQueryResult<E> extends AbstractQueryResult<E>
 
     boolean applyRangeChecks = false;
 
+    /** Mappings of the ordering expressions in the results when using keyset pagination. */
+    protected StatementMappingIndex[] keysetMappings;
+
+    /** Ordering values of the last row read from the results when using keyset pagination. */
+    protected Object[] keyset;
+
     /**
      * Constructor of the result from a Query.
      * @param query The Query
@@ -85,6 +91,42 @@ public abstract class AbstractRDBMSQueryResult<E> extends AbstractQueryResult<E>
         this.closeStatementWithResultSet = flag;
     }
 
+    /**
+     * Method to register the mappings of the ordering expressions in the results, when using keyset pagination.
+     * @param mappings Mappings of the ordering expressions
+     */
+    public void setKeysetMappings(StatementMappingIndex[] mappings)
+    {
+        this.keysetMappings = mappings;
+    }
+
+    /**
+     * Accessor for the keyset (ordering values) of the last row read from the results, when using keyset pagination.
+     * Once all results have been read this can be passed as the keyset of the query to retrieve the next page.
+     * @return The keyset of the last row read (or null if no rows read, or not using keyset pagination)
+     */
+    public Object[] getKeyset()
+    {
+        return keyset;
+    }
+
+    /**
+     * Method to read the keyset (ordering values) of the current row of the results, when using keyset pagination.
+     */
+    protected void readKeyset()
+    {
+        if (keysetMappings != null)
+        {
+            ExecutionContext ec = query.getExecutionContext();
+            Object[] values = new Object[keysetMappings.length];
+            for (int i=0;i<keysetMappings.length;i++)
+            {
+                values[i] = keysetMappings[i].getMapping().getObject(ec, rs, keysetMappings[i].getColumnPositions());
+            }
+            keyset = values;
+        }
+    }
+
     public void registerMemberBulkResultSet(IteratorStatement iterStmt, ResultSet rs)
     {
         if (bulkLoadedValueByMemberNumber == null)
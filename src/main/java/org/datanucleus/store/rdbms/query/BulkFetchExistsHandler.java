@@ -138,11 +138,11 @@ public class BulkFetchExistsHandler implements BulkFetchHandler
         {
             if (backingStore instanceof FKSetStore)
             {
-                iterStmt = ((FKSetStore)backingStore).getIteratorStatement(ec, ec.getFetchPlan(), false);
+                iterStmt = ((FKSetStore)backingStore).getIteratorStatement(ec, ((FKSetStore)backingStore).getIteratorFetchPlan(ec), false);
             }
             else if (backingStore instanceof FKListStore)
             {
-                iterStmt = ((FKListStore)backingStore).getIteratorStatement(ec, ec.getFetchPlan(), false, -1, -1);
+                iterStmt = ((FKListStore)backingStore).getIteratorStatement(ec, ((FKListStore)backingStore).getIteratorFetchPlan(ec), false, -1, -1);
             }
             else if (backingStore instanceof FKArrayStore)
             {
@@ -38,6 +38,9 @@ import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.query.AbstractQueryResultIterator;
 import org.datanucleus.store.query.Query;
 import org.datanucleus.store.rdbms.JDBCUtils;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
+import org.datanucleus.store.rdbms.RDBMSStoreManager;
+import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
 import org.datanucleus.util.Localiser;
 import org.datanucleus.util.NucleusLogger;
 
@@ -63,6 +66,15 @@ public final class ForwardQueryResult<E> extends AbstractRDBMSQueryResult<E> imp
     /** The candidate list restriction (optional). */
     private Collection candidates;
 
+    /** Current fetch size of the ResultSet when streaming the results with an increasing fetch size (0 if not). */
+    private int streamFetchSize = 0;
+
+    /** Maximum fetch size to increase to when streaming the results. */
+    private int streamMaxFetchSize = 0;
+
+    /** Number of rows read since the fetch size was last increased. */
+    private int rowsSinceFetchSizeIncrease = 0;
+
     /**
      * Constructor of the result from a Query.
      * @param query The Query
@@ -85,9 +97,31 @@ public final class ForwardQueryResult<E> extends AbstractRDBMSQueryResult<E> imp
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.query.AbstractRDBMSQueryResult#setKeysetMappings(org.datanucleus.store.rdbms.query.StatementMappingIndex[])
+     */
+    @Override
+    public void setKeysetMappings(StatementMappingIndex[] mappings)
+    {
+        super.setKeysetMappings(mappings);
+        if (mappings != null)
+        {
+            // Results depend on the keyset so don't cache them
+            resultIds = null;
+        }
+    }
+
     public void initialise()
     throws SQLException
     {
+        RDBMSStoreManager storeMgr = (RDBMSStoreManager)query.getStoreManager();
+        if (RDBMSQueryUtils.useStreamingForQuery(query) && storeMgr.getDatastoreAdapter().supportsOption(DatastoreAdapter.STREAMING_FETCH_SIZE_INCREASE))
+        {
+            // Start with the (small) streaming fetch size, and increase it as the results are read
+            streamFetchSize = rs.getFetchSize();
+            streamMaxFetchSize = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_STREAM_MAX_FETCH_SIZE);
+        }
+
         // Move to first row
         moreResultSetRows = rs.next();
 
@@ -178,6 +212,7 @@ public final class ForwardQueryResult<E> extends AbstractRDBMSQueryResult<E> imp
 
         // Convert this row into its associated object and save it
         E nextElement = rof.getObject();
+        readKeyset();
         JDBCUtils.logWarnings(rs);
         resultObjs.add(nextElement);
         if (resultIds != null)
@@ -210,6 +245,10 @@ public final class ForwardQueryResult<E> extends AbstractRDBMSQueryResult<E> imp
         try
         {
             moreResultSetRows = rs.next();
+            if (moreResultSetRows && streamFetchSize > 0)
+            {
+                increaseStreamFetchSize();
+            }
             if (applyRangeChecks)
             {
                 // Check if we have reached the end of the range
@@ -233,6 +272,30 @@ public final class ForwardQueryResult<E> extends AbstractRDBMSQueryResult<E> imp
         return nextElement;
     }
 
+    /**
+     * Method to double the fetch size of the streamed results each time a fetch worth of rows has been read, up to the maximum.
+     * This means that the first rows are returned quickly, but a consumer reading all rows needs fewer round trips.
+     */
+    private void increaseStreamFetchSize()
+    {
+        rowsSinceFetchSizeIncrease++;
+        if (rowsSinceFetchSizeIncrease >= streamFetchSize && streamFetchSize < streamMaxFetchSize)
+        {
+            try
+            {
+                streamFetchSize = Math.min(streamFetchSize * 2, streamMaxFetchSize);
+                rs.setFetchSize(streamFetchSize);
+                rowsSinceFetchSizeIncrease = 0;
+            }
+            catch (SQLException sqle)
+            {
+                // JDBC driver doesn't allow changing the fetch size of the ResultSet, so leave it
+                NucleusLogger.QUERY.debug("Unable to increase fetch size of query results : " + sqle.getMessage());
+                streamFetchSize = 0;
+            }
+        }
+    }
+
     /**
      * Internal method to close the ResultSet.
      */
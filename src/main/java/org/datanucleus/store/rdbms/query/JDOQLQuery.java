@@ -116,6 +116,13 @@ public class JDOQLQuery extends AbstractJDOQLQuery
     /** Extension to define the JOIN TYPE to use when navigating single-valued relations. */
     public static final String EXTENSION_NAVIGATION_JOIN_TYPE = "datanucleus.query.jdoql.navigationJoinType";
 
+    /**
+     * Extension to use keyset (seek) pagination, starting after the row with the specified ordering values (Object[] or List),
+     * or "true" for the first page. The range of the query then just defines the page size, and the keyset for the next page
+     * is available from the query result (see AbstractRDBMSQueryResult.getKeyset). Requires a forward-only result set type.
+     */
+    public static final String EXTENSION_KEYSET = "datanucleus.query.keyset";
+
     /** The compilation of the query for this datastore. Not applicable if totally in-memory. */
     protected transient RDBMSQueryCompilation datastoreCompilation = null;
 
@@ -226,11 +233,13 @@ public class JDOQLQuery extends AbstractJDOQLQuery
      */
     protected String getQueryCacheKey()
     {
+        String queryCacheKey = super.getQueryCacheKey();
         if (getSerializeRead() != null && getSerializeRead())
         {
-            return super.getQueryCacheKey() + " FOR UPDATE";
+            queryCacheKey += " FOR UPDATE";
         }
-        return super.getQueryCacheKey();
+        queryCacheKey += RDBMSQueryUtils.getKeysetCacheKey(getExtension(EXTENSION_KEYSET));
+        return queryCacheKey;
     }
 
     /**
@@ -304,6 +313,10 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         QueryManager qm = getQueryManager();
         String datastoreKey = storeMgr.getQueryCacheKey();
         String queryCacheKey = getQueryCacheKey();
+        if (queryCacheKey != null)
+        {
+            queryCacheKey += RDBMSQueryUtils.getCollectionParameterCacheKey(storeMgr, parameterValues);
+        }
         if (useCaching() && queryCacheKey != null)
         {
             // Check if we have any parameters set to null, since this can invalidate a datastore compilation
@@ -342,11 +355,13 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         {
             datastoreCompilation = new RDBMSQueryCompilation();
             compileQueryUpdate(parameterValues, acmd);
+            compileQueryBulkAffectedIds(parameterValues, acmd);
         }
         else if (type == QueryType.BULK_DELETE)
         {
             datastoreCompilation = new RDBMSQueryCompilation();
             compileQueryDelete(parameterValues, acmd);
+            compileQueryBulkAffectedIds(parameterValues, acmd);
         }
         else
         {
@@ -590,7 +605,7 @@ public class JDOQLQuery extends AbstractJDOQLQuery
                 return new JDOQLInMemoryEvaluator(this, new ArrayList(candidateCollection), compilation, parameters, clr).execute(true, true, true, true, true);
             }
         }
-        else if (type == QueryType.SELECT)
+        else if (type == QueryType.SELECT && getExtension(EXTENSION_KEYSET) == null)
         {
             // Query results are cached, so return those
             List<Object> cachedResults = getQueryManager().getQueryResult(this, parameters);
@@ -600,6 +615,11 @@ public class JDOQLQuery extends AbstractJDOQLQuery
             }
         }
 
+        if (type == QueryType.SELECT)
+        {
+            RDBMSQueryUtils.checkKeysetForQuery(this, getExtension(EXTENSION_KEYSET));
+        }
+
         Object results = null;
         RDBMSStoreManager storeMgr = (RDBMSStoreManager)getStoreManager();
         ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
@@ -675,6 +695,7 @@ public class JDOQLQuery extends AbstractJDOQLQuery
 
                             // Create the required type of QueryResult
                             qr = RDBMSQueryUtils.getQueryResultForQuery(this, rof, rs, getResultDistinct() ? null : candidateCollection);
+                            qr.setKeysetMappings(datastoreCompilation.getKeysetMappings());
 
                             // Register any bulk loaded member resultSets that need loading
                             Map<String, IteratorStatement> scoIterStmts = datastoreCompilation.getSCOIteratorStatements();
@@ -748,6 +769,14 @@ public class JDOQLQuery extends AbstractJDOQLQuery
                 else if (type == QueryType.BULK_UPDATE || type == QueryType.BULK_DELETE)
                 {
                     long bulkResult = 0;
+                    Collection<Object> affectedIds = null;
+                    if (datastoreCompilation.getBulkAffectedIdsStatement() != null && ec.getTransaction().isActive())
+                    {
+                        // Find (and lock) the objects that will be affected so we only need to evict those from the L2 cache.
+                        // Without a transaction the locks aren't held until the bulk statement, so all objects of the type are evicted
+                        affectedIds = RDBMSQueryUtils.getBulkAffectedIds(ec, mconn, datastoreCompilation, parameters, acmd, subclasses);
+                    }
+
                     List<StatementCompilation> stmtCompilations = datastoreCompilation.getStatementCompilations();
                     Iterator<StatementCompilation> stmtCompileIter = stmtCompilations.iterator();
                     while (stmtCompileIter.hasNext())
@@ -764,10 +793,24 @@ public class JDOQLQuery extends AbstractJDOQLQuery
                         }
                     }
 
+                    if (type == QueryType.BULK_DELETE)
+                    {
+                        // Deleted ids could be reused by objects of a different class
+                        storeMgr.clearClassNameForObjectIDCache();
+                    }
+
                     try
                     {
-                        // Evict all objects of this type from the cache
-                        ec.getNucleusContext().getLevel2Cache().evictAll(candidateClass, subclasses);
+                        if (affectedIds != null)
+                        {
+                            // Evict just the affected objects from the cache
+                            ec.getNucleusContext().getLevel2Cache().evictAll(affectedIds);
+                        }
+                        else
+                        {
+                            // Evict all objects of this type from the cache
+                            ec.getNucleusContext().getLevel2Cache().evictAll(candidateClass, subclasses);
+                        }
                     }
                     catch (UnsupportedOperationException uoe)
                     {
@@ -873,6 +916,14 @@ public class JDOQLQuery extends AbstractJDOQLQuery
                 options = new HashSet<>();
                 options.add(SelectStatementGenerator.OPTION_INCLUDE_SOFT_DELETES);
             }
+            if (((RDBMSStoreManager) getStoreManager()).getTableRowStatistics() != null)
+            {
+                if (options == null)
+                {
+                    options = new HashSet<>();
+                }
+                options.add(SelectStatementGenerator.OPTION_OMIT_EMPTY_TABLES);
+            }
             stmt = RDBMSQueryUtils.getStatementForCandidates((RDBMSStoreManager) getStoreManager(), null, candidateCmd,
                 datastoreCompilation.getResultDefinitionForClass(), ec, candidateClass, subclasses, result, null, null, options);
         }
@@ -899,10 +950,17 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameters, datastoreCompilation.getResultDefinitionForClass(), datastoreCompilation.getResultDefinition(),
             candidateCmd, subclasses, getFetchPlan(), ec, getParsedImports(), options, extensions);
         setMapperJoinTypes(sqlMapper);
+        Object[] keysetValues = RDBMSQueryUtils.getKeysetValues(getExtension(EXTENSION_KEYSET));
+        if (keysetValues != null)
+        {
+            sqlMapper.setKeysetValues(keysetValues);
+        }
         sqlMapper.compile();
 
         datastoreCompilation.setParameterNameByPosition(sqlMapper.getParameterNameByPosition());
-        datastoreCompilation.setPrecompilable(sqlMapper.isPrecompilable());
+        datastoreCompilation.setKeysetMappings(sqlMapper.getKeysetMappings());
+        // Don't cache the statement when tables were omitted for having no rows, since they may have rows later
+        datastoreCompilation.setPrecompilable(sqlMapper.isPrecompilable() && stmt.getValueForExtension(SQLStatement.EXTENSION_EMPTY_TABLES_OMITTED) == null);
         if (!getResultDistinct() && stmt.isDistinct())
         {
             setResultDistinct(true);
@@ -1145,6 +1203,7 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         }
 
         List<SQLStatement> stmts = new ArrayList<>();
+        Map<Integer, String> paramNameByPosition = new HashMap<>();
         List<Boolean> stmtCountFlags = new ArrayList<>();
         for (BulkTable bulkTable : tables)
         {
@@ -1189,6 +1248,10 @@ public class JDOQLQuery extends AbstractJDOQLQuery
             QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameterValues, null, null, candidateCmd, subclasses, getFetchPlan(), ec, null, options, extensions);
             setMapperJoinTypes(sqlMapper);
             sqlMapper.compile();
+            if (sqlMapper.getParameterNameByPosition() != null)
+            {
+                paramNameByPosition.putAll(sqlMapper.getParameterNameByPosition());
+            }
 
             if (stmt.hasUpdates())
             {
@@ -1200,6 +1263,9 @@ public class JDOQLQuery extends AbstractJDOQLQuery
             }
         }
 
+        // Record the positions of the parameters in all clauses, for binding the bulk affected ids statement
+        datastoreCompilation.setBulkParameterNameByPosition(paramNameByPosition.isEmpty() ? null : paramNameByPosition);
+
         datastoreCompilation.clearStatements();
         Iterator<SQLStatement> stmtIter = stmts.iterator();
         Iterator<Boolean> stmtCountFlagsIter = stmtCountFlags.iterator();
@@ -1337,6 +1403,72 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         }
     }
 
+    /**
+     * Method to compile a statement selecting the identities of the candidates that a bulk update/delete will affect, using the same
+     * filter, so that only those objects need evicting from the L2 cache after the bulk statement(s) are executed.
+     * Only used when the persistence property "datanucleus.rdbms.query.bulkEvictionLimit" is set.
+     * @param parameterValues The parameter values (if any)
+     * @param candidateCmd Meta-data for the candidate class
+     */
+    protected void compileQueryBulkAffectedIds(Map parameterValues, AbstractClassMetaData candidateCmd)
+    {
+        RDBMSStoreManager storeMgr = (RDBMSStoreManager)getStoreManager();
+        if (storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_BULK_EVICTION_LIMIT) <= 0 || datastoreCompilation.getNumberOfStatements() == 0)
+        {
+            return;
+        }
+
+        StatementClassMapping idDefinition = new StatementClassMapping();
+        SelectStatement stmt = null;
+        try
+        {
+            stmt = RDBMSQueryUtils.getStatementForCandidates(storeMgr, null, candidateCmd, idDefinition, ec, candidateClass, subclasses, null, null, null, null);
+        }
+        catch (NucleusException ne)
+        {
+            // No possible candidates, so just evict all objects of the candidate type
+            return;
+        }
+
+        Set<String> options = new HashSet<>();
+        options.add(QueryToSQLMapper.OPTION_SELECT_CANDIDATE_ID_ONLY);
+        if (getBooleanExtensionProperty(EXTENSION_USE_IS_NULL_WHEN_EQUALS_NULL_PARAM, true))
+        {
+            options.add(QueryToSQLMapper.OPTION_NULL_PARAM_USE_IS_NULL);
+        }
+        QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameterValues, idDefinition, null, candidateCmd, subclasses, getFetchPlan(), ec, null, options, extensions);
+        setMapperJoinTypes(sqlMapper);
+        sqlMapper.compile();
+
+        // Parameters are bound by their position in the whole query, and the UPDATE has parameters in its SET clause that this statement doesn't
+        Map<Integer, String> paramNameByPosition = new HashMap<>();
+        if (datastoreCompilation.getBulkParameterNameByPosition() != null)
+        {
+            paramNameByPosition.putAll(datastoreCompilation.getBulkParameterNameByPosition());
+        }
+        if (sqlMapper.getParameterNameByPosition() != null)
+        {
+            paramNameByPosition.putAll(sqlMapper.getParameterNameByPosition());
+        }
+        // Lock the rows, so that another transaction can't change which rows are affected before the bulk statement is executed.
+        // Where the rows can't be locked, all objects of the candidate type are evicted instead
+        if (stmt.getNumberOfUnions() > 0)
+        {
+            return;
+        }
+        stmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        if (!stmt.isLockApplied())
+        {
+            return;
+        }
+
+        datastoreCompilation.setBulkAffectedIdsStatement(stmt, idDefinition, paramNameByPosition.isEmpty() ? null : paramNameByPosition);
+        if (!sqlMapper.isPrecompilable())
+        {
+            datastoreCompilation.setPrecompilable(false);
+        }
+    }
+
     private void setMapperJoinTypes(QueryToSQLMapper sqlMapper)
     {
         String defaultJoinTypeFilter = getStringExtensionProperty(EXTENSION_NAVIGATION_JOIN_TYPE_FILTER, null);
@@ -1398,6 +1530,7 @@ public class JDOQLQuery extends AbstractJDOQLQuery
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_RESULT_SET_TYPE);
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_RESULT_SET_CONCURRENCY);
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_FETCH_DIRECTION);
+        supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_STREAM_RESULTS);
         return supported;
     }
 
@@ -1414,6 +1547,11 @@ public class JDOQLQuery extends AbstractJDOQLQuery
             datastoreCompilation = null;
             getQueryManager().removeDatastoreQueryCompilation(getStoreManager().getQueryCacheKey(), getLanguage(), toString());
         }
+        else if (key != null && key.equals(EXTENSION_KEYSET))
+        {
+            // Keyset changes the datastore query, so throw away any datastore compilation
+            datastoreCompilation = null;
+        }
         super.addExtension(key, value);
     }
 
@@ -1429,6 +1567,11 @@ public class JDOQLQuery extends AbstractJDOQLQuery
             datastoreCompilation = null;
             getQueryManager().removeDatastoreQueryCompilation(getStoreManager().getQueryCacheKey(), getLanguage(), toString());
         }
+        else if (getExtension(EXTENSION_KEYSET) != null || (extensions != null && extensions.containsKey(EXTENSION_KEYSET)))
+        {
+            // Keyset changes the datastore query, so throw away any datastore compilation
+            datastoreCompilation = null;
+        }
         super.setExtensions(extensions);
     }
 
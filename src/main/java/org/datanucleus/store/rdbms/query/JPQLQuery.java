@@ -74,6 +74,7 @@ import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
 import org.datanucleus.store.rdbms.sql.SQLTable;
 import org.datanucleus.store.rdbms.sql.SQLJoin.JoinType;
 import org.datanucleus.store.rdbms.sql.SelectStatement;
+import org.datanucleus.store.rdbms.sql.SelectStatementGenerator;
 import org.datanucleus.store.rdbms.sql.UpdateStatement;
 import org.datanucleus.store.rdbms.sql.expression.ColumnExpression;
 import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
@@ -112,6 +113,13 @@ public class JPQLQuery extends AbstractJPQLQuery
     /** Extension to define the JOIN TYPE to use when navigating single-valued relations. */
     public static final String EXTENSION_NAVIGATION_JOIN_TYPE = "datanucleus.query.jpql.navigationJoinType";
 
+    /**
+     * Extension to use keyset (seek) pagination, starting after the row with the specified ordering values (Object[] or List),
+     * or "true" for the first page. The range of the query then just defines the page size, and the keyset for the next page
+     * is available from the query result (see AbstractRDBMSQueryResult.getKeyset). Requires a forward-only result set type.
+     */
+    public static final String EXTENSION_KEYSET = "datanucleus.query.keyset";
+
     /** The compilation of the query for this datastore. Not applicable if totally in-memory. */
     protected transient RDBMSQueryCompilation datastoreCompilation;
 
@@ -211,11 +219,13 @@ public class JPQLQuery extends AbstractJPQLQuery
      */
     protected String getQueryCacheKey()
     {
+        String queryCacheKey = super.getQueryCacheKey();
         if (getSerializeRead() != null && getSerializeRead())
         {
-            return super.getQueryCacheKey() + " FOR UPDATE";
+            queryCacheKey += " FOR UPDATE";
         }
-        return super.getQueryCacheKey();
+        queryCacheKey += RDBMSQueryUtils.getKeysetCacheKey(getExtension(EXTENSION_KEYSET));
+        return queryCacheKey;
     }
 
     /**
@@ -253,6 +263,10 @@ public class JPQLQuery extends AbstractJPQLQuery
         QueryManager qm = getQueryManager();
         String datastoreKey = storeMgr.getQueryCacheKey();
         String queryCacheKey = getQueryCacheKey();
+        if (queryCacheKey != null)
+        {
+            queryCacheKey += RDBMSQueryUtils.getCollectionParameterCacheKey(storeMgr, parameterValues);
+        }
 
         if (useCaching() && queryCacheKey != null)
         {
@@ -296,11 +310,13 @@ public class JPQLQuery extends AbstractJPQLQuery
         {
             datastoreCompilation = new RDBMSQueryCompilation();
             compileQueryUpdate(parameterValues, acmd);
+            compileQueryBulkAffectedIds(parameterValues, acmd);
         }
         else if (type == QueryType.BULK_DELETE)
         {
             datastoreCompilation = new RDBMSQueryCompilation();
             compileQueryDelete(parameterValues, acmd);
+            compileQueryBulkAffectedIds(parameterValues, acmd);
         }
         else
         {
@@ -520,7 +536,7 @@ public class JPQLQuery extends AbstractJPQLQuery
             List candidates = new ArrayList(candidateCollection);
             return new JPQLInMemoryEvaluator(this, candidates, compilation, parameters, clr).execute(true, true, true, true, true);
         }
-        else if (type == QueryType.SELECT)
+        else if (type == QueryType.SELECT && getExtension(EXTENSION_KEYSET) == null)
         {
             // Query results are cached, so return those
             List<Object> cachedResults = getQueryManager().getQueryResult(this, parameters);
@@ -530,6 +546,11 @@ public class JPQLQuery extends AbstractJPQLQuery
             }
         }
 
+        if (type == QueryType.SELECT)
+        {
+            RDBMSQueryUtils.checkKeysetForQuery(this, getExtension(EXTENSION_KEYSET));
+        }
+
         Object results = null;
         ManagedConnection mconn = getStoreManager().getConnectionManager().getConnection(ec);
         try
@@ -605,6 +626,7 @@ public class JPQLQuery extends AbstractJPQLQuery
 
                             // Create the required type of QueryResult
                             qr = RDBMSQueryUtils.getQueryResultForQuery(this, rof, rs, getResultDistinct() ? null : candidateCollection);
+                            qr.setKeysetMappings(datastoreCompilation.getKeysetMappings());
 
                             // Register any bulk loaded member resultSets that need loading
                             Map<String, IteratorStatement> scoIterStmts = datastoreCompilation.getSCOIteratorStatements();
@@ -676,6 +698,14 @@ public class JPQLQuery extends AbstractJPQLQuery
                 else if (type == QueryType.BULK_UPDATE || type == QueryType.BULK_DELETE || type == QueryType.BULK_INSERT)
                 {
                     long bulkResult = 0;
+                    Collection<Object> affectedIds = null;
+                    if (datastoreCompilation.getBulkAffectedIdsStatement() != null && ec.getTransaction().isActive())
+                    {
+                        // Find (and lock) the objects that will be affected so we only need to evict those from the L2 cache.
+                        // Without a transaction the locks aren't held until the bulk statement, so all objects of the type are evicted
+                        affectedIds = RDBMSQueryUtils.getBulkAffectedIds(ec, mconn, datastoreCompilation, parameters, acmd, subclasses);
+                    }
+
                     List<StatementCompilation> stmtCompilations = datastoreCompilation.getStatementCompilations();
                     Iterator<StatementCompilation> stmtCompileIter = stmtCompilations.iterator();
                     while (stmtCompileIter.hasNext())
@@ -692,10 +722,24 @@ public class JPQLQuery extends AbstractJPQLQuery
                         }
                     }
 
+                    if (type == QueryType.BULK_DELETE)
+                    {
+                        // Deleted ids could be reused by objects of a different class
+                        storeMgr.clearClassNameForObjectIDCache();
+                    }
+
                     try
                     {
-                        // Evict all objects of this type from the cache
-                        ec.getNucleusContext().getLevel2Cache().evictAll(candidateClass, subclasses);
+                        if (affectedIds != null)
+                        {
+                            // Evict just the affected objects from the cache
+                            ec.getNucleusContext().getLevel2Cache().evictAll(affectedIds);
+                        }
+                        else
+                        {
+                            // Evict all objects of this type from the cache
+                            ec.getNucleusContext().getLevel2Cache().evictAll(candidateClass, subclasses);
+                        }
                     }
                     catch (UnsupportedOperationException uoe)
                     {
@@ -799,9 +843,15 @@ public class JPQLQuery extends AbstractJPQLQuery
         }
 
         // Generate statement for candidate(s)
+        Set<String> stmtGenOptions = null;
+        if (((RDBMSStoreManager) getStoreManager()).getTableRowStatistics() != null)
+        {
+            stmtGenOptions = new HashSet<>();
+            stmtGenOptions.add(SelectStatementGenerator.OPTION_OMIT_EMPTY_TABLES);
+        }
         SelectStatement stmt = RDBMSQueryUtils.getStatementForCandidates((RDBMSStoreManager) getStoreManager(), null, candidateCmd,
             datastoreCompilation.getResultDefinitionForClass(), ec, candidateClass, subclasses, result, 
-            compilation.getCandidateAlias(), compilation.getCandidateAlias(), null);
+            compilation.getCandidateAlias(), compilation.getCandidateAlias(), stmtGenOptions);
 
         // Update the SQLStatement with filter, ordering, result etc
         Set<String> options = new HashSet<>();
@@ -814,10 +864,17 @@ public class JPQLQuery extends AbstractJPQLQuery
         QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameters, datastoreCompilation.getResultDefinitionForClass(), datastoreCompilation.getResultDefinition(),
             candidateCmd, subclasses, getFetchPlan(), ec, null, options, extensions);
         setMapperJoinTypes(sqlMapper);
+        Object[] keysetValues = RDBMSQueryUtils.getKeysetValues(getExtension(EXTENSION_KEYSET));
+        if (keysetValues != null)
+        {
+            sqlMapper.setKeysetValues(keysetValues);
+        }
         sqlMapper.compile();
 
         datastoreCompilation.setParameterNameByPosition(sqlMapper.getParameterNameByPosition());
-        datastoreCompilation.setPrecompilable(sqlMapper.isPrecompilable());
+        datastoreCompilation.setKeysetMappings(sqlMapper.getKeysetMappings());
+        // Don't cache the statement when tables were omitted for having no rows, since they may have rows later
+        datastoreCompilation.setPrecompilable(sqlMapper.isPrecompilable() && stmt.getValueForExtension(SQLStatement.EXTENSION_EMPTY_TABLES_OMITTED) == null);
 
         // Apply any range
         if (range != null)
@@ -1128,6 +1185,7 @@ public class JPQLQuery extends AbstractJPQLQuery
         }
 
         List<SQLStatement> stmts = new ArrayList<>();
+        Map<Integer, String> paramNameByPosition = new HashMap<>();
         List<Boolean> stmtCountFlags = new ArrayList<>();
         for (BulkTable bulkTable : tables)
         {
@@ -1173,6 +1231,10 @@ public class JPQLQuery extends AbstractJPQLQuery
             QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameterValues, null, null, candidateCmd, subclasses, getFetchPlan(), ec, null, options, extensions);
             setMapperJoinTypes(sqlMapper);
             sqlMapper.compile();
+            if (sqlMapper.getParameterNameByPosition() != null)
+            {
+                paramNameByPosition.putAll(sqlMapper.getParameterNameByPosition());
+            }
 
             if (stmt.hasUpdates())
             {
@@ -1184,6 +1246,9 @@ public class JPQLQuery extends AbstractJPQLQuery
             }
         }
 
+        // Record the positions of the parameters in all clauses, for binding the bulk affected ids statement
+        datastoreCompilation.setBulkParameterNameByPosition(paramNameByPosition.isEmpty() ? null : paramNameByPosition);
+
         datastoreCompilation.clearStatements();
         Iterator<SQLStatement> stmtIter = stmts.iterator();
         Iterator<Boolean> stmtCountFlagsIter = stmtCountFlags.iterator();
@@ -1323,6 +1388,75 @@ public class JPQLQuery extends AbstractJPQLQuery
         }
     }
 
+    /**
+     * Method to compile a statement selecting the identities of the candidates that a bulk update/delete will affect, using the same
+     * filter, so that only those objects need evicting from the L2 cache after the bulk statement(s) are executed.
+     * Only used when the persistence property "datanucleus.rdbms.query.bulkEvictionLimit" is set.
+     * @param parameterValues The parameter values (if any)
+     * @param candidateCmd Meta-data for the candidate class
+     */
+    protected void compileQueryBulkAffectedIds(Map parameterValues, AbstractClassMetaData candidateCmd)
+    {
+        RDBMSStoreManager storeMgr = (RDBMSStoreManager)getStoreManager();
+        if (storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_BULK_EVICTION_LIMIT) <= 0 || datastoreCompilation.getNumberOfStatements() == 0)
+        {
+            return;
+        }
+
+        StatementClassMapping idDefinition = new StatementClassMapping();
+        SelectStatement stmt = null;
+        try
+        {
+            stmt = RDBMSQueryUtils.getStatementForCandidates(storeMgr, null, candidateCmd, idDefinition, ec, candidateClass, subclasses, null,
+                compilation.getCandidateAlias(), compilation.getCandidateAlias(), null);
+        }
+        catch (NucleusException ne)
+        {
+            // No possible candidates, so just evict all objects of the candidate type
+            return;
+        }
+
+        Set<String> options = new HashSet<>();
+        options.add(QueryToSQLMapper.OPTION_SELECT_CANDIDATE_ID_ONLY);
+        options.add(QueryToSQLMapper.OPTION_CASE_INSENSITIVE);
+        options.add(QueryToSQLMapper.OPTION_EXPLICIT_JOINS);
+        if (getBooleanExtensionProperty(EXTENSION_USE_IS_NULL_WHEN_EQUALS_NULL_PARAM, false)) // Default to false for "IS NULL" with null param
+        {
+            options.add(QueryToSQLMapper.OPTION_NULL_PARAM_USE_IS_NULL);
+        }
+        QueryToSQLMapper sqlMapper = new QueryToSQLMapper(stmt, compilation, parameterValues, idDefinition, null, candidateCmd, subclasses, getFetchPlan(), ec, null, options, extensions);
+        setMapperJoinTypes(sqlMapper);
+        sqlMapper.compile();
+
+        // Parameters are bound by their position in the whole query, and the UPDATE has parameters in its SET clause that this statement doesn't
+        Map<Integer, String> paramNameByPosition = new HashMap<>();
+        if (datastoreCompilation.getBulkParameterNameByPosition() != null)
+        {
+            paramNameByPosition.putAll(datastoreCompilation.getBulkParameterNameByPosition());
+        }
+        if (sqlMapper.getParameterNameByPosition() != null)
+        {
+            paramNameByPosition.putAll(sqlMapper.getParameterNameByPosition());
+        }
+        // Lock the rows, so that another transaction can't change which rows are affected before the bulk statement is executed.
+        // Where the rows can't be locked, all objects of the candidate type are evicted instead
+        if (stmt.getNumberOfUnions() > 0)
+        {
+            return;
+        }
+        stmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        if (!stmt.isLockApplied())
+        {
+            return;
+        }
+
+        datastoreCompilation.setBulkAffectedIdsStatement(stmt, idDefinition, paramNameByPosition.isEmpty() ? null : paramNameByPosition);
+        if (!sqlMapper.isPrecompilable())
+        {
+            datastoreCompilation.setPrecompilable(false);
+        }
+    }
+
     private void setMapperJoinTypes(QueryToSQLMapper sqlMapper)
     {
         String defaultJoinTypeFilter = getStringExtensionProperty(EXTENSION_NAVIGATION_JOIN_TYPE_FILTER, null);
@@ -1391,6 +1525,7 @@ public class JPQLQuery extends AbstractJPQLQuery
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_RESULT_SET_TYPE);
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_RESULT_SET_CONCURRENCY);
         supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_FETCH_DIRECTION);
+        supported.add(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_STREAM_RESULTS);
         return supported;
     }
 
@@ -1407,6 +1542,11 @@ public class JPQLQuery extends AbstractJPQLQuery
             datastoreCompilation = null;
             getQueryManager().removeDatastoreQueryCompilation(getStoreManager().getQueryCacheKey(), getLanguage(), toString());
         }
+        else if (key != null && key.equals(EXTENSION_KEYSET))
+        {
+            // Keyset changes the datastore query, so throw away any datastore compilation
+            datastoreCompilation = null;
+        }
         super.addExtension(key, value);
     }
 
@@ -1422,6 +1562,11 @@ public class JPQLQuery extends AbstractJPQLQuery
             datastoreCompilation = null;
             getQueryManager().removeDatastoreQueryCompilation(getStoreManager().getQueryCacheKey(), getLanguage(), toString());
         }
+        else if (getExtension(EXTENSION_KEYSET) != null || (extensions != null && extensions.containsKey(EXTENSION_KEYSET)))
+        {
+            // Keyset changes the datastore query, so throw away any datastore compilation
+            datastoreCompilation = null;
+        }
         super.setExtensions(extensions);
     }
 
@@ -29,6 +29,8 @@ package org.datanucleus.store.rdbms.query;
 import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.datanucleus.ClassLoaderResolver;
@@ -45,6 +47,7 @@ import org.datanucleus.metadata.InterfaceMetaData;
 import org.datanucleus.metadata.VersionMetaData;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.FieldValues;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.schema.table.SurrogateColumnType;
 import org.datanucleus.store.rdbms.fieldmanager.ResultSetGetter;
@@ -61,6 +64,9 @@ import org.datanucleus.util.ConcurrentReferenceHashMap.ReferenceType;
  */
 public final class PersistentClassROF<T> extends AbstractROF<T>
 {
+    /** Key of the value associated with the ObjectProvider of each object returned, for the identities of the batch of objects it was returned with. */
+    public static final String ASSOCIATED_VALUE_OWNER_BATCH = "datanucleus.rdbms.ownerBatch";
+
     /** Metadata for the (root) persistable candidate class. */
     protected final AbstractClassMetaData rootCmd;
 
@@ -75,6 +81,12 @@ public final class PersistentClassROF<T> extends AbstractROF<T>
     /** Resolved classes for metadata / discriminator keyed by class names. */
     private Map resolvedClasses = new ConcurrentReferenceHashMap<>(1, ReferenceType.STRONG, ReferenceType.SOFT);
 
+    /** Number of objects to group together for loading of their (lazy) collections, or 0 if not grouping. */
+    private int ownerBatchSize;
+
+    /** Identities of the objects returned for the current batch of rows. */
+    private List<Object> ownerBatch = null;
+
     /**
      * Constructor.
      * @param ec ExecutionContext
@@ -91,6 +103,7 @@ public final class PersistentClassROF<T> extends AbstractROF<T>
         this.resultMapping = resultMapping;
         this.rootCmd = acmd;
         this.persistentClass = persistentClass;
+        this.ownerBatchSize = ec.getStoreManager().getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_LAZY_LOAD_BATCH_SIZE);
     }
 
     /* (non-Javadoc)
@@ -459,9 +472,35 @@ public final class PersistentClassROF<T> extends AbstractROF<T>
             }
         }
 
+        if (obj != null && ownerBatchSize > 1)
+        {
+            addToOwnerBatch(ec.findObjectProvider(obj));
+        }
+
         return obj;
     }
 
+    /**
+     * Method to add the identity of a returned object to the current batch, so that a collection backing store
+     * can load a member for all objects of the batch together when the member is first accessed on one of them.
+     * Only the identities are held, so the batch doesn't keep the ObjectProviders of the other objects alive.
+     * @param op ObjectProvider of the returned object
+     */
+    private void addToOwnerBatch(ObjectProvider op)
+    {
+        if (op == null || (ownerBatch != null && op.getAssociatedValue(ASSOCIATED_VALUE_OWNER_BATCH) == ownerBatch))
+        {
+            return;
+        }
+
+        if (ownerBatch == null || ownerBatch.size() >= ownerBatchSize)
+        {
+            ownerBatch = new ArrayList<>(ownerBatchSize);
+        }
+        ownerBatch.add(op.getInternalObjectId());
+        op.setAssociatedValue(ASSOCIATED_VALUE_OWNER_BATCH, ownerBatch);
+    }
+
     /**
      * Method to lookup an object for an id, and specify its FieldValues using the ResultSet. Works for all identity types.
      * @param id The identity (DatastoreId, Application id, or SCOID when nondurable)
@@ -245,6 +245,15 @@ public class QueryToSQLMapper extends AbstractExpressionEvaluator implements Que
     JoinType defaultJoinType = null;
     JoinType defaultJoinTypeFilter = null;
 
+    /**
+     * Ordering values of the last row of the previous page when using keyset pagination (empty for the first page).
+     * Null when not using keyset pagination.
+     */
+    Object[] keysetValues = null;
+
+    /** Mapping indexes of the ordering expressions selected so the keyset for the next page can be read from the results. */
+    StatementMappingIndex[] keysetMappings = null;
+
     /**
      * State variable for whether this query is precompilable (hence whether it is cacheable).
      * Or in other words, whether we can compile it without knowing parameter values.
@@ -352,6 +361,26 @@ public class QueryToSQLMapper extends AbstractExpressionEvaluator implements Que
         this.defaultJoinTypeFilter =joinType;
     }
 
+    /**
+     * Method to use keyset (seek) pagination for this query. The ordering expressions are selected so the keyset of each row
+     * can be read from the results, and when values are supplied a predicate is added to start after the row with those values.
+     * @param values Ordering values of the last row of the previous page (empty for the first page)
+     */
+    void setKeysetValues(Object[] values)
+    {
+        this.keysetValues = values;
+    }
+
+    /**
+     * Accessor for the mapping indexes of the ordering expressions when using keyset pagination.
+     * This is only available after <pre>compile</pre> is called.
+     * @return The keyset mappings (or null if not using keyset pagination)
+     */
+    public StatementMappingIndex[] getKeysetMappings()
+    {
+        return keysetMappings;
+    }
+
     void setParentMapper(QueryToSQLMapper parent)
     {
         this.parentMapper = parent;
@@ -1276,8 +1305,72 @@ public class QueryToSQLMapper extends AbstractExpressionEvaluator implements Que
                 nullOrders[i] = orderExpr.getNullOrder();
             }
             stmt.setOrdering(orderSqlExprs, directions, nullOrders);
+            if (keysetValues != null)
+            {
+                compileKeyset(stmt, orderSqlExprs, directions);
+            }
             compileComponent = null;
         }
+        else if (keysetValues != null)
+        {
+            throw new NucleusUserException("Query uses keyset pagination but has no ordering");
+        }
+    }
+
+    /**
+     * Method to apply keyset (seek) pagination to the statement. Selects the ordering expressions so that the keyset of the
+     * last row can be read from the results, and if keyset values are provided restricts the statement to rows after them
+     * in the ordering, i.e "(a, b) &gt; (?, ?)", expanded as "a &gt; ? OR (a = ? AND b &gt; ?)" for portability.
+     * @param stmt The statement
+     * @param orderSqlExprs The ordering expressions
+     * @param directions The ordering directions (true for descending)
+     */
+    protected void compileKeyset(SelectStatement stmt, SQLExpression[] orderSqlExprs, boolean[] directions)
+    {
+        if (keysetValues.length > 0 && keysetValues.length != orderSqlExprs.length)
+        {
+            throw new NucleusUserException("Query uses keyset pagination with " + keysetValues.length + " values but has " +
+                orderSqlExprs.length + " ordering expressions");
+        }
+
+        keysetMappings = new StatementMappingIndex[orderSqlExprs.length];
+        for (int i=0;i<orderSqlExprs.length;i++)
+        {
+            if (orderSqlExprs[i] instanceof ResultAliasExpression)
+            {
+                throw new NucleusUserException("Query uses keyset pagination but orders by result alias " + orderSqlExprs[i] + " which is not supported");
+            }
+            keysetMappings[i] = new StatementMappingIndex(orderSqlExprs[i].getJavaTypeMapping());
+            keysetMappings[i].setColumnPositions(stmt.select(orderSqlExprs[i], null));
+        }
+        if (keysetValues.length == 0)
+        {
+            // First page, so nothing to seek past
+            return;
+        }
+
+        BooleanExpression seekExpr = null;
+        BooleanExpression equalsExpr = null;
+        for (int i=0;i<orderSqlExprs.length;i++)
+        {
+            if (keysetValues[i] == null)
+            {
+                throw new NucleusUserException("Query uses keyset pagination but the value for ordering expression " + i + " is null");
+            }
+            SQLExpression valueExpr = exprFactory.newLiteral(stmt, orderSqlExprs[i].getJavaTypeMapping(), keysetValues[i]);
+            BooleanExpression afterExpr = directions[i] ? orderSqlExprs[i].lt(valueExpr) : orderSqlExprs[i].gt(valueExpr);
+            if (equalsExpr != null)
+            {
+                afterExpr = equalsExpr.and(afterExpr);
+            }
+            seekExpr = (seekExpr == null) ? afterExpr : seekExpr.ior(afterExpr);
+            BooleanExpression valueEqualsExpr = orderSqlExprs[i].eq(valueExpr);
+            equalsExpr = (equalsExpr == null) ? valueEqualsExpr : equalsExpr.and(valueEqualsExpr);
+        }
+        stmt.whereAnd(seekExpr, true);
+
+        // Keyset values are included as literals
+        setNotPrecompilable();
     }
 
     /**
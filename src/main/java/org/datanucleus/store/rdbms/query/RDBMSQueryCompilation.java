@@ -25,6 +25,7 @@ import java.util.Map;
 import org.datanucleus.store.rdbms.scostore.IteratorStatement;
 import org.datanucleus.store.rdbms.sql.SQLStatement;
 import org.datanucleus.store.rdbms.sql.SQLStatementParameter;
+import org.datanucleus.store.rdbms.sql.SelectStatement;
 
 /**
  * Datastore-specific (RDBMS) compilation information for a java query.
@@ -49,6 +50,21 @@ public class RDBMSQueryCompilation
     /** Map of statements to get SCO containers that are in the fetch plan (bulk fetch). Only for SELECT queries. */
     Map<String, IteratorStatement> scoIteratorStatementByMemberName;
 
+    /** Mappings of the ordering expressions selected when using keyset pagination (can be null). Only for SELECT queries. */
+    StatementMappingIndex[] keysetMappings;
+
+    /** Statement selecting the identities of the candidates affected by a bulk UPDATE/DELETE (can be null). Only for bulk queries. */
+    SelectStatement bulkAffectedIdsStmt;
+
+    /** Result mappings for the identities selected by the bulk affected ids statement. */
+    StatementClassMapping bulkAffectedIdsDefinition;
+
+    /** Input parameter names keyed by position, for all clauses of a bulk UPDATE (can be null). Only for bulk queries. */
+    Map<Integer, String> bulkParameterNameByPosition;
+
+    /** Input parameter names keyed by position, for binding the bulk affected ids statement (can be null). */
+    Map<Integer, String> bulkAffectedIdsParameterNameByPosition;
+
     boolean precompilable = true;
 
     public class StatementCompilation
@@ -192,4 +208,46 @@ public class RDBMSQueryCompilation
     {
         return scoIteratorStatementByMemberName;
     }
+
+    public void setKeysetMappings(StatementMappingIndex[] mappings)
+    {
+        this.keysetMappings = mappings;
+    }
+
+    public StatementMappingIndex[] getKeysetMappings()
+    {
+        return keysetMappings;
+    }
+
+    public void setBulkParameterNameByPosition(Map<Integer, String> paramNameByPos)
+    {
+        this.bulkParameterNameByPosition = paramNameByPos;
+    }
+
+    public Map<Integer, String> getBulkParameterNameByPosition()
+    {
+        return bulkParameterNameByPosition;
+    }
+
+    public void setBulkAffectedIdsStatement(SelectStatement stmt, StatementClassMapping def, Map<Integer, String> paramNameByPos)
+    {
+        this.bulkAffectedIdsStmt = stmt;
+        this.bulkAffectedIdsDefinition = def;
+        this.bulkAffectedIdsParameterNameByPosition = paramNameByPos;
+    }
+
+    public SelectStatement getBulkAffectedIdsStatement()
+    {
+        return bulkAffectedIdsStmt;
+    }
+
+    public StatementClassMapping getBulkAffectedIdsDefinition()
+    {
+        return bulkAffectedIdsDefinition;
+    }
+
+    public Map<Integer, String> getBulkAffectedIdsParameterNameByPosition()
+    {
+        return bulkAffectedIdsParameterNameByPosition;
+    }
 }
\ No newline at end of file
@@ -23,8 +23,11 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.datanucleus.ClassLoaderResolver;
@@ -32,6 +35,7 @@ import org.datanucleus.ExecutionContext;
 import org.datanucleus.Configuration;
 import org.datanucleus.exceptions.NucleusException;
 import org.datanucleus.exceptions.NucleusUserException;
+import org.datanucleus.identity.IdentityUtils;
 import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.metadata.DiscriminatorMetaData;
 import org.datanucleus.metadata.DiscriminatorStrategy;
@@ -46,11 +50,14 @@ import org.datanucleus.store.query.Query;
 import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
+import org.datanucleus.store.rdbms.fieldmanager.ResultSetGetter;
 import org.datanucleus.store.rdbms.sql.DiscriminatorStatementGenerator;
 import org.datanucleus.store.rdbms.sql.SQLStatement;
+import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
 import org.datanucleus.store.rdbms.sql.SelectStatement;
 import org.datanucleus.store.rdbms.sql.SelectStatementGenerator;
 import org.datanucleus.store.rdbms.sql.UnionStatementGenerator;
+import org.datanucleus.store.rdbms.sql.expression.CollectionLiteral;
 import org.datanucleus.store.rdbms.sql.expression.StringLiteral;
 import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.schema.table.SurrogateColumnType;
@@ -149,6 +156,261 @@ public class RDBMSQueryUtils extends QueryUtils
         return rsConcurrencyString;
     }
 
+    /**
+     * Convenience method to return the suffix to add to the query cache key when the elements of collection parameters are bound as
+     * parameters padded to a bucket size (see CollectionLiteral), since the SQL then depends on the bucket size and element type of
+     * each collection parameter value.
+     * @param storeMgr RDBMS StoreManager
+     * @param parameterValues The parameter values, keyed by name/position
+     * @return The suffix for the query cache key (empty if not needed)
+     */
+    public static String getCollectionParameterCacheKey(RDBMSStoreManager storeMgr, Map parameterValues)
+    {
+        if (parameterValues == null || !storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_COLLECTION_PARAMETER_BUCKETING))
+        {
+            return "";
+        }
+
+        List<String> keys = null;
+        Iterator<Map.Entry> paramIter = parameterValues.entrySet().iterator();
+        while (paramIter.hasNext())
+        {
+            Map.Entry paramEntry = paramIter.next();
+            if (paramEntry.getValue() instanceof Collection)
+            {
+                Collection coll = (Collection)paramEntry.getValue();
+                Class elementCls = null;
+                for (Object element : coll)
+                {
+                    Class cls = (element != null) ? element.getClass() : null;
+                    if (elementCls != null && cls != elementCls)
+                    {
+                        // Mixed (or null) elements are always included as literals
+                        elementCls = Object.class;
+                        break;
+                    }
+                    elementCls = cls;
+                }
+                if (keys == null)
+                {
+                    keys = new ArrayList<>();
+                }
+                keys.add(paramEntry.getKey() + "=" + (coll.isEmpty() ? 0 : CollectionLiteral.getElementParameterBucketSize(coll.size())) + ":" +
+                    (elementCls != null ? elementCls.getName() : ""));
+            }
+        }
+        if (keys == null)
+        {
+            return "";
+        }
+
+        Collections.sort(keys);
+        return " " + keys;
+    }
+
+    /**
+     * Convenience method to return the ordering values to seek past when using keyset pagination, from the value of the
+     * keyset extension. This is either the ordering values of the last row of the previous page (Object[] or List), or "true"
+     * for the first page.
+     * @param keysetExt Value of the keyset extension
+     * @return The ordering values (empty for the first page), or null if not using keyset pagination
+     */
+    public static Object[] getKeysetValues(Object keysetExt)
+    {
+        if (keysetExt instanceof Object[])
+        {
+            return (Object[])keysetExt;
+        }
+        else if (keysetExt instanceof Collection)
+        {
+            return ((Collection)keysetExt).toArray();
+        }
+        else if (keysetExt instanceof Boolean || keysetExt instanceof String)
+        {
+            return Boolean.valueOf(keysetExt.toString()) ? new Object[0] : null;
+        }
+        return null;
+    }
+
+    /**
+     * Convenience method to check that keyset pagination, when used by the query, is supported by the type of its results.
+     * Only forward-only results track the keyset of the last row read (see AbstractRDBMSQueryResult.getKeyset).
+     * @param query The query
+     * @param keysetExt Value of the keyset extension
+     * @throws NucleusUserException if using keyset pagination with scrollable results
+     */
+    public static void checkKeysetForQuery(Query query, Object keysetExt)
+    {
+        if (getKeysetValues(keysetExt) != null && !getResultSetTypeForQuery(query).equals(QUERY_RESULTSET_TYPE_FORWARD_ONLY))
+        {
+            throw new NucleusUserException("Keyset pagination is not supported with a result set type of " + getResultSetTypeForQuery(query) +
+                ", only " + QUERY_RESULTSET_TYPE_FORWARD_ONLY);
+        }
+    }
+
+    /**
+     * Convenience method to return the suffix to add to the query cache key when using keyset pagination, since the ordering
+     * expressions are then selected. After the first page the statement also restricts to rows after the seek values, which are
+     * included as literals (so that statement is never cached), so it must not find the compilation of the first page.
+     * @param keysetExt Value of the keyset extension
+     * @return The suffix for the query cache key (empty if not using keyset pagination)
+     */
+    public static String getKeysetCacheKey(Object keysetExt)
+    {
+        Object[] keysetValues = getKeysetValues(keysetExt);
+        if (keysetValues == null)
+        {
+            return "";
+        }
+        return (keysetValues.length == 0) ? " KEYSET" : " KEYSET SEEK";
+    }
+
+    /**
+     * Convenience method to return whether the results of the specified query should be streamed using a server-side cursor.
+     * Takes the query extension if set, otherwise the persistence property.
+     * @param query The query
+     * @return Whether to stream the results
+     */
+    public static boolean useStreamingForQuery(Query query)
+    {
+        Object streamExt = query.getExtension(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_STREAM_RESULTS);
+        if (streamExt != null)
+        {
+            return Boolean.valueOf(streamExt.toString());
+        }
+        return ((RDBMSStoreManager)query.getStoreManager()).getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_STREAM_RESULTS);
+    }
+
+    /**
+     * Convenience method to find the identities of the objects that a bulk UPDATE/DELETE will affect, using the statement selecting the
+     * identities of the candidates with the same filter. Must be called before executing the bulk statement(s), and in the same transaction.
+     * Identities are generated for the candidate and each of its concrete subclasses, since the identity of a cached object depends
+     * on its actual type.
+     * @param ec ExecutionContext
+     * @param mconn Managed Connection
+     * @param datastoreCompilation Compilation of the bulk query, with the affected ids statement
+     * @param parameters Parameter values for the query
+     * @param candidateCmd Metadata for the candidate class
+     * @param subclasses Whether the query includes subclasses of the candidate
+     * @return The identities of the affected objects, or null if more than PROPERTY_RDBMS_QUERY_BULK_EVICTION_LIMIT
+     * @throws SQLException Thrown if an error occurs selecting the identities
+     */
+    public static Collection<Object> getBulkAffectedIds(ExecutionContext ec, ManagedConnection mconn, RDBMSQueryCompilation datastoreCompilation,
+            Map parameters, AbstractClassMetaData candidateCmd, boolean subclasses)
+    throws SQLException
+    {
+        RDBMSStoreManager storeMgr = (RDBMSStoreManager)ec.getStoreManager();
+        ClassLoaderResolver clr = ec.getClassLoaderResolver();
+        int limit = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_BULK_EVICTION_LIMIT);
+
+        List<AbstractClassMetaData> cmds = new ArrayList<>();
+        if (!candidateCmd.isAbstract())
+        {
+            cmds.add(candidateCmd);
+        }
+        if (subclasses)
+        {
+            Collection<String> subclassNames = storeMgr.getSubClassesForClass(candidateCmd.getFullClassName(), true, clr);
+            if (subclassNames != null)
+            {
+                for (String subclassName : subclassNames)
+                {
+                    AbstractClassMetaData subCmd = storeMgr.getMetaDataManager().getMetaDataForClass(subclassName, clr);
+                    if (subCmd != null && !subCmd.isAbstract())
+                    {
+                        cmds.add(subCmd);
+                    }
+                }
+            }
+        }
+
+        SelectStatement idStmt = datastoreCompilation.getBulkAffectedIdsStatement();
+        StatementClassMapping idDefinition = datastoreCompilation.getBulkAffectedIdsDefinition();
+        String idSQL = idStmt.getSQLText().toSQL();
+        SQLController sqlControl = storeMgr.getSQLController();
+        PreparedStatement ps = sqlControl.getStatementForQuery(mconn, idSQL);
+        try
+        {
+            SQLStatementHelper.applyParametersToStatement(ps, ec, idStmt.getSQLText().getParametersForStatement(),
+                datastoreCompilation.getBulkAffectedIdsParameterNameByPosition(), parameters);
+            ps.setMaxRows(limit + 1);
+
+            ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, idSQL, ps);
+            try
+            {
+                Set<Object> ids = new HashSet<>();
+                ResultSetGetter rsGetter = new ResultSetGetter(ec, rs, idDefinition, candidateCmd);
+                int numRows = 0;
+                while (rs.next())
+                {
+                    numRows++;
+                    if (numRows > limit)
+                    {
+                        // Too many to evict individually
+                        return null;
+                    }
+
+                    if (!addIdsForResultSetRow(ec, rs, rsGetter, idDefinition, candidateCmd, cmds, ids))
+                    {
+                        // Nondurable objects have no identity to evict by
+                        return null;
+                    }
+                }
+                return ids;
+            }
+            finally
+            {
+                rs.close();
+            }
+        }
+        finally
+        {
+            sqlControl.closeStatement(mconn, ps);
+        }
+    }
+
+    /**
+     * Method to add the identities represented by the current row of the provided ResultSet, where the row has the identity
+     * of the candidate selected (see SQLStatementHelper.selectIdentityOfCandidateInStatement). Since the row doesn't define which
+     * class the object is of, the identity for each of the specified classes is added.
+     * @param ec ExecutionContext
+     * @param rs The ResultSet, positioned at the row
+     * @param rsGetter ResultSetGetter for the ResultSet
+     * @param idDefinition Definition of the identity columns in the ResultSet
+     * @param candidateCmd Metadata for the candidate class
+     * @param cmds Metadata for the classes that the object could be of
+     * @param ids The identities to add to
+     * @return Whether the identities could be determined (false for nondurable identity)
+     */
+    public static boolean addIdsForResultSetRow(ExecutionContext ec, ResultSet rs, ResultSetGetter rsGetter, StatementClassMapping idDefinition,
+            AbstractClassMetaData candidateCmd, Collection<AbstractClassMetaData> cmds, Collection<Object> ids)
+    {
+        if (candidateCmd.getIdentityType() == IdentityType.APPLICATION)
+        {
+            ClassLoaderResolver clr = ec.getClassLoaderResolver();
+            for (AbstractClassMetaData cmd : cmds)
+            {
+                ids.add(IdentityUtils.getApplicationIdentityForResultSetRow(ec, cmd, clr.classForName(cmd.getFullClassName()), false, rsGetter));
+            }
+            return true;
+        }
+        else if (candidateCmd.getIdentityType() == IdentityType.DATASTORE)
+        {
+            StatementMappingIndex datastoreIdMapIdx = idDefinition.getMappingForMemberPosition(SurrogateColumnType.DATASTORE_ID.getFieldNumber());
+            Object id = datastoreIdMapIdx.getMapping().getObject(ec, rs, datastoreIdMapIdx.getColumnPositions());
+            if (id != null)
+            {
+                Object key = IdentityUtils.getTargetKeyForDatastoreIdentity(id);
+                for (AbstractClassMetaData cmd : cmds)
+                {
+                    ids.add(ec.getNucleusContext().getIdentityManager().getDatastoreId(cmd.getFullClassName(), key));
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Convenience method to return if the specified query should use an "UPDATE" lock on returned objects.
      * First checks whether serializeRead is set on the query and, if not, falls back to the setting for the class.
@@ -252,7 +514,19 @@ public class RDBMSQueryUtils extends QueryUtils
             // FetchPlan has a size set so use that
             fetchSize = query.getFetchPlan().getFetchSize();
         }
-        if (((RDBMSStoreManager)query.getStoreManager()).getDatastoreAdapter().supportsQueryFetchSize(fetchSize))
+        DatastoreAdapter dba = ((RDBMSStoreManager)query.getStoreManager()).getDatastoreAdapter();
+        if (useStreamingForQuery(query))
+        {
+            if (dba.supportsOption(DatastoreAdapter.STREAMING_REQUIRES_NON_AUTOCOMMIT) && ps.getConnection().getAutoCommit())
+            {
+                NucleusLogger.QUERY.debug("Query results requested to be streamed, but the JDBC driver doesn't stream when in auto-commit mode so ignoring");
+            }
+            else
+            {
+                fetchSize = dba.getStreamingFetchSize(fetchSize);
+            }
+        }
+        if (dba.supportsQueryFetchSize(fetchSize))
         {
             ps.setFetchSize(fetchSize);
         }
@@ -505,6 +779,10 @@ public class RDBMSQueryUtils extends QueryUtils
                 else
                 {
                     stmt.union(tblStmt);
+                    if (tblStmt.getValueForExtension(SQLStatement.EXTENSION_EMPTY_TABLES_OMITTED) != null)
+                    {
+                        stmt.addExtension(SQLStatement.EXTENSION_EMPTY_TABLES_OMITTED, Boolean.TRUE);
+                    }
                 }
             }
         }
@@ -35,7 +35,6 @@ import org.datanucleus.ExecutionContext;
 import org.datanucleus.PropertyNames;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
-import org.datanucleus.exceptions.NucleusOptimisticException;
 import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.metadata.AbstractMemberMetaData;
 import org.datanucleus.metadata.ForeignKeyMetaData;
@@ -58,6 +57,7 @@ import org.datanucleus.store.rdbms.query.StatementMappingIndex;
 import org.datanucleus.store.rdbms.table.Column;
 import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.schema.table.SurrogateColumnType;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.fieldmanager.ParameterSetter;
@@ -82,6 +82,12 @@ public class DeleteRequest extends Request
     /** Statement for soft-deleting the object from the datastore. */
     private final String softDeleteStmt;
 
+    /** Identity column(s) in the WHERE clause of the (non-optimistic) delete statement. */
+    private final List<String> whereIdColumns;
+
+    /** Input parameter(s) for the identity column(s) in the WHERE clause of the (non-optimistic) delete statement. */
+    private final List<String> whereIdParameters;
+
     /** the index for the expression(s) in the delete statement. */
     private StatementMappingDefinition mappingStatementIndex;
 
@@ -144,6 +150,8 @@ public class DeleteRequest extends Request
 
         // Basic delete statement
         deleteStmt = consumer.getStatement();
+        whereIdColumns = new ArrayList<>(consumer.whereColumns);
+        whereIdParameters = new ArrayList<>(consumer.whereParameters);
 
         // Add on the optimistic discriminator (if appropriate) to get the delete statement for optimistic txns
         if (versionMetaData != null)
@@ -187,57 +195,7 @@ public class DeleteRequest extends Request
         }
 
         // Process all related fields first
-        // a). Delete any dependent objects
-        // b). Null any non-dependent objects with FK at other side
-        ClassLoaderResolver clr = op.getExecutionContext().getClassLoaderResolver();
-        Set relatedObjectsToDelete = null;
-        for (int i = 0; i < callbacks.length; ++i)
-        {
-            if (NucleusLogger.PERSISTENCE.isDebugEnabled())
-            {
-                NucleusLogger.PERSISTENCE.debug(Localiser.msg("052212", op.getObjectAsPrintable(), ((JavaTypeMapping)callbacks[i]).getMemberMetaData().getFullFieldName()));
-            }
-            callbacks[i].preDelete(op);
-
-            // Check for any dependent related 1-1 objects where we hold the FK and where the object hasn't been deleted. 
-            // This can happen if this DeleteRequest was triggered by delete-orphans and so the related object has to be deleted *after* this object.
-            // It's likely we could do this better by using AttachFieldManager and just marking the "orphan" (i.e this object) as deleted 
-            // (see AttachFieldManager TODO regarding when not copying)
-            JavaTypeMapping mapping = (JavaTypeMapping) callbacks[i];
-            AbstractMemberMetaData mmd = mapping.getMemberMetaData();
-            RelationType relationType = mmd.getRelationType(clr);
-            if (mmd.isDependent() && (relationType == RelationType.ONE_TO_ONE_UNI || (relationType == RelationType.ONE_TO_ONE_BI && mmd.getMappedBy() == null)))
-            {
-                try
-                {
-                    op.isLoaded(mmd.getAbsoluteFieldNumber());
-                    Object relatedPc = op.provideField(mmd.getAbsoluteFieldNumber());
-                    boolean relatedObjectDeleted = op.getExecutionContext().getApiAdapter().isDeleted(relatedPc);
-                    if (!relatedObjectDeleted)
-                    {
-                        if (relatedObjectsToDelete == null)
-                        {
-                            relatedObjectsToDelete = new HashSet();
-                        }
-                        relatedObjectsToDelete.add(relatedPc);
-                    }
-                }
-                catch (Exception e) // Should be XXXObjectNotFoundException but dont want to use JDO class
-                {
-                }
-            }
-        }
-
-        // TODO Most of this is handled by PersistableMapping/ReferenceMapping.preDelete so should look to delete this
-        // and cater for other cases, in particular persistent interfaces
-        if (oneToOneNonOwnerFields != null && oneToOneNonOwnerFields.length > 0)
-        {
-            for (int i=0;i<oneToOneNonOwnerFields.length;i++)
-            {
-                AbstractMemberMetaData relatedFmd = oneToOneNonOwnerFields[i];
-                updateOneToOneBidirectionalOwnerObjectForField(op, relatedFmd);
-            }
-        }
+        Set relatedObjectsToDelete = processRelatedFieldsForDelete(op, null);
 
         // Choose the statement based on whether optimistic or not
         String stmt = null;
@@ -271,10 +229,11 @@ public class DeleteRequest extends Request
             {
                 // Perform the delete
                 boolean batch = true;
-                if (optimisticChecks || !ec.getTransaction().isActive())
+                if ((optimisticChecks && (!storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_BATCH_VERSION_CHECKS) || !sqlControl.isBatchUpdateCountReported())) ||
+                    !ec.getTransaction().isActive())
                 {
-                    // Turn OFF batching if doing optimistic checks (since we need the result of the delete)
-                    // or if using nontransactional writes (since we want it sending to the datastore now)
+                    // Turn OFF batching if doing optimistic checks (since we need the result of the delete) unless checking on processing of the batch
+                    // (and the driver reports the update counts of a batch), or if using nontransactional writes (since we want it sending to the datastore now)
                     batch = false;
                 }
 
@@ -329,12 +288,8 @@ public class DeleteRequest extends Request
                         }
                     }
 
-                    int[] rcs = sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, !batch);
-                    if (optimisticChecks && rcs[0] == 0)
-                    {
-                        // No object deleted so either object disappeared or failed optimistic version checks
-                        throw new NucleusOptimisticException(Localiser.msg("052203", op.getObjectAsPrintable(), op.getInternalObjectId(), "" + op.getTransactionalVersion()), op.getObject());
-                    }
+                    // Check that the object was deleted, else either object disappeared or failed optimistic version checks
+                    sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, !batch, optimisticChecks ? new OptimisticUpdateCountCheck(op, op.getTransactionalVersion()) : null);
 
                     if (relatedObjectsToDelete != null && !relatedObjectsToDelete.isEmpty())
                     {
@@ -371,6 +326,267 @@ public class DeleteRequest extends Request
         }
     }
 
+    /**
+     * Method performing the deletion of the records of several objects (of the same class) from the datastore.
+     * Where no row count is needed for each object, deletes the records with a statement per chunk of objects, of the form
+     * <pre>DELETE FROM TBL WHERE ID IN (?,?,...)</pre>
+     * (or <i>(ID1=? AND ID2=?) OR (...)</i> for a composite identity). Otherwise deletes each object in turn.
+     * @param ops ObjectProviders for the records to be deleted
+     */
+    public void execute(List<ObjectProvider> ops)
+    {
+        ExecutionContext ec = ops.get(0).getExecutionContext();
+        if (ops.size() == 1 || !supportsBulkDelete(ec))
+        {
+            // Optimistic checks need the row count of each delete, and soft-delete/multitenancy are not handled in bulk
+            for (ObjectProvider op : ops)
+            {
+                execute(op);
+            }
+            return;
+        }
+
+        // Process all related fields first
+        Set relatedObjectsToDelete = null;
+        for (ObjectProvider op : ops)
+        {
+            if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+            {
+                NucleusLogger.PERSISTENCE.debug(Localiser.msg("052210", op.getObjectAsPrintable(), table));
+            }
+            relatedObjectsToDelete = processRelatedFieldsForDelete(op, relatedObjectsToDelete);
+        }
+
+        RDBMSStoreManager storeMgr = table.getStoreManager();
+        int numIdParams = whereIdColumns.size();
+        int chunkSize = Math.max(1, storeMgr.getDatastoreAdapter().getMaxParametersPerStatement() / numIdParams);
+        String stmt = null;
+        try
+        {
+            ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+            SQLController sqlControl = storeMgr.getSQLController();
+            try
+            {
+                for (int start=0;start<ops.size();start+=chunkSize)
+                {
+                    List<ObjectProvider> chunkOPs = ops.subList(start, Math.min(start+chunkSize, ops.size()));
+                    stmt = getBulkDeleteStatement(chunkOPs.size());
+                    PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, stmt, false);
+                    try
+                    {
+                        int paramOffset = 0;
+                        for (ObjectProvider op : chunkOPs)
+                        {
+                            populateIdentityInStatement(op, ps, paramOffset);
+                            paramOffset += numIdParams;
+                        }
+
+                        sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, true);
+                    }
+                    finally
+                    {
+                        sqlControl.closeStatement(mconn, ps);
+                    }
+                }
+
+                if (relatedObjectsToDelete != null && !relatedObjectsToDelete.isEmpty())
+                {
+                    // Delete any related objects that need deleting after the delete of these objects
+                    Iterator iter = relatedObjectsToDelete.iterator();
+                    while (iter.hasNext())
+                    {
+                        Object relatedObject = iter.next();
+                        ec.deleteObjectInternal(relatedObject);
+                    }
+                }
+            }
+            finally
+            {
+                mconn.release();
+            }
+        }
+        catch (SQLException e)
+        {
+            String msg = Localiser.msg("052211", ops.get(0).getObjectAsPrintable(), stmt, e.getMessage());
+            NucleusLogger.DATASTORE_PERSIST.warn(msg);
+            List exceptions = new ArrayList();
+            exceptions.add(e);
+            while((e = e.getNextException())!=null)
+            {
+                exceptions.add(e);
+            }
+            throw new NucleusDataStoreException(msg, (Throwable[])exceptions.toArray(new Throwable[exceptions.size()]));
+        }
+    }
+
+    /**
+     * Accessor for whether objects can be deleted from this table using a single statement for several objects.
+     * This is not the case where we need the row count of each delete (optimistic version checks), nor with soft-delete
+     * or multitenancy.
+     * @param ec ExecutionContext
+     * @return Whether bulk deletion is supported
+     */
+    public boolean supportsBulkDelete(ExecutionContext ec)
+    {
+        if (softDeleteStmt != null || multitenancyStatementMapping != null || whereIdColumns.isEmpty())
+        {
+            return false;
+        }
+        if (cmd.getIdentityType() != IdentityType.DATASTORE && cmd.getIdentityType() != IdentityType.APPLICATION)
+        {
+            return false;
+        }
+        return !(versionMetaData != null && ec.getTransaction().getOptimistic() && versionChecks);
+    }
+
+    /**
+     * Method to return the statement to delete the specified number of objects.
+     * @param numObjects Number of objects
+     * @return The statement
+     */
+    private String getBulkDeleteStatement(int numObjects)
+    {
+        StringBuilder stmt = new StringBuilder("DELETE FROM ").append(table.toString()).append(" WHERE ");
+        if (whereIdColumns.size() == 1)
+        {
+            stmt.append(whereIdColumns.get(0)).append(" IN (");
+            for (int i=0;i<numObjects;i++)
+            {
+                if (i > 0)
+                {
+                    stmt.append(",");
+                }
+                stmt.append(whereIdParameters.get(0));
+            }
+            stmt.append(")");
+        }
+        else
+        {
+            for (int i=0;i<numObjects;i++)
+            {
+                if (i > 0)
+                {
+                    stmt.append(" OR ");
+                }
+                stmt.append("(");
+                for (int j=0;j<whereIdColumns.size();j++)
+                {
+                    if (j > 0)
+                    {
+                        stmt.append(" AND ");
+                    }
+                    stmt.append(whereIdColumns.get(j)).append("=").append(whereIdParameters.get(j));
+                }
+                stmt.append(")");
+            }
+        }
+        return stmt.toString();
+    }
+
+    /**
+     * Method to set the identity of the object in the statement, with its parameters starting after the specified offset.
+     * @param op ObjectProvider for the object
+     * @param ps The statement
+     * @param paramOffset Number of parameters before those of this object
+     */
+    private void populateIdentityInStatement(ObjectProvider op, PreparedStatement ps, int paramOffset)
+    {
+        if (cmd.getIdentityType() == IdentityType.DATASTORE)
+        {
+            int[] positions = mappingStatementIndex.getWhereDatastoreId().getParameterPositionsForOccurrence(0);
+            table.getSurrogateMapping(SurrogateColumnType.DATASTORE_ID, false).setObject(op.getExecutionContext(), ps, offsetPositions(positions, paramOffset), op.getInternalObjectId());
+        }
+        else
+        {
+            StatementClassMapping mappingDefinition = new StatementClassMapping();
+            StatementMappingIndex[] idxs = mappingStatementIndex.getWhereFields();
+            for (int i=0;i<idxs.length;i++)
+            {
+                if (idxs[i] != null)
+                {
+                    StatementMappingIndex idx = new StatementMappingIndex(idxs[i].getMapping());
+                    idx.addParameterOccurrence(offsetPositions(idxs[i].getParameterPositionsForOccurrence(0), paramOffset));
+                    mappingDefinition.addMappingForMember(i, idx);
+                }
+            }
+            op.provideFields(whereFieldNumbers, new ParameterSetter(op, ps, mappingDefinition));
+        }
+    }
+
+    private static int[] offsetPositions(int[] positions, int offset)
+    {
+        int[] newPositions = new int[positions.length];
+        for (int i=0;i<positions.length;i++)
+        {
+            newPositions[i] = positions[i] + offset;
+        }
+        return newPositions;
+    }
+
+    /**
+     * Method to process the related fields of the object being deleted.
+     * <ol>
+     * <li>Delete any dependent objects</li>
+     * <li>Null any non-dependent objects with FK at other side</li>
+     * </ol>
+     * @param op ObjectProvider for the object being deleted
+     * @param relatedObjectsToDelete Set of related objects to delete after this object (or null)
+     * @return Related objects to delete after this object (or null if none)
+     */
+    private Set processRelatedFieldsForDelete(ObjectProvider op, Set relatedObjectsToDelete)
+    {
+        ClassLoaderResolver clr = op.getExecutionContext().getClassLoaderResolver();
+        for (int i = 0; i < callbacks.length; ++i)
+        {
+            if (NucleusLogger.PERSISTENCE.isDebugEnabled())
+            {
+                NucleusLogger.PERSISTENCE.debug(Localiser.msg("052212", op.getObjectAsPrintable(), ((JavaTypeMapping)callbacks[i]).getMemberMetaData().getFullFieldName()));
+            }
+            callbacks[i].preDelete(op);
+
+            // Check for any dependent related 1-1 objects where we hold the FK and where the object hasn't been deleted. 
+            // This can happen if this DeleteRequest was triggered by delete-orphans and so the related object has to be deleted *after* this object.
+            // It's likely we could do this better by using AttachFieldManager and just marking the "orphan" (i.e this object) as deleted 
+            // (see AttachFieldManager TODO regarding when not copying)
+            JavaTypeMapping mapping = (JavaTypeMapping) callbacks[i];
+            AbstractMemberMetaData mmd = mapping.getMemberMetaData();
+            RelationType relationType = mmd.getRelationType(clr);
+            if (mmd.isDependent() && (relationType == RelationType.ONE_TO_ONE_UNI || (relationType == RelationType.ONE_TO_ONE_BI && mmd.getMappedBy() == null)))
+            {
+                try
+                {
+                    op.isLoaded(mmd.getAbsoluteFieldNumber());
+                    Object relatedPc = op.provideField(mmd.getAbsoluteFieldNumber());
+                    boolean relatedObjectDeleted = op.getExecutionContext().getApiAdapter().isDeleted(relatedPc);
+                    if (!relatedObjectDeleted)
+                    {
+                        if (relatedObjectsToDelete == null)
+                        {
+                            relatedObjectsToDelete = new HashSet();
+                        }
+                        relatedObjectsToDelete.add(relatedPc);
+                    }
+                }
+                catch (Exception e) // Should be XXXObjectNotFoundException but dont want to use JDO class
+                {
+                }
+            }
+        }
+
+        // TODO Most of this is handled by PersistableMapping/ReferenceMapping.preDelete so should look to delete this
+        // and cater for other cases, in particular persistent interfaces
+        if (oneToOneNonOwnerFields != null && oneToOneNonOwnerFields.length > 0)
+        {
+            for (int i=0;i<oneToOneNonOwnerFields.length;i++)
+            {
+                AbstractMemberMetaData relatedFmd = oneToOneNonOwnerFields[i];
+                updateOneToOneBidirectionalOwnerObjectForField(op, relatedFmd);
+            }
+        }
+
+        return relatedObjectsToDelete;
+    }
+
     /**
      * Method to update any 1-1 bidir non-owner fields where the foreign-key is stored in the other object.
      * @param op ObjectProvider of this object
@@ -521,6 +737,12 @@ public class DeleteRequest extends Request
         /** Current parameter index. */
         int paramIndex = 1;
 
+        /** Columns in the WHERE clause, in parameter order. */
+        List<String> whereColumns = new ArrayList<>();
+
+        /** Input parameters for the columns in the WHERE clause, in parameter order. */
+        List<String> whereParameters = new ArrayList<>();
+
         /** WHERE clause field numbers to use in identifying the record to delete. */
         private List whereFields = new ArrayList();
 
@@ -616,6 +838,8 @@ public class DeleteRequest extends Request
                             where.append(m.getColumnMapping(j).getColumn().getIdentifier());
                             where.append("="); 
                             where.append(m.getColumnMapping(j).getUpdateInputParameter());
+                            whereColumns.add(m.getColumnMapping(j).getColumn().getIdentifier().toString());
+                            whereParameters.add(m.getColumnMapping(j).getUpdateInputParameter());
 
                             if (!whereFields.contains(abs_field_num))
                             {
@@ -678,6 +902,8 @@ public class DeleteRequest extends Request
                 where.append(m.getColumnMapping(0).getColumn().getIdentifier().toString());
                 where.append("=");
                 where.append(m.getColumnMapping(0).getUpdateInputParameter());
+                whereColumns.add(m.getColumnMapping(0).getColumn().getIdentifier().toString());
+                whereParameters.add(m.getColumnMapping(0).getUpdateInputParameter());
 
                 StatementMappingIndex datastoreMappingIdx = new StatementMappingIndex(m);
                 mappingStatementIndex.setWhereDatastoreId(datastoreMappingIdx);
@@ -61,6 +61,7 @@ import org.datanucleus.store.rdbms.mapping.java.PersistableMapping;
 import org.datanucleus.store.rdbms.mapping.java.ReferenceMapping;
 import org.datanucleus.store.rdbms.query.StatementClassMapping;
 import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
@@ -194,6 +195,13 @@ public class InsertRequest extends Request
             // No identity, no persistence-by-reachability and no external FKs so should be safe to batch this
             batch = true;
         }
+        else if (!hasIdentityColumn && externalFKStmtMappings == null &&
+            table.getStoreManager().getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_FLUSH_REFERENTIAL))
+        {
+            // Related objects are flushed in foreign-key order, and any object persisted by reachability is inserted
+            // immediately (not batched) while this statement is being populated, so should be safe to batch this
+            batch = true;
+        }
     }
 
     /**
@@ -237,6 +245,12 @@ public class InsertRequest extends Request
             // Set the state to "inserting" (may already be at this state if multiple inheritance level INSERT)
             op.changeActivityState(ActivityState.INSERTING);
 
+            if (storeMgr.getTableRowStatistics() != null)
+            {
+                // Table will have rows, so mustn't be omitted from queries
+                storeMgr.getTableRowStatistics().markNotEmpty(table);
+            }
+
             SQLController sqlControl = storeMgr.getSQLController();
             ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
             try
@@ -0,0 +1,71 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.request;
+
+import java.sql.Statement;
+
+import org.datanucleus.exceptions.NucleusOptimisticException;
+import org.datanucleus.state.ObjectProvider;
+import org.datanucleus.store.rdbms.SQLController;
+import org.datanucleus.util.Localiser;
+import org.datanucleus.util.NucleusLogger;
+
+/**
+ * Check on the update count of a version-checked UPDATE/DELETE of an object, throwing a NucleusOptimisticException
+ * when no row was affected (the object was either deleted or updated by another process).
+ * Allows the statement to be batched, with the check made when the batch is processed.
+ * Where the driver doesn't report the count for statements in a batch the check cannot be made, so is skipped (and SQLController
+ * then stops such statements being batched).
+ */
+class OptimisticUpdateCountCheck implements SQLController.UpdateCountCheck
+{
+    private final ObjectProvider op;
+
+    private final Object version;
+
+    /**
+     * Constructor.
+     * @param op ObjectProvider of the object being updated/deleted
+     * @param version The version that the statement is checking against
+     */
+    OptimisticUpdateCountCheck(ObjectProvider op, Object version)
+    {
+        this.op = op;
+        this.version = version;
+    }
+
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.SQLController.UpdateCountCheck#checkUpdateCount(int)
+     */
+    @Override
+    public void checkUpdateCount(int updateCount)
+    {
+        if (updateCount == 0 || updateCount == Statement.EXECUTE_FAILED)
+        {
+            // No object updated so either object disappeared or failed optimistic version checks
+            throw new NucleusOptimisticException(Localiser.msg("052203", op.getObjectAsPrintable(), op.getInternalObjectId(), "" + version), op.getObject());
+        }
+        else if (updateCount == Statement.SUCCESS_NO_INFO)
+        {
+            if (NucleusLogger.DATASTORE_PERSIST.isDebugEnabled())
+            {
+                NucleusLogger.DATASTORE_PERSIST.debug("Unable to check version of " + op.getObjectAsPrintable() + " since the JDBC driver didn't return the update count for the batch");
+            }
+        }
+    }
+}
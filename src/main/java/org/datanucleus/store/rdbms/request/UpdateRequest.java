@@ -35,7 +35,6 @@ import org.datanucleus.ExecutionContext;
 import org.datanucleus.exceptions.NotYetFlushedException;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
-import org.datanucleus.exceptions.NucleusOptimisticException;
 import org.datanucleus.metadata.AbstractClassMetaData;
 import org.datanucleus.metadata.AbstractMemberMetaData;
 import org.datanucleus.metadata.ColumnMetaData;
@@ -46,6 +45,7 @@ import org.datanucleus.metadata.VersionStrategy;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.connection.ManagedConnection;
 import org.datanucleus.store.fieldmanager.FieldManager;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.fieldmanager.OldValueParameterSetter;
@@ -292,12 +292,15 @@ public class UpdateRequest extends Request
 
             RDBMSStoreManager storeMgr = table.getStoreManager();
 
-            boolean batch = false;
-            // TODO Set the batch flag based on whether we have no other SQL being invoked in here just our UPDATE
+            SQLController sqlControl = storeMgr.getSQLController();
+
+            // Batch a version-checked UPDATE when enabled, with the version check made when the batch is processed.
+            // Any other SQL invoked in here (or after) will process the batch first, so preserving the order of statements
+            boolean batch = optimisticChecks && storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_BATCH_VERSION_CHECKS) &&
+                ec.getTransaction().isActive() && sqlControl.isBatchUpdateCountReported();
             try
             {
                 ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
-                SQLController sqlControl = storeMgr.getSQLController();
 
                 try
                 {
@@ -413,13 +416,8 @@ public class UpdateRequest extends Request
                             }
                         }
 
-                        int[] rcs = sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, !batch);
-                        if (rcs[0] == 0 && optimisticChecks)
-                        {
-                            // No object updated so either object disappeared or failed optimistic version checks
-                            // TODO Batching : when we use batching here we need to process these somehow
-                            throw new NucleusOptimisticException(Localiser.msg("052203", op.getObjectAsPrintable(), op.getInternalObjectId(), "" + currentVersion), op.getObject());
-                        }
+                        // Check that the object was updated, else either object disappeared or failed optimistic version checks
+                        sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, !batch, optimisticChecks ? new OptimisticUpdateCountCheck(op, currentVersion) : null);
                     }
                     finally
                     {
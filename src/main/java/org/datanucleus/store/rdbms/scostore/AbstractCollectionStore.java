@@ -22,10 +22,17 @@ import java.lang.reflect.Modifier;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
+import org.datanucleus.Transaction;
+import org.datanucleus.api.ApiAdapter;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
 import org.datanucleus.state.ObjectProvider;
@@ -38,8 +45,19 @@ import org.datanucleus.store.rdbms.mapping.java.ReferenceMapping;
 import org.datanucleus.store.rdbms.JDBCUtils;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
+import org.datanucleus.store.rdbms.query.PersistentClassROF;
+import org.datanucleus.store.rdbms.query.ResultObjectFactory;
+import org.datanucleus.store.rdbms.sql.SQLStatement;
+import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
+import org.datanucleus.store.rdbms.sql.SQLTable;
+import org.datanucleus.store.rdbms.sql.SelectStatement;
+import org.datanucleus.store.rdbms.sql.expression.BooleanExpression;
+import org.datanucleus.store.rdbms.sql.expression.InExpression;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
 import org.datanucleus.store.rdbms.table.JoinTable;
 import org.datanucleus.store.rdbms.table.Table;
+import org.datanucleus.store.types.SCOUtils;
 import org.datanucleus.store.types.scostore.CollectionStore;
 import org.datanucleus.util.Localiser;
 import org.datanucleus.util.NucleusLogger;
@@ -52,6 +70,9 @@ public abstract class AbstractCollectionStore<E> extends ElementContainerStore i
 {
     protected String containsStmt;
 
+    /** Statements for checking containment of an element when using a FK, keyed by the element class (and its discriminator classes). */
+    protected Map<String, String> containsStmtByElementClass = new ConcurrentHashMap<>();
+
     /**
      * Constructor.
      * @param storeMgr Manager for the store
@@ -196,6 +217,23 @@ public abstract class AbstractCollectionStore<E> extends ElementContainerStore i
             return containsStmt;
         }
 
+        String elementClassKey = null;
+        if (!usingJoinTable())
+        {
+            // FK statement depends on the table of the element (and the classes of any discriminator restriction)
+            ComponentInfo elemInfo = getComponentInfoForElement(element);
+            if (elemInfo != null)
+            {
+                String discrimClassesKey = getDiscriminatorClassesKey(elemInfo);
+                elementClassKey = (discrimClassesKey != null ? discrimClassesKey : elemInfo.getClassName());
+                String stmt = containsStmtByElementClass.get(elementClassKey);
+                if (stmt != null)
+                {
+                    return stmt;
+                }
+            }
+        }
+
         synchronized (this)
         {
             String stmt = getContainsStatementString(element);
@@ -210,6 +248,10 @@ public abstract class AbstractCollectionStore<E> extends ElementContainerStore i
                 // Cache the statement if same for any element
                 containsStmt = stmt;
             }
+            else if (elementClassKey != null)
+            {
+                containsStmtByElementClass.put(elementClassKey, stmt);
+            }
             return stmt;
         }
     }
@@ -487,4 +529,213 @@ public abstract class AbstractCollectionStore<E> extends ElementContainerStore i
 
         return stmt.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Accessor for the iterator statement of this collection, not restricted to any owner, for use when loading the
+     * elements of several owners together. Returns null where this backing store doesn't support such loading.
+     * @param ec ExecutionContext
+     * @return The iterator statement
+     */
+    protected ElementIteratorStatement getIteratorStatementForOwners(ExecutionContext ec)
+    {
+        return null;
+    }
+
+    /**
+     * Method to return the elements of this collection for the specified owner, loading them together with those of
+     * the other owners of the same class that were retrieved in the same batch of a ResultSet (see
+     * <cite>datanucleus.rdbms.lazyLoadBatchSize</cite>) and that haven't yet loaded this member.
+     * The elements of these owners are retrieved using a statement restricted to those owners (one statement per chunk of owners
+     * where there are more owners than parameters allowed in a statement), and the member of each of the other owners is set
+     * to its elements. Only used when the collection is being loaded, not when iterating it to update the collection
+     * (see {@link #iteratorForUpdate(ObjectProvider)}).
+     * @param ownerOP ObjectProvider for the owner
+     * @return The elements for this owner, or null if there are no other owners to load this member for
+     */
+    protected List<E> getElementsForOwnerBatch(ObjectProvider ownerOP)
+    {
+        List<Object> batchIds = (List<Object>) ownerOP.getAssociatedValue(PersistentClassROF.ASSOCIATED_VALUE_OWNER_BATCH);
+        if (batchIds == null || elementsAreEmbedded || elementsAreSerialised || elementMapping instanceof ReferenceMapping)
+        {
+            return null;
+        }
+
+        // Find the other owners of the batch that are still managed and haven't loaded this member
+        ExecutionContext ec = ownerOP.getExecutionContext();
+        ApiAdapter api = ec.getApiAdapter();
+        int fieldNumber = ownerMemberMetaData.getAbsoluteFieldNumber();
+        Object ownerId = api.getIdForObject(ownerOP.getObject());
+        List<ObjectProvider> ownerOPs = new ArrayList<>();
+        ownerOPs.add(ownerOP);
+        for (Object id : batchIds)
+        {
+            if (id.equals(ownerOP.getInternalObjectId()))
+            {
+                continue;
+            }
+            Object obj = ec.getObjectFromCache(id);
+            ObjectProvider op = (obj != null) ? ec.findObjectProvider(obj) : null;
+            if (op != null && op.getClassMetaData() == ownerOP.getClassMetaData() && !op.getLifecycleState().isDeleted() &&
+                !op.isFieldLoaded(fieldNumber))
+            {
+                ownerOPs.add(op);
+            }
+        }
+        if (ownerOPs.size() == 1)
+        {
+            return null;
+        }
+
+        Map<Object, List<E>> elementsByOwnerId = new HashMap<>();
+        for (int i=0;i<ownerOPs.size();i++)
+        {
+            elementsByOwnerId.put(api.getIdForObject(ownerOPs.get(i).getObject()), new ArrayList<E>());
+        }
+
+        // Load the elements for the owners in chunks so as not to exceed the number of parameters allowed in a statement
+        int chunkSize = Math.max(1, storeMgr.getDatastoreAdapter().getMaxParametersPerStatement() / ownerMapping.getNumberOfColumnMappings());
+        for (int start=0;start<ownerOPs.size();start+=chunkSize)
+        {
+            List<ObjectProvider> chunk = ownerOPs.subList(start, Math.min(start+chunkSize, ownerOPs.size()));
+            if (!loadElementsForOwners(ec, chunk, elementsByOwnerId))
+            {
+                return null;
+            }
+        }
+
+        // Set the member of the other owners to their elements
+        for (int i=1;i<ownerOPs.size();i++)
+        {
+            ObjectProvider op = ownerOPs.get(i);
+            List<E> elements = elementsByOwnerId.get(api.getIdForObject(op.getObject()));
+            try
+            {
+                Class instanceType = SCOUtils.getContainerInstanceType(ownerMemberMetaData.getType(), ownerMemberMetaData.getOrderMetaData() != null);
+                Collection<E> coll = (Collection<E>) instanceType.newInstance();
+                coll.addAll(elements);
+                op.replaceField(fieldNumber, coll);
+                op.replaceAllLoadedSCOFieldsWithWrappers();
+            }
+            catch (Exception e)
+            {
+                throw new NucleusDataStoreException(e.getMessage(), e);
+            }
+        }
+        if (NucleusLogger.DATASTORE_RETRIEVE.isDebugEnabled())
+        {
+            NucleusLogger.DATASTORE_RETRIEVE.debug("Loaded " + ownerMemberMetaData.getFullFieldName() + " for " + ownerOPs.size() + " owners");
+        }
+
+        return elementsByOwnerId.get(ownerId);
+    }
+
+    /**
+     * Method to retrieve the elements of this collection for the specified owners using a single statement, adding them to
+     * the elements of their owner.
+     * @param ec ExecutionContext
+     * @param ownerOPs ObjectProviders for the owners
+     * @param elementsByOwnerId The elements keyed by the identity of their owner
+     * @return Whether the elements were retrieved, otherwise this backing store doesn't support loading several owners together
+     */
+    private boolean loadElementsForOwners(ExecutionContext ec, List<ObjectProvider> ownerOPs, Map<Object, List<E>> elementsByOwnerId)
+    {
+        ElementIteratorStatement iterStmt = getIteratorStatementForOwners(ec);
+        if (iterStmt == null || iterStmt.getSelectStatement().getNumberOfUnions() > 0)
+        {
+            return false;
+        }
+
+        // Restrict to the owners : WHERE OWNER IN (?, ?, ...), or WHERE (OWNER = ? OR OWNER = ? ...) for a multi-column owner
+        SelectStatement sqlStmt = iterStmt.getSelectStatement();
+        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+        SQLTable ownerSqlTbl = SQLStatementHelper.getSQLTableForMappingOfTable(sqlStmt, sqlStmt.getPrimaryTable(), ownerMapping);
+        SQLExpression ownerExpr = exprFactory.newExpression(sqlStmt, ownerSqlTbl, ownerMapping);
+        int numCols = ownerMapping.getNumberOfColumnMappings();
+        if (numCols == 1)
+        {
+            List<SQLExpression> ownerVals = new ArrayList<>(ownerOPs.size());
+            for (int i=0;i<ownerOPs.size();i++)
+            {
+                ownerVals.add(exprFactory.newLiteralParameter(sqlStmt, ownerMapping, null, "OWNER" + i));
+            }
+            sqlStmt.whereAnd(new InExpression(ownerExpr, ownerVals), true);
+        }
+        else
+        {
+            BooleanExpression ownerCondition = null;
+            for (int i=0;i<ownerOPs.size();i++)
+            {
+                SQLExpression ownerVal = exprFactory.newLiteralParameter(sqlStmt, ownerMapping, null, "OWNER" + i);
+                ownerCondition = (ownerCondition == null) ? ownerExpr.eq(ownerVal) : ownerCondition.ior(ownerExpr.eq(ownerVal));
+            }
+            sqlStmt.whereAnd(ownerCondition, true);
+        }
+
+        // Select the owner so we can separate the elements out to their owner
+        int[] ownerColIndexes = sqlStmt.select(ownerExpr, null);
+
+        Transaction tx = ec.getTransaction();
+        if (tx.getSerializeRead() != null && tx.getSerializeRead())
+        {
+            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        }
+
+        ApiAdapter api = ec.getApiAdapter();
+        String stmt = sqlStmt.getSQLText().toSQL();
+        try
+        {
+            ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+            SQLController sqlControl = storeMgr.getSQLController();
+            try
+            {
+                PreparedStatement ps = sqlControl.getStatementForQuery(mconn, stmt);
+                try
+                {
+                    // Set the owners
+                    for (int i=0;i<ownerOPs.size();i++)
+                    {
+                        int[] paramPositions = new int[numCols];
+                        for (int j=0;j<numCols;j++)
+                        {
+                            paramPositions[j] = i * numCols + j + 1;
+                        }
+                        ownerMapping.setObject(ec, ps, paramPositions, ownerOPs.get(i).getObject());
+                    }
+
+                    ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, stmt, ps);
+                    try
+                    {
+                        ResultObjectFactory<E> rof = new PersistentClassROF(ec, rs, false, iterStmt.getElementClassMapping(), elementCmd, clr.classForName(elementType));
+                        while (rs.next())
+                        {
+                            Object owner = ownerMapping.getObject(ec, rs, ownerColIndexes);
+                            E element = rof.getObject();
+                            List<E> elements = elementsByOwnerId.get(api.getIdForObject(owner));
+                            if (elements != null)
+                            {
+                                elements.add(element);
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        rs.close();
+                    }
+                }
+                finally
+                {
+                    sqlControl.closeStatement(mconn, ps);
+                }
+            }
+            finally
+            {
+                mconn.release();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("056006", stmt), e);
+        }
+        return true;
+    }
+}
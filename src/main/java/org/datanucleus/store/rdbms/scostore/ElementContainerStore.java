@@ -22,24 +22,47 @@ import java.lang.reflect.Modifier;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
+import org.datanucleus.FetchPlan;
+import org.datanucleus.Transaction;
+import org.datanucleus.exceptions.ClassNotResolvedException;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusUserException;
 import org.datanucleus.metadata.AbstractClassMetaData;
+import org.datanucleus.metadata.AbstractMemberMetaData;
 import org.datanucleus.metadata.CollectionMetaData;
 import org.datanucleus.metadata.MetaData;
+import org.datanucleus.metadata.MetaDataManager;
+import org.datanucleus.metadata.RelationType;
 import org.datanucleus.state.ObjectProvider;
 import org.datanucleus.store.FieldValues;
 import org.datanucleus.store.connection.ManagedConnection;
+import org.datanucleus.store.rdbms.mapping.MappingType;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
+import org.datanucleus.store.rdbms.fieldmanager.ResultSetGetter;
+import org.datanucleus.store.rdbms.query.RDBMSQueryUtils;
+import org.datanucleus.store.rdbms.query.StatementClassMapping;
+import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.sql.SQLStatement;
+import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
+import org.datanucleus.store.rdbms.sql.SelectStatement;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpression;
+import org.datanucleus.store.rdbms.sql.expression.SQLExpressionFactory;
+import org.datanucleus.store.rdbms.table.DatastoreClass;
 import org.datanucleus.store.rdbms.table.Table;
 import org.datanucleus.store.schema.table.SurrogateColumnType;
 import org.datanucleus.store.rdbms.JDBCUtils;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.types.SCOUtils;
@@ -64,9 +87,12 @@ public abstract class ElementContainerStore extends BaseContainerStore
     /** Flag to set whether the iterator statement will use a discriminator or not. */
     protected boolean iterateUsingDiscriminator = false;
 
-    /** Statement for getting the size of the container. */
+    /** Statement for getting the size of the container (when not restricted by discriminator). */
     protected String sizeStmt;
 
+    /** Statement(s) for getting the size of the container when restricted by discriminator, keyed by the element classes restricted to. */
+    protected Map<String, String> sizeStmtByDiscriminatorClasses = new ConcurrentHashMap<>();
+
     /** Statement for clearing the container. */
     protected String clearStmt;
 
@@ -118,6 +144,12 @@ public abstract class ElementContainerStore extends BaseContainerStore
     /** Value to use to discriminate between elements of this collection from others using the same join table. */
     protected String relationDiscriminatorValue;
 
+    /** Name of a fetch group of the element whose fields are also selected by the iterator statement (extension "load-group"). */
+    protected String elementLoadGroup = null;
+
+    /** SQL of the iterator statement for a single owner, keyed by the FetchPlan (and range) it was generated for. */
+    protected Map<String, ElementIteratorSQL> iteratorSQLByKey = new ConcurrentHashMap<>();
+
     /**
      * Constructor.
      * @param storeMgr Manager for the store
@@ -299,6 +331,144 @@ public abstract class ElementContainerStore extends BaseContainerStore
      */
     public abstract Iterator iterator(ObjectProvider ownerOP);
 
+    /**
+     * Accessor for an iterator through the container elements for use when updating the container in this backing store
+     * (e.g when clearing it), as opposed to {@link #iterator(ObjectProvider)} which is used to load the container.
+     * @param ownerOP ObjectProvider for the container.
+     * @return The Iterator
+     */
+    protected Iterator iteratorForUpdate(ObjectProvider ownerOP)
+    {
+        return iterator(ownerOP);
+    }
+
+    /**
+     * Accessor for the FetchPlan to use when selecting the elements in the iterator statement.
+     * When the member has a "load-group" extension this is a copy of the FetchPlan of the ExecutionContext with
+     * that fetch group added, so the fields of the group (in whichever table of the element they are stored) are
+     * retrieved by the iterator statement rather than by a separate fetch for each element.
+     * @param ec ExecutionContext
+     * @return The FetchPlan
+     */
+    public FetchPlan getIteratorFetchPlan(ExecutionContext ec)
+    {
+        FetchPlan fp = ec.getFetchPlan();
+        if (elementLoadGroup == null || fp.getGroups().contains(elementLoadGroup))
+        {
+            return fp;
+        }
+
+        FetchPlan iterFP = fp.getCopy();
+        iterFP.addGroup(elementLoadGroup);
+        return iterFP;
+    }
+
+    /**
+     * Accessor for the SQL of the iterator statement for a single owner, where this has been previously generated for
+     * the FetchPlan (and range) now in use, and caching of iterator statements is enabled.
+     * @param ec ExecutionContext
+     * @param startIdx Start index of the range (or -1 if not restricting)
+     * @param endIdx End index of the range (or -1 if not restricting)
+     * @return The SQL and its mapping information, or null if not available
+     */
+    protected ElementIteratorSQL getCachedIteratorSQL(ExecutionContext ec, int startIdx, int endIdx)
+    {
+        if (!storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_CACHE_ITERATOR_STATEMENTS))
+        {
+            return null;
+        }
+        return iteratorSQLByKey.get(getIteratorSQLKey(ec, startIdx, endIdx));
+    }
+
+    /**
+     * Method to convert the supplied iterator statement (restricted to a single owner) into its SQL, adding the
+     * parameter mapping for the owner. If caching of iterator statements is enabled the result is cached against
+     * the FetchPlan (and range) in use so that subsequent iterations only have to set the owner and execute it.
+     * @param ec ExecutionContext
+     * @param iterStmt The iterator statement
+     * @param startIdx Start index of the range (or -1 if not restricting)
+     * @param endIdx End index of the range (or -1 if not restricting)
+     * @return The SQL and its mapping information
+     */
+    protected ElementIteratorSQL getIteratorSQL(ExecutionContext ec, ElementIteratorStatement iterStmt, int startIdx, int endIdx)
+    {
+        SelectStatement sqlStmt = iterStmt.getSelectStatement();
+        StatementClassMapping elementClsMapping = iterStmt.getElementClassMapping();
+
+        // Input parameter(s) - the owner, with an occurrence for each union of the statement
+        int inputParamNum = 1;
+        StatementMappingIndex ownerIdx = new StatementMappingIndex(ownerMapping);
+        for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
+        {
+            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
+            for (int k=0;k<paramPositions.length;k++)
+            {
+                paramPositions[k] = inputParamNum++;
+            }
+            ownerIdx.addParameterOccurrence(paramPositions);
+        }
+
+        Transaction tx = ec.getTransaction();
+        if (tx.getSerializeRead() != null && tx.getSerializeRead())
+        {
+            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+        }
+
+        ElementIteratorSQL iterSQL = new ElementIteratorSQL(sqlStmt.getSQLText().toSQL(), elementClsMapping, ownerIdx);
+        if (storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_CACHE_ITERATOR_STATEMENTS))
+        {
+            iteratorSQLByKey.putIfAbsent(getIteratorSQLKey(ec, startIdx, endIdx), iterSQL);
+        }
+        return iterSQL;
+    }
+
+    /**
+     * Method to clear any cached iterator SQL, for use when the classes being managed change (so the element
+     * statement could now include other tables).
+     */
+    public void clearIteratorSQLCache()
+    {
+        iteratorSQLByKey.clear();
+    }
+
+    /**
+     * Method to return the key under which to cache the iterator SQL for the FetchPlan (and range) in use.
+     * The key includes the fetch groups and max fetch depth, the members being fetched for each element class,
+     * any multitenancy id applied to the element table(s), the range, and whether the rows are locked.
+     * @param ec ExecutionContext
+     * @param startIdx Start index of the range (or -1 if not restricting)
+     * @param endIdx End index of the range (or -1 if not restricting)
+     * @return The key
+     */
+    protected String getIteratorSQLKey(ExecutionContext ec, int startIdx, int endIdx)
+    {
+        FetchPlan fp = ec.getFetchPlan();
+        StringBuilder key = new StringBuilder();
+        key.append(fp.getGroups()).append(" DEPTH=").append(fp.getMaxFetchDepth());
+        if (elementInfo != null)
+        {
+            for (int i=0;i<elementInfo.length;i++)
+            {
+                AbstractClassMetaData cmd = elementInfo[i].getAbstractClassMetaData();
+                key.append(' ').append(cmd.getFullClassName()).append(Arrays.toString(fp.getFetchPlanForClass(cmd).getMemberNumbers()));
+                if (elementInfo[i].getDatastoreClass().getSurrogateMapping(SurrogateColumnType.MULTITENANCY, false) != null)
+                {
+                    key.append(" TENANT=").append(ec.getNucleusContext().getMultiTenancyId(ec, cmd));
+                }
+            }
+        }
+        if (startIdx >= 0 || endIdx >= 0)
+        {
+            key.append(" RANGE=").append(startIdx).append('-').append(endIdx);
+        }
+        Transaction tx = ec.getTransaction();
+        if (tx.getSerializeRead() != null && tx.getSerializeRead())
+        {
+            key.append(" FOR UPDATE");
+        }
+        return key.toString();
+    }
+
     /**
      * Clear the association from owner to all elements.
      * Provides cascade-delete when the elements being deleted are PC types.
@@ -317,7 +487,7 @@ public abstract class ElementContainerStore extends BaseContainerStore
         {
             // Retain the dependent elements that need deleting after clearing
             dependentElements = new HashSet();
-            Iterator iter = iterator(ownerOP);
+            Iterator iter = iteratorForUpdate(ownerOP);
             while (iter.hasNext())
             {
                 dependentElements.add(iter.next());
@@ -420,6 +590,333 @@ public abstract class ElementContainerStore extends BaseContainerStore
         return clearStmt;
     }
 
+    /**
+     * Method to delete all (dependent) elements of the owner using a single DELETE per element table, of the form
+     * <PRE>
+     * DELETE FROM ELEMENTTABLE WHERE OWNERCOL = ?
+     * </PRE>
+     * rather than retrieving each element and deleting it in turn. Only applies where the owner FK is in the element table,
+     * and the elements need nothing doing when they are deleted (no relations held elsewhere or join tables, not referenced by
+     * any other relation, no secondary or inherited tables, no versioning, no soft-delete). Since the elements are not retrieved, no lifecycle callbacks/listeners are invoked
+     * on them, hence why this is only used when enabled via the persistence property.
+     * The identities of the elements are selected first, so that just these elements are evicted from the L2 cache, and so that
+     * if any element is managed by the ExecutionContext (so could have changes pending) they are deleted one-by-one instead.
+     * @param ownerOP ObjectProvider for the owner
+     * @return Whether the elements were deleted, otherwise the caller should delete them one-by-one
+     */
+    protected boolean deleteElementsInBulk(ObjectProvider ownerOP)
+    {
+        if (!storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_BULK_DELETE_DEPENDENT_ELEMENTS) || elementInfo == null)
+        {
+            return false;
+        }
+        for (int i=0;i<elementInfo.length;i++)
+        {
+            if (!isElementTableSuitableForBulkDelete(elementInfo[i]))
+            {
+                return false;
+            }
+        }
+
+        ExecutionContext ec = ownerOP.getExecutionContext();
+        Collection<Object> elementIds = new HashSet<>();
+        for (int i=0;i<elementInfo.length;i++)
+        {
+            if (!addElementIdsForOwner(ownerOP, elementInfo[i], elementIds))
+            {
+                return false;
+            }
+        }
+
+        // Evict the elements from the L2 cache, so the check below only finds elements managed by this ExecutionContext
+        try
+        {
+            ec.getNucleusContext().getLevel2Cache().evictAll(elementIds);
+        }
+        catch (UnsupportedOperationException uoe)
+        {
+            // Do nothing
+        }
+        for (Object elementId : elementIds)
+        {
+            if (ec.getObjectFromCache(elementId) != null)
+            {
+                // Element is managed, so could be dirty or be referenced after the delete, so delete the elements one-by-one
+                return false;
+            }
+        }
+
+        for (int i=0;i<elementInfo.length;i++)
+        {
+            StringBuilder stmtStr = new StringBuilder("DELETE FROM ").append(elementInfo[i].getDatastoreClass().toString()).append(" WHERE ");
+            BackingStoreHelper.appendWhereClauseForMapping(stmtStr, elementInfo[i].getOwnerMapping(), null, true);
+            String stmt = stmtStr.toString();
+            try
+            {
+                ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+                SQLController sqlControl = storeMgr.getSQLController();
+                try
+                {
+                    PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, stmt, false);
+                    try
+                    {
+                        BackingStoreHelper.populateOwnerInStatement(ownerOP, ec, ps, 1, this);
+                        sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, true);
+                    }
+                    finally
+                    {
+                        sqlControl.closeStatement(mconn, ps);
+                    }
+                }
+                finally
+                {
+                    mconn.release();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new NucleusDataStoreException(Localiser.msg("056013", stmt), e);
+            }
+        }
+
+        // Deleted ids could be reused by objects of a different class
+        for (Object elementId : elementIds)
+        {
+            storeMgr.evictClassNameForObjectID(elementId, elementCmd, ec);
+        }
+        if (NucleusLogger.DATASTORE_PERSIST.isDebugEnabled())
+        {
+            NucleusLogger.DATASTORE_PERSIST.debug("Deleted elements of " + ownerMemberMetaData.getFullFieldName() + " for " + ownerOP.getObjectAsPrintable() + " using bulk delete");
+        }
+        return true;
+    }
+
+    /**
+     * Method to add the identities of the elements of the owner in the specified element table, without retrieving the elements.
+     * Since the element table is shared by the element class and its subclasses, the identity for each concrete class is added.
+     * @param ownerOP ObjectProvider for the owner
+     * @param info Information for the element table
+     * @param elementIds The identities to add to
+     * @return Whether the identities could be determined
+     */
+    private boolean addElementIdsForOwner(ObjectProvider ownerOP, ComponentInfo info, Collection<Object> elementIds)
+    {
+        AbstractClassMetaData infoCmd = info.getAbstractClassMetaData();
+        List<AbstractClassMetaData> cmds = new ArrayList<>();
+        if (!infoCmd.isAbstract())
+        {
+            cmds.add(infoCmd);
+        }
+        String[] subclassNames = storeMgr.getMetaDataManager().getSubclassesForClass(info.getClassName(), true);
+        if (subclassNames != null)
+        {
+            for (String subclassName : subclassNames)
+            {
+                AbstractClassMetaData subCmd = storeMgr.getMetaDataManager().getMetaDataForClass(subclassName, clr);
+                if (subCmd != null && !subCmd.isAbstract())
+                {
+                    cmds.add(subCmd);
+                }
+            }
+        }
+
+        SelectStatement sqlStmt = new SelectStatement(storeMgr, info.getDatastoreClass(), null, null);
+        StatementClassMapping idDefinition = new StatementClassMapping();
+        SQLStatementHelper.selectIdentityOfCandidateInStatement(sqlStmt, idDefinition, infoCmd);
+        SQLExpressionFactory exprFactory = storeMgr.getSQLExpressionFactory();
+        SQLExpression ownerExpr = exprFactory.newExpression(sqlStmt, sqlStmt.getPrimaryTable(), info.getOwnerMapping());
+        SQLExpression ownerVal = exprFactory.newLiteralParameter(sqlStmt, info.getOwnerMapping(), null, "OWNER");
+        sqlStmt.whereAnd(ownerExpr.eq(ownerVal), true);
+
+        ExecutionContext ec = ownerOP.getExecutionContext();
+        String stmt = sqlStmt.getSQLText().toSQL();
+        try
+        {
+            ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+            SQLController sqlControl = storeMgr.getSQLController();
+            try
+            {
+                PreparedStatement ps = sqlControl.getStatementForQuery(mconn, stmt);
+                try
+                {
+                    BackingStoreHelper.populateOwnerInStatement(ownerOP, ec, ps, 1, this);
+                    ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, stmt, ps);
+                    try
+                    {
+                        ResultSetGetter rsGetter = new ResultSetGetter(ec, rs, idDefinition, infoCmd);
+                        while (rs.next())
+                        {
+                            if (!RDBMSQueryUtils.addIdsForResultSetRow(ec, rs, rsGetter, idDefinition, infoCmd, cmds, elementIds))
+                            {
+                                return false;
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        rs.close();
+                    }
+                }
+                finally
+                {
+                    sqlControl.closeStatement(mconn, ps);
+                }
+            }
+            finally
+            {
+                mconn.release();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("056006", stmt), e);
+        }
+        return true;
+    }
+
+    /**
+     * Convenience method to return whether the elements of the specified element table can be deleted in bulk.
+     * @param info Information for the element table
+     * @return Whether the elements can be deleted by a single DELETE statement
+     */
+    private boolean isElementTableSuitableForBulkDelete(ComponentInfo info)
+    {
+        DatastoreClass table = info.getDatastoreClass();
+        if (table == null || info.getOwnerMapping() == null || info.getOwnerMapping().getTable() != table)
+        {
+            return false;
+        }
+        if (table.getSuperDatastoreClass() != null ||
+            (table.getSecondaryDatastoreClasses() != null && !table.getSecondaryDatastoreClasses().isEmpty()) ||
+            table.getExternalMapping(ownerMemberMetaData, MappingType.EXTERNAL_FK_DISCRIMINATOR) != null)
+        {
+            return false;
+        }
+
+        // Check the element class, its superclasses and its subclasses (that must share the table)
+        List<AbstractClassMetaData> cmds = new ArrayList<>();
+        List<String> elementClassNames = new ArrayList<>();
+        elementClassNames.add(info.getClassName());
+        AbstractClassMetaData cmd = info.getAbstractClassMetaData();
+        while (cmd != null)
+        {
+            cmds.add(cmd);
+            cmd = cmd.getSuperAbstractClassMetaData();
+        }
+        String[] subclassNames = storeMgr.getMetaDataManager().getSubclassesForClass(info.getClassName(), true);
+        if (subclassNames != null)
+        {
+            for (String subclassName : subclassNames)
+            {
+                if (storeMgr.getDatastoreClass(subclassName, clr) != table)
+                {
+                    return false;
+                }
+                cmds.add(storeMgr.getMetaDataManager().getMetaDataForClass(subclassName, clr));
+                elementClassNames.add(subclassName);
+            }
+        }
+        for (AbstractClassMetaData theCmd : cmds)
+        {
+            if (theCmd.hasExtension(MetaData.EXTENSION_CLASS_SOFTDELETE) || theCmd.getVersionMetaDataForClass() != null)
+            {
+                return false;
+            }
+            for (AbstractMemberMetaData mmd : theCmd.getManagedMembers())
+            {
+                if (mmd.hasCollection() || mmd.hasMap() || mmd.hasArray() || mmd.getJoinMetaData() != null)
+                {
+                    // Container, or relation, may be stored in another table
+                    return false;
+                }
+                RelationType relType = mmd.getRelationType(clr);
+                if (relType != RelationType.NONE)
+                {
+                    // Only allow relations with the FK in this table, and not deleting the related object
+                    JavaTypeMapping m = table.getMemberMapping(mmd);
+                    if (!RelationType.isRelationSingleValued(relType) || mmd.getMappedBy() != null || mmd.isDependent() ||
+                        m == null || m.getNumberOfColumnMappings() == 0)
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return !isElementReferencedByOtherMember(elementClassNames);
+    }
+
+    /**
+     * Convenience method to return whether an element of the specified classes can be referenced by a relation member of any
+     * persistable class (other than the member of this backing store), so by a FK (or join table) that a bulk delete of the elements
+     * would leave referencing a deleted row.
+     * @param elementClassNames Names of the element class and its subclasses
+     * @return Whether the elements can be referenced by another member
+     */
+    private boolean isElementReferencedByOtherMember(List<String> elementClassNames)
+    {
+        MetaDataManager mmgr = storeMgr.getMetaDataManager();
+        try
+        {
+            List<Class> elementTypes = new ArrayList<>();
+            for (String elementClassName : elementClassNames)
+            {
+                elementTypes.add(clr.classForName(elementClassName));
+            }
+
+            for (String className : mmgr.getClassesWithMetaData())
+            {
+                AbstractClassMetaData cmd = mmgr.getMetaDataForClass(className, clr);
+                if (cmd == null)
+                {
+                    continue;
+                }
+                for (AbstractMemberMetaData mmd : cmd.getManagedMembers())
+                {
+                    if (mmd.getFullFieldName().equals(ownerMemberMetaData.getFullFieldName()) || mmd.getRelationType(clr) == RelationType.NONE)
+                    {
+                        continue;
+                    }
+
+                    List<String> relatedTypeNames = new ArrayList<>();
+                    if (mmd.hasCollection())
+                    {
+                        relatedTypeNames.add(mmd.getCollection().getElementType());
+                    }
+                    else if (mmd.hasArray())
+                    {
+                        relatedTypeNames.add(mmd.getArray().getElementType());
+                    }
+                    else if (mmd.hasMap())
+                    {
+                        relatedTypeNames.add(mmd.getMap().getKeyType());
+                        relatedTypeNames.add(mmd.getMap().getValueType());
+                    }
+                    else
+                    {
+                        relatedTypeNames.add(mmd.getTypeName());
+                    }
+                    for (String relatedTypeName : relatedTypeNames)
+                    {
+                        Class relatedType = clr.classForName(relatedTypeName);
+                        for (Class elementType : elementTypes)
+                        {
+                            if (relatedType.isAssignableFrom(elementType))
+                            {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (ClassNotResolvedException cnre)
+        {
+            // Can't tell, so assume referenced
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Method to remove any stored statement for addition of an element.
      */
@@ -648,6 +1145,29 @@ public abstract class ElementContainerStore extends BaseContainerStore
             return sizeStmt;
         }
 
+        String discrimClassesKey = null;
+        if (elementInfo != null)
+        {
+            int numElementInfos = usingJoinTable() ? 1 : elementInfo.length;
+            for (int i=0;i<numElementInfos;i++)
+            {
+                String key = getDiscriminatorClassesKey(elementInfo[i]);
+                if (key != null)
+                {
+                    discrimClassesKey = (discrimClassesKey == null ? key : discrimClassesKey + " " + key);
+                }
+            }
+        }
+        if (discrimClassesKey != null)
+        {
+            // Statement restricts by discriminator, so reuse it as long as the element classes haven't changed
+            String stmt = sizeStmtByDiscriminatorClasses.get(discrimClassesKey);
+            if (stmt != null)
+            {
+                return stmt;
+            }
+        }
+
         synchronized (this)
         {
             boolean usingDiscriminatorInSizeStmt = false;
@@ -876,10 +1396,32 @@ public abstract class ElementContainerStore extends BaseContainerStore
             {
                 sizeStmt = stmt.toString();
             }
+            else if (discrimClassesKey != null)
+            {
+                sizeStmtByDiscriminatorClasses.put(discrimClassesKey, stmt.toString());
+            }
             return stmt.toString();
         }
     }
 
+    /**
+     * Convenience method to return a key for the element classes that a statement would restrict the discriminator
+     * of the specified element info to. The key changes when further subclasses become managed, so can be used
+     * to cache statements with a discriminator restriction. The order of the classes is not significant since
+     * each is an OR'ed condition on the same column.
+     * @param elemInfo The element info
+     * @return The key, or null if the element info has no discriminator
+     */
+    protected String getDiscriminatorClassesKey(ComponentInfo elemInfo)
+    {
+        if (elemInfo.getDiscriminatorMapping() == null)
+        {
+            return null;
+        }
+        Collection<String> subclassNames = storeMgr.getSubClassesForClass(elemInfo.getClassName(), true, clr);
+        return elemInfo.getClassName() + "+" + (subclassNames != null ? subclassNames.size() : 0);
+    }
+
     protected ComponentInfo getComponentInfoForElement(Object element)
     {
         if (elementInfo == null)
@@ -0,0 +1,60 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.scostore;
+
+import org.datanucleus.store.rdbms.query.StatementClassMapping;
+import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+
+/**
+ * Representation of the SQL of an iterator statement for the elements of a single owner, together with the
+ * mapping information needed to set the owner parameter(s) and process the results.
+ * Once generated this is immutable, so can be reused for the same store and FetchPlan by any thread.
+ */
+public class ElementIteratorSQL
+{
+    /** The SQL of the statement. */
+    final String sql;
+
+    /** The class mapping for the collection/array element of the iterator. */
+    final StatementClassMapping elementClassMapping;
+
+    /** Mapping index for the owner parameter(s), with an occurrence for each UNION of the statement. */
+    final StatementMappingIndex ownerMappingIndex;
+
+    public ElementIteratorSQL(String sql, StatementClassMapping elemClsMapping, StatementMappingIndex ownerMapIdx)
+    {
+        this.sql = sql;
+        this.elementClassMapping = elemClsMapping;
+        this.ownerMappingIndex = ownerMapIdx;
+    }
+
+    public String getSQL()
+    {
+        return sql;
+    }
+
+    public StatementClassMapping getElementClassMapping()
+    {
+        return elementClassMapping;
+    }
+
+    public StatementMappingIndex getOwnerMappingIndex()
+    {
+        return ownerMappingIndex;
+    }
+}
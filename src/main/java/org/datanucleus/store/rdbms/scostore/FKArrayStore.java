@@ -47,7 +47,6 @@ import org.datanucleus.store.rdbms.query.PersistentClassROF;
 import org.datanucleus.store.rdbms.query.ResultObjectFactory;
 import org.datanucleus.store.rdbms.query.StatementClassMapping;
 import org.datanucleus.store.rdbms.query.StatementMappingIndex;
-import org.datanucleus.store.rdbms.query.StatementParameterMapping;
 import org.datanucleus.store.rdbms.sql.DiscriminatorStatementGenerator;
 import org.datanucleus.store.rdbms.sql.SQLStatement;
 import org.datanucleus.store.rdbms.sql.SQLStatementHelper;
@@ -584,45 +583,15 @@ public class FKArrayStore<E> extends AbstractArrayStore<E>
             return null;
         }
 
-        // Generate the statement, and statement mapping/parameter information
-        ElementIteratorStatement iterStmt = getIteratorStatement(ownerOP.getExecutionContext(), ownerOP.getExecutionContext().getFetchPlan(), true);
-        SelectStatement sqlStmt = iterStmt.getSelectStatement();
-        StatementClassMapping iteratorMappingDef = iterStmt.getElementClassMapping();
-
-        // Input parameter(s) - the owner
-        int inputParamNum = 1;
-        StatementMappingIndex ownerIdx = new StatementMappingIndex(ownerMapping);
-        if (sqlStmt.getNumberOfUnions() > 0)
-        {
-            // Add parameter occurrence for each union of statement
-            for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
-            {
-                int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-                for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-                {
-                    paramPositions[k] = inputParamNum++;
-                }
-                ownerIdx.addParameterOccurrence(paramPositions);
-            }
-        }
-        else
-        {
-            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-            for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-            {
-                paramPositions[k] = inputParamNum++;
-            }
-            ownerIdx.addParameterOccurrence(paramPositions);
-        }
-
-        StatementParameterMapping iteratorMappingParams = new StatementParameterMapping();
-        iteratorMappingParams.addMappingForParameter("owner", ownerIdx);
-
-        if (ec.getTransaction().getSerializeRead() != null && ec.getTransaction().getSerializeRead())
+        // Generate the statement (unless already generated for this FetchPlan), and statement mapping/parameter information
+        ElementIteratorSQL iterSQL = getCachedIteratorSQL(ec, -1, -1);
+        if (iterSQL == null)
         {
-            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            iterSQL = getIteratorSQL(ec, getIteratorStatement(ec, ec.getFetchPlan(), true), -1, -1);
         }
-        String stmt = sqlStmt.getSQLText().toSQL();
+        StatementClassMapping iteratorMappingDef = iterSQL.getElementClassMapping();
+        StatementMappingIndex ownerIdx = iterSQL.getOwnerMappingIndex();
+        String stmt = iterSQL.getSQL();
 
         try
         {
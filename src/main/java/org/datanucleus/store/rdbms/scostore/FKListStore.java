@@ -22,15 +22,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ClassNameConstants;
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.FetchPlan;
-import org.datanucleus.Transaction;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
 import org.datanucleus.exceptions.NucleusUserException;
@@ -260,6 +263,9 @@ public class FKListStore<E> extends AbstractListStore<E>
             }
         }
 
+        // Fetch group of the element whose fields should be loaded when iterating the collection
+        elementLoadGroup = mmd.getValueForExtension("load-group");
+
         // TODO Cater for multiple element tables
         containerTable = elementInfo[0].getDatastoreClass();
         if (mmd.getMappedBy() != null && ownerMapping.getTable() != containerTable)
@@ -410,6 +416,20 @@ public class FKListStore<E> extends AbstractListStore<E>
      * @return Whether it was performed successfully
      */
     private boolean updateElementFk(ObjectProvider ownerOP, Object element, Object owner, int index)
+    {
+        return updateElementFk(ownerOP, element, owner, index, true);
+    }
+
+    /**
+     * Utility to update a foreign-key (and index) in the element, optionally batching the statement.
+     * @param ownerOP ObjectProvider for the owner
+     * @param element The element to update
+     * @param owner The owner object to set in the FK
+     * @param index The index position (or -1 if not known)
+     * @param executeNow Whether to execute the statement now (otherwise it is batched)
+     * @return Whether it was performed successfully
+     */
+    private boolean updateElementFk(ObjectProvider ownerOP, Object element, Object owner, int index, boolean executeNow)
     {
         if (element == null)
         {
@@ -425,7 +445,7 @@ public class FKListStore<E> extends AbstractListStore<E>
             SQLController sqlControl = storeMgr.getSQLController();
             try
             {
-                PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, updateFkStmt, false);
+                PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, updateFkStmt, !executeNow);
                 try
                 {
                     ComponentInfo elemInfo = getComponentInfoForElement(element);
@@ -460,7 +480,7 @@ public class FKListStore<E> extends AbstractListStore<E>
                     }
                     jdbcPosition = BackingStoreHelper.populateElementForWhereClauseInStatement(ec, ps, element, jdbcPosition, elemMapping);
 
-                    sqlControl.executeStatementUpdate(ec, mconn, updateFkStmt, ps, true);
+                    sqlControl.executeStatementUpdate(ec, mconn, updateFkStmt, ps, executeNow);
                     retval = true;
                 }
                 finally
@@ -494,33 +514,151 @@ public class FKListStore<E> extends AbstractListStore<E>
             return;
         }
 
-        // Find existing elements, and remove any that are no longer present
-        Collection existing = new ArrayList();
-        Iterator elemIter = iterator(ownerOP);
+        // Find existing elements
+        List existing = new ArrayList();
+        Iterator elemIter = iteratorForUpdate(ownerOP);
         while (elemIter.hasNext())
         {
-            Object elem = elemIter.next();
+            existing.add(elemIter.next());
+        }
+
+        List newElements = new ArrayList(coll);
+        if (existing.equals(newElements))
+        {
+            // Existing is same as the specified so job done
+            return;
+        }
+
+        if (indexedList)
+        {
+            // Indexed list, so update just the elements whose position has changed
+            updateIndexedList(ownerOP, existing, newElements);
+            return;
+        }
+
+        // Remove any existing elements that are no longer present
+        Collection retained = new ArrayList();
+        Iterator existingIter = existing.iterator();
+        while (existingIter.hasNext())
+        {
+            Object elem = existingIter.next();
             if (!coll.contains(elem))
             {
                 remove(ownerOP, elem, -1, true);
             }
             else
             {
-                existing.add(elem);
+                retained.add(elem);
             }
         }
 
-        if (existing.equals(coll))
+        if (retained.equals(newElements))
         {
             // Existing (after any removals) is same as the specified so job done
             return;
         }
 
-        // TODO Improve this - need to allow for list element position changes etc
         clear(ownerOP);
         addAll(ownerOP, coll, 0);
     }
 
+    /**
+     * Method to update an indexed List from its current (stored) elements to the new elements.
+     * Elements no longer present are removed from the list (nulling their FK, or deleting them when dependent or the FK
+     * is not nullable), new elements are persisted/assigned at their position, and elements whose position has changed
+     * have their index updated, with the FK updates batched. Elements already at the right position are left alone.
+     * @param ownerOP ObjectProvider for the owner
+     * @param oldElements The elements currently stored, in list order
+     * @param newElements The elements the list should have, in list order
+     */
+    protected void updateIndexedList(ObjectProvider ownerOP, List oldElements, List newElements)
+    {
+        ExecutionContext ec = ownerOP.getExecutionContext();
+
+        // Find the current position of the existing elements, and those that are no longer present
+        Map<Object, Integer> oldPositions = new HashMap<>();
+        for (int i=0;i<oldElements.size();i++)
+        {
+            oldPositions.put(oldElements.get(i), i);
+        }
+        Set newElementSet = new HashSet(newElements);
+        List removedElements = new ArrayList();
+        Iterator oldIter = oldElements.iterator();
+        while (oldIter.hasNext())
+        {
+            Object oldElement = oldIter.next();
+            if (!newElementSet.contains(oldElement))
+            {
+                removedElements.add(oldElement);
+            }
+        }
+
+        if (!removedElements.isEmpty())
+        {
+            boolean dependent = ownerMemberMetaData.getCollection().isDependentElement();
+            if (ownerMemberMetaData.isCascadeRemoveOrphans())
+            {
+                dependent = true;
+            }
+            if (dependent)
+            {
+                // "delete-dependent" : delete elements no longer in the list
+                ec.deleteObjects(removedElements.toArray());
+            }
+            else if (ownerMapping.isNullable() && orderMapping != null && orderMapping.isNullable())
+            {
+                // Nullify the FK (and index) of the elements no longer in the list
+                Iterator removedIter = removedElements.iterator();
+                while (removedIter.hasNext())
+                {
+                    updateElementFk(ownerOP, removedIter.next(), null, -1, false);
+                }
+            }
+            else
+            {
+                // FK can't be nulled, so delete the elements no longer in the list
+                Iterator removedIter = removedElements.iterator();
+                while (removedIter.hasNext())
+                {
+                    ec.deleteObjectInternal(removedIter.next());
+                }
+            }
+        }
+
+        // Position the elements that are new, or whose position has changed
+        for (int i=0;i<newElements.size();i++)
+        {
+            Object element = newElements.get(i);
+            Integer oldPosition = oldPositions.get(element);
+            if (oldPosition == null)
+            {
+                // New element, so persist it at this position if not yet persistent
+                if (!validateElementForWriting(ownerOP, element, i))
+                {
+                    updateElementFk(ownerOP, element, ownerOP.getObject(), i, false);
+                }
+            }
+            else if (oldPosition.intValue() != i)
+            {
+                updateElementFk(ownerOP, element, ownerOP.getObject(), i, false);
+            }
+        }
+
+        ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+        try
+        {
+            storeMgr.getSQLController().processStatementsForConnection(mconn);
+        }
+        catch (SQLException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("056027", e.getMessage()), e);
+        }
+        finally
+        {
+            mconn.release();
+        }
+    }
+
     /**
      * Internal method for adding an item to the List.
      * @param ownerOP ObjectProvider for the owner
@@ -857,23 +995,26 @@ public class FKListStore<E> extends AbstractListStore<E>
 
         if (deleteElements)
         {
-            // Find elements present in the datastore and delete them one-by-one
-            Iterator elementsIter = iterator(ownerOP);
-            if (elementsIter != null)
+            // Delete the elements directly in the datastore where possible, otherwise find them and delete them one-by-one
+            if (!deleteElementsInBulk(ownerOP))
             {
-                while (elementsIter.hasNext())
+                Iterator elementsIter = iteratorForUpdate(ownerOP);
+                if (elementsIter != null)
                 {
-                    Object element = elementsIter.next();
-                    if (ec.getApiAdapter().isPersistable(element) && ec.getApiAdapter().isDeleted(element))
-                    {
-                        // Element is waiting to be deleted so flush it (it has the FK)
-                        ObjectProvider objSM = ec.findObjectProvider(element);
-                        objSM.flush();
-                    }
-                    else
+                    while (elementsIter.hasNext())
                     {
-                        // Element not yet marked for deletion so go through the normal process
-                        ec.deleteObjectInternal(element);
+                        Object element = elementsIter.next();
+                        if (ec.getApiAdapter().isPersistable(element) && ec.getApiAdapter().isDeleted(element))
+                        {
+                            // Element is waiting to be deleted so flush it (it has the FK)
+                            ObjectProvider objSM = ec.findObjectProvider(element);
+                            objSM.flush();
+                        }
+                        else
+                        {
+                            // Element not yet marked for deletion so go through the normal process
+                            ec.deleteObjectInternal(element);
+                        }
                     }
                 }
             }
@@ -1070,51 +1211,52 @@ public class FKListStore<E> extends AbstractListStore<E>
      * @return The List Iterator
      */
     protected ListIterator<E> listIterator(ObjectProvider ownerOP, int startIdx, int endIdx)
+    {
+        return listIterator(ownerOP, startIdx, endIdx, true);
+    }
+
+    @Override
+    protected Iterator<E> iteratorForUpdate(ObjectProvider ownerOP)
+    {
+        return listIterator(ownerOP, -1, -1, false);
+    }
+
+    /**
+     * Accessor for an iterator through the list elements.
+     * @param ownerOP ObjectProvider for the owner.
+     * @param startIdx The start index in the list (only for indexed lists)
+     * @param endIdx The end index in the list (only for indexed lists)
+     * @param loadOwnerBatch Whether the list is being loaded, so can be loaded together with the other owners of its batch
+     * @return The List Iterator
+     */
+    protected ListIterator<E> listIterator(ObjectProvider ownerOP, int startIdx, int endIdx, boolean loadOwnerBatch)
     {
         ExecutionContext ec = ownerOP.getExecutionContext();
-        Transaction tx = ec.getTransaction();
 
         if (elementInfo == null || elementInfo.length == 0)
         {
             return null;
         }
 
-        // Generate the statement. Note that this is not cached since depends on the current FetchPlan and other things
-        ElementIteratorStatement iterStmt = getIteratorStatement(ownerOP.getExecutionContext(), ec.getFetchPlan(), true, startIdx, endIdx);
-        SelectStatement sqlStmt = iterStmt.getSelectStatement();
-        StatementClassMapping resultMapping = iterStmt.getElementClassMapping();
-
-        // Input parameter(s) - the owner
-        int inputParamNum = 1;
-        StatementMappingIndex ownerIdx = new StatementMappingIndex(ownerMapping);
-        if (sqlStmt.getNumberOfUnions() > 0)
+        if (loadOwnerBatch && startIdx < 0 && endIdx < 0)
         {
-            // Add parameter occurrence for each union of statement
-            for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
+            // Load the elements together with those of the other owners retrieved in the same batch (when enabled)
+            List<E> batchElements = getElementsForOwnerBatch(ownerOP);
+            if (batchElements != null)
             {
-                int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-                for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-                {
-                    paramPositions[k] = inputParamNum++;
-                }
-                ownerIdx.addParameterOccurrence(paramPositions);
+                return batchElements.listIterator();
             }
         }
-        else
-        {
-            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-            for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-            {
-                paramPositions[k] = inputParamNum++;
-            }
-            ownerIdx.addParameterOccurrence(paramPositions);
-        }
 
-        if (tx.getSerializeRead() != null && tx.getSerializeRead())
+        // Generate the statement (unless already generated for this FetchPlan), and statement mapping/parameter information
+        ElementIteratorSQL iterSQL = getCachedIteratorSQL(ec, startIdx, endIdx);
+        if (iterSQL == null)
         {
-            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            iterSQL = getIteratorSQL(ec, getIteratorStatement(ec, getIteratorFetchPlan(ec), true, startIdx, endIdx), startIdx, endIdx);
         }
-        String stmt = sqlStmt.getSQLText().toSQL();
+        StatementClassMapping resultMapping = iterSQL.getElementClassMapping();
+        StatementMappingIndex ownerIdx = iterSQL.getOwnerMappingIndex();
+        String stmt = iterSQL.getSQL();
 
         try
         {
@@ -1542,6 +1684,15 @@ public class FKListStore<E> extends AbstractListStore<E>
         return removeAtNullifyStmt;
     }
 
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.scostore.AbstractCollectionStore#getIteratorStatementForOwners(org.datanucleus.ExecutionContext)
+     */
+    @Override
+    protected ElementIteratorStatement getIteratorStatementForOwners(ExecutionContext ec)
+    {
+        return getIteratorStatement(ec, getIteratorFetchPlan(ec), false, -1, -1);
+    }
+
     /**
      * Method to return the SQLStatement and mapping for an iterator for this backing store.
      * Create a statement of the form
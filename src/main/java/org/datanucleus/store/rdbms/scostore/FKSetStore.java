@@ -20,9 +20,12 @@ package org.datanucleus.store.rdbms.scostore;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
@@ -238,6 +241,9 @@ public class FKSetStore<E> extends AbstractSetStore<E>
             }
         }
 
+        // Fetch group of the element whose fields should be loaded when iterating the collection
+        elementLoadGroup = mmd.getValueForExtension("load-group");
+
         // TODO Remove use of containerTable - just use elementTable[0] or equivalent
         containerTable = elementInfo[0].getDatastoreClass();
         if (mmd.getMappedBy() != null && ownerMapping.getTable() != containerTable)
@@ -351,16 +357,17 @@ public class FKSetStore<E> extends AbstractSetStore<E>
             return;
         }
 
-        // Find existing elements, and remove any that are no longer present
-        // TODO Create set of elements to remove and remove in one call, and add new ones in one call
-        Iterator elemIter = iterator(ownerOP);
+        // Find existing elements, and those that are no longer present
+        Set newElements = new HashSet(coll);
+        Iterator elemIter = iteratorForUpdate(ownerOP);
         Collection existing = new HashSet();
+        List removedElements = new ArrayList();
         while (elemIter.hasNext())
         {
             Object elem = elemIter.next();
-            if (!coll.contains(elem))
+            if (!newElements.contains(elem))
             {
-                remove(ownerOP, elem, -1, true);
+                removedElements.add(elem);
             }
             else
             {
@@ -368,18 +375,27 @@ public class FKSetStore<E> extends AbstractSetStore<E>
             }
         }
 
-        if (existing.size() != coll.size())
+        if (!removedElements.isEmpty())
         {
-            // Add any elements that aren't already present
+            // Remove the elements that are no longer present in one call
+            removeAll(ownerOP, removedElements, -1);
+        }
+
+        if (existing.size() != newElements.size())
+        {
+            // Add any elements that aren't already present in one call
+            int size = existing.size();
+            List<E> addedElements = new ArrayList<>();
             Iterator<E> iter = coll.iterator();
             while (iter.hasNext())
             {
                 E elem = iter.next();
-                if (!existing.contains(elem))
+                if (existing.add(elem))
                 {
-                    add(ownerOP, elem, 0);
+                    addedElements.add(elem);
                 }
             }
+            addAll(ownerOP, addedElements, size);
         }
     }
 
@@ -861,22 +877,25 @@ public class FKSetStore<E> extends AbstractSetStore<E>
         boolean deleteElements = checkRemovalOfElementShouldDelete(ownerOP);
         if (deleteElements)
         {
-            // Find elements present in the datastore and delete them one-by-one
-            Iterator elementsIter = iterator(ownerOP);
-            if (elementsIter != null)
+            // Delete the elements directly in the datastore where possible, otherwise find them and delete them one-by-one
+            if (!deleteElementsInBulk(ownerOP))
             {
-                while (elementsIter.hasNext())
+                Iterator elementsIter = iteratorForUpdate(ownerOP);
+                if (elementsIter != null)
                 {
-                    Object element = elementsIter.next();
-                    if (ec.getApiAdapter().isPersistable(element) && ec.getApiAdapter().isDeleted(element))
-                    {
-                        // Element is waiting to be deleted so flush it (it has the FK)
-                        ec.findObjectProvider(element).flush();
-                    }
-                    else
+                    while (elementsIter.hasNext())
                     {
-                        // Element not yet marked for deletion so go through the normal process
-                        ec.deleteObjectInternal(element);
+                        Object element = elementsIter.next();
+                        if (ec.getApiAdapter().isPersistable(element) && ec.getApiAdapter().isDeleted(element))
+                        {
+                            // Element is waiting to be deleted so flush it (it has the FK)
+                            ec.findObjectProvider(element).flush();
+                        }
+                        else
+                        {
+                            // Element not yet marked for deletion so go through the normal process
+                            ec.deleteObjectInternal(element);
+                        }
                     }
                 }
             }
@@ -896,7 +915,7 @@ public class FKSetStore<E> extends AbstractSetStore<E>
             else
             {
                 // Maybe deleting the owner with optimistic transactions so the elements are no longer cached
-                elementsIter = iterator(ownerOP);
+                elementsIter = iteratorForUpdate(ownerOP);
             }
             if (!ownerSoftDelete)
             {
@@ -1091,6 +1110,23 @@ public class FKSetStore<E> extends AbstractSetStore<E>
      * @return Iterator for the set.
      */
     public Iterator<E> iterator(ObjectProvider ownerOP)
+    {
+        return iterator(ownerOP, true);
+    }
+
+    @Override
+    protected Iterator<E> iteratorForUpdate(ObjectProvider ownerOP)
+    {
+        return iterator(ownerOP, false);
+    }
+
+    /**
+     * Accessor for an iterator for the set.
+     * @param ownerOP ObjectProvider for the set.
+     * @param loadOwnerBatch Whether the set is being loaded, so can be loaded together with the other owners of its batch
+     * @return Iterator for the set.
+     */
+    protected Iterator<E> iterator(ObjectProvider ownerOP, boolean loadOwnerBatch)
     {
         ExecutionContext ec = ownerOP.getExecutionContext();
 
@@ -1099,42 +1135,22 @@ public class FKSetStore<E> extends AbstractSetStore<E>
             return null;
         }
 
-        // Generate the statement, and statement mapping/parameter information
-        ElementIteratorStatement iterStmt = getIteratorStatement(ec, ec.getFetchPlan(), true);
-        SelectStatement sqlStmt = iterStmt.getSelectStatement();
-        StatementClassMapping iteratorMappingClass = iterStmt.getElementClassMapping();
-
-        // Input parameter(s) - the owner
-        int inputParamNum = 1;
-        StatementMappingIndex ownerStmtMapIdx = new StatementMappingIndex(ownerMapping);
-        if (sqlStmt.getNumberOfUnions() > 0)
+        // Load the elements together with those of the other owners retrieved in the same batch (when enabled)
+        List<E> batchElements = loadOwnerBatch ? getElementsForOwnerBatch(ownerOP) : null;
+        if (batchElements != null)
         {
-            // Add parameter occurrence for each union of statement
-            for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
-            {
-                int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-                for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-                {
-                    paramPositions[k] = inputParamNum++;
-                }
-                ownerStmtMapIdx.addParameterOccurrence(paramPositions);
-            }
-        }
-        else
-        {
-            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-            for (int k=0;k<ownerMapping.getNumberOfColumnMappings();k++)
-            {
-                paramPositions[k] = inputParamNum++;
-            }
-            ownerStmtMapIdx.addParameterOccurrence(paramPositions);
+            return batchElements.iterator();
         }
 
-        if (ec.getTransaction().getSerializeRead() != null && ec.getTransaction().getSerializeRead())
+        // Generate the statement (unless already generated for this FetchPlan), and statement mapping/parameter information
+        ElementIteratorSQL iterSQL = getCachedIteratorSQL(ec, -1, -1);
+        if (iterSQL == null)
         {
-            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            iterSQL = getIteratorSQL(ec, getIteratorStatement(ec, getIteratorFetchPlan(ec), true), -1, -1);
         }
-        String stmt = sqlStmt.getSQLText().toSQL();
+        StatementClassMapping iteratorMappingClass = iterSQL.getElementClassMapping();
+        StatementMappingIndex ownerStmtMapIdx = iterSQL.getOwnerMappingIndex();
+        String stmt = iterSQL.getSQL();
 
         try
         {
@@ -1188,6 +1204,15 @@ public class FKSetStore<E> extends AbstractSetStore<E>
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.scostore.AbstractCollectionStore#getIteratorStatementForOwners(org.datanucleus.ExecutionContext)
+     */
+    @Override
+    protected ElementIteratorStatement getIteratorStatementForOwners(ExecutionContext ec)
+    {
+        return getIteratorStatement(ec, getIteratorFetchPlan(ec), false);
+    }
+
     /**
      * Method to return the SQLStatement and mapping for an iterator for this backing store.
      * Create a statement of the form
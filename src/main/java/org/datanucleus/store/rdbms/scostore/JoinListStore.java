@@ -22,14 +22,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
 import org.datanucleus.FetchPlan;
-import org.datanucleus.Transaction;
 import org.datanucleus.exceptions.NucleusDataStoreException;
 import org.datanucleus.exceptions.NucleusException;
 import org.datanucleus.exceptions.NucleusUserException;
@@ -441,33 +442,246 @@ public class JoinListStore<E> extends AbstractListStore<E>
             return;
         }
 
-        // Find existing elements, and remove any that are no longer present
-        Collection existing = new ArrayList();
-        Iterator elemIter = iterator(op);
+        // Find existing elements
+        List existing = new ArrayList();
+        Iterator elemIter = iteratorForUpdate(op);
         while (elemIter.hasNext())
         {
-            Object elem = elemIter.next();
+            existing.add(elemIter.next());
+        }
+
+        List newElements = new ArrayList(coll);
+        if (existing.equals(newElements))
+        {
+            // Existing is same as the specified so job done
+            return;
+        }
+
+        if (indexedList && !(relationType == RelationType.MANY_TO_MANY_BI && ownerMemberMetaData.getMappedBy() != null))
+        {
+            // Indexed list, so update just the rows that differ
+            updateIndexedList(op, existing, newElements);
+            return;
+        }
+
+        // Remove any existing elements that are no longer present
+        Collection retained = new ArrayList();
+        Iterator existingIter = existing.iterator();
+        while (existingIter.hasNext())
+        {
+            Object elem = existingIter.next();
             if (!coll.contains(elem))
             {
                 remove(op, elem, -1, true);
             }
             else
             {
-                existing.add(elem);
+                retained.add(elem);
             }
         }
 
-        if (existing.equals(coll))
+        if (retained.equals(newElements))
         {
             // Existing (after any removals) is same as the specified so job done
             return;
         }
 
-        // TODO Improve this - need to allow for list element position changes etc
         clear(op);
         addAll(op, coll, 0);
     }
 
+    /**
+     * Method to update an indexed List from its current (stored) elements to the new elements.
+     * Elements common to the start and to the end of both lists are left alone. Elements in between are replaced
+     * position by position, and then any surplus rows are deleted, or additional rows inserted, shifting the index of
+     * the common trailing rows. Each type of statement is batched. Any elements no longer present are deleted if the
+     * elements are dependent.
+     * @param op ObjectProvider of the owner
+     * @param oldElements The elements currently stored, in list order
+     * @param newElements The elements the list should have, in list order
+     */
+    protected void updateIndexedList(ObjectProvider op, List oldElements, List newElements)
+    {
+        int oldSize = oldElements.size();
+        int newSize = newElements.size();
+        int start = 0;
+        while (start < oldSize && start < newSize && elementsEqual(oldElements.get(start), newElements.get(start)))
+        {
+            start++;
+        }
+        int numCommonAtEnd = 0;
+        while (numCommonAtEnd < oldSize - start && numCommonAtEnd < newSize - start &&
+            elementsEqual(oldElements.get(oldSize - 1 - numCommonAtEnd), newElements.get(newSize - 1 - numCommonAtEnd)))
+        {
+            numCommonAtEnd++;
+        }
+        int oldEnd = oldSize - numCommonAtEnd;
+        int newEnd = newSize - numCommonAtEnd;
+        int replaceEnd = Math.min(oldEnd, newEnd);
+
+        ExecutionContext ec = op.getExecutionContext();
+        List changedElements = new ArrayList(newElements.subList(start, newEnd));
+        Iterator changedIter = changedElements.iterator();
+        while (changedIter.hasNext())
+        {
+            validateElementForWriting(ec, changedIter.next(), null);
+        }
+
+        // Check for dynamic schema updates prior to update
+        if (storeMgr.getBooleanObjectProperty(RDBMSPropertyNames.PROPERTY_RDBMS_DYNAMIC_SCHEMA_UPDATES).booleanValue())
+        {
+            DynamicSchemaFieldManager dynamicSchemaFM = new DynamicSchemaFieldManager(storeMgr, op);
+            dynamicSchemaFM.storeObjectField(getOwnerMemberMetaData().getAbsoluteFieldNumber(), changedElements);
+            if (dynamicSchemaFM.hasPerformedSchemaUpdates())
+            {
+                setStmt = null;
+                invalidateAddStmt();
+            }
+        }
+
+        String stmt = null;
+        try
+        {
+            ManagedConnection mconn = storeMgr.getConnectionManager().getConnection(ec);
+            SQLController sqlControl = storeMgr.getSQLController();
+            try
+            {
+                if (newEnd > oldEnd)
+                {
+                    // Shift the trailing rows up to make room for the additional elements (highest first)
+                    for (int i=oldSize-1;i>=oldEnd;i--)
+                    {
+                        internalShift(op, mconn, true, i, newEnd - oldEnd, false);
+                    }
+                }
+
+                // Replace the elements that differ in the common range
+                stmt = getSetStmt();
+                for (int i=start;i<replaceEnd;i++)
+                {
+                    if (!elementsEqual(oldElements.get(i), newElements.get(i)))
+                    {
+                        PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, stmt, true);
+                        try
+                        {
+                            int jdbcPosition = 1;
+                            jdbcPosition = BackingStoreHelper.populateElementInStatement(ec, ps, newElements.get(i), jdbcPosition, elementMapping);
+                            jdbcPosition = BackingStoreHelper.populateOwnerInStatement(op, ec, ps, jdbcPosition, this);
+                            jdbcPosition = BackingStoreHelper.populateOrderInStatement(ec, ps, i, jdbcPosition, orderMapping);
+                            if (relationDiscriminatorMapping != null)
+                            {
+                                jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                            }
+                            sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, false);
+                        }
+                        finally
+                        {
+                            sqlControl.closeStatement(mconn, ps);
+                        }
+                    }
+                }
+
+                if (newEnd > oldEnd)
+                {
+                    // Insert the additional elements
+                    stmt = getAddStmtForJoinTable();
+                    for (int i=replaceEnd;i<newEnd;i++)
+                    {
+                        PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, stmt, true);
+                        try
+                        {
+                            int jdbcPosition = 1;
+                            jdbcPosition = BackingStoreHelper.populateOwnerInStatement(op, ec, ps, jdbcPosition, this);
+                            jdbcPosition = BackingStoreHelper.populateElementInStatement(ec, ps, newElements.get(i), jdbcPosition, elementMapping);
+                            jdbcPosition = BackingStoreHelper.populateOrderInStatement(ec, ps, i, jdbcPosition, orderMapping);
+                            if (relationDiscriminatorMapping != null)
+                            {
+                                jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                            }
+                            sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, false);
+                        }
+                        finally
+                        {
+                            sqlControl.closeStatement(mconn, ps);
+                        }
+                    }
+                }
+                else if (oldEnd > newEnd)
+                {
+                    // Delete the surplus rows
+                    stmt = getRemoveAtStmt();
+                    for (int i=replaceEnd;i<oldEnd;i++)
+                    {
+                        PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, stmt, true);
+                        try
+                        {
+                            int jdbcPosition = 1;
+                            jdbcPosition = BackingStoreHelper.populateOwnerInStatement(op, ec, ps, jdbcPosition, this);
+                            jdbcPosition = BackingStoreHelper.populateOrderInStatement(ec, ps, i, jdbcPosition, orderMapping);
+                            if (relationDiscriminatorMapping != null)
+                            {
+                                jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                            }
+                            sqlControl.executeStatementUpdate(ec, mconn, stmt, ps, false);
+                        }
+                        finally
+                        {
+                            sqlControl.closeStatement(mconn, ps);
+                        }
+                    }
+
+                    // Shift the trailing rows down to remove the gap (lowest first)
+                    stmt = getShiftStmt();
+                    for (int i=oldEnd;i<oldSize;i++)
+                    {
+                        internalShift(op, mconn, true, i, newEnd - oldEnd, false);
+                    }
+                }
+
+                sqlControl.processStatementsForConnection(mconn);
+            }
+            finally
+            {
+                mconn.release();
+            }
+        }
+        catch (SQLException | MappedDatastoreException e)
+        {
+            throw new NucleusDataStoreException(Localiser.msg("056015", stmt), e);
+        }
+
+        // Dependent field
+        CollectionMetaData collmd = ownerMemberMetaData.getCollection();
+        boolean dependent = collmd.isDependentElement();
+        if (ownerMemberMetaData.isCascadeRemoveOrphans())
+        {
+            dependent = true;
+        }
+        if (dependent && !collmd.isEmbeddedElement())
+        {
+            // Delete any elements that are no longer in the list
+            Set newElementSet = new HashSet(newElements);
+            List removedElements = new ArrayList();
+            for (int i=start;i<oldEnd;i++)
+            {
+                Object oldElement = oldElements.get(i);
+                if (oldElement != null && !newElementSet.contains(oldElement) && !removedElements.contains(oldElement))
+                {
+                    removedElements.add(oldElement);
+                }
+            }
+            if (!removedElements.isEmpty())
+            {
+                ec.deleteObjects(removedElements.toArray());
+            }
+        }
+    }
+
+    private static boolean elementsEqual(Object elem1, Object elem2)
+    {
+        return elem1 == null ? elem2 == null : elem1.equals(elem2);
+    }
+
     /**
      * Convenience method to remove the specified element from the List.
      * @param element The element
@@ -722,45 +936,46 @@ public class JoinListStore<E> extends AbstractListStore<E>
      */
     protected ListIterator<E> listIterator(ObjectProvider ownerOP, int startIdx, int endIdx)
     {
-        ExecutionContext ec = ownerOP.getExecutionContext();
-        Transaction tx = ec.getTransaction();
+        return listIterator(ownerOP, startIdx, endIdx, true);
+    }
 
-        // Generate the statement. Note that this is not cached since depends on the current FetchPlan and other things
-        ElementIteratorStatement iterStmt = getIteratorStatement(ownerOP.getExecutionContext(), ec.getFetchPlan(), true, startIdx, endIdx);
-        SelectStatement sqlStmt = iterStmt.getSelectStatement();
-        StatementClassMapping resultMapping = iterStmt.getElementClassMapping();
+    @Override
+    protected Iterator<E> iteratorForUpdate(ObjectProvider ownerOP)
+    {
+        return listIterator(ownerOP, -1, -1, false);
+    }
 
-        // Input parameter(s) - the owner
-        int inputParamNum = 1;
-        StatementMappingIndex ownerIdx = new StatementMappingIndex(ownerMapping);
-        if (sqlStmt.getNumberOfUnions() > 0)
-        {
-            // Add parameter occurrence for each union of statement
-            for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
-            {
-                int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-                for (int k=0;k<paramPositions.length;k++)
-                {
-                    paramPositions[k] = inputParamNum++;
-                }
-                ownerIdx.addParameterOccurrence(paramPositions);
-            }
-        }
-        else
+    /**
+     * Accessor for an iterator through the list elements.
+     * @param ownerOP ObjectProvider for the owner
+     * @param startIdx The start point in the list (only for indexed lists).
+     * @param endIdx End index in the list (only for indexed lists).
+     * @param loadOwnerBatch Whether the list is being loaded, so can be loaded together with the other owners of its batch
+     * @return The List Iterator
+     */
+    protected ListIterator<E> listIterator(ObjectProvider ownerOP, int startIdx, int endIdx, boolean loadOwnerBatch)
+    {
+        ExecutionContext ec = ownerOP.getExecutionContext();
+
+        if (loadOwnerBatch && startIdx < 0 && endIdx < 0)
         {
-            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-            for (int k=0;k<paramPositions.length;k++)
+            // Load the elements together with those of the other owners retrieved in the same batch (when enabled)
+            List<E> batchElements = getElementsForOwnerBatch(ownerOP);
+            if (batchElements != null)
             {
-                paramPositions[k] = inputParamNum++;
+                return batchElements.listIterator();
             }
-            ownerIdx.addParameterOccurrence(paramPositions);
         }
 
-        if (tx.getSerializeRead() != null && tx.getSerializeRead())
+        // Generate the statement (unless already generated for this FetchPlan), and statement mapping/parameter information
+        ElementIteratorSQL iterSQL = getCachedIteratorSQL(ec, startIdx, endIdx);
+        if (iterSQL == null)
         {
-            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            iterSQL = getIteratorSQL(ec, getIteratorStatement(ec, ec.getFetchPlan(), true, startIdx, endIdx), startIdx, endIdx);
         }
-        String stmt = sqlStmt.getSQLText().toSQL();
+        StatementClassMapping resultMapping = iterSQL.getElementClassMapping();
+        StatementMappingIndex ownerIdx = iterSQL.getOwnerMappingIndex();
+        String stmt = iterSQL.getSQL();
 
         try
         {
@@ -907,6 +1122,15 @@ public class JoinListStore<E> extends AbstractListStore<E>
         return stmt.toString();
     }
 
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.scostore.AbstractCollectionStore#getIteratorStatementForOwners(org.datanucleus.ExecutionContext)
+     */
+    @Override
+    protected ElementIteratorStatement getIteratorStatementForOwners(ExecutionContext ec)
+    {
+        return getIteratorStatement(ec, ec.getFetchPlan(), false, -1, -1);
+    }
+
     /**
      * Method to return the SQLStatement and mapping for an iterator for this backing store.
      * Create a statement of the form
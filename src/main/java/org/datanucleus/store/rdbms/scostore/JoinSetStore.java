@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.datanucleus.ClassLoaderResolver;
 import org.datanucleus.ExecutionContext;
@@ -159,15 +160,17 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
             return;
         }
 
-        // Find existing elements, and remove any that are no longer present
-        Iterator elemIter = iterator(op);
+        // Find existing elements, and those that are no longer present
+        Set newElements = new HashSet(coll);
+        Iterator elemIter = iteratorForUpdate(op);
         Collection existing = new HashSet();
+        List removedElements = new ArrayList();
         while (elemIter.hasNext())
         {
             Object elem = elemIter.next();
-            if (!coll.contains(elem))
+            if (!newElements.contains(elem))
             {
-                remove(op, elem, -1, true);
+                removedElements.add(elem);
             }
             else
             {
@@ -175,18 +178,27 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
             }
         }
 
-        if (existing.size() != coll.size())
+        if (!removedElements.isEmpty())
         {
-            // Add any elements that aren't already present
+            // Remove the elements that are no longer present in one call
+            removeAll(op, removedElements, -1);
+        }
+
+        if (existing.size() != newElements.size())
+        {
+            // Add any elements that aren't already present in one call
+            int size = existing.size();
+            List<E> addedElements = new ArrayList<>();
             Iterator<E> iter = coll.iterator();
             while (iter.hasNext())
             {
                 E elem = iter.next();
-                if (!existing.contains(elem))
+                if (existing.add(elem))
                 {
-                    add(op, elem, 0);
+                    addedElements.add(elem);
                 }
             }
+            addAll(op, addedElements, size);
         }
     }
 
@@ -237,6 +249,111 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
         return false;
     }
 
+    /**
+     * Convenience method to return those of the supplied elements that don't already refer to the owner in an M-N relation
+     * (i.e not added from the other side). Where possible the join table is checked with a single statement per chunk of elements
+     * <PRE>
+     * SELECT ELEMENTCOL FROM JOINTABLE WHERE OWNERCOL = ? AND ELEMENTCOL IN (?,?,...)
+     * </PRE>
+     * rather than checking each element in turn, and so any additions can then be batched without interruption.
+     * @param ownerOP ObjectProvider of the owner
+     * @param elements The elements
+     * @param mconn Connection to use
+     * @return The elements that need adding
+     */
+    private Collection<E> getElementsNotContainingOwnerInMtoN(ObjectProvider ownerOP, Collection<E> elements, ManagedConnection mconn)
+    {
+        List<E> elementsToAdd = new ArrayList<>(elements.size());
+        if (elements.size() == 1 || elementMapping instanceof ReferenceMapping || elementsAreSerialised)
+        {
+            for (E element : elements)
+            {
+                if (!elementAlreadyContainsOwnerInMtoN(ownerOP, element))
+                {
+                    elementsToAdd.add(element);
+                }
+            }
+            return elementsToAdd;
+        }
+
+        // Find the ids of the elements already present in the join table for this owner
+        ExecutionContext ec = ownerOP.getExecutionContext();
+        int numElemCols = elementMapping.getNumberOfColumnMappings();
+        int numFixedParams = ownerMapping.getNumberOfColumnMappings() +
+            (relationDiscriminatorMapping != null ? relationDiscriminatorMapping.getNumberOfColumnMappings() : 0);
+        int chunkSize = Math.max(1, (storeMgr.getDatastoreAdapter().getMaxParametersPerStatement() - numFixedParams) / numElemCols);
+        int[] elemPositions = new int[numElemCols];
+        for (int i=0;i<numElemCols;i++)
+        {
+            elemPositions[i] = i+1;
+        }
+
+        Collection<Object> existingIds = new HashSet<>();
+        List<E> elementList = new ArrayList<>(elements);
+        SQLController sqlControl = storeMgr.getSQLController();
+        for (int start=0;start<elementList.size();start+=chunkSize)
+        {
+            List<E> chunk = elementList.subList(start, Math.min(start+chunkSize, elementList.size()));
+            String stmt = getLocateElementsStatementString(chunk.size());
+            try
+            {
+                PreparedStatement ps = sqlControl.getStatementForQuery(mconn, stmt);
+                try
+                {
+                    int jdbcPosition = 1;
+                    jdbcPosition = BackingStoreHelper.populateOwnerInStatement(ownerOP, ec, ps, jdbcPosition, this);
+                    if (relationDiscriminatorMapping != null)
+                    {
+                        jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                    }
+                    for (E element : chunk)
+                    {
+                        jdbcPosition = BackingStoreHelper.populateElementForWhereClauseInStatement(ec, ps, element, jdbcPosition, elementMapping);
+                    }
+
+                    ResultSet rs = sqlControl.executeStatementQuery(ec, mconn, stmt, ps);
+                    try
+                    {
+                        while (rs.next())
+                        {
+                            Object existingElement = elementMapping.getObject(ec, rs, elemPositions);
+                            if (existingElement != null)
+                            {
+                                existingIds.add(ec.getApiAdapter().getIdForObject(existingElement));
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        rs.close();
+                    }
+                }
+                finally
+                {
+                    sqlControl.closeStatement(mconn, ps);
+                }
+            }
+            catch (SQLException e)
+            {
+                NucleusLogger.DATASTORE.error(Localiser.msg("RDBMS.SCO.LocateRequestFailed", stmt), e);
+                throw new NucleusDataStoreException(Localiser.msg("RDBMS.SCO.LocateRequestFailed", stmt), e);
+            }
+        }
+
+        for (E element : elements)
+        {
+            if (existingIds.contains(ec.getApiAdapter().getIdForObject(element)))
+            {
+                NucleusLogger.DATASTORE.info(Localiser.msg("056040", ownerMemberMetaData.getFullFieldName(), StringUtils.toJVMIDString(ownerOP.getObject()), element));
+            }
+            else
+            {
+                elementsToAdd.add(element);
+            }
+        }
+        return elementsToAdd;
+    }
+
     /**
      * Adds one element to the association owner vs elements.
      * @param op ObjectProvider for the container.
@@ -384,8 +501,15 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
 
                 int nextOrderID = orderMapping != null ? getNextIDForOrderColumn(op) : 0;
 
+                // Omit any elements already added from the other side of an M-N relation
+                Collection<E> elementsToAdd = elements;
+                if (relationType == RelationType.MANY_TO_MANY_BI)
+                {
+                    elementsToAdd = getElementsNotContainingOwnerInMtoN(op, elements, mconn);
+                }
+
                 // Loop through all elements to be added
-                iter = elements.iterator();
+                iter = elementsToAdd.iterator();
                 E element = null;
                 while (iter.hasNext())
                 {
@@ -394,28 +518,19 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
                     try
                     {
                         // Add the row to the join table
-                        boolean toBeInserted = true;
-                        if (relationType == RelationType.MANY_TO_MANY_BI)
+                        int[] rc = doInternalAdd(op, element, mconn, batched, nextOrderID, !batched || (batched && !iter.hasNext()));
+                        if (rc != null)
                         {
-                            toBeInserted = !elementAlreadyContainsOwnerInMtoN(op, element);
-                        }
-
-                        if (toBeInserted)
-                        {
-                            int[] rc = doInternalAdd(op, element, mconn, batched, nextOrderID, !batched || (batched && !iter.hasNext()));
-                            if (rc != null)
+                            for (int i = 0; i < rc.length; i++)
                             {
-                                for (int i = 0; i < rc.length; i++)
+                                if (rc[i] > 0)
                                 {
-                                    if (rc[i] > 0)
-                                    {
-                                        // At least one record was inserted
-                                        modified = true;
-                                    }
+                                    // At least one record was inserted
+                                    modified = true;
                                 }
                             }
-                            nextOrderID++;
                         }
+                        nextOrderID++;
                     }
                     catch (MappedDatastoreException mde)
                     {
@@ -479,7 +594,13 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
     {
         boolean modified = false;
 
-        String removeAllStmt = getRemoveAllStmt(op, elements);
+        // Remove the elements in chunks so as not to exceed the number of parameters allowed in a statement
+        int numParamsPerElement = ownerMapping.getNumberOfColumnMappings() + elementMapping.getNumberOfColumnMappings() +
+            (relationDiscriminatorMapping != null ? relationDiscriminatorMapping.getNumberOfColumnMappings() : 0);
+        int chunkSize = Math.max(1, storeMgr.getDatastoreAdapter().getMaxParametersPerStatement() / numParamsPerElement);
+        List elementList = new ArrayList(elements);
+
+        String removeAllStmt = null;
         try
         {
             ExecutionContext ec = op.getExecutionContext();
@@ -487,32 +608,37 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
             SQLController sqlControl = storeMgr.getSQLController();
             try
             {
-                PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, removeAllStmt, false);
-                try
+                for (int start=0;start<elementList.size();start+=chunkSize)
                 {
-                    int jdbcPosition = 1;
-                    Iterator iter = elements.iterator();
-                    while (iter.hasNext())
+                    List chunk = elementList.subList(start, Math.min(start+chunkSize, elementList.size()));
+                    removeAllStmt = getRemoveAllStmt(op, chunk);
+                    PreparedStatement ps = sqlControl.getStatementForUpdate(mconn, removeAllStmt, false);
+                    try
                     {
-                        Object element = iter.next();
-                        jdbcPosition = BackingStoreHelper.populateOwnerInStatement(op, ec, ps, jdbcPosition, this);
-                        jdbcPosition = BackingStoreHelper.populateElementForWhereClauseInStatement(ec, ps, element, jdbcPosition, elementMapping);
-                        if (relationDiscriminatorMapping != null)
+                        int jdbcPosition = 1;
+                        Iterator iter = chunk.iterator();
+                        while (iter.hasNext())
+                        {
+                            Object element = iter.next();
+                            jdbcPosition = BackingStoreHelper.populateOwnerInStatement(op, ec, ps, jdbcPosition, this);
+                            jdbcPosition = BackingStoreHelper.populateElementForWhereClauseInStatement(ec, ps, element, jdbcPosition, elementMapping);
+                            if (relationDiscriminatorMapping != null)
+                            {
+                                jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                            }
+                        }
+
+                        int[] number = sqlControl.executeStatementUpdate(ec, mconn, removeAllStmt, ps, true);
+                        if (number[0] > 0)
                         {
-                            jdbcPosition = BackingStoreHelper.populateRelationDiscriminatorInStatement(ec, ps, jdbcPosition, this);
+                            modified = true;
                         }
                     }
-
-                    int[] number = sqlControl.executeStatementUpdate(ec, mconn, removeAllStmt, ps, true);
-                    if (number[0] > 0)
+                    finally
                     {
-                        modified = true;
+                        sqlControl.closeStatement(mconn, ps);
                     }
                 }
-                finally
-                {
-                    sqlControl.closeStatement(mconn, ps);
-                }
             }
             finally
             {
@@ -748,6 +874,66 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
         return stmt.toString();
     }
 
+    /**
+     * Generate statement for finding which of a number of elements have an owner-element relation (used for M-N).
+     * <PRE>
+     * SELECT ELEMENTCOL FROM JOINTABLE WHERE OWNERCOL = ? [AND RELATION_DISCRIM=?] AND ELEMENTCOL IN (?,?,...)
+     * </PRE>
+     * When the element has multiple columns the IN is replaced by <i>((ELEMENTCOL1=? AND ELEMENTCOL2=?) OR (...))</i>.
+     * @param numElements Number of elements to check
+     * @return Statement for locating owner-element relations in the join table
+     */
+    private String getLocateElementsStatementString(int numElements)
+    {
+        StringBuilder stmt = new StringBuilder("SELECT ");
+        for (int i=0;i<elementMapping.getNumberOfColumnMappings();i++)
+        {
+            if (i > 0)
+            {
+                stmt.append(",");
+            }
+            stmt.append(elementMapping.getColumnMapping(i).getColumn().getIdentifier().toString());
+        }
+        stmt.append(" FROM ").append(containerTable.toString()).append(" WHERE ");
+        BackingStoreHelper.appendWhereClauseForMapping(stmt, ownerMapping, null, true);
+        if (relationDiscriminatorMapping != null)
+        {
+            BackingStoreHelper.appendWhereClauseForMapping(stmt, relationDiscriminatorMapping, null, false);
+        }
+
+        stmt.append(" AND ");
+        if (elementMapping.getNumberOfColumnMappings() == 1)
+        {
+            stmt.append(elementMapping.getColumnMapping(0).getColumn().getIdentifier().toString()).append(" IN (");
+            for (int i=0;i<numElements;i++)
+            {
+                if (i > 0)
+                {
+                    stmt.append(",");
+                }
+                stmt.append(elementMapping.getColumnMapping(0).getUpdateInputParameter());
+            }
+            stmt.append(")");
+        }
+        else
+        {
+            stmt.append("(");
+            for (int i=0;i<numElements;i++)
+            {
+                if (i > 0)
+                {
+                    stmt.append(" OR ");
+                }
+                stmt.append("(");
+                BackingStoreHelper.appendWhereClauseForElement(stmt, elementMapping, null, false, null, true);
+                stmt.append(")");
+            }
+            stmt.append(")");
+        }
+
+        return stmt.toString();
+    }
+
     protected int getNextIDForOrderColumn(ObjectProvider op)
     {
         int nextID;
@@ -844,44 +1030,41 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
      */
     public Iterator<E> iterator(ObjectProvider ownerOP)
     {
-        ExecutionContext ec = ownerOP.getExecutionContext();
+        return iterator(ownerOP, true);
+    }
 
-        // Generate the statement, and statement mapping/parameter information
-        ElementIteratorStatement iterStmt = getIteratorStatement(ec, ec.getFetchPlan(), true);
-        SelectStatement sqlStmt = iterStmt.sqlStmt;
-        StatementClassMapping iteratorMappingClass = iterStmt.elementClassMapping;
+    @Override
+    protected Iterator<E> iteratorForUpdate(ObjectProvider ownerOP)
+    {
+        return iterator(ownerOP, false);
+    }
 
-        // Input parameter(s) - the owner
-        int inputParamNum = 1;
-        StatementMappingIndex ownerStmtMapIdx = new StatementMappingIndex(ownerMapping);
-        if (sqlStmt.getNumberOfUnions() > 0)
-        {
-            // Add parameter occurrence for each union of statement
-            for (int j=0;j<sqlStmt.getNumberOfUnions()+1;j++)
-            {
-                int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-                for (int k=0;k<paramPositions.length;k++)
-                {
-                    paramPositions[k] = inputParamNum++;
-                }
-                ownerStmtMapIdx.addParameterOccurrence(paramPositions);
-            }
-        }
-        else
+    /**
+     * Accessor for an iterator for the set.
+     * @param ownerOP ObjectProvider for the set.
+     * @param loadOwnerBatch Whether the set is being loaded, so can be loaded together with the other owners of its batch
+     * @return Iterator for the set.
+     */
+    protected Iterator<E> iterator(ObjectProvider ownerOP, boolean loadOwnerBatch)
+    {
+        ExecutionContext ec = ownerOP.getExecutionContext();
+
+        // Load the elements together with those of the other owners retrieved in the same batch (when enabled)
+        List<E> batchElements = loadOwnerBatch ? getElementsForOwnerBatch(ownerOP) : null;
+        if (batchElements != null)
         {
-            int[] paramPositions = new int[ownerMapping.getNumberOfColumnMappings()];
-            for (int k=0;k<paramPositions.length;k++)
-            {
-                paramPositions[k] = inputParamNum++;
-            }
-            ownerStmtMapIdx.addParameterOccurrence(paramPositions);
+            return batchElements.iterator();
         }
 
-        if (ec.getTransaction().getSerializeRead() != null && ec.getTransaction().getSerializeRead())
+        // Generate the statement (unless already generated for this FetchPlan), and statement mapping/parameter information
+        ElementIteratorSQL iterSQL = getCachedIteratorSQL(ec, -1, -1);
+        if (iterSQL == null)
         {
-            sqlStmt.addExtension(SQLStatement.EXTENSION_LOCK_FOR_UPDATE, true);
+            iterSQL = getIteratorSQL(ec, getIteratorStatement(ec, ec.getFetchPlan(), true), -1, -1);
         }
-        String stmt = sqlStmt.getSQLText().toSQL();
+        StatementClassMapping iteratorMappingClass = iterSQL.getElementClassMapping();
+        StatementMappingIndex ownerStmtMapIdx = iterSQL.getOwnerMappingIndex();
+        String stmt = iterSQL.getSQL();
 
         try
         {
@@ -942,6 +1125,15 @@ public class JoinSetStore<E> extends AbstractSetStore<E>
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.datanucleus.store.rdbms.scostore.AbstractCollectionStore#getIteratorStatementForOwners(org.datanucleus.ExecutionContext)
+     */
+    @Override
+    protected ElementIteratorStatement getIteratorStatementForOwners(ExecutionContext ec)
+    {
+        return getIteratorStatement(ec, ec.getFetchPlan(), false);
+    }
+
     /**
      * Method to return the SQLStatement and mapping for an iterator for this backing store.
      * Create a statement of the form
@@ -75,6 +75,9 @@ public abstract class SQLStatement
     public static final String EXTENSION_LOCK_FOR_UPDATE = "lock-for-update";
     public static final String EXTENSION_LOCK_FOR_UPDATE_NOWAIT = "for-update-nowait";
 
+    /** Extension set when UNION branches were omitted for tables with no rows, so the statement is only valid for now. */
+    public static final String EXTENSION_EMPTY_TABLES_OMITTED = "empty-tables-omitted";
+
     /** Map of SQLTable naming instance keyed by the name of the naming scheme. */
     protected static final Map<String, SQLTableNamer> tableNamerByName = new ConcurrentHashMap<>();
 
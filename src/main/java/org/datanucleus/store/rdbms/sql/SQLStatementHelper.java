@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,11 @@ import org.datanucleus.metadata.MetaDataManager;
 import org.datanucleus.metadata.RelationType;
 import org.datanucleus.store.connection.ManagedConnection;
 import org.datanucleus.store.rdbms.mapping.MappingHelper;
+import org.datanucleus.store.rdbms.mapping.column.AbstractLargeBinaryColumnMapping;
+import org.datanucleus.store.rdbms.mapping.column.BinaryStreamColumnMapping;
+import org.datanucleus.store.rdbms.mapping.column.ClobColumnMapping;
+import org.datanucleus.store.rdbms.mapping.column.ColumnMapping;
+import org.datanucleus.store.rdbms.mapping.column.OracleBlobColumnMapping;
 import org.datanucleus.store.rdbms.mapping.java.DiscriminatorMapping;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.rdbms.mapping.java.PersistableIdMapping;
@@ -53,6 +59,7 @@ import org.datanucleus.store.rdbms.mapping.java.PersistableMapping;
 import org.datanucleus.store.rdbms.mapping.java.ReferenceMapping;
 import org.datanucleus.store.rdbms.query.StatementClassMapping;
 import org.datanucleus.store.rdbms.query.StatementMappingIndex;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.SQLController;
 import org.datanucleus.store.rdbms.adapter.DatastoreAdapter;
@@ -130,6 +137,7 @@ public class SQLStatementHelper
             int num = 1;
             Map<String, Integer> paramNumberByName = null;
             int nextParamNumber = 0;
+            Map<Object, List> listByCollectionValue = null;
 
             Iterator<SQLStatementParameter> i = parameters.iterator();
             while (i.hasNext())
@@ -203,6 +211,26 @@ public class SQLStatementHelper
                     }
                 }
 
+                if (param.getElementIndex() >= 0)
+                {
+                    // Parameter is for an element of a collection parameter, so convert the collection to a List (once) to find the element by index
+                    if (value instanceof Collection && !(value instanceof List))
+                    {
+                        if (listByCollectionValue == null)
+                        {
+                            listByCollectionValue = new IdentityHashMap<>();
+                        }
+                        List valueList = listByCollectionValue.get(value);
+                        if (valueList == null)
+                        {
+                            valueList = new ArrayList((Collection)value);
+                            listByCollectionValue.put(value, valueList);
+                        }
+                        value = valueList;
+                    }
+                    value = getElementOfCollectionParameter(value, param.getElementIndex());
+                }
+
                 AbstractClassMetaData cmd = ec.getMetaDataManager().getMetaDataForClass(mapping.getType(), ec.getClassLoaderResolver());
                 if (param.getColumnNumber() >= 0 && cmd != null)
                 {
@@ -321,6 +349,29 @@ public class SQLStatementHelper
         }
     }
 
+    /**
+     * Convenience method to return the element at the specified index of a collection parameter value (as a List).
+     * Where the collection has fewer elements returns the last element, since the statement has a parameter for each element
+     * padded to a bucket size (see CollectionLiteral).
+     * @param value The collection, as a List
+     * @param index Index of the element
+     * @return The element
+     */
+    private static Object getElementOfCollectionParameter(Object value, int index)
+    {
+        if (!(value instanceof List))
+        {
+            return value;
+        }
+
+        List list = (List)value;
+        if (list.isEmpty())
+        {
+            return null;
+        }
+        return list.get(Math.min(index, list.size() - 1));
+    }
+
     /**
      * Convenience method to use reflection to extract the value of a PK field of the provided object.
      * @param value The value of the overall object
@@ -610,6 +661,9 @@ public class SQLStatementHelper
      * If the passed FetchPlan is null then the default fetch group fields will be selected.
      * The source class is defined by the supplied meta-data, and the SQLTable that we are selecting from.
      * The supplied statement and mapping definition are updated during this method.
+     * When "datanucleus.rdbms.lob.lazyLoad" is enabled, large object (BLOB/CLOB etc) members that are only in the
+     * fetch plan by virtue of the default fetch group are not selected; they are left unloaded and so are fetched
+     * (by id) when the application first accesses them.
      * @param stmt The statement
      * @param mappingDefinition Mapping definition for result columns (populated with column positions
      *                          of any selected mappings if provided as input)
@@ -635,10 +689,25 @@ public class SQLStatementHelper
             fieldNumbers = sourceCmd.getDFGMemberPositions();
         }
 
-        ClassLoaderResolver clr = stmt.getRDBMSManager().getNucleusContext().getClassLoaderResolver(null);
+        RDBMSStoreManager storeMgr = stmt.getRDBMSManager();
+        boolean lazyLoadLobs = storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_LOB_LAZY_LOAD);
+        ClassLoaderResolver clr = storeMgr.getNucleusContext().getClassLoaderResolver(null);
+        int[] nonDefaultFieldNumbers = null;
         for (int fieldNumber : fieldNumbers)
         {
             AbstractMemberMetaData mmd = sourceCmd.getMetaDataForManagedMemberAtAbsolutePosition(fieldNumber);
+            if (lazyLoadLobs && mmd.isDefaultFetchGroup() && isLazyLoadLargeObject(storeMgr, sourceTbl.getMemberMapping(mmd)))
+            {
+                if (fetchPlan != null && nonDefaultFieldNumbers == null)
+                {
+                    nonDefaultFieldNumbers = getFetchPlanMembersExcludingDefaultGroup(fetchPlan, sourceCmd);
+                }
+                if (nonDefaultFieldNumbers == null || !containsMember(nonDefaultFieldNumbers, fieldNumber))
+                {
+                    // Large object only in the fetch plan via the default fetch group, so will be loaded when first accessed
+                    continue;
+                }
+            }
             selectMemberOfSourceInStatement(stmt, mappingDefinition, fetchPlan, sourceSqlTbl, mmd, clr, maxFetchDepth, inputJoinType);
         }
 
@@ -684,6 +753,72 @@ public class SQLStatementHelper
         }
     }
 
+    /**
+     * Convenience method to return the members of the class that the fetch plan would select without its "default" group,
+     * so those that are in the fetch plan by virtue of some other (explicitly added) group.
+     * @param fetchPlan The FetchPlan
+     * @param cmd Metadata for the class
+     * @return The member numbers
+     */
+    private static int[] getFetchPlanMembersExcludingDefaultGroup(FetchPlan fetchPlan, AbstractClassMetaData cmd)
+    {
+        if (!fetchPlan.getGroups().contains(FetchPlan.DEFAULT))
+        {
+            return fetchPlan.getFetchPlanForClass(cmd).getMemberNumbers();
+        }
+
+        FetchPlan nonDefaultFP = fetchPlan.getCopy();
+        nonDefaultFP.removeGroup(FetchPlan.DEFAULT);
+        return nonDefaultFP.getFetchPlanForClass(cmd).getMemberNumbers();
+    }
+
+    private static boolean containsMember(int[] memberNumbers, int memberNumber)
+    {
+        for (int i=0;i<memberNumbers.length;i++)
+        {
+            if (memberNumbers[i] == memberNumber)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convenience method to return whether the supplied mapping is for a large object (BLOB, CLOB, LONGVARBINARY,
+     * binary stream) that should be lazy loaded. Large objects with a declared column length no greater than
+     * "datanucleus.rdbms.lob.lazyLoadThreshold" are still loaded with the rest of the object.
+     * @param storeMgr Store manager
+     * @param m The mapping for the member
+     * @return Whether the member should be lazy loaded
+     */
+    private static boolean isLazyLoadLargeObject(RDBMSStoreManager storeMgr, JavaTypeMapping m)
+    {
+        if (m == null || m.getNumberOfColumnMappings() != 1)
+        {
+            return false;
+        }
+
+        ColumnMapping colMapping = m.getColumnMapping(0);
+        if (!(colMapping instanceof AbstractLargeBinaryColumnMapping) && !(colMapping instanceof ClobColumnMapping) &&
+            !(colMapping instanceof OracleBlobColumnMapping) && !(colMapping instanceof BinaryStreamColumnMapping))
+        {
+            return false;
+        }
+
+        int threshold = storeMgr.getIntProperty(RDBMSPropertyNames.PROPERTY_RDBMS_LOB_LAZY_LOAD_THRESHOLD);
+        if (threshold > 0 && colMapping.getColumn() != null && colMapping.getColumn().getColumnMetaData() != null)
+        {
+            Integer length = colMapping.getColumn().getColumnMetaData().getLength();
+            if (length != null && length > 0 && length <= threshold)
+            {
+                // Declared to be small enough to inline
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Method to select the specified member (field/property) of the source table in the passed SQL 
      * statement. This populates the mappingDefinition with the column details for this member.
@@ -37,6 +37,9 @@ public class SQLStatementParameter
     /** Value to use for the parameter. */
     final Object value;
 
+    /** Optional index of the element of a collection parameter that this represents. */
+    final int elementIndex;
+
     /**
      * Constructor for a parameter using the mapping where there are multiple columns and
      * we are representing a particular column here.
@@ -46,11 +49,25 @@ public class SQLStatementParameter
      * @param columnNumber NUmber of the column for the mapping
      */
     public SQLStatementParameter(String name, JavaTypeMapping mapping, Object value, int columnNumber)
+    {
+        this(name, mapping, value, columnNumber, -1);
+    }
+
+    /**
+     * Constructor for a parameter representing an element of a collection parameter.
+     * @param name Name of the (collection) parameter
+     * @param mapping Mapping for the element
+     * @param value The value of the element
+     * @param columnNumber NUmber of the column for the mapping
+     * @param elementIndex Index of the element in the collection
+     */
+    public SQLStatementParameter(String name, JavaTypeMapping mapping, Object value, int columnNumber, int elementIndex)
     {
         this.mapping = mapping;
         this.value = value;
         this.name = name;
         this.columnNumber = columnNumber;
+        this.elementIndex = elementIndex;
     }
 
     public String getName()
@@ -78,10 +95,16 @@ public class SQLStatementParameter
         return value;
     }
 
+    public int getElementIndex()
+    {
+        return elementIndex;
+    }
+
     public String toString()
     {
         return "SQLStatementParameter name=" + name + " mapping=" + mapping + 
             " value=" + StringUtils.toJVMIDString(value) + 
-            (columnNumber >= 0 ? (" column=" + columnNumber) : "");
+            (columnNumber >= 0 ? (" column=" + columnNumber) : "") +
+            (elementIndex >= 0 ? (" element=" + elementIndex) : "");
     }
 }
\ No newline at end of file
@@ -218,6 +218,22 @@ public class SQLText
         return this;
     }
 
+    /**
+     * Append a parameter for an element of a collection parameter. When applying the parameters of a statement
+     * the value used is the element at this index of the collection (or the last element when the collection is smaller).
+     * @param name The parameter name (of the collection)
+     * @param mapping Mapping for the element
+     * @param value Value of the element
+     * @param elementIndex Index of the element in the collection
+     * @return the SQLText
+     */
+    public SQLText appendElementParameter(String name, JavaTypeMapping mapping, Object value, int elementIndex)
+    {
+        sql = null;
+        appended.add(new SQLStatementParameter(name, mapping, value, -1, elementIndex));
+        return this;
+    }
+
     /**
      * Convenience method to change the mapping used for a parameter, if it is referenced by this
      * SQL text object.
@@ -93,6 +93,9 @@ public class SelectStatement extends SQLStatement
     /** The number of records to be retrieved in any range restriction. */
     protected long rangeCount = -1;
 
+    /** Whether the SQL generated for this statement locks the rows of the primary table (when EXTENSION_LOCK_FOR_UPDATE is set). */
+    protected boolean lockApplied = false;
+
     protected class SelectedItem
     {
         SQLText sqlText;
@@ -574,6 +577,7 @@ public class SelectStatement extends SQLStatement
         {
             lock = val.booleanValue();
         }
+        lockApplied = false;
 
         boolean addAliasToAllSelects = false;
         if (rangeOffset > 0 || rangeCount > -1)
@@ -642,6 +646,7 @@ public class SelectStatement extends SQLStatement
         if (lock && dba.supportsOption(DatastoreAdapter.LOCK_OPTION_PLACED_AFTER_FROM))
         {
             sql.append(" WITH ").append(dba.getSelectWithLockOption());
+            lockApplied = true;
         }
         if (joins != null)
         {
@@ -795,6 +800,7 @@ public class SelectStatement extends SQLStatement
             else
             {
                 sql.append(" " + dba.getSelectForUpdateText());
+                lockApplied = true;
                 if (dba.supportsOption(DatastoreAdapter.SELECT_FOR_UPDATE_NOWAIT))
                 {
                     Boolean nowait = (Boolean) getValueForExtension(EXTENSION_LOCK_FOR_UPDATE_NOWAIT);
@@ -1293,6 +1299,17 @@ public class SelectStatement extends SQLStatement
         allowUnions = flag;
     }
 
+    /**
+     * Accessor for whether the SQL of this statement locks the rows selected from the primary table. Only true when locking was
+     * requested (EXTENSION_LOCK_FOR_UPDATE) and the datastore supports it for the form of this statement. Generates the SQL if not yet generated.
+     * @return Whether the selected rows are locked
+     */
+    public boolean isLockApplied()
+    {
+        getSQLText();
+        return lockApplied;
+    }
+
     public int getNumberOfUnions()
     {
         if (unions == null || !allowUnions)
@@ -36,6 +36,9 @@ public interface SelectStatementGenerator
     /** Option to omit a WHERE clause restricting to non-soft-deleted objects (only relevant if the candidate has soft-delete enabled. */
     static final String OPTION_INCLUDE_SOFT_DELETES = "includeSoftDeletes";
 
+    /** Option to omit UNION branches for tables known to have no rows (when the StoreManager has table row statistics). */
+    static final String OPTION_OMIT_EMPTY_TABLES = "omitEmptyTables";
+
     /**
      * Accessor for the statement.
      * @param ec ExecutionContext
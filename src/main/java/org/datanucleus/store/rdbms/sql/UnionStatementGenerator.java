@@ -31,6 +31,7 @@ import org.datanucleus.metadata.DiscriminatorStrategy;
 import org.datanucleus.store.rdbms.identifier.DatastoreIdentifier;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
+import org.datanucleus.store.rdbms.TableRowStatistics;
 import org.datanucleus.store.rdbms.sql.SQLJoin.JoinType;
 import org.datanucleus.store.rdbms.sql.expression.BooleanExpression;
 import org.datanucleus.store.rdbms.sql.expression.NullLiteral;
@@ -219,9 +220,30 @@ public class UnionStatementGenerator extends AbstractSelectStatementGenerator
                 candidateType.getName() + " yet there are no concrete classes with their own table available");
         }
 
+        TableRowStatistics tableStats = (hasOption(OPTION_OMIT_EMPTY_TABLES) && joinTable == null && candidateClassNames.size() > 1) ?
+                storeMgr.getTableRowStatistics() : null;
+        boolean emptyTablesOmitted = false;
+
         SelectStatement stmt = null;
-        for (String candidateClassName : candidateClassNames)
+        Iterator<String> candidateIter = candidateClassNames.iterator();
+        while (candidateIter.hasNext())
         {
+            String candidateClassName = candidateIter.next();
+            if (tableStats != null && (stmt != null || candidateIter.hasNext()))
+            {
+                // Omit the UNION branch when the table of this class has no rows (keeping at least one branch)
+                DatastoreClass candidateTbl = storeMgr.getDatastoreClass(candidateClassName, clr);
+                if (candidateTbl != null && tableStats.isEmpty(candidateTbl, ec))
+                {
+                    if (NucleusLogger.QUERY.isDebugEnabled())
+                    {
+                        NucleusLogger.QUERY.debug("Omitting UNION for class " + candidateClassName + " since table " + candidateTbl + " has no rows");
+                    }
+                    emptyTablesOmitted = true;
+                    continue;
+                }
+            }
+
             SelectStatement candidateStmt = null;
             if (joinTable == null)
             {
@@ -247,6 +269,10 @@ public class UnionStatementGenerator extends AbstractSelectStatementGenerator
             }
         }
 
+        if (emptyTablesOmitted && stmt != null)
+        {
+            stmt.addExtension(SQLStatement.EXTENSION_EMPTY_TABLES_OMITTED, Boolean.TRUE);
+        }
         return stmt;
     }
 
@@ -98,6 +98,50 @@ public class CollectionLiteral extends CollectionExpression implements SQLLitera
         setStatement();
     }
 
+    /**
+     * Method to represent this parameter as a JDBC parameter for each element, for use in an IN list. The number of parameters is
+     * padded to the bucket size for the number of elements (see {@link #getElementParameterBucketSize(int)}) by repeating the last
+     * element, so the same SQL is used for any collection with a number of elements in the same bucket.
+     * @param elementMapping Mapping for the elements
+     */
+    public void setElementParameters(JavaTypeMapping elementMapping)
+    {
+        if (parameterName == null || value == null || value.isEmpty())
+        {
+            return;
+        }
+
+        st.clearStatement();
+        int bucketSize = getElementParameterBucketSize(value.size());
+        Iterator elementIter = value.iterator();
+        Object element = null;
+        for (int i=0;i<bucketSize;i++)
+        {
+            if (elementIter.hasNext())
+            {
+                element = elementIter.next();
+            }
+            st.append(i > 0 ? "," : "");
+            st.appendElementParameter(parameterName, elementMapping, element, i);
+        }
+    }
+
+    /**
+     * Accessor for the number of JDBC parameters to use for a collection parameter with the specified number of elements
+     * (the next power of 2).
+     * @param numElements Number of elements
+     * @return The number of parameters
+     */
+    public static int getElementParameterBucketSize(int numElements)
+    {
+        int bucketSize = 1;
+        while (bucketSize < numElements)
+        {
+            bucketSize <<= 1;
+        }
+        return bucketSize;
+    }
+
     protected void setStatement()
     {
         if (value != null && value.size() > 0)
@@ -31,6 +31,7 @@ import org.datanucleus.query.compiler.CompilationComponent;
 import org.datanucleus.store.rdbms.mapping.MappingType;
 import org.datanucleus.store.rdbms.mapping.java.JavaTypeMapping;
 import org.datanucleus.store.rdbms.mapping.java.ReferenceMapping;
+import org.datanucleus.store.rdbms.RDBMSPropertyNames;
 import org.datanucleus.store.rdbms.RDBMSStoreManager;
 import org.datanucleus.store.rdbms.sql.SQLStatement;
 import org.datanucleus.store.rdbms.sql.SQLTable;
@@ -101,6 +102,13 @@ public class CollectionContainsMethod implements SQLMethod
 
             if (collExpr.isParameter())
             {
+                JavaTypeMapping elementParamMapping = getElementParameterMapping(stmt, elemExpr, coll);
+                if (elementParamMapping != null)
+                {
+                    // Return "elem IN (?, ?, ...)" with a parameter for each element, so the SQL can be reused for other values
+                    lit.setElementParameters(elementParamMapping);
+                    return new InExpression(elemExpr, new SQLExpression[] {lit});
+                }
                 stmt.getQueryGenerator().useParameterExpressionAsLiteral((CollectionLiteral)collExpr);
             }
 
@@ -617,6 +625,51 @@ public class CollectionContainsMethod implements SQLMethod
         }
     }
 
+    /**
+     * Convenience method to return the mapping to use for the elements of a collection parameter when binding each element as a parameter
+     * of an IN list. Only applies when enabled by persistence property, and all elements are non-null and of the same String, numeric,
+     * temporal or character type compatible with the element expression.
+     * @param stmt SQL statement
+     * @param elemExpr Expression for the element being checked for
+     * @param coll The collection parameter value
+     * @return The mapping for the elements, or null if the elements should be included as literals
+     */
+    protected JavaTypeMapping getElementParameterMapping(SQLStatement stmt, SQLExpression elemExpr, Collection coll)
+    {
+        RDBMSStoreManager storeMgr = stmt.getRDBMSManager();
+        if (!storeMgr.getBooleanProperty(RDBMSPropertyNames.PROPERTY_RDBMS_QUERY_COLLECTION_PARAMETER_BUCKETING) || elemExpr.isParameter() ||
+            CollectionLiteral.getElementParameterBucketSize(coll.size()) > storeMgr.getDatastoreAdapter().getMaxParametersPerStatement())
+        {
+            return null;
+        }
+
+        Class elementCls = null;
+        for (Object element : coll)
+        {
+            if (element == null || (elementCls != null && element.getClass() != elementCls))
+            {
+                return null;
+            }
+            elementCls = element.getClass();
+        }
+
+        ClassLoaderResolver clr = stmt.getQueryGenerator().getClassLoaderResolver();
+        if (!elementTypeCompatible(clr.classForName(elemExpr.getJavaTypeMapping().getType()), elementCls))
+        {
+            return null;
+        }
+
+        SQLExpressionFactory exprFactory = stmt.getSQLExpressionFactory();
+        JavaTypeMapping elementMapping = exprFactory.getMappingForType(elementCls, false);
+        SQLExpression sampleExpr = exprFactory.newLiteral(stmt, elementMapping, coll.iterator().next());
+        if (sampleExpr instanceof StringExpression || sampleExpr instanceof NumericExpression || sampleExpr instanceof TemporalExpression ||
+            sampleExpr instanceof CharacterExpression)
+        {
+            return elementMapping;
+        }
+        return null;
+    }
+
     protected boolean elementTypeCompatible(Class elementType, Class collectionElementType)
     {
         if (!elementType.isPrimitive() && collectionElementType.isPrimitive() && !collectionElementType.isAssignableFrom(elementType) && !elementType.isAssignableFrom(collectionElementType))
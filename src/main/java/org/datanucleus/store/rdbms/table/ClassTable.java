@@ -2035,6 +2035,16 @@ public class ClassTable extends AbstractClassTable implements DatastoreClass
                                         {
                                             index.setColumn(i, fieldMapping.getColumnMapping(i).getColumn());
                                         }
+
+                                        // Include any ordering column of the owner List so the index covers the lookups of the List
+                                        JavaTypeMapping relOrderMapping = getExternalOrderMappings().get(relMmd);
+                                        if (relOrderMapping != null)
+                                        {
+                                            for (int i=0;i<relOrderMapping.getNumberOfColumnMappings();i++)
+                                            {
+                                                index.addColumn(relOrderMapping.getColumnMapping(i).getColumn());
+                                            }
+                                        }
                                         indices.add(index);
                                     }
                                     else
@@ -2111,6 +2121,34 @@ public class ClassTable extends AbstractClassTable implements DatastoreClass
             }
         }
 
+        if (autoMode)
+        {
+            // Index the FK to the owner of any FK collection/map stored in this table, together with any ordering column,
+            // since all lookups of the container (iterator, size, contains etc) are restricted by the owner
+            for (Map.Entry<AbstractMemberMetaData, JavaTypeMapping> fkEntry : getExternalFkMappings().entrySet())
+            {
+                AbstractMemberMetaData ownerMmd = fkEntry.getKey();
+                JavaTypeMapping fkMapping = fkEntry.getValue();
+                if (fkMapping.getNumberOfColumnMappings() > 0)
+                {
+                    Index index = new Index(this, false, null);
+                    for (int i=0;i<fkMapping.getNumberOfColumnMappings();i++)
+                    {
+                        index.setColumn(i, fkMapping.getColumnMapping(i).getColumn());
+                    }
+                    JavaTypeMapping orderMapping = getExternalOrderMappings().get(ownerMmd);
+                    if (orderMapping != null)
+                    {
+                        for (int i=0;i<orderMapping.getNumberOfColumnMappings();i++)
+                        {
+                            index.addColumn(orderMapping.getColumnMapping(i).getColumn());
+                        }
+                    }
+                    indices.add(index);
+                }
+            }
+        }
+
         // Add on any user-required indices for the class(es) as a whole (subelement of <class>)
         Iterator<AbstractClassMetaData> cmdIter = managedClassMetaData.iterator();
         while (cmdIter.hasNext())
@@ -0,0 +1,127 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.datanucleus.store.rdbms.FlushReferential.FlushStep;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the ordering of the flush of objects by table, using the foreign-keys between the tables.
+ */
+public class FlushReferentialTest extends TestCase
+{
+    private Map<String, Set<String>> dependenciesByTable = new LinkedHashMap<>();
+
+    private List<FlushStep<String>> stepsBefore = new ArrayList<>();
+
+    private List<FlushStep<String>> stepsAfter = new ArrayList<>();
+
+    private void addTable(String table, String... referencedTables)
+    {
+        dependenciesByTable.put(table, new HashSet<>(Arrays.asList(referencedTables)));
+    }
+
+    private int getFlushSteps()
+    {
+        return FlushReferential.getFlushSteps(dependenciesByTable.keySet(), dependenciesByTable, stepsBefore, stepsAfter);
+    }
+
+    private static String describe(List<FlushStep<String>> steps)
+    {
+        StringBuilder str = new StringBuilder();
+        for (FlushStep<String> step : steps)
+        {
+            if (str.length() > 0)
+            {
+                str.append(", ");
+            }
+            str.append(step);
+        }
+        return str.toString();
+    }
+
+    /**
+     * Children are updated to reference a new parent, and the old parent is deleted. The updates of the children must be
+     * performed before the delete of the old parent.
+     */
+    public void testReparentThenDeleteParent()
+    {
+        addTable("CHILD", "PARENT");
+        addTable("PARENT");
+
+        assertEquals(2, getFlushSteps());
+        assertEquals("INSERT PARENT, INSERT CHILD, UPDATE PARENT, UPDATE CHILD", describe(stepsBefore));
+        assertEquals("DELETE CHILD, DELETE PARENT", describe(stepsAfter));
+    }
+
+    public void testUnrelatedTablesKeepOrder()
+    {
+        addTable("A");
+        addTable("B");
+
+        assertEquals(2, getFlushSteps());
+        assertEquals("INSERT A, INSERT B, UPDATE A, UPDATE B", describe(stepsBefore));
+        assertEquals("DELETE B, DELETE A", describe(stepsAfter));
+    }
+
+    public void testSelfReferencingTableIsNotOrdered()
+    {
+        addTable("NODE", "NODE");
+        addTable("ITEM", "NODE");
+
+        assertEquals(1, getFlushSteps());
+        assertEquals("INSERT ITEM, UPDATE ITEM, DELETE ITEM", describe(stepsBefore));
+        assertEquals("", describe(stepsAfter));
+    }
+
+    /**
+     * Only the tables in the cycle are left to the ordered flush. A table referencing the cycle is ordered but deleted before
+     * the ordered flush, and a table referenced by the cycle is deleted after it.
+     */
+    public void testCycleExcludesOnlyTablesInCycle()
+    {
+        addTable("CHILD", "A");
+        addTable("A", "B");
+        addTable("B", "A", "LOOKUP");
+        addTable("LOOKUP");
+
+        assertEquals(2, getFlushSteps());
+        assertEquals("INSERT CHILD, INSERT LOOKUP, UPDATE CHILD, UPDATE LOOKUP, DELETE CHILD", describe(stepsBefore));
+        assertEquals("DELETE LOOKUP", describe(stepsAfter));
+    }
+
+    public void testChainOfTables()
+    {
+        addTable("C", "B");
+        addTable("B", "A");
+        addTable("A");
+
+        assertEquals(3, getFlushSteps());
+        assertEquals("INSERT A, INSERT B, INSERT C, UPDATE A, UPDATE B, UPDATE C", describe(stepsBefore));
+        assertEquals("DELETE C, DELETE B, DELETE A", describe(stepsAfter));
+    }
+}
@@ -0,0 +1,120 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import org.datanucleus.store.rdbms.SQLStatementListener.ExecutionType;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for LatencyHistogram, and the statement statistics derived from it.
+ */
+public class LatencyHistogramTest extends TestCase
+{
+    public void testEmpty()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMeanMillis(), 0.0);
+        assertEquals(0.0, histogram.getPercentileMillis(99), 0.0);
+        assertEquals(0.0, histogram.getMaxMillis(), 0.0);
+    }
+
+    public void testBuckets()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500); // < 1 microsec
+        histogram.record(1000); // 1 microsec
+        histogram.record(3000); // 3 microsecs
+        histogram.record(-10); // Treated as 0
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(2, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(1, counts[2]);
+        assertEquals(4, histogram.getCount());
+        assertEquals(4500, histogram.getTotalNanos());
+
+        assertEquals(1, LatencyHistogram.getBucketUpperBoundMicros(0));
+        assertEquals(4, LatencyHistogram.getBucketUpperBoundMicros(2));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBoundMicros(LatencyHistogram.NUM_BUCKETS - 1));
+    }
+
+    public void testMeanAndMax()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000L);
+        histogram.record(3000000L);
+        assertEquals(2.0, histogram.getMeanMillis(), 0.0001);
+        assertEquals(3.0, histogram.getMaxMillis(), 0.0001);
+    }
+
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(100000L); // 100 microsecs, in bucket [64, 128)
+        }
+        histogram.record(50000000L); // 50 millisecs
+
+        // Percentiles are the upper bound of the bucket, so accurate to within a factor of 2
+        assertEquals(0.128, histogram.getPercentileMillis(50), 0.0001);
+        assertEquals(0.128, histogram.getPercentileMillis(99), 0.0001);
+
+        // Never above the max recorded
+        assertEquals(50.0, histogram.getPercentileMillis(100), 0.0001);
+    }
+
+    public void testOverflowBucket()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(1, histogram.getBucketCounts()[LatencyHistogram.NUM_BUCKETS - 1]);
+        assertEquals(histogram.getMaxMillis(), histogram.getPercentileMillis(50), 0.0);
+    }
+
+    public void testReset()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000L);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0.0, histogram.getMaxMillis(), 0.0);
+        assertEquals(0, histogram.getBucketCounts()[10]);
+    }
+
+    public void testMeanBatchSizeExcludesNonBatchedExecutions()
+    {
+        SQLStatementStatistics stats = new SQLStatementStatistics(10, 0);
+        String sql = "UPDATE T SET A=? WHERE ID=?";
+        stats.statementExecuted(sql, ExecutionType.BATCH, 1000, 10, 10);
+        stats.statementExecuted(sql, ExecutionType.BATCH, 1000, 20, 20);
+        stats.statementExecuted(sql, ExecutionType.UPDATE, 1000, 1, 1);
+        stats.statementExecuted(sql, ExecutionType.UPDATE, 1000, 1, 1);
+
+        SQLStatementStatistics.StatementSnapshot snapshot = stats.getSnapshot().get(0);
+        assertEquals(4, snapshot.getExecutions());
+        assertEquals(32, snapshot.getStatementsSent());
+        assertEquals(2, snapshot.getBatches());
+        assertEquals(30, snapshot.getBatchedStatements());
+        assertEquals(15.0, snapshot.getMeanBatchSize(), 0.0001);
+        assertEquals(32, snapshot.getRowsAffected());
+    }
+}
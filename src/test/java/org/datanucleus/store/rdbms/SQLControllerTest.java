@@ -0,0 +1,120 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.datanucleus.store.rdbms.SQLController.UpdateCountCheck;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the checks on the update counts of the statements of a batch.
+ */
+public class SQLControllerTest extends TestCase
+{
+    /**
+     * Check that fails when no row is updated (or the statement failed), and records the update counts it was given.
+     */
+    private static class RowUpdatedCheck implements UpdateCountCheck
+    {
+        private final String name;
+
+        private final List<Integer> counts = new ArrayList<>();
+
+        RowUpdatedCheck(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public void checkUpdateCount(int updateCount)
+        {
+            counts.add(updateCount);
+            if (updateCount == 0 || updateCount == Statement.EXECUTE_FAILED)
+            {
+                throw new IllegalStateException(name + " not updated");
+            }
+        }
+    }
+
+    public void testChecksGivenCountOfTheirStatement()
+    {
+        RowUpdatedCheck check1 = new RowUpdatedCheck("first");
+        RowUpdatedCheck check2 = new RowUpdatedCheck("second");
+
+        SQLController.checkUpdateCounts(Arrays.<UpdateCountCheck>asList(check1, null, check2), new int[] {1, 0, 3});
+        assertEquals(Arrays.asList(1), check1.counts);
+        assertEquals(Arrays.asList(3), check2.counts);
+    }
+
+    public void testNoInfoCountIsPassedToCheck()
+    {
+        RowUpdatedCheck check = new RowUpdatedCheck("first");
+
+        SQLController.checkUpdateCounts(Arrays.<UpdateCountCheck>asList(check), new int[] {Statement.SUCCESS_NO_INFO});
+        assertEquals(Arrays.asList(Statement.SUCCESS_NO_INFO), check.counts);
+    }
+
+    /**
+     * All statements of the batch are checked, and the failure of the first statement that failed is thrown.
+     */
+    public void testFirstFailureThrownAfterAllChecked()
+    {
+        RowUpdatedCheck check1 = new RowUpdatedCheck("first");
+        RowUpdatedCheck check2 = new RowUpdatedCheck("second");
+        RowUpdatedCheck check3 = new RowUpdatedCheck("third");
+
+        try
+        {
+            SQLController.checkUpdateCounts(Arrays.<UpdateCountCheck>asList(check1, check2, check3), new int[] {1, 0, 0});
+            fail("Expected the failed check to be thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("second not updated", e.getMessage());
+        }
+        assertEquals(Arrays.asList(1), check1.counts);
+        assertEquals(Arrays.asList(0), check2.counts);
+        assertEquals(Arrays.asList(0), check3.counts);
+    }
+
+    /**
+     * A statement that the driver returned no update count for is checked as failed, rather than skipped.
+     */
+    public void testFewerCountsThanChecks()
+    {
+        RowUpdatedCheck check1 = new RowUpdatedCheck("first");
+        RowUpdatedCheck check2 = new RowUpdatedCheck("second");
+
+        try
+        {
+            SQLController.checkUpdateCounts(Arrays.<UpdateCountCheck>asList(check1, check2), new int[] {2});
+            fail("Expected the check without an update count to fail");
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("second not updated", e.getMessage());
+        }
+        assertEquals(Arrays.asList(2), check1.counts);
+        assertEquals(Arrays.asList(Statement.EXECUTE_FAILED), check2.counts);
+    }
+}
@@ -0,0 +1,283 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.connectionpool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObjectFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.impl.DefaultPooledObject;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the ConcurrentBagObjectPool, covering the borrowing and returning of objects and the validation of idle objects
+ * by the housekeeper.
+ */
+public class ConcurrentBagObjectPoolTest extends TestCase
+{
+    /**
+     * Pooled object that, like a pooled connection, can only be validated while activated.
+     */
+    static class Resource
+    {
+        boolean active = false;
+        boolean broken = false;
+    }
+
+    static class ResourceFactory implements PooledObjectFactory<Resource>
+    {
+        List<Resource> destroyed = new ArrayList<>();
+        int validations = 0;
+        boolean failActivation = false;
+
+        /** Latch that is counted down when creation of an object starts. */
+        CountDownLatch makeStarted = null;
+
+        /** Latch that creation of an object waits for, like a slow connection handshake. */
+        CountDownLatch makeRelease = null;
+
+        /** Failure to throw when creating an object. */
+        Exception makeFailure = null;
+
+        /** Threads that created the objects. */
+        List<Thread> makeThreads = new CopyOnWriteArrayList<>();
+
+        public PooledObject<Resource> makeObject() throws Exception
+        {
+            makeThreads.add(Thread.currentThread());
+            if (makeFailure != null)
+            {
+                throw makeFailure;
+            }
+            if (makeStarted != null)
+            {
+                makeStarted.countDown();
+            }
+            if (makeRelease != null)
+            {
+                makeRelease.await();
+            }
+            return new DefaultPooledObject<>(new Resource());
+        }
+
+        public void destroyObject(PooledObject<Resource> p) throws Exception
+        {
+            destroyed.add(p.getObject());
+        }
+
+        public boolean validateObject(PooledObject<Resource> p)
+        {
+            validations++;
+            if (!p.getObject().active)
+            {
+                throw new IllegalStateException("Resource is not active");
+            }
+            return !p.getObject().broken;
+        }
+
+        public void activateObject(PooledObject<Resource> p) throws Exception
+        {
+            if (failActivation)
+            {
+                throw new Exception("Activation failed");
+            }
+            p.getObject().active = true;
+        }
+
+        public void passivateObject(PooledObject<Resource> p) throws Exception
+        {
+            p.getObject().active = false;
+        }
+    }
+
+    private ResourceFactory factory;
+    private ConcurrentBagObjectPool<Resource> pool;
+
+    protected void setUp() throws Exception
+    {
+        factory = new ResourceFactory();
+        pool = new ConcurrentBagObjectPool<>(factory);
+        pool.setTestWhileIdle(true);
+        pool.setValidationSkipWindowMillis(0);
+    }
+
+    protected void tearDown() throws Exception
+    {
+        pool.close();
+    }
+
+    public void testValidIdleObjectsAreKept() throws Exception
+    {
+        pool.addObject();
+        Resource r = pool.borrowObject();
+        pool.returnObject(r);
+        pool.addObject();
+        assertEquals(2, pool.getNumIdle());
+
+        pool.housekeep();
+        assertEquals(2, factory.validations);
+        assertEquals(0, factory.destroyed.size());
+        assertEquals(2, pool.getNumIdle());
+        assertFalse("Idle object should be passivated after validation", r.active);
+
+        // Still usable after validation
+        assertSame(r, pool.borrowObject());
+        assertTrue(r.active);
+    }
+
+    public void testInvalidIdleObjectIsDestroyed() throws Exception
+    {
+        pool.addObject();
+        pool.addObject();
+        Resource r1 = pool.borrowObject();
+        Resource r2 = pool.borrowObject();
+        pool.returnObject(r1);
+        pool.returnObject(r2);
+        r2.broken = true;
+
+        pool.housekeep();
+        assertEquals(1, factory.destroyed.size());
+        assertSame(r2, factory.destroyed.get(0));
+        assertEquals(1, pool.getNumIdle());
+    }
+
+    public void testFailedActivationDestroysIdleObject() throws Exception
+    {
+        pool.addObject();
+        factory.failActivation = true;
+
+        pool.housekeep();
+        assertEquals(0, factory.validations);
+        assertEquals(1, factory.destroyed.size());
+        assertEquals(0, pool.getNumIdle());
+    }
+
+    /**
+     * A thread creating a new object isn't waiting for a handoff, so returning threads must not spin waiting to hand off to it.
+     */
+    public void testCreatingBorrowerIsNotWaiter() throws Exception
+    {
+        factory.makeStarted = new CountDownLatch(1);
+        factory.makeRelease = new CountDownLatch(1);
+        AtomicReference<Resource> borrowed = new AtomicReference<>();
+        Thread borrower = new Thread(() ->
+        {
+            try
+            {
+                borrowed.set(pool.borrowObject());
+            }
+            catch (Exception e)
+            {
+                // Left null, so fails below
+            }
+        });
+        borrower.start();
+
+        assertTrue(factory.makeStarted.await(5, TimeUnit.SECONDS));
+        assertEquals(0, pool.getNumWaiters());
+
+        factory.makeRelease.countDown();
+        borrower.join(5000);
+        assertNotNull(borrowed.get());
+    }
+
+    /**
+     * When the pool is at capacity a borrower waits, and is handed the object returned by another thread.
+     */
+    public void testWaitingBorrowerIsHandedReturnedObject() throws Exception
+    {
+        pool.setMaxTotal(1);
+        Resource r = pool.borrowObject();
+
+        AtomicReference<Resource> borrowed = new AtomicReference<>();
+        Thread borrower = new Thread(() ->
+        {
+            try
+            {
+                borrowed.set(pool.borrowObject());
+            }
+            catch (Exception e)
+            {
+                // Left null, so fails below
+            }
+        });
+        borrower.start();
+        long start = System.currentTimeMillis();
+        while (pool.getNumWaiters() == 0 && System.currentTimeMillis() - start < 5000)
+        {
+            Thread.sleep(1);
+        }
+        assertEquals(1, pool.getNumWaiters());
+
+        pool.returnObject(r);
+        borrower.join(5000);
+        assertSame(r, borrowed.get());
+        assertEquals(0, pool.getNumWaiters());
+    }
+
+    /**
+     * With a housekeeper and minIdle, a borrower that finds no idle object has it created by the housekeeper.
+     */
+    public void testBorrowCreatesOnHousekeeper() throws Exception
+    {
+        pool.setMinIdle(1);
+        pool.startHousekeeper(60000);
+
+        Resource r = pool.borrowObject();
+        assertNotNull(r);
+        assertTrue(r.active);
+        assertFalse(factory.makeThreads.isEmpty());
+        for (Thread t : factory.makeThreads)
+        {
+            assertNotSame(Thread.currentThread(), t);
+        }
+    }
+
+    public void testBorrowWithoutHousekeeperCreatesOnBorrower() throws Exception
+    {
+        pool.setMinIdle(1);
+
+        pool.borrowObject();
+        assertEquals(1, factory.makeThreads.size());
+        assertSame(Thread.currentThread(), factory.makeThreads.get(0));
+    }
+
+    public void testHousekeeperCreateFailureThrownToBorrower() throws Exception
+    {
+        pool.setMinIdle(1);
+        pool.setMaxWaitMillis(5000);
+        pool.startHousekeeper(60000);
+        factory.makeFailure = new Exception("Unable to connect");
+
+        try
+        {
+            pool.borrowObject();
+            fail("Expected the failure to create the object to be thrown");
+        }
+        catch (Exception e)
+        {
+            assertSame(factory.makeFailure, e);
+        }
+    }
+}
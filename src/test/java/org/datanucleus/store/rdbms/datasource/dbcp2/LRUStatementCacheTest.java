@@ -0,0 +1,187 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.datasource.dbcp2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.KeyedPooledObjectFactory;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.PooledObject;
+import org.datanucleus.store.rdbms.datasource.dbcp2.pool2.impl.DefaultPooledObject;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the LRU prepared statement cache.
+ */
+public class LRUStatementCacheTest extends TestCase
+{
+    private static final PStmtKey KEY_A = new PStmtKey("SELECT A FROM T");
+    private static final PStmtKey KEY_B = new PStmtKey("SELECT B FROM T");
+    private static final PStmtKey KEY_C = new PStmtKey("SELECT C FROM T");
+
+    /**
+     * Factory creating statements without a connection, and recording those destroyed.
+     */
+    static class StatementFactory implements KeyedPooledObjectFactory<PStmtKey, DelegatingPreparedStatement>
+    {
+        int made = 0;
+        List<DelegatingPreparedStatement> destroyed = new ArrayList<>();
+
+        public PooledObject<DelegatingPreparedStatement> makeObject(PStmtKey key) throws Exception
+        {
+            made++;
+            return new DefaultPooledObject<>(new DelegatingPreparedStatement(null, null));
+        }
+
+        public void destroyObject(PStmtKey key, PooledObject<DelegatingPreparedStatement> p) throws Exception
+        {
+            destroyed.add(p.getObject());
+        }
+
+        public boolean validateObject(PStmtKey key, PooledObject<DelegatingPreparedStatement> p)
+        {
+            return true;
+        }
+
+        public void activateObject(PStmtKey key, PooledObject<DelegatingPreparedStatement> p) throws Exception
+        {
+        }
+
+        public void passivateObject(PStmtKey key, PooledObject<DelegatingPreparedStatement> p) throws Exception
+        {
+        }
+    }
+
+    public void testReturnedStatementIsReused() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 10);
+
+        DelegatingPreparedStatement ps1 = cache.borrowObject(KEY_A);
+        assertEquals(1, cache.getNumActive());
+        cache.returnObject(KEY_A, ps1);
+        assertEquals(0, cache.getNumActive());
+        assertEquals(1, cache.getNumIdle(KEY_A));
+
+        DelegatingPreparedStatement ps2 = cache.borrowObject(KEY_A);
+        assertSame(ps1, ps2);
+        assertEquals(1, factory.made);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    public void testStatementInUseIsNotShared() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 10);
+
+        DelegatingPreparedStatement ps1 = cache.borrowObject(KEY_A);
+        DelegatingPreparedStatement ps2 = cache.borrowObject(KEY_A);
+        assertNotSame(ps1, ps2);
+        assertEquals(2, cache.getNumActive(KEY_A));
+
+        // Only one idle statement is retained per key, so the second returned is closed
+        cache.returnObject(KEY_A, ps1);
+        cache.returnObject(KEY_A, ps2);
+        assertEquals(1, cache.getNumIdle());
+        assertEquals(1, factory.destroyed.size());
+        assertSame(ps2, factory.destroyed.get(0));
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 2);
+
+        DelegatingPreparedStatement psA = cache.borrowObject(KEY_A);
+        DelegatingPreparedStatement psB = cache.borrowObject(KEY_B);
+        cache.returnObject(KEY_A, psA);
+        cache.returnObject(KEY_B, psB);
+
+        // Use A again so that B is the least recently used
+        cache.returnObject(KEY_A, cache.borrowObject(KEY_A));
+
+        DelegatingPreparedStatement psC = cache.borrowObject(KEY_C);
+        cache.returnObject(KEY_C, psC);
+        assertEquals(2, cache.getNumIdle());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, factory.destroyed.size());
+        assertSame(psB, factory.destroyed.get(0));
+        assertEquals(1, cache.getNumIdle(KEY_A));
+        assertEquals(0, cache.getNumIdle(KEY_B));
+        assertEquals(1, cache.getNumIdle(KEY_C));
+    }
+
+    public void testNoCaching() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 0);
+
+        DelegatingPreparedStatement ps = cache.borrowObject(KEY_A);
+        cache.returnObject(KEY_A, ps);
+        assertEquals(0, cache.getNumIdle());
+        assertEquals(1, factory.destroyed.size());
+
+        cache.addObject(KEY_A);
+        assertEquals(0, cache.getNumIdle());
+        assertEquals(1, factory.made);
+    }
+
+    public void testAddObject() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 10);
+
+        cache.addObject(KEY_A);
+        assertEquals(1, cache.getNumIdle(KEY_A));
+        assertEquals(1, factory.made);
+
+        // Already one idle for this key, so nothing is prepared
+        cache.addObject(KEY_A);
+        assertEquals(1, cache.getNumIdle(KEY_A));
+        assertEquals(1, factory.made);
+
+        cache.borrowObject(KEY_A);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    public void testCloseDestroysIdleStatements() throws Exception
+    {
+        StatementFactory factory = new StatementFactory();
+        LRUStatementCache cache = new LRUStatementCache(factory, 10);
+
+        cache.returnObject(KEY_A, cache.borrowObject(KEY_A));
+        cache.returnObject(KEY_B, cache.borrowObject(KEY_B));
+        cache.close();
+        assertEquals(0, cache.getNumIdle());
+        assertEquals(2, factory.destroyed.size());
+
+        try
+        {
+            cache.borrowObject(KEY_A);
+            fail("Expected IllegalStateException borrowing from a closed cache");
+        }
+        catch (IllegalStateException ise)
+        {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.mapping.serialiser;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the compact serialiser.
+ */
+public class CompactSerialiserTest extends TestCase
+{
+    private CompactSerialiser serialiser = new CompactSerialiser();
+
+    private Object roundTrip(Object value) throws Exception
+    {
+        byte[] bytes = serialiser.serialise(value);
+        return serialiser.deserialise(bytes, 0, bytes.length);
+    }
+
+    public void testSimpleTypes() throws Exception
+    {
+        Object[] values = new Object[] {"Some text \u00e9\u4e2d", "", Boolean.TRUE, Byte.valueOf((byte) -3), Short.valueOf((short) 1234),
+            Character.valueOf('x'), Integer.valueOf(Integer.MIN_VALUE), Long.valueOf(Long.MAX_VALUE), Float.valueOf(1.5f),
+            Double.valueOf(-2.25), new BigDecimal("-12345678901234567890.0012"), new BigInteger("98765432109876543210"),
+            new Date(1234567890123L), UUID.randomUUID()};
+        for (Object value : values)
+        {
+            Object result = roundTrip(value);
+            assertEquals(value, result);
+            assertEquals(value.getClass(), result.getClass());
+        }
+        assertNull(roundTrip(null));
+
+        byte[] bytes = new byte[] {1, 2, 3, -128, 127};
+        assertTrue(Arrays.equals(bytes, (byte[]) roundTrip(bytes)));
+    }
+
+    public void testContainers() throws Exception
+    {
+        List<Object> list = new ArrayList<>();
+        list.add("a");
+        list.add(null);
+        list.add(Long.valueOf(3));
+
+        Set<String> linkedSet = new LinkedHashSet<>(Arrays.asList("z", "y", "x"));
+        Set<Integer> set = new HashSet<>(Arrays.asList(1, 2, 3));
+
+        Map<String, Object> linkedMap = new LinkedHashMap<>();
+        linkedMap.put("second", list);
+        linkedMap.put("first", set);
+        Map<Object, Object> map = new HashMap<>();
+        map.put(Integer.valueOf(1), linkedMap);
+        map.put("set", linkedSet);
+
+        Object result = roundTrip(map);
+        assertEquals(HashMap.class, result.getClass());
+        assertEquals(map, result);
+
+        Map<?, ?> resultLinkedMap = (Map<?, ?>) ((Map<?, ?>) result).get(Integer.valueOf(1));
+        assertEquals(LinkedHashMap.class, resultLinkedMap.getClass());
+        assertEquals(Arrays.asList("second", "first"), new ArrayList<>(resultLinkedMap.keySet()));
+
+        Set<?> resultLinkedSet = (Set<?>) ((Map<?, ?>) result).get("set");
+        assertEquals(LinkedHashSet.class, resultLinkedSet.getClass());
+        Iterator<?> iter = resultLinkedSet.iterator();
+        assertEquals("z", iter.next());
+        assertEquals("y", iter.next());
+        assertEquals("x", iter.next());
+    }
+
+    public void testOtherTypesUseJavaSerialisation() throws Exception
+    {
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        treeMap.put("b", 2);
+        treeMap.put("a", 1);
+        List<Object> list = new ArrayList<>();
+        list.add(treeMap);
+
+        List<?> result = (List<?>) roundTrip(list);
+        assertEquals(TreeMap.class, result.get(0).getClass());
+        assertEquals(treeMap, result.get(0));
+    }
+
+    public void testSelfReferencingCollection() throws Exception
+    {
+        List<Object> list = new ArrayList<>();
+        list.add("a");
+        list.add(list);
+
+        List<?> result = (List<?>) roundTrip(list);
+        assertEquals(2, result.size());
+        assertEquals("a", result.get(0));
+        assertSame(result, result.get(1));
+    }
+
+    public void testSharedReferenceIsRetained() throws Exception
+    {
+        List<String> shared = new ArrayList<>();
+        shared.add("shared");
+        Map<String, Object> map = new HashMap<>();
+        map.put("one", shared);
+        map.put("two", shared);
+
+        Map<?, ?> result = (Map<?, ?>) roundTrip(map);
+        assertEquals(map, result);
+        assertSame(result.get("one"), result.get("two"));
+    }
+
+    public void testCorruptedSizeIsRejected() throws Exception
+    {
+        List<String> list = new ArrayList<>();
+        list.add("a");
+        byte[] bytes = serialiser.serialise(list);
+
+        // Replace the size (following the tag) with a huge value
+        bytes[1] = (byte) 0x7F;
+        bytes[2] = (byte) 0xFF;
+        bytes[3] = (byte) 0xFF;
+        bytes[4] = (byte) 0xFF;
+        try
+        {
+            serialiser.deserialise(bytes, 0, bytes.length);
+            fail("Expected StreamCorruptedException for invalid size");
+        }
+        catch (StreamCorruptedException sce)
+        {
+            // Expected
+        }
+    }
+
+    public void testTruncatedValueIsRejected() throws Exception
+    {
+        byte[] bytes = serialiser.serialise("Some text");
+        try
+        {
+            serialiser.deserialise(bytes, 0, bytes.length - 2);
+            fail("Expected IOException for truncated value");
+        }
+        catch (IOException ioe)
+        {
+            // Expected
+        }
+    }
+}
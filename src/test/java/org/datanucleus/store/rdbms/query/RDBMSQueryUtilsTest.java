@@ -0,0 +1,69 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.query;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the query utilities used for keyset pagination.
+ */
+public class RDBMSQueryUtilsTest extends TestCase
+{
+    public void testKeysetValues()
+    {
+        assertNull(RDBMSQueryUtils.getKeysetValues(null));
+        assertNull(RDBMSQueryUtils.getKeysetValues("false"));
+        assertNull(RDBMSQueryUtils.getKeysetValues(Boolean.FALSE));
+        assertEquals(0, RDBMSQueryUtils.getKeysetValues("true").length);
+        assertEquals(0, RDBMSQueryUtils.getKeysetValues(Boolean.TRUE).length);
+
+        Object[] values = RDBMSQueryUtils.getKeysetValues(Arrays.asList("Smith", Long.valueOf(12)));
+        assertEquals(2, values.length);
+        assertEquals("Smith", values[0]);
+        assertEquals(Long.valueOf(12), values[1]);
+
+        values = new Object[] {Integer.valueOf(5)};
+        assertSame(values, RDBMSQueryUtils.getKeysetValues(values));
+    }
+
+    public void testKeysetCacheKeyNotUsingKeyset()
+    {
+        assertEquals("", RDBMSQueryUtils.getKeysetCacheKey(null));
+        assertEquals("", RDBMSQueryUtils.getKeysetCacheKey("false"));
+    }
+
+    /**
+     * The first page has no seek values so its compilation can be cached, but the second page restricts to the rows after the
+     * keyset of the first page, so must not use the compilation of the first page.
+     */
+    public void testKeysetCacheKeyAcrossTwoPages()
+    {
+        String firstPageKey = RDBMSQueryUtils.getKeysetCacheKey(Boolean.TRUE);
+        assertEquals(firstPageKey, RDBMSQueryUtils.getKeysetCacheKey("true"));
+
+        Object[] firstPageKeyset = new Object[] {"Smith", Long.valueOf(12)};
+        String secondPageKey = RDBMSQueryUtils.getKeysetCacheKey(firstPageKeyset);
+        assertFalse(firstPageKey.equals(secondPageKey));
+        assertFalse("".equals(secondPageKey));
+
+        // Starting again from the first page finds the first page compilation
+        assertEquals(firstPageKey, RDBMSQueryUtils.getKeysetCacheKey(new Object[0]));
+    }
+}
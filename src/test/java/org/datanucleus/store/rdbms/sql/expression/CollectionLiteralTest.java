@@ -0,0 +1,59 @@
+/**********************************************************************
+Copyright (c) 2018 Andy Jefferson and others. All rights reserved.
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+Contributors:
+    ...
+**********************************************************************/
+package org.datanucleus.store.rdbms.sql.expression;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the bucketing of the element parameters of a collection parameter.
+ */
+public class CollectionLiteralTest extends TestCase
+{
+    public void testBucketSizeIsNextPowerOfTwo()
+    {
+        assertEquals(1, CollectionLiteral.getElementParameterBucketSize(1));
+        assertEquals(2, CollectionLiteral.getElementParameterBucketSize(2));
+        assertEquals(4, CollectionLiteral.getElementParameterBucketSize(3));
+        assertEquals(4, CollectionLiteral.getElementParameterBucketSize(4));
+        assertEquals(8, CollectionLiteral.getElementParameterBucketSize(5));
+        assertEquals(8, CollectionLiteral.getElementParameterBucketSize(8));
+        assertEquals(1024, CollectionLiteral.getElementParameterBucketSize(1000));
+    }
+
+    /**
+     * Collections with a number of elements in the same bucket use the same number of parameters, so the same SQL.
+     */
+    public void testSizesInSameBucketShareParameterCount()
+    {
+        for (int numElements=17;numElements<=32;numElements++)
+        {
+            assertEquals(32, CollectionLiteral.getElementParameterBucketSize(numElements));
+        }
+        assertEquals(64, CollectionLiteral.getElementParameterBucketSize(33));
+    }
+
+    public void testBucketSizeNeverLessThanElements()
+    {
+        for (int numElements=1;numElements<=300;numElements++)
+        {
+            int bucketSize = CollectionLiteral.getElementParameterBucketSize(numElements);
+            assertTrue(bucketSize >= numElements);
+            assertTrue(bucketSize < 2 * numElements);
+        }
+    }
+}